@@ -0,0 +1,215 @@
+package de.masterarbeit.analyse;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.masterarbeit.cisco.ConfigFingerprint;
+import de.masterarbeit.modell.*;
+
+/**
+ * Index über die Fingerabdrücke der Konfiguration aller Layer2Interfaces (siehe ConfigFingerprint). Die Interfaces werden
+ * einmalig nach ihrem Fingerabdruck gruppiert, sodass die folgenden Fragen ohne paarweisen Vergleich der Attribute
+ * beantwortet werden können:
+ * 
+ * - Sind alle Mitglieder eines Port Channels identisch konfiguriert (vgl. C_AggregationInterfacesHaveIdenticalConfiguration)?
+ * Pro Aggregator Interface gilt der häufigste Fingerabdruck der Mitglieder als Soll, alle übrigen Mitglieder weichen ab.
+ * 
+ * - Welche Interfaces sind identisch konfiguriert?
+ * 
+ * - Welche Interfaces haben sich seit dem letzten Lauf geändert? Dazu werden die Fingerabdrücke zeilenweise gespeichert
+ * (siehe getFingerprints()) und beim nächsten Lauf verglichen (siehe findDrift()).
+ * 
+ * @author Marcel Schuster
+ *
+ */
+public class ConfigFingerprintIndex {
+	private final List<NetworkComponent> networkComponents = new ArrayList<>();
+	private final Map<Long, List<Layer2Interface>> groups = new LinkedHashMap<>();
+
+	/**
+	 * Erstellt den Index aus allen Layer2Interfaces (inkl. Aggregator Interfaces) der angegebenen Netzkomponenten.
+	 * 
+	 * @param networkComponents
+	 *            Netzkomponenten, deren Layer2Interfaces indiziert werden sollen
+	 */
+	public ConfigFingerprintIndex(Collection<NetworkComponent> networkComponents) {
+		for (NetworkComponent networkComponent : networkComponents) {
+			this.networkComponents.add(networkComponent);
+			for (Layer2Interface layer2Interface : networkComponent.layer2Rows) {
+				this.groups.computeIfAbsent(layer2Interface.configFingerprint, k -> new ArrayList<>()).add(layer2Interface);
+			}
+		}
+	}
+
+	/**
+	 * Gibt alle Interfaces mit demselben Fingerabdruck zurück.
+	 * 
+	 * @param layer2Interface
+	 *            Interface
+	 * @return Identisch konfigurierte Interfaces (inkl. des übergebenen Interfaces)
+	 */
+	public List<Layer2Interface> findIdentical(Layer2Interface layer2Interface) {
+		return this.groups.getOrDefault(layer2Interface.configFingerprint, new ArrayList<>());
+	}
+
+	/**
+	 * Gibt alle Gruppen identisch konfigurierter Interfaces zurück, die aus mehr als einem Interface bestehen.
+	 * 
+	 * @return Gruppen in der Reihenfolge ihres ersten Auftretens
+	 */
+	public List<List<Layer2Interface>> findIdenticalGroups() {
+		List<List<Layer2Interface>> result = new ArrayList<>();
+		for (List<Layer2Interface> group : this.groups.values()) {
+			if (group.size() > 1) {
+				result.add(group);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Sucht Port Channels, deren Mitglieder nicht identisch konfiguriert sind. Der Aufwand ist linear in der Anzahl der
+	 * Mitglieder.
+	 * 
+	 * @return Abweichende Mitglieder pro Aggregator Interface (nur Aggregator Interfaces mit Abweichungen)
+	 */
+	public Map<Layer2Interface, List<Layer2Interface>> findInconsistentAggregators() {
+		Map<Layer2Interface, List<Layer2Interface>> result = new LinkedHashMap<>();
+
+		for (NetworkComponent networkComponent : this.networkComponents) {
+			for (Layer2Interface aggregatorInterface : networkComponent.aggregatorInterfaces.values()) {
+				if (aggregatorInterface.aggregationInterfaces.size() < 2) {
+					continue;
+				}
+
+				// Häufigsten Fingerabdruck bestimmen (bei Gleichstand den des ersten Mitglieds)
+				Map<Long, Integer> counts = new LinkedHashMap<>();
+				for (Layer2Interface member : aggregatorInterface.aggregationInterfaces.values()) {
+					counts.merge(member.configFingerprint, 1, Integer::sum);
+				}
+				if (counts.size() == 1) {
+					continue;
+				}
+
+				long expected = 0;
+				int max = 0;
+				for (Map.Entry<Long, Integer> entry : counts.entrySet()) {
+					if (entry.getValue() > max) {
+						expected = entry.getKey();
+						max = entry.getValue();
+					}
+				}
+
+				List<Layer2Interface> deviating = new ArrayList<>();
+				for (Layer2Interface member : aggregatorInterface.aggregationInterfaces.values()) {
+					if (member.configFingerprint != expected) {
+						deviating.add(member);
+					}
+				}
+				result.put(aggregatorInterface, deviating);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Gibt die Fingerabdrücke aller Interfaces zeilenweise zurück, z.B. um sie für den Vergleich im nächsten Lauf zu
+	 * speichern.
+	 * 
+	 * @return Zeilen der Form "Netzkomponente/Interface Fingerabdruck"
+	 */
+	public List<String> getFingerprints() {
+		List<String> result = new ArrayList<>();
+		for (NetworkComponent networkComponent : this.networkComponents) {
+			for (Layer2Interface layer2Interface : networkComponent.layer2Rows) {
+				result.add(qualifiedName(layer2Interface) + " " + ConfigFingerprint.toHex(layer2Interface.configFingerprint));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Vergleicht die Fingerabdrücke mit denen eines früheren Laufs (siehe getFingerprints()).
+	 * 
+	 * @param previous
+	 *            Zeilen des früheren Laufs
+	 * @return Bericht über geänderte, hinzugekommene und entfernte Interfaces
+	 */
+	public List<String> findDrift(List<String> previous) {
+		List<String> result = new ArrayList<>();
+
+		Map<String, String> fingerprints = new HashMap<>();
+		for (String line : previous) {
+			int separator = line.lastIndexOf(' ');
+			if (separator > 0) {
+				fingerprints.put(line.substring(0, separator), line.substring(separator + 1));
+			}
+		}
+
+		for (NetworkComponent networkComponent : this.networkComponents) {
+			for (Layer2Interface layer2Interface : networkComponent.layer2Rows) {
+				String name = qualifiedName(layer2Interface);
+				String fingerprint = fingerprints.remove(name);
+				if (fingerprint == null) {
+					result.add("Interface added: " + name);
+				} else if (!fingerprint.equals(ConfigFingerprint.toHex(layer2Interface.configFingerprint))) {
+					result.add("Configuration changed: " + name);
+				}
+			}
+		}
+
+		for (String line : previous) {
+			int separator = line.lastIndexOf(' ');
+			if (separator > 0 && fingerprints.containsKey(line.substring(0, separator))) {
+				result.add("Interface removed: " + line.substring(0, separator));
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Gibt die Anzahl unterschiedlicher Fingerabdrücke zurück.
+	 * 
+	 * @return Anzahl der Fingerabdrücke
+	 */
+	public int size() {
+		return this.groups.size();
+	}
+
+	/**
+	 * Erstellt einen lesbaren Bericht über Port Channels mit unterschiedlich konfigurierten Mitgliedern.
+	 * 
+	 * @return Bericht als Liste von Strings
+	 */
+	public List<String> getReport() {
+		List<String> result = new ArrayList<>();
+
+		for (Map.Entry<Layer2Interface, List<Layer2Interface>> entry : this.findInconsistentAggregators().entrySet()) {
+			List<String> names = new ArrayList<>();
+			for (Layer2Interface member : entry.getValue()) {
+				names.add(member.name);
+			}
+			result.add("Inconsistent LAG members: " + qualifiedName(entry.getKey()) + " (deviating: "
+					+ String.join(", ", names) + ")");
+		}
+
+		return result;
+	}
+
+	/**
+	 * Gibt den Namen des Interfaces zusammen mit dem Namen der Netzkomponente zurück.
+	 * 
+	 * @param layer2Interface
+	 *            Interface
+	 * @return Name der Form "Netzkomponente/Interface"
+	 */
+	private static String qualifiedName(Layer2Interface layer2Interface) {
+		return layer2Interface.networkComponent.name + "/" + layer2Interface.name;
+	}
+}
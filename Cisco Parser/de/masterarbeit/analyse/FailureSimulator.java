@@ -0,0 +1,1033 @@
+package de.masterarbeit.analyse;
+
+import static de.masterarbeit.toolbox.Toolbox.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import de.masterarbeit.modell.*;
+
+/**
+ * Simuliert den Ausfall von Netzkomponenten (Chassis), Layer1Links oder ganzen Interfaces (z.B. LAGs) auf der korrelierten
+ * Topologie ("Was passiert, wenn NX-A ausfällt?"), ohne die SOIL-Ausgabe anzupassen und in USE erneut zu validieren.
+ * Berichtet werden:
+ * 
+ * - Netzkomponenten, die physisch (über Layer1Links) nicht mehr miteinander verbunden sind,
+ * 
+ * - VLANs, deren Layer 2 Domäne in mehrere Segmente zerfällt (siehe VlanDomainIndex),
+ * 
+ * - Layer3 Subnetze, deren Interfaces nicht mehr über ihr VLAN bzw. die Links zwischen ihren gerouteten Ports verbunden sind
+ * oder deren Netzkomponente ausfällt,
+ * 
+ * - Layer2Links, deren Link- oder Chassisredundanz (linkRedundancy bzw. chassisRedundancy im Modell) unter das geforderte
+ * Minimum fällt.
+ * 
+ * Ein Layer2Link wird dabei als eigener Knoten modelliert, an dem die Netzkomponenten beider Seiten hängen. Eine Seite
+ * eines verschmolzenen Interfaces (vPC) umfasst beide Peers, sodass der Ausfall eines Peers den Link nicht trennt. Eine
+ * Netzkomponente hängt an einem Layer2Link, solange mindestens einer der zugrunde liegenden Layer1Links besteht.
+ * 
+ * Für die physische Topologie und jedes VLAN werden vorab die Zusammenhangskomponenten, Brücken und Artikulationspunkte
+ * bestimmt (Tarjan). Ein Ausfall betrifft nur die VLANs der ausgefallenen Anbindungen bzw. Netzkomponenten; fällt dort nur
+ * eine Kante (Brücke?) oder ein Knoten (Artikulationspunkt?) aus, steht das Ergebnis ohne weitere Suche fest. Nur bei
+ * mehreren Ausfällen wird die betroffene Zusammenhangskomponente neu verbunden (Union-Find). Damit bleibt auch die
+ * Simulation aller Einzelausfälle (siehe sweep()) schnell.
+ * 
+ * Ausfälle werden als Namen angegeben: "Netzkomponente" für eine Netzkomponente, "Netzkomponente/Interface" für den
+ * Layer1Link eines Layer1Interfaces bzw. alle Layer1Links eines Layer2Interfaces.
+ * 
+ * @author Marcel Schuster
+ *
+ */
+public class FailureSimulator {
+	// Geforderte minimale Link- und Chassisredundanz der Layer2Links (im Modell mit 1 initialisiert)
+	public int minLinkRedundancy = 1;
+	public int minChassisRedundancy = 1;
+
+	// Anzahl der Namen, mit denen der verbleibende Teil einer getrennten Topologie beschrieben wird
+	private static final int MAX_NAMES = 3;
+
+	private final List<NetworkComponent> networkComponents;
+	private final InterfaceOrder order;
+	private final Map<String, Integer> componentNames = new HashMap<>();
+
+	// Layer1Links als Paar von Layer1Interfaces und die Anbindungen, die sie tragen
+	private final List<Layer1Interface[]> layer1Links = new ArrayList<>();
+	private final Map<Layer1Interface, Integer> layer1Index = new IdentityHashMap<>();
+	private final List<List<Attachment>> layer1Attachments = new ArrayList<>();
+
+	// Layer2Links (über kanonische Interfaces, siehe InterfaceOrder) mit ihren VLAN-IDs und Anbindungen
+	private final List<Layer2Interface[]> layer2Links = new ArrayList<>();
+	private final List<BitSet> layer2Vlans = new ArrayList<>();
+	private final List<List<Attachment>> layer2Attachments = new ArrayList<>();
+	private final Map<Layer2Interface, List<Integer>> interfaceLinks = new IdentityHashMap<>();
+	private final List<Attachment> attachments = new ArrayList<>();
+
+	// Physische Topologie (Knoten = Netzkomponenten, Kanten = Layer1Links) und Topologie pro VLAN (Knoten =
+	// Netzkomponenten und Layer2Links, Kanten = Anbindungen)
+	private final Graph physical;
+	private final Map<Integer, Graph> vlans = new TreeMap<>();
+	private final List<BitSet> componentVlans = new ArrayList<>();
+
+	// Layer3 Subnetze mit Interfaces auf mehreren Netzkomponenten pro VLAN. Subnetze auf gerouteten Ports (ohne VLAN-ID)
+	// erhalten jeweils eine eigene Domäne oberhalb von MAX_VLAN, die nur die Links zwischen diesen Ports umfasst.
+	private final Map<Integer, List<Subnet>> subnets = new HashMap<>();
+
+	// Statistik über den letzten Aufruf von sweep()
+	private int simulated = 0;
+	private int impacting = 0;
+
+	/**
+	 * Anbindung einer Netzkomponente an eine Seite eines Layer2Links über einen oder mehrere Layer1Links.
+	 */
+	private static class Attachment {
+		private final int id;
+		private final int link;
+		private final int side;
+		private final int component;
+		private final List<Integer> layer1Links = new ArrayList<>();
+
+		private Attachment(int id, int link, int side, int component) {
+			this.id = id;
+			this.link = link;
+			this.side = side;
+			this.component = component;
+		}
+	}
+
+	/**
+	 * Layer3 Subnetz mit den Netzkomponenten seiner Interfaces.
+	 */
+	private static class Subnet {
+		private final String prefix;
+		private final List<Integer> components = new ArrayList<>();
+
+		private Subnet(String prefix) {
+			this.prefix = prefix;
+		}
+	}
+
+	/**
+	 * Ungerichteter Multigraph mit vorab bestimmten Zusammenhangskomponenten, Brücken und Artikulationspunkten. Knoten
+	 * verweisen auf eine Netzkomponente (bzw. -1 für Layer2Links), Kanten auf einen Layer1Link bzw. eine Anbindung.
+	 */
+	private static class Graph {
+		private final List<Integer> nodeComponents = new ArrayList<>();
+		private final Map<Integer, Integer> componentNodes = new HashMap<>();
+		private final Map<Integer, Integer> linkNodes = new HashMap<>();
+		private final List<int[]> edges = new ArrayList<>();
+		private final Map<Integer, Integer> edgeIds = new HashMap<>();
+
+		private int[][] adjacency;
+		private int[] labels;
+		private int[][] members;
+		private final BitSet bridges = new BitSet();
+		private final BitSet articulations = new BitSet();
+
+		/**
+		 * Gibt den Knoten der Netzkomponente zurück und legt ihn bei Bedarf an.
+		 */
+		private int componentNode(int component) {
+			return this.componentNodes.computeIfAbsent(component, k -> {
+				this.nodeComponents.add(component);
+				return this.nodeComponents.size() - 1;
+			});
+		}
+
+		/**
+		 * Gibt den Knoten des Layer2Links zurück und legt ihn bei Bedarf an.
+		 */
+		private int linkNode(int link) {
+			return this.linkNodes.computeIfAbsent(link, k -> {
+				this.nodeComponents.add(-1);
+				return this.nodeComponents.size() - 1;
+			});
+		}
+
+		/**
+		 * Fügt eine Kante hinzu.
+		 */
+		private void addEdge(int src, int dst, int id) {
+			this.edgeIds.put(id, this.edges.size());
+			this.edges.add(new int[] { src, dst });
+		}
+
+		/**
+		 * Bestimmt Zusammenhangskomponenten, Brücken und Artikulationspunkte (Tarjan, iterativ). Parallele Kanten werden
+		 * über ihre ID unterschieden, sodass sie keine Brücken sind.
+		 */
+		private void analyse() {
+			int size = this.nodeComponents.size();
+			int[] degree = new int[size];
+			for (int[] edge : this.edges) {
+				if (edge[0] != edge[1]) {
+					degree[edge[0]]++;
+					degree[edge[1]]++;
+				}
+			}
+			this.adjacency = new int[size][];
+			for (int node = 0; node < size; node++) {
+				this.adjacency[node] = new int[degree[node]];
+			}
+			for (int e = 0; e < this.edges.size(); e++) {
+				int[] edge = this.edges.get(e);
+				if (edge[0] != edge[1]) {
+					this.adjacency[edge[0]][--degree[edge[0]]] = e;
+					this.adjacency[edge[1]][--degree[edge[1]]] = e;
+				}
+			}
+
+			this.labels = new int[size];
+			int[] discovery = new int[size];
+			int[] low = new int[size];
+			int[] parentEdge = new int[size];
+			int[] position = new int[size];
+			int[] stack = new int[size];
+			int time = 0;
+			List<int[]> components = new ArrayList<>();
+
+			for (int root = 0; root < size; root++) {
+				if (discovery[root] != 0) {
+					continue;
+				}
+
+				int label = components.size();
+				List<Integer> nodes = new ArrayList<>();
+				int children = 0;
+				int top = 0;
+				stack[top++] = root;
+				parentEdge[root] = -1;
+				discovery[root] = low[root] = ++time;
+
+				while (top > 0) {
+					int node = stack[top - 1];
+					if (position[node] < this.adjacency[node].length) {
+						int e = this.adjacency[node][position[node]++];
+						if (e == parentEdge[node]) {
+							continue;
+						}
+						int next = this.opposite(e, node);
+						if (discovery[next] == 0) {
+							parentEdge[next] = e;
+							discovery[next] = low[next] = ++time;
+							stack[top++] = next;
+							if (node == root) {
+								children++;
+							}
+						} else {
+							low[node] = Math.min(low[node], discovery[next]);
+						}
+					} else {
+						top--;
+						this.labels[node] = label;
+						nodes.add(node);
+						if (node != root) {
+							int parent = this.opposite(parentEdge[node], node);
+							low[parent] = Math.min(low[parent], low[node]);
+							if (low[node] > discovery[parent]) {
+								this.bridges.set(parentEdge[node]);
+							}
+							if (parent != root && low[node] >= discovery[parent]) {
+								this.articulations.set(parent);
+							}
+						}
+					}
+				}
+
+				if (children > 1) {
+					this.articulations.set(root);
+				}
+				components.add(nodes.stream().mapToInt(Integer::intValue).toArray());
+			}
+
+			this.members = components.toArray(new int[components.size()][]);
+		}
+
+		/**
+		 * Bestimmt die Zusammenhangskomponenten nach dem Ausfall der Knoten und Kanten.
+		 * 
+		 * @param deadNodes
+		 *            Ausgefallene Knoten
+		 * @param deadEdges
+		 *            Ausgefallene Kanten
+		 * @return Neue Zuordnung der Knoten zu Zusammenhangskomponenten (-1 für ausgefallene Knoten) oder null, sofern die
+		 *         übrigen Knoten weiterhin wie zuvor verbunden sind
+		 */
+		private int[] connect(BitSet deadNodes, BitSet deadEdges) {
+			// Kanten an ausgefallenen Knoten fallen ohnehin weg
+			BitSet remaining = new BitSet();
+			for (int e = deadEdges.nextSetBit(0); e >= 0; e = deadEdges.nextSetBit(e + 1)) {
+				int[] edge = this.edges.get(e);
+				if (!deadNodes.get(edge[0]) && !deadNodes.get(edge[1])) {
+					remaining.set(e);
+				}
+			}
+
+			// Ausgefallene Knoten, die zusammen nur an einem übrigen Knoten hängen (z.B. eine Netzkomponente samt ihrem
+			// einzigen Layer2Link), trennen die übrigen Knoten nicht und werden für die Schnellprüfung ignoriert
+			BitSet significant = new BitSet();
+			BitSet visited = new BitSet();
+			for (int node = deadNodes.nextSetBit(0); node >= 0; node = deadNodes.nextSetBit(node + 1)) {
+				if (!visited.get(node)) {
+					BitSet cluster = this.cluster(node, deadNodes, visited);
+					if (cluster != null) {
+						significant.or(cluster);
+					}
+				}
+			}
+
+			if (remaining.isEmpty() && (significant.isEmpty()
+					|| (significant.cardinality() == 1 && !this.articulations.get(significant.nextSetBit(0))))) {
+				return null;
+			} else if (significant.isEmpty() && remaining.cardinality() == 1
+					&& !this.bridges.get(remaining.nextSetBit(0))) {
+				return null;
+			}
+
+			// Nur die betroffenen Zusammenhangskomponenten neu verbinden
+			BitSet affected = new BitSet();
+			for (int node = deadNodes.nextSetBit(0); node >= 0; node = deadNodes.nextSetBit(node + 1)) {
+				affected.set(this.labels[node]);
+			}
+			for (int e = remaining.nextSetBit(0); e >= 0; e = remaining.nextSetBit(e + 1)) {
+				affected.set(this.labels[this.edges.get(e)[0]]);
+			}
+
+			int[] result = this.labels.clone();
+			int[] sets = new int[this.labels.length];
+			for (int label = affected.nextSetBit(0); label >= 0; label = affected.nextSetBit(label + 1)) {
+				for (int node : this.members[label]) {
+					sets[node] = node;
+				}
+				for (int node : this.members[label]) {
+					if (deadNodes.get(node)) {
+						continue;
+					}
+					for (int e : this.adjacency[node]) {
+						int next = this.opposite(e, node);
+						if (!deadEdges.get(e) && !deadNodes.get(next)) {
+							int src = find(sets, node);
+							int dst = find(sets, next);
+							sets[Math.max(src, dst)] = Math.min(src, dst);
+						}
+					}
+				}
+				for (int node : this.members[label]) {
+					result[node] = deadNodes.get(node) ? -1 : this.members.length + find(sets, node);
+				}
+			}
+
+			return result;
+		}
+
+		/**
+		 * Sammelt die zusammenhängenden ausgefallenen Knoten ab dem angegebenen Knoten.
+		 * 
+		 * @param start
+		 *            Ausgefallener Knoten
+		 * @param deadNodes
+		 *            Ausgefallene Knoten
+		 * @param visited
+		 *            Bereits gesammelte Knoten (wird ergänzt)
+		 * @return Gesammelte Knoten oder null, sofern sie nur an höchstens einem übrigen Knoten hängen
+		 */
+		private BitSet cluster(int start, BitSet deadNodes, BitSet visited) {
+			BitSet result = new BitSet();
+			List<Integer> stack = new ArrayList<>();
+			int neighbor = -1;
+			boolean separating = false;
+
+			stack.add(start);
+			visited.set(start);
+			while (!stack.isEmpty()) {
+				int node = stack.remove(stack.size() - 1);
+				result.set(node);
+				for (int e : this.adjacency[node]) {
+					int next = this.opposite(e, node);
+					if (deadNodes.get(next)) {
+						if (!visited.get(next)) {
+							visited.set(next);
+							stack.add(next);
+						}
+					} else {
+						separating |= neighbor >= 0 && neighbor != next;
+						neighbor = next;
+					}
+				}
+			}
+
+			return separating ? result : null;
+		}
+
+		/**
+		 * Gibt den anderen Knoten der Kante zurück.
+		 */
+		private int opposite(int edge, int node) {
+			int[] nodes = this.edges.get(edge);
+			return nodes[0] == node ? nodes[1] : nodes[0];
+		}
+	}
+
+	/**
+	 * Erstellt die Graphen der physischen Topologie und aller VLANs.
+	 * 
+	 * @param topology
+	 *            Korrelierte Topologie
+	 */
+	public FailureSimulator(Topology topology) {
+		this.networkComponents = topology.networkComponents;
+		this.order = new InterfaceOrder(this.networkComponents);
+		for (int i = 0; i < this.networkComponents.size(); i++) {
+			this.componentNames.put(this.networkComponents.get(i).name, i);
+			this.componentVlans.add(new BitSet());
+		}
+
+		this.collectLinks();
+		this.collectSubnets();
+
+		this.physical = new Graph();
+		for (int i = 0; i < this.networkComponents.size(); i++) {
+			this.physical.componentNode(i);
+		}
+		for (int i = 0; i < this.layer1Links.size(); i++) {
+			Layer1Interface[] link = this.layer1Links.get(i);
+			this.physical.addEdge(this.order.indexOf(link[0].networkComponent),
+					this.order.indexOf(link[1].networkComponent), i);
+		}
+		this.physical.analyse();
+
+		// Netzkomponenten, die das VLAN führen, sind auch ohne Link Teil seiner Domäne
+		for (int i = 0; i < this.networkComponents.size(); i++) {
+			for (Layer2Interface layer2Interface : this.networkComponents.get(i).layer2Rows) {
+				BitSet vids = VlanDomainIndex.getVIDs(layer2Interface);
+				for (int vid = vids.nextSetBit(1); vid >= 0 && vid <= VlanDomainIndex.MAX_VLAN; vid = vids.nextSetBit(vid + 1)) {
+					this.vlan(vid).componentNode(i);
+				}
+			}
+		}
+		for (Attachment attachment : this.attachments) {
+			BitSet vids = this.layer2Vlans.get(attachment.link);
+			for (int vid = vids.nextSetBit(0); vid >= 0; vid = vids.nextSetBit(vid + 1)) {
+				Graph graph = this.vlan(vid);
+				graph.addEdge(graph.componentNode(attachment.component), graph.linkNode(attachment.link), attachment.id);
+			}
+		}
+		for (Map.Entry<Integer, List<Subnet>> entry : this.subnets.entrySet()) {
+			for (Subnet subnet : entry.getValue()) {
+				for (int component : subnet.components) {
+					this.vlan(entry.getKey()).componentNode(component);
+				}
+			}
+		}
+		for (Map.Entry<Integer, Graph> entry : this.vlans.entrySet()) {
+			entry.getValue().analyse();
+			for (int component : entry.getValue().componentNodes.keySet()) {
+				this.componentVlans.get(component).set(entry.getKey());
+			}
+		}
+	}
+
+	/**
+	 * Simuliert den gleichzeitigen Ausfall der angegebenen Netzkomponenten und Interfaces.
+	 * 
+	 * @param failures
+	 *            Namen der Form "Netzkomponente" bzw. "Netzkomponente/Interface"
+	 * @return Bericht über die Auswirkungen (eine Zeile pro Auswirkung)
+	 * @throws IllegalArgumentException
+	 *             Sofern eine Netzkomponente oder ein Interface nicht existiert
+	 */
+	public List<String> simulate(Collection<String> failures) {
+		BitSet deadComponents = new BitSet();
+		BitSet deadLayer1Links = new BitSet();
+		for (String failure : failures) {
+			this.resolve(failure.trim(), deadComponents, deadLayer1Links);
+		}
+
+		List<String> result = new ArrayList<>();
+		if (!deadComponents.isEmpty()) {
+			result.add("Components down: " + this.names(deadComponents.stream().boxed().collect(Collectors.toList()), Integer.MAX_VALUE));
+		}
+		result.addAll(this.impact(deadComponents, deadLayer1Links));
+		if (result.isEmpty()) {
+			result.add("No impact");
+		}
+		return result;
+	}
+
+	/**
+	 * Simuliert nacheinander den Ausfall jeder einzelnen Netzkomponente und jedes einzelnen Layer1Links.
+	 * 
+	 * @return Bericht über alle Einzelausfälle mit Auswirkungen (eine Zeile pro Auswirkung der Form "Failure of X: ...")
+	 */
+	public List<String> sweep() {
+		List<String> result = new ArrayList<>();
+		this.simulated = 0;
+		this.impacting = 0;
+
+		for (int i = 0; i < this.networkComponents.size(); i++) {
+			BitSet deadComponents = new BitSet();
+			deadComponents.set(i);
+			this.report(this.networkComponents.get(i).name, this.impact(deadComponents, new BitSet()), result);
+		}
+		for (int i = 0; i < this.layer1Links.size(); i++) {
+			BitSet deadLayer1Links = new BitSet();
+			deadLayer1Links.set(i);
+			this.report(name(this.layer1Links.get(i)), this.impact(new BitSet(), deadLayer1Links), result);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Gibt die Anzahl der beim letzten Aufruf von sweep() simulierten Einzelausfälle zurück.
+	 * 
+	 * @return Anzahl simulierter Ausfälle
+	 */
+	public int getSimulated() {
+		return this.simulated;
+	}
+
+	/**
+	 * Gibt die Anzahl der beim letzten Aufruf von sweep() gefundenen Einzelausfälle mit Auswirkungen zurück (Single Points of
+	 * Failure).
+	 * 
+	 * @return Anzahl der Ausfälle mit Auswirkungen
+	 */
+	public int getImpacting() {
+		return this.impacting;
+	}
+
+	/**
+	 * Sammelt alle Layer1Links und Layer2Links und bestimmt, über welche Layer1Links die Netzkomponenten an den Seiten der
+	 * Layer2Links hängen.
+	 */
+	private void collectLinks() {
+		for (NetworkComponent networkComponent : this.networkComponents) {
+			for (Layer1Interface layer1Interface : networkComponent.layer1Interfaces.values()) {
+				Layer1Interface opposite = layer1Interface.layer1LinkTo;
+				if (opposite != null && !this.layer1Index.containsKey(layer1Interface)
+						&& this.order.contains(opposite.networkComponent)) {
+					this.layer1Index.put(layer1Interface, this.layer1Links.size());
+					this.layer1Index.put(opposite, this.layer1Links.size());
+					this.layer1Links.add(new Layer1Interface[] { layer1Interface, opposite });
+					this.layer1Attachments.add(new ArrayList<>());
+				}
+			}
+		}
+
+		// Layer2Links werden über ihre (ggf. verschmolzenen) Interfaces nur einmal gezählt
+		Map<List<Layer2Interface>, Integer> keys = new HashMap<>();
+		for (NetworkComponent networkComponent : this.networkComponents) {
+			for (Layer2Interface layer2Interface : networkComponent.layer2Rows) {
+				for (Layer2Interface opposite : layer2Interface.layer2LinksTo.values()) {
+					if (this.order.contains(opposite.networkComponent)) {
+						List<Layer2Interface> key = this.order.key(layer2Interface, opposite);
+						keys.computeIfAbsent(key, k -> this.addLayer2Link(k.get(0), k.get(1)));
+					}
+				}
+			}
+		}
+
+		// Jeder Layer1Link trägt alle Layer2Links zwischen seinen Layer2Interfaces, bei verschmolzenen Interfaces auch die
+		// Links, die am Partner hängen
+		for (int i = 0; i < this.layer1Links.size(); i++) {
+			Layer1Interface[] layer1Link = this.layer1Links.get(i);
+			for (Layer2Interface src : layer1Link[0].getAllLayer2Interfaces()) {
+				for (Layer2Interface dst : layer1Link[1].getAllLayer2Interfaces()) {
+					Integer link = keys.get(this.order.key(src, dst));
+					if (link != null) {
+						boolean swapped = this.order.canonical(src) != this.layer2Links.get(link)[0];
+						this.attach(link, swapped ? 1 : 0, layer1Link[0].networkComponent, i);
+						this.attach(link, swapped ? 0 : 1, layer1Link[1].networkComponent, i);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Legt einen Layer2Link an.
+	 * 
+	 * @param src
+	 *            Kanonisches Interface der ersten Seite
+	 * @param dst
+	 *            Kanonisches Interface der zweiten Seite
+	 * @return Index des Layer2Links
+	 */
+	private int addLayer2Link(Layer2Interface src, Layer2Interface dst) {
+		BitSet shared = VlanDomainIndex.getLinkVIDs(src, this.order);
+		shared.and(VlanDomainIndex.getLinkVIDs(dst, this.order));
+		shared.clear(0);
+
+		int link = this.layer2Links.size();
+		this.layer2Links.add(new Layer2Interface[] { src, dst });
+		this.layer2Vlans.add(shared);
+		this.layer2Attachments.add(new ArrayList<>());
+		this.interfaceLinks.computeIfAbsent(src, k -> new ArrayList<>()).add(link);
+		this.interfaceLinks.computeIfAbsent(dst, k -> new ArrayList<>()).add(link);
+		return link;
+	}
+
+	/**
+	 * Hängt eine Netzkomponente über einen Layer1Link an eine Seite eines Layer2Links.
+	 * 
+	 * @param link
+	 *            Index des Layer2Links
+	 * @param side
+	 *            Seite (0 oder 1)
+	 * @param networkComponent
+	 *            Netzkomponente
+	 * @param layer1Link
+	 *            Index des Layer1Links
+	 */
+	private void attach(int link, int side, NetworkComponent networkComponent, int layer1Link) {
+		int component = this.order.indexOf(networkComponent);
+		Attachment attachment = null;
+		for (Attachment candidate : this.layer2Attachments.get(link)) {
+			if (candidate.side == side && candidate.component == component) {
+				attachment = candidate;
+			}
+		}
+		if (attachment == null) {
+			attachment = new Attachment(this.attachments.size(), link, side, component);
+			this.attachments.add(attachment);
+			this.layer2Attachments.get(link).add(attachment);
+		}
+
+		if (!attachment.layer1Links.contains(layer1Link)) {
+			attachment.layer1Links.add(layer1Link);
+			this.layer1Attachments.get(layer1Link).add(attachment);
+		}
+	}
+
+	/**
+	 * Sammelt die Layer3 Subnetze, deren Interfaces auf mehreren Netzkomponenten liegen, und ordnet sie dem VLAN zu, über
+	 * das ihre Interfaces verbunden sind. Liegen alle Interfaces auf gerouteten Ports, erhält das Subnetz eine eigene Domäne
+	 * aus den Layer2Links zwischen diesen Ports. Subnetze ohne gemeinsames VLAN werden ignoriert.
+	 */
+	private void collectSubnets() {
+		Map<String, List<Layer3Interface>> prefixes = new LinkedHashMap<>();
+		for (NetworkComponent networkComponent : this.networkComponents) {
+			for (Layer3Interface layer3Interface : networkComponent.layer3Interfaces.values()) {
+				try {
+					if (layer3Interface.getPrefixLength() >= 0) {
+						prefixes.computeIfAbsent(intToIP(layer3Interface.getNetworkAddress()) + "/"
+								+ layer3Interface.getPrefixLength(), k -> new ArrayList<>()).add(layer3Interface);
+					}
+				} catch (IllegalArgumentException e) {
+					// Ungültige Adressen meldet bereits der IPv4PrefixIndex
+				}
+			}
+		}
+
+		int domain = VlanDomainIndex.MAX_VLAN;
+		for (Map.Entry<String, List<Layer3Interface>> entry : prefixes.entrySet()) {
+			Subnet subnet = new Subnet(entry.getKey());
+			Set<Layer2Interface> ports = Collections.newSetFromMap(new IdentityHashMap<>());
+			BitSet shared = null;
+			boolean untagged = true;
+
+			for (Layer3Interface layer3Interface : entry.getValue()) {
+				int component = this.order.indexOf(layer3Interface.networkComponent);
+				if (!subnet.components.contains(component)) {
+					subnet.components.add(component);
+				}
+
+				BitSet vids = new BitSet();
+				for (Layer2Interface layer2Interface : layer3Interface.layer2Interfaces.values()) {
+					vids.or(VlanDomainIndex.getVIDs(layer2Interface));
+					ports.add(this.order.canonical(layer2Interface));
+				}
+				untagged &= vids.isEmpty();
+				if (shared == null) {
+					shared = vids;
+				} else {
+					shared.and(vids);
+				}
+			}
+
+			if (subnet.components.size() < 2) {
+				continue;
+			} else if (!untagged) {
+				int vlan = shared.nextSetBit(1);
+				if (vlan >= 0) {
+					this.subnets.computeIfAbsent(vlan, k -> new ArrayList<>()).add(subnet);
+				}
+				continue;
+			}
+
+			this.subnets.put(++domain, new ArrayList<>(Arrays.asList(subnet)));
+			for (Layer2Interface port : ports) {
+				for (int link : this.interfaceLinks.getOrDefault(port, Collections.emptyList())) {
+					Layer2Interface[] layer2Link = this.layer2Links.get(link);
+					if (ports.contains(layer2Link[0]) && ports.contains(layer2Link[1])) {
+						this.layer2Vlans.get(link).set(domain);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Löst den Namen eines Ausfalls auf.
+	 * 
+	 * @param failure
+	 *            Name der Form "Netzkomponente" bzw. "Netzkomponente/Interface"
+	 * @param deadComponents
+	 *            Ausgefallene Netzkomponenten
+	 * @param deadLayer1Links
+	 *            Ausgefallene Layer1Links
+	 */
+	private void resolve(String failure, BitSet deadComponents, BitSet deadLayer1Links) {
+		int separator = failure.indexOf('/');
+		String componentName = separator < 0 ? failure : failure.substring(0, separator);
+		Integer component = this.componentNames.get(componentName);
+		if (component == null) {
+			throw new IllegalArgumentException("Unknown network component: " + componentName);
+		} else if (separator < 0) {
+			deadComponents.set(component);
+			return;
+		}
+
+		NetworkComponent networkComponent = this.networkComponents.get(component);
+		InterfaceId key = InterfaceId.of(failure.substring(separator + 1));
+		List<Layer1Interface> layer1Interfaces = new ArrayList<>();
+
+		if (networkComponent.layer1Interfaces.containsKey(key)) {
+			layer1Interfaces.add(networkComponent.layer1Interfaces.get(key));
+		} else {
+			Layer2Interface layer2Interface = networkComponent.aggregatorInterfaces.containsKey(key)
+					? networkComponent.aggregatorInterfaces.get(key) : networkComponent.layer2Interfaces.get(key);
+			if (layer2Interface == null) {
+				throw new IllegalArgumentException("Unknown interface: " + failure);
+			}
+
+			// TaggedInterfaces hängen über ihr Interface an den Layer1Interfaces
+			layer1Interfaces.addAll(layer2Interface.layer1Interfaces.values());
+			if (layer1Interfaces.isEmpty() && layer2Interface.untaggedInterface != null) {
+				layer1Interfaces.addAll(layer2Interface.untaggedInterface.layer1Interfaces.values());
+			}
+		}
+
+		boolean linked = false;
+		for (Layer1Interface layer1Interface : layer1Interfaces) {
+			Integer link = this.layer1Index.get(layer1Interface);
+			if (link != null) {
+				deadLayer1Links.set(link);
+				linked = true;
+			}
+		}
+		if (!linked) {
+			throw new IllegalArgumentException("No Layer1Link on interface: " + failure);
+		}
+	}
+
+	/**
+	 * Bestimmt die Auswirkungen eines Ausfalls.
+	 * 
+	 * @param deadComponents
+	 *            Ausgefallene Netzkomponenten
+	 * @param deadLayer1Links
+	 *            Ausgefallene Layer1Links
+	 * @return Bericht über die Auswirkungen (leer, sofern es keine gibt)
+	 */
+	private List<String> impact(BitSet deadComponents, BitSet deadLayer1Links) {
+		List<String> result = new ArrayList<>();
+
+		// Layer1Links an ausgefallenen Netzkomponenten fallen mit aus (Kanten der physischen Topologie = Layer1Links)
+		BitSet deadLinks = (BitSet) deadLayer1Links.clone();
+		for (int i = deadComponents.nextSetBit(0); i >= 0; i = deadComponents.nextSetBit(i + 1)) {
+			for (int layer1Link : this.physical.adjacency[i]) {
+				deadLinks.set(layer1Link);
+			}
+		}
+
+		// Physische Topologie
+		int[] labels = this.physical.connect(deadComponents, deadLinks);
+		this.split(this.physical, labels, this.physical.componentNodes.keySet(), "Connectivity lost", result);
+
+		// Betroffene Layer2Links und Anbindungen
+		BitSet affectedLinks = new BitSet();
+		for (int i = deadLinks.nextSetBit(0); i >= 0; i = deadLinks.nextSetBit(i + 1)) {
+			for (Attachment attachment : this.layer1Attachments.get(i)) {
+				affectedLinks.set(attachment.link);
+			}
+		}
+
+		BitSet deadAttachments = new BitSet();
+		BitSet deadLayer2Links = new BitSet();
+		BitSet affectedVlans = new BitSet();
+		for (int i = deadComponents.nextSetBit(0); i >= 0; i = deadComponents.nextSetBit(i + 1)) {
+			affectedVlans.or(this.componentVlans.get(i));
+		}
+
+		for (int link = affectedLinks.nextSetBit(0); link >= 0; link = affectedLinks.nextSetBit(link + 1)) {
+			int[] before = new int[3];
+			int[] after = new int[3];
+			boolean detached = false;
+			boolean[] up = new boolean[2];
+			for (Attachment attachment : this.layer2Attachments.get(link)) {
+				up[attachment.side] |= !deadComponents.get(attachment.component);
+				int alive = 0;
+				for (int layer1Link : attachment.layer1Links) {
+					alive += deadLinks.get(layer1Link) ? 0 : 1;
+				}
+				if (alive == 0) {
+					deadAttachments.set(attachment.id);
+					detached = true;
+				}
+
+				// Jeder Layer1Link hängt auf Seite 0 an genau einer Anbindung
+				if (attachment.side == 0) {
+					before[0] += attachment.layer1Links.size();
+					after[0] += alive;
+				}
+				before[1 + attachment.side]++;
+				after[1 + attachment.side] += alive > 0 ? 1 : 0;
+			}
+
+			if (detached) {
+				affectedVlans.or(this.layer2Vlans.get(link));
+			}
+			if (after[0] == 0) {
+				deadLayer2Links.set(link);
+			}
+
+			// Links, deren Seite vollständig ausgefallen ist, ergeben sich bereits aus den ausgefallenen Netzkomponenten
+			if (up[0] && up[1]) {
+				this.redundancy(link, before, after, result);
+			}
+		}
+
+		// VLANs und Subnetze
+		for (int vid = affectedVlans.nextSetBit(0); vid >= 0; vid = affectedVlans.nextSetBit(vid + 1)) {
+			Graph graph = this.vlans.get(vid);
+			BitSet deadNodes = new BitSet();
+			BitSet deadEdges = new BitSet();
+			for (int i = deadComponents.nextSetBit(0); i >= 0; i = deadComponents.nextSetBit(i + 1)) {
+				Integer node = graph.componentNodes.get(i);
+				if (node != null) {
+					deadNodes.set(node);
+				}
+			}
+			for (int i = deadAttachments.nextSetBit(0); i >= 0; i = deadAttachments.nextSetBit(i + 1)) {
+				Integer edge = graph.edgeIds.get(i);
+				if (edge != null) {
+					deadEdges.set(edge);
+				}
+			}
+
+			// Layer2Links ohne bestehende Layer1Links fallen als Knoten aus
+			for (int i = deadLayer2Links.nextSetBit(0); i >= 0; i = deadLayer2Links.nextSetBit(i + 1)) {
+				Integer node = graph.linkNodes.get(i);
+				if (node != null) {
+					deadNodes.set(node);
+				}
+			}
+
+			labels = graph.connect(deadNodes, deadEdges);
+			if (vid <= VlanDomainIndex.MAX_VLAN) {
+				this.split(graph, labels, graph.componentNodes.keySet(), "VLAN " + vid, result);
+			}
+			for (Subnet subnet : this.subnets.getOrDefault(vid, Collections.emptyList())) {
+				this.split(graph, labels, subnet.components, "Subnet " + subnet.prefix, result);
+				for (int component : subnet.components) {
+					if (deadComponents.get(component)) {
+						result.add("Subnet " + subnet.prefix + ": " + this.networkComponents.get(component).name + " down");
+					}
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Meldet einen Layer2Link, dessen Redundanz unter das Minimum fällt.
+	 * 
+	 * @param link
+	 *            Index des Layer2Links
+	 * @param before
+	 *            Linkredundanz und Netzkomponenten beider Seiten vor dem Ausfall
+	 * @param after
+	 *            Linkredundanz und Netzkomponenten beider Seiten nach dem Ausfall
+	 * @param result
+	 *            Bericht
+	 */
+	private void redundancy(int link, int[] before, int[] after, List<String> result) {
+		int chassisBefore = Math.min(before[1], before[2]);
+		int chassisAfter = Math.min(after[1], after[2]);
+		boolean linkViolated = after[0] < this.minLinkRedundancy && before[0] >= this.minLinkRedundancy;
+		boolean chassisViolated = chassisAfter < this.minChassisRedundancy && chassisBefore >= this.minChassisRedundancy;
+
+		if (after[0] == 0) {
+			result.add("Layer2Link " + name(this.layer2Links.get(link)) + ": lost");
+		} else if (linkViolated || chassisViolated) {
+			result.add("Layer2Link " + name(this.layer2Links.get(link)) + ": link redundancy " + before[0] + " -> "
+					+ after[0] + ", chassis redundancy " + chassisBefore + " -> " + chassisAfter + " (minimum "
+					+ this.minLinkRedundancy + "/" + this.minChassisRedundancy + ")");
+		}
+	}
+
+	/**
+	 * Meldet Netzkomponenten, die vor dem Ausfall verbunden waren und danach nicht mehr.
+	 * 
+	 * @param graph
+	 *            Graph
+	 * @param labels
+	 *            Ergebnis von Graph.connect()
+	 * @param components
+	 *            Netzkomponenten, die betrachtet werden sollen
+	 * @param prefix
+	 *            Präfix der Zeilen
+	 * @param result
+	 *            Bericht
+	 */
+	private void split(Graph graph, int[] labels, Collection<Integer> components, String prefix, List<String> result) {
+		if (labels == null) {
+			return;
+		}
+
+		// Netzkomponenten nach bisheriger und neuer Zusammenhangskomponente gruppieren
+		Map<Integer, Map<Integer, List<Integer>>> groups = new TreeMap<>();
+		for (int component : components) {
+			int node = graph.componentNodes.get(component);
+			if (labels[node] >= 0) {
+				groups.computeIfAbsent(graph.labels[node], k -> new TreeMap<>())
+						.computeIfAbsent(labels[node], k -> new ArrayList<>()).add(component);
+			}
+		}
+
+		for (Map<Integer, List<Integer>> group : groups.values()) {
+			if (group.size() < 2) {
+				continue;
+			}
+
+			List<List<Integer>> parts = new ArrayList<>(group.values());
+			for (List<Integer> part : parts) {
+				part.sort(null);
+			}
+			parts.sort((a, b) -> a.size() != b.size() ? Integer.compare(b.size(), a.size()) : Integer.compare(a.get(0),
+					b.get(0)));
+			for (int i = 1; i < parts.size(); i++) {
+				result.add(prefix + ": " + this.names(parts.get(i), Integer.MAX_VALUE) + " separated from "
+						+ this.names(parts.get(0), MAX_NAMES));
+			}
+		}
+	}
+
+	/**
+	 * Übernimmt die Auswirkungen eines Einzelausfalls in den Bericht von sweep().
+	 * 
+	 * @param failure
+	 *            Name des Ausfalls
+	 * @param impact
+	 *            Auswirkungen
+	 * @param result
+	 *            Bericht
+	 */
+	private void report(String failure, List<String> impact, List<String> result) {
+		this.simulated++;
+		if (!impact.isEmpty()) {
+			this.impacting++;
+		}
+		for (String line : impact) {
+			result.add("Failure of " + failure + ": " + line);
+		}
+	}
+
+	/**
+	 * Gibt den Graphen des VLANs zurück und legt ihn bei Bedarf an.
+	 * 
+	 * @param vid
+	 *            VLAN-ID
+	 * @return Graph
+	 */
+	private Graph vlan(int vid) {
+		return this.vlans.computeIfAbsent(vid, k -> new Graph());
+	}
+
+	/**
+	 * Gibt die Namen der Netzkomponenten zurück.
+	 * 
+	 * @param components
+	 *            Indizes der Netzkomponenten
+	 * @param limit
+	 *            Maximale Anzahl an Namen; weitere Netzkomponenten werden nur gezählt
+	 * @return Namen, durch Komma getrennt
+	 */
+	private String names(List<Integer> components, int limit) {
+		List<String> result = new ArrayList<>();
+		for (int component : components.subList(0, Math.min(limit, components.size()))) {
+			result.add(this.networkComponents.get(component).name);
+		}
+		return String.join(", ", result) + (components.size() > limit ? " and " + (components.size() - limit) + " more" : "");
+	}
+
+	/**
+	 * Gibt den Namen eines Layer1Links zurück.
+	 * 
+	 * @param link
+	 *            Link als Paar von Interfaces
+	 * @return Name der Form "Netzkomponente/Interface <-> Netzkomponente/Interface"
+	 */
+	private static String name(Layer1Interface[] link) {
+		return name(link[0].networkComponent, link[0].name, link[1].networkComponent, link[1].name);
+	}
+
+	/**
+	 * Gibt den Namen eines Layer2Links zurück.
+	 * 
+	 * @param link
+	 *            Link als Paar von Interfaces
+	 * @return Name der Form "Netzkomponente/Interface <-> Netzkomponente/Interface"
+	 */
+	private static String name(Layer2Interface[] link) {
+		return name(link[0].networkComponent, link[0].name, link[1].networkComponent, link[1].name);
+	}
+
+	/**
+	 * Gibt den Namen eines Links aus den Namen seiner beiden Seiten zurück.
+	 * 
+	 * @param srcComponent
+	 *            Netzkomponente der ersten Seite
+	 * @param src
+	 *            Interfacename der ersten Seite
+	 * @param dstComponent
+	 *            Netzkomponente der zweiten Seite
+	 * @param dst
+	 *            Interfacename der zweiten Seite
+	 * @return Name der Form "Netzkomponente/Interface <-> Netzkomponente/Interface"
+	 */
+	private static String name(NetworkComponent srcComponent, String src, NetworkComponent dstComponent, String dst) {
+		return srcComponent.name + "/" + src + " <-> " + dstComponent.name + "/" + dst;
+	}
+
+	/**
+	 * Sucht den Repräsentanten der Menge (mit Pfadverkürzung).
+	 * 
+	 * @param sets
+	 *            Union-Find Struktur
+	 * @param element
+	 *            Element
+	 * @return Repräsentant
+	 */
+	private static int find(int[] sets, int element) {
+		while (sets[element] != element) {
+			sets[element] = sets[sets[element]];
+			element = sets[element];
+		}
+
+		return element;
+	}
+}
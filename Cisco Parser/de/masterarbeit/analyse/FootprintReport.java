@@ -0,0 +1,493 @@
+package de.masterarbeit.analyse;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import de.masterarbeit.cisco.ConfigBlock;
+import de.masterarbeit.cisco.JCiscoCDPParse;
+import de.masterarbeit.cisco.JCiscoConfParse;
+import de.masterarbeit.modell.*;
+
+/**
+ * Bericht über den Speicherbedarf der Verarbeitung. Er besteht aus zwei Teilen:
+ * 
+ * 1. Geschätzter Speicherbedarf (retained size) des Modells pro Klasse. Ein leichtgewichtiger Durchlauf über den
+ * Objektgraphen ab der Topologie ordnet jedes erreichbare Objekt genau einer Kategorie zu: Objekte des Modells (z.B.
+ * Layer2Interface) ihrer eigenen Klasse, alle übrigen Objekte (Strings, Listen, Arrays, ...) der Klasse des Objekts, über
+ * das sie zuerst erreicht wurden. Einige Felder bilden eigene Kategorien, z.B. die VLAN-Listen der Layer2Interfaces und die
+ * Blöcke der Running Config. Gemeinsam genutzte Objekte werden nur einmal gezählt.
+ * 
+ * Die Größen werden nicht gemessen, sondern anhand des Objektlayouts einer 64 Bit HotSpot JVM mit Compressed Oops geschätzt
+ * (12 Byte Header, 4 Byte Referenzen, Ausrichtung auf 8 Byte). Eigene Klassen werden per Reflection durchlaufen; in die
+ * Klassen des JDK kann ab Java 9 nicht mehr hineingesehen werden, sodass Strings, Collections und Maps über ihre öffentliche
+ * Schnittstelle und das bekannte Layout der Standardimplementierungen geschätzt werden.
+ * 
+ * 2. Allokationen pro Verarbeitungsphase. Dazu werden die von der JVM pro Thread gezählten allokierten Bytes (siehe
+ * com.sun.management.ThreadMXBean) zu Beginn und Ende einer Phase über alle lebenden Threads summiert. Threads, die
+ * innerhalb einer Phase beendet werden, fehlen in der Summe; Thread Pools sollten daher über alle Phasen hinweg bestehen
+ * bleiben (siehe Main). Unterstützt die JVM die Zählung nicht, werden keine Allokationen ausgewiesen.
+ * 
+ * @author Marcel Schuster
+ *
+ */
+public class FootprintReport {
+	// Annahmen zum Objektlayout (64 Bit JVM mit Compressed Oops)
+	private static final int HEADER = 12;
+	private static final int ARRAY_HEADER = 16;
+	private static final int REFERENCE = 4;
+	private static final int ALIGNMENT = 8;
+
+	// Kategorien, die aus einzelnen Feldern statt aus der Klasse des Objekts entstehen
+	public static final String VLAN_LISTS = "VLAN lists";
+	public static final String CONFIG_BLOCKS = "Running config blocks";
+	public static final String CDP_TABLES = "CDP tables";
+
+	// Kategorie pro Feld: "Klasse.Feld"
+	private static final Map<String, String> FIELD_CATEGORIES = new HashMap<>();
+	static {
+		FIELD_CATEGORIES.put("Layer2Interface.vlanIDs", VLAN_LISTS);
+		FIELD_CATEGORIES.put("Layer2Interface.runningConfig", CONFIG_BLOCKS);
+	}
+
+	// Kategorie pro Klasse des Modells (alle übrigen eigenen Klassen unter ihrem Namen)
+	private static final Map<Class<?>, String> CLASS_CATEGORIES = new HashMap<>();
+	static {
+		CLASS_CATEGORIES.put(JCiscoConfParse.class, CONFIG_BLOCKS);
+		CLASS_CATEGORIES.put(JCiscoCDPParse.class, CDP_TABLES);
+		CLASS_CATEGORIES.put(ConfigBlock.class, ConfigBlock.class.getSimpleName());
+	}
+
+	// Pro Kategorie: { Anzahl eigener Objekte, geschätzte Bytes }
+	private final Map<String, long[]> categories = new LinkedHashMap<>();
+	// Allokierte Bytes pro Phase (-1 = nicht unterstützt)
+	private final Map<String, Long> phases = new LinkedHashMap<>();
+
+	// Laufende Phase und allokierte Bytes pro Thread zu ihrem Beginn
+	private String phase = null;
+	private Map<Long, Long> phaseStart = null;
+
+	// Felder pro eigener Klasse (inkl. Oberklassen), die beim Durchlauf verfolgt werden
+	private final Map<Class<?>, Field[]> fields = new HashMap<>();
+	// Geschätzte Größe pro eigener Klasse ohne referenzierte Objekte
+	private final Map<Class<?>, Long> shallowSizes = new HashMap<>();
+
+	/**
+	 * Beendet die laufende Phase (sofern vorhanden) und beginnt eine neue. Wird eine Phase mehrfach durchlaufen, werden die
+	 * Allokationen addiert.
+	 * 
+	 * @param name
+	 *            Name der Phase
+	 */
+	public void phase(String name) {
+		this.endPhase();
+		this.phase = name;
+		this.phaseStart = allocatedBytes();
+	}
+
+	/**
+	 * Beendet die laufende Phase.
+	 */
+	public void endPhase() {
+		if (this.phase == null) {
+			return;
+		}
+
+		Map<Long, Long> phaseEnd = allocatedBytes();
+		long allocated = -1;
+		if (phaseEnd != null) {
+			allocated = 0;
+			for (Map.Entry<Long, Long> entry : phaseEnd.entrySet()) {
+				// Threads, die während der Phase gestartet wurden, zählen vollständig
+				allocated += entry.getValue() - this.phaseStart.getOrDefault(entry.getKey(), 0L);
+			}
+		}
+
+		this.phases.merge(this.phase, allocated, (a, b) -> a < 0 || b < 0 ? -1 : a + b);
+		this.phase = null;
+		this.phaseStart = null;
+	}
+
+	/**
+	 * Schätzt den Speicherbedarf aller Objekte, die von der Topologie aus erreichbar sind. Ein erneuter Aufruf ersetzt das
+	 * vorherige Ergebnis.
+	 * 
+	 * @param topology
+	 *            Topologie
+	 */
+	public void measure(Topology topology) {
+		this.categories.clear();
+		this.walk(topology);
+	}
+
+	/**
+	 * Schätzt den Speicherbedarf aller Objekte, die von den Netzkomponenten aus erreichbar sind (z.B. vor der Korrelation).
+	 * Ein erneuter Aufruf ersetzt das vorherige Ergebnis.
+	 * 
+	 * @param networkComponents
+	 *            Netzkomponenten
+	 */
+	public void measure(List<NetworkComponent> networkComponents) {
+		this.categories.clear();
+		this.walk(networkComponents);
+	}
+
+	/**
+	 * Gibt die Ergebnisse der letzten Schätzung zurück.
+	 * 
+	 * @return Pro Kategorie ein Array mit der Anzahl eigener Objekte und den geschätzten Bytes
+	 */
+	public Map<String, long[]> getCategories() {
+		return this.categories;
+	}
+
+	/**
+	 * Gibt die Allokationen der bisherigen Phasen zurück.
+	 * 
+	 * @return Allokierte Bytes pro Phase (-1 = nicht unterstützt)
+	 */
+	public Map<String, Long> getPhases() {
+		return this.phases;
+	}
+
+	/**
+	 * Verwirft alle Ergebnisse (z.B. vor einem erneuten Durchlauf im Watch Mode).
+	 */
+	public void reset() {
+		this.categories.clear();
+		this.phases.clear();
+		this.phase = null;
+		this.phaseStart = null;
+	}
+
+	/**
+	 * Gibt den Bericht über die letzte Schätzung und alle bisherigen Phasen zeilenweise zurück. Zum Vergleich wird die
+	 * tatsächliche Belegung des Heaps angegeben, die allerdings auch alle übrigen Objekte der Anwendung enthält.
+	 * 
+	 * @return Zeilen des Berichts
+	 */
+	public List<String> getReport() {
+		List<String> result = new ArrayList<>();
+
+		if (!this.categories.isEmpty()) {
+			long total = 0;
+			result.add("Estimated retained size per class:");
+
+			// Größte Kategorien zuerst
+			List<Map.Entry<String, long[]>> entries = new ArrayList<>(this.categories.entrySet());
+			entries.sort((a, b) -> Long.compare(b.getValue()[1], a.getValue()[1]));
+			for (Map.Entry<String, long[]> entry : entries) {
+				long[] value = entry.getValue();
+				result.add(String.format("  %-24s %10d objects %12s", entry.getKey(), value[0], format(value[1])));
+				total += value[1];
+			}
+			result.add(String.format("  %-24s %10s         %12s", "Total", "", format(total)));
+
+			MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+			result.add(String.format("  %-24s %10s         %12s", "Heap used", "", format(heap.getUsed())));
+		}
+
+		if (!this.phases.isEmpty()) {
+			result.add("Allocations per phase:");
+			for (Map.Entry<String, Long> entry : this.phases.entrySet()) {
+				result.add(String.format("  %-24s %12s", entry.getKey(),
+						entry.getValue() < 0 ? "n/a" : format(entry.getValue())));
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Durchläuft den Objektgraphen ab der Wurzel und verteilt die geschätzten Größen auf die Kategorien. Der Durchlauf ist
+	 * iterativ, da die Interfaces über ihre Assoziationen tief verkettet sind.
+	 * 
+	 * @param root
+	 *            Wurzel des Durchlaufs
+	 */
+	private void walk(Object root) {
+		IdentityHashMap<Object, Boolean> visited = new IdentityHashMap<>();
+		Deque<Object[]> stack = new ArrayDeque<>();
+		stack.push(new Object[] { root, "Other" });
+
+		while (!stack.isEmpty()) {
+			Object[] item = stack.pop();
+			Object object = item[0];
+			if (object == null || visited.put(object, Boolean.TRUE) != null) {
+				continue;
+			}
+
+			Class<?> type = object.getClass();
+			String category = (String) item[1];
+			boolean own = isOwnClass(type);
+			if (own) {
+				category = CLASS_CATEGORIES.getOrDefault(type, type.getSimpleName());
+			}
+
+			long[] value = this.categories.computeIfAbsent(category, k -> new long[2]);
+			if (own) {
+				value[0]++;
+			}
+			value[1] += this.sizeOf(object);
+
+			// Referenzierte Objekte mit ihrer Kategorie vormerken
+			if (own) {
+				for (Field field : this.getFields(type)) {
+					Object child;
+					try {
+						child = field.get(object);
+					} catch (IllegalAccessException e) {
+						throw new RuntimeException(e);
+					}
+					String fieldCategory = FIELD_CATEGORIES.get(type.getSimpleName() + "." + field.getName());
+					stack.push(new Object[] { child, fieldCategory != null ? fieldCategory : category });
+				}
+			} else if (type.isArray()) {
+				if (!type.getComponentType().isPrimitive()) {
+					for (Object child : (Object[]) object) {
+						stack.push(new Object[] { child, category });
+					}
+				}
+			} else if (object instanceof Map) {
+				for (Map.Entry<?, ?> entry : ((Map<?, ?>) object).entrySet()) {
+					stack.push(new Object[] { entry.getKey(), category });
+					stack.push(new Object[] { entry.getValue(), category });
+				}
+			} else if (object instanceof Collection) {
+				for (Object child : (Collection<?>) object) {
+					stack.push(new Object[] { child, category });
+				}
+			}
+		}
+	}
+
+	/**
+	 * Schätzt die Größe eines einzelnen Objekts ohne die referenzierten Objekte. Ausnahmen sind Strings und BitSets, deren
+	 * interne Arrays von außen nicht erreichbar sind und daher mitgezählt werden.
+	 * 
+	 * @param object
+	 *            Objekt
+	 * @return Geschätzte Größe in Bytes
+	 */
+	private long sizeOf(Object object) {
+		Class<?> type = object.getClass();
+
+		if (object instanceof Enum) {
+			// Konstanten existieren unabhängig vom Modell
+			return 0;
+		} else if (isOwnClass(type)) {
+			return this.shallowSizes.computeIfAbsent(type, this::shallowSize);
+		} else if (type.isArray()) {
+			Class<?> component = type.getComponentType();
+			return array(Array.getLength(object), component.isPrimitive() ? primitiveSize(component) : REFERENCE);
+		} else if (object instanceof String) {
+			// Compact Strings: 1 Byte pro Zeichen, sofern alle Zeichen in Latin-1 darstellbar sind
+			String string = (String) object;
+			int charSize = 1;
+			for (int i = 0; i < string.length(); i++) {
+				if (string.charAt(i) > 0xFF) {
+					charSize = 2;
+					break;
+				}
+			}
+			return align(HEADER + REFERENCE + 4 + 1 + 1) + array(string.length(), charSize);
+		} else if (object instanceof BitSet) {
+			return align(HEADER + REFERENCE + 4 + 1) + array(((BitSet) object).size() / 64, 8);
+		} else if (object instanceof IdentityHashMap) {
+			// Schlüssel und Werte liegen abwechselnd in einer Tabelle, die höchstens zu 2/3 gefüllt ist
+			int size = ((Map<?, ?>) object).size();
+			return align(HEADER + 3 * 4 + 3 * REFERENCE) + array(2 * tableSize(size * 3 / 2 + 1), REFERENCE);
+		} else if (object instanceof Map) {
+			// Standardlayout einer HashMap bzw. LinkedHashMap (auch hinter nicht veränderbaren Sichten)
+			int size = ((Map<?, ?>) object).size();
+			boolean linked = object instanceof LinkedHashMap || !(object instanceof HashMap);
+			long entry = align(HEADER + 4 + 3 * REFERENCE + (linked ? 2 * REFERENCE : 0));
+			return align(HEADER + 4 * 4 + 6 * REFERENCE) + array(tableSize(size * 4 / 3 + 1), REFERENCE)
+					+ size * entry;
+		} else if (object instanceof java.util.Set) {
+			// HashSet bzw. LinkedHashSet liegen als Hülle um eine HashMap bzw. LinkedHashMap
+			int size = ((Collection<?>) object).size();
+			boolean linked = object instanceof LinkedHashSet;
+			long entry = align(HEADER + 4 + 3 * REFERENCE + (linked ? 2 * REFERENCE : 0));
+			return align(HEADER + REFERENCE) + align(HEADER + 4 * 4 + 6 * REFERENCE)
+					+ array(tableSize(size * 4 / 3 + 1), REFERENCE) + size * entry;
+		} else if (object instanceof Collection) {
+			// Standardlayout einer ArrayList (Kapazität unbekannt, daher Größe der Liste)
+			return align(HEADER + 2 * 4 + REFERENCE) + array(((Collection<?>) object).size(), REFERENCE);
+		} else if (object instanceof Path) {
+			// Pfad mit seiner Textdarstellung (wird von allen ConfigBlocks einer Datei geteilt)
+			return align(HEADER + 2 * REFERENCE + 4) + this.sizeOf(object.toString());
+		}
+
+		// Sonstige Objekte des JDK (Boxing, Enums, ...) nur mit dem Header schätzen
+		return align(HEADER + REFERENCE);
+	}
+
+	/**
+	 * Berechnet die Größe einer eigenen Klasse anhand ihrer Instanzfelder (inkl. Oberklassen).
+	 * 
+	 * @param type
+	 *            Eigene Klasse
+	 * @return Geschätzte Größe in Bytes
+	 */
+	private long shallowSize(Class<?> type) {
+		long size = HEADER;
+		for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+			for (Field field : c.getDeclaredFields()) {
+				if (!Modifier.isStatic(field.getModifiers())) {
+					size += field.getType().isPrimitive() ? primitiveSize(field.getType()) : REFERENCE;
+				}
+			}
+		}
+		return align(size);
+	}
+
+	/**
+	 * Gibt alle Referenzfelder einer eigenen Klasse (inkl. Oberklassen) zurück und macht sie zugreifbar.
+	 * 
+	 * @param type
+	 *            Eigene Klasse
+	 * @return Felder
+	 */
+	private Field[] getFields(Class<?> type) {
+		return this.fields.computeIfAbsent(type, k -> {
+			List<Field> result = new ArrayList<>();
+			for (Class<?> c = k; c != null && isOwnClass(c); c = c.getSuperclass()) {
+				for (Field field : c.getDeclaredFields()) {
+					if (!Modifier.isStatic(field.getModifiers()) && !field.getType().isPrimitive()) {
+						field.setAccessible(true);
+						result.add(field);
+					}
+				}
+			}
+			return result.toArray(new Field[result.size()]);
+		});
+	}
+
+	/**
+	 * Prüft, ob es sich um eine Klasse dieses Projekts handelt (inkl. anonymer und innerer Klassen, ohne Enums).
+	 * 
+	 * @param type
+	 *            Klasse
+	 * @return true, sofern die Klasse per Reflection durchlaufen werden kann
+	 */
+	private static boolean isOwnClass(Class<?> type) {
+		return !type.isArray() && !Enum.class.isAssignableFrom(type) && type.getName().startsWith("de.masterarbeit.");
+	}
+
+	/**
+	 * Summiert die allokierten Bytes pro lebendem Thread.
+	 * 
+	 * @return Allokierte Bytes pro Thread-ID oder null, sofern die JVM die Zählung nicht unterstützt
+	 */
+	private static Map<Long, Long> allocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+			return null;
+		}
+
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+			return null;
+		}
+
+		long[] ids = threads.getAllThreadIds();
+		long[] bytes = threads.getThreadAllocatedBytes(ids);
+		Map<Long, Long> result = new HashMap<>();
+		for (int i = 0; i < ids.length; i++) {
+			// -1 = Thread ist inzwischen beendet
+			if (bytes[i] >= 0) {
+				result.put(ids[i], bytes[i]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Größe eines Arrays.
+	 * 
+	 * @param length
+	 *            Anzahl Elemente
+	 * @param elementSize
+	 *            Größe eines Elements in Bytes
+	 * @return Geschätzte Größe in Bytes
+	 */
+	private static long array(int length, int elementSize) {
+		return align(ARRAY_HEADER + (long) length * elementSize);
+	}
+
+	/**
+	 * Größe der Hashtabelle (Zweierpotenz, mindestens 16) für die angegebene Kapazität.
+	 * 
+	 * @param capacity
+	 *            Benötigte Kapazität
+	 * @return Anzahl Einträge der Tabelle
+	 */
+	private static int tableSize(int capacity) {
+		int size = 16;
+		while (size < capacity) {
+			size <<= 1;
+		}
+		return size;
+	}
+
+	/**
+	 * Größe eines primitiven Typs.
+	 * 
+	 * @param type
+	 *            Primitiver Typ
+	 * @return Größe in Bytes
+	 */
+	private static int primitiveSize(Class<?> type) {
+		if (type == long.class || type == double.class) {
+			return 8;
+		} else if (type == int.class || type == float.class) {
+			return 4;
+		} else if (type == short.class || type == char.class) {
+			return 2;
+		}
+		return 1;
+	}
+
+	/**
+	 * Richtet die Größe auf die Ausrichtung der Objekte aus.
+	 * 
+	 * @param size
+	 *            Größe in Bytes
+	 * @return Ausgerichtete Größe in Bytes
+	 */
+	private static long align(long size) {
+		return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+	}
+
+	/**
+	 * Formatiert eine Anzahl Bytes lesbar (B, KB, MB).
+	 * 
+	 * @param bytes
+	 *            Anzahl Bytes
+	 * @return Formatierter Text
+	 */
+	private static String format(long bytes) {
+		if (bytes >= 1024 * 1024) {
+			return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+		} else if (bytes >= 1024) {
+			return String.format("%.1f KB", bytes / 1024.0);
+		}
+		return bytes + " B";
+	}
+}
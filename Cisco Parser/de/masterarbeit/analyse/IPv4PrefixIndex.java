@@ -0,0 +1,289 @@
+package de.masterarbeit.analyse;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.masterarbeit.modell.*;
+import static de.masterarbeit.toolbox.Toolbox.*;
+
+/**
+ * Index über alle IPv4-Präfixe der geparsten Layer3Interfaces. Intern wird ein binärer Trie verwendet, bei dem jedes Bit der
+ * (gepackten) Netzadresse eine Ebene darstellt. Ein Präfix /n endet somit immer auf Ebene n.
+ * 
+ * Da sich zwei Präfixe entweder gar nicht überschneiden oder eines vollständig im anderen enthalten ist, liegen sich
+ * überschneidende Subnetze immer auf demselben Pfad im Trie. Alle Überschneidungen lassen sich daher mit einer einzigen
+ * Traversierung finden, anstatt alle Paare von IPv4Interfaces (wie in OCL) miteinander zu vergleichen.
+ * 
+ * Als Überschneidung gilt:
+ * 
+ * - Zwei Präfixe unterschiedlicher Länge, von denen eines das andere enthält (z.B. 10.0.0.0/16 und 10.0.1.0/24)
+ * 
+ * - Dasselbe Präfix auf zwei Interfaces derselben Netzkomponente. Auf unterschiedlichen Netzkomponenten ist das hingegen
+ * gewollt, da sich beide Seiten eines Links ein Subnetz teilen.
+ * 
+ * @author Marcel Schuster
+ *
+ */
+public class IPv4PrefixIndex {
+	private Node root = new Node();
+	private Map<Integer, List<Layer3Interface>> addresses = new HashMap<>();
+	private List<Layer3Interface> invalidInterfaces = new ArrayList<>();
+	private int size = 0;
+
+	/**
+	 * Knoten des binären Tries. Die Interfaces werden nur in den Knoten gespeichert, an denen ihr Präfix endet.
+	 */
+	private static class Node {
+		private Node[] children = new Node[2];
+		private List<Layer3Interface> interfaces;
+	}
+
+	/**
+	 * Erstellt einen leeren Index.
+	 */
+	public IPv4PrefixIndex() {
+	}
+
+	/**
+	 * Erstellt den Index aus allen Layer3Interfaces der angegebenen Netzkomponenten.
+	 * 
+	 * @param networkComponents
+	 *            Netzkomponenten, deren Layer3Interfaces indiziert werden sollen
+	 */
+	public IPv4PrefixIndex(Collection<NetworkComponent> networkComponents) {
+		for (NetworkComponent networkComponent : networkComponents) {
+			for (Layer3Interface layer3Interface : networkComponent.layer3Interfaces.values()) {
+				this.add(layer3Interface);
+			}
+		}
+	}
+
+	/**
+	 * Fügt ein Layer3Interface zum Index hinzu. Interfaces mit ungültiger IP-Adresse oder Subnetzmaske werden gesondert
+	 * gespeichert und tauchen im Bericht auf.
+	 * 
+	 * @param layer3Interface
+	 *            Interface, welches hinzugefügt werden soll
+	 */
+	public void add(Layer3Interface layer3Interface) {
+		int address;
+		int prefixLength;
+
+		// Auch die Subnetzmaske in Dotted Decimal Notation kann ungültige Bytes enthalten (z.B. 255.255.256.0)
+		try {
+			address = layer3Interface.getAddress();
+			prefixLength = layer3Interface.getPrefixLength();
+		} catch (IllegalArgumentException e) {
+			this.invalidInterfaces.add(layer3Interface);
+			return;
+		}
+
+		// Doppelte IP-Adressen werden unabhängig von der Subnetzmaske gesucht
+		this.addresses.computeIfAbsent(address, k -> new ArrayList<>()).add(layer3Interface);
+
+		if (prefixLength < 0) {
+			this.invalidInterfaces.add(layer3Interface);
+			return;
+		}
+
+		// Dem Präfix Bit für Bit bis zur Ebene der Präfixlänge folgen
+		Node node = this.root;
+		for (int depth = 0; depth < prefixLength; depth++) {
+			int bit = bit(address, depth);
+
+			if (node.children[bit] == null) {
+				node.children[bit] = new Node();
+			}
+			node = node.children[bit];
+		}
+
+		if (node.interfaces == null) {
+			node.interfaces = new ArrayList<>();
+		}
+		node.interfaces.add(layer3Interface);
+		this.size++;
+	}
+
+	/**
+	 * Gibt alle Interfaces zurück, deren Subnetz die angegebene Adresse enthält. Die Reihenfolge entspricht dabei der
+	 * Präfixlänge, also vom größten zum kleinsten Subnetz.
+	 * 
+	 * @param ip
+	 *            IPv4-Adresse in Dotted Decimal Notation
+	 * @return Liste von Interfaces, deren Subnetz die Adresse abdeckt
+	 */
+	public List<Layer3Interface> findCovering(String ip) {
+		return this.findCovering(ipToInt(ip));
+	}
+
+	/**
+	 * Gibt alle Interfaces zurück, deren Subnetz die angegebene Adresse enthält (siehe findCovering(String)). Der Aufwand
+	 * ist durch die Adressbreite von 32 Bit beschränkt und hängt nicht von der Größe des Index ab.
+	 * 
+	 * @param address
+	 *            Gepackte IPv4-Adresse
+	 * @return Liste von Interfaces, deren Subnetz die Adresse abdeckt
+	 */
+	public List<Layer3Interface> findCovering(int address) {
+		List<Layer3Interface> result = new ArrayList<>();
+		Node node = this.root;
+
+		for (int depth = 0; node != null; depth++) {
+			if (node.interfaces != null) {
+				result.addAll(node.interfaces);
+			}
+
+			node = depth < 32 ? node.children[bit(address, depth)] : null;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Gibt alle IP-Adressen zurück, die auf mehr als einem Interface konfiguriert sind.
+	 * 
+	 * @return Map von der doppelten IP-Adresse (Dotted Decimal Notation) auf die betroffenen Interfaces
+	 */
+	public Map<String, List<Layer3Interface>> findDuplicates() {
+		Map<String, List<Layer3Interface>> result = new HashMap<>();
+
+		for (Map.Entry<Integer, List<Layer3Interface>> entry : this.addresses.entrySet()) {
+			if (entry.getValue().size() > 1) {
+				result.put(intToIP(entry.getKey()), entry.getValue());
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Gibt alle Paare von Interfaces zurück, deren Subnetze sich überschneiden (Definition siehe Klassenkommentar). Das
+	 * erste Element eines Paares hat dabei immer das größere (oder gleich große) Subnetz.
+	 * 
+	 * @return Liste von Interface-Paaren
+	 */
+	public List<Layer3Interface[]> findOverlaps() {
+		List<Layer3Interface[]> result = new ArrayList<>();
+		this.findOverlaps(this.root, new ArrayList<>(), result);
+		return result;
+	}
+
+	/**
+	 * Rekursive Tiefensuche für findOverlaps(). Die Interfaces aller Vorgängerknoten werden in "ancestors" mitgeführt.
+	 * 
+	 * @param node
+	 *            Aktueller Knoten
+	 * @param ancestors
+	 *            Interfaces, deren Präfixe das aktuelle Präfix echt enthalten
+	 * @param result
+	 *            Liste, in der die gefundenen Paare gesammelt werden
+	 */
+	private void findOverlaps(Node node, List<Layer3Interface> ancestors, List<Layer3Interface[]> result) {
+		int ancestorCount = ancestors.size();
+
+		if (node.interfaces != null) {
+			for (Layer3Interface layer3Interface : node.interfaces) {
+				// Unterschiedliche Präfixlänge: Jedes Vorgänger-Subnetz enthält das aktuelle Subnetz
+				for (Layer3Interface ancestor : ancestors) {
+					result.add(new Layer3Interface[] { ancestor, layer3Interface });
+				}
+			}
+
+			// Gleiches Präfix: Nur innerhalb derselben Netzkomponente eine Überschneidung
+			for (int i = 0; i < node.interfaces.size(); i++) {
+				for (int j = i + 1; j < node.interfaces.size(); j++) {
+					if (node.interfaces.get(i).networkComponent == node.interfaces.get(j).networkComponent) {
+						result.add(new Layer3Interface[] { node.interfaces.get(i), node.interfaces.get(j) });
+					}
+				}
+			}
+
+			ancestors.addAll(node.interfaces);
+		}
+
+		for (Node child : node.children) {
+			if (child != null) {
+				this.findOverlaps(child, ancestors, result);
+			}
+		}
+
+		// Vorgängerliste für die Geschwisterknoten wiederherstellen
+		ancestors.subList(ancestorCount, ancestors.size()).clear();
+	}
+
+	/**
+	 * Gibt die Anzahl der indizierten Präfixe zurück.
+	 * 
+	 * @return Anzahl der Präfixe
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Erstellt einen lesbaren Bericht über doppelte IP-Adressen, überschneidende Subnetze und ungültige Interfaces.
+	 * 
+	 * @return Bericht als Liste von Strings
+	 */
+	public List<String> getReport() {
+		List<String> result = new ArrayList<>();
+
+		for (Map.Entry<String, List<Layer3Interface>> entry : this.findDuplicates().entrySet()) {
+			List<String> names = new ArrayList<>();
+			for (Layer3Interface layer3Interface : entry.getValue()) {
+				names.add(qualifiedName(layer3Interface));
+			}
+			result.add("Duplicate IP " + entry.getKey() + ": " + String.join(", ", names));
+		}
+
+		for (Layer3Interface[] overlap : this.findOverlaps()) {
+			result.add("Overlapping subnets: " + qualifiedName(overlap[0]) + " (" + prefix(overlap[0]) + ") contains "
+					+ qualifiedName(overlap[1]) + " (" + prefix(overlap[1]) + ")");
+		}
+
+		for (Layer3Interface layer3Interface : this.invalidInterfaces) {
+			result.add("Invalid address: " + qualifiedName(layer3Interface) + " (" + layer3Interface.ip + " "
+					+ layer3Interface.subnet + ")");
+		}
+
+		return result;
+	}
+
+	/**
+	 * Liefert das Bit der Adresse auf der angegebenen Ebene des Tries (Ebene 0 = höchstwertiges Bit).
+	 * 
+	 * @param address
+	 *            Gepackte Adresse
+	 * @param depth
+	 *            Ebene im Trie
+	 * @return 0 oder 1
+	 */
+	private static int bit(int address, int depth) {
+		return (address >>> (31 - depth)) & 1;
+	}
+
+	/**
+	 * Gibt das Präfix eines Interfaces in CIDR-Notation zurück.
+	 * 
+	 * @param layer3Interface
+	 *            Interface
+	 * @return Präfix, z.B. "10.0.0.0/24"
+	 */
+	private static String prefix(Layer3Interface layer3Interface) {
+		return intToIP(layer3Interface.getNetworkAddress()) + "/" + layer3Interface.getPrefixLength();
+	}
+
+	/**
+	 * Gibt den Namen des Interfaces zusammen mit dem Namen der Netzkomponente zurück.
+	 * 
+	 * @param layer3Interface
+	 *            Interface
+	 * @return Name der Form "Netzkomponente/Interface"
+	 */
+	private static String qualifiedName(Layer3Interface layer3Interface) {
+		return layer3Interface.networkComponent.name + "/" + layer3Interface.name;
+	}
+}
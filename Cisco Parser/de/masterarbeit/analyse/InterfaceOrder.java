@@ -0,0 +1,97 @@
+package de.masterarbeit.analyse;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.masterarbeit.modell.*;
+
+/**
+ * Ordnung der Layer2Interfaces einer Topologie nach Netzkomponente (Reihenfolge der Topologie) und ID. Darüber werden
+ * Layer2Links unabhängig von ihrer Richtung und von verschmolzenen Interfaces (vPC) identifiziert, sodass Links zu beiden
+ * Peers nur einmal gezählt werden (siehe VlanDomainIndex und FailureSimulator).
+ * 
+ * @author Marcel Schuster
+ *
+ */
+class InterfaceOrder {
+	private final Map<NetworkComponent, Integer> componentIndex = new IdentityHashMap<>();
+
+	/**
+	 * Konstruktor zur Initialisierung.
+	 * 
+	 * @param networkComponents
+	 *            Netzkomponenten in der Reihenfolge der Topologie
+	 */
+	InterfaceOrder(List<NetworkComponent> networkComponents) {
+		for (int i = 0; i < networkComponents.size(); i++) {
+			this.componentIndex.put(networkComponents.get(i), i);
+		}
+	}
+
+	/**
+	 * Gibt an, ob die Netzkomponente zur Topologie gehört.
+	 * 
+	 * @param networkComponent
+	 *            Netzkomponente
+	 * @return true, sofern die Netzkomponente einen Index hat
+	 */
+	boolean contains(NetworkComponent networkComponent) {
+		return this.componentIndex.containsKey(networkComponent);
+	}
+
+	/**
+	 * Gibt den Index einer Netzkomponente in der Topologie zurück.
+	 * 
+	 * @param networkComponent
+	 *            Netzkomponente der Topologie
+	 * @return Index
+	 */
+	int indexOf(NetworkComponent networkComponent) {
+		return this.componentIndex.get(networkComponent);
+	}
+
+	/**
+	 * Gibt den Schlüssel eines Layer2Links zurück, der unabhängig von Richtung und verschmolzenen Interfaces ist.
+	 * 
+	 * @param src
+	 *            Erstes Interface
+	 * @param dst
+	 *            Zweites Interface
+	 * @return Kanonische Interfaces in fester Reihenfolge
+	 */
+	List<Layer2Interface> key(Layer2Interface src, Layer2Interface dst) {
+		src = this.canonical(src);
+		dst = this.canonical(dst);
+		return this.compare(src, dst) <= 0 ? Arrays.asList(src, dst) : Arrays.asList(dst, src);
+	}
+
+	/**
+	 * Gibt für verschmolzene Interfaces (vPC) immer dasselbe der beiden Interfaces zurück. Liegt das verschmolzene Interface
+	 * außerhalb der Topologie (z.B. in einer Partition), bleibt es unberücksichtigt.
+	 * 
+	 * @param layer2Interface
+	 *            Interface
+	 * @return Interface selbst oder das verschmolzene Interface, sofern dessen Netzkomponente zuerst kommt
+	 */
+	Layer2Interface canonical(Layer2Interface layer2Interface) {
+		Layer2Interface merged = layer2Interface.mergedInterface;
+		return merged != null && this.contains(merged.networkComponent) && this.compare(merged, layer2Interface) < 0
+				? merged : layer2Interface;
+	}
+
+	/**
+	 * Ordnet Interfaces nach Netzkomponente (Reihenfolge der Topologie) und ID.
+	 * 
+	 * @param a
+	 *            Erstes Interface
+	 * @param b
+	 *            Zweites Interface
+	 * @return Negativ, sofern a vor b kommt; positiv, sofern b vor a kommt; ansonsten 0
+	 */
+	int compare(Layer2Interface a, Layer2Interface b) {
+		int result = Integer.compare(this.indexOf(a.networkComponent), this.indexOf(b.networkComponent));
+		return result != 0 ? result : Integer.compare(a.id, b.id);
+	}
+}
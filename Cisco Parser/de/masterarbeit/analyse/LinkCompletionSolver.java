@@ -0,0 +1,1022 @@
+package de.masterarbeit.analyse;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import de.masterarbeit.modell.*;
+import de.masterarbeit.toolbox.Toolbox;
+
+/**
+ * Vervollständigt eine teilweise bekannte Topologie um fehlende Layer1Links, ohne den Umweg über USE, den Model Validator und
+ * einen externen SAT-Solver. Typischer Fall: Für einige Netzkomponenten fehlen die CDP-Informationen, sodass ihre Links
+ * nicht erstellt werden konnten. Gesucht sind dann Links zwischen den freien Interfaces, mit denen die Topologie gültig ist.
+ * 
+ * Abgedeckt ist folgender Kern der Invarianten aus networktopology.use:
+ * 
+ * - Endpunkte: Jedes Layer1Interface hat höchstens einen Layer1Link, beide Enden liegen auf verschiedenen Netzkomponenten.
+ * 
+ * - VLAN-Übereinstimmung (C_OppositeLayer2InterfacesReceiveFramesWithDefinedVIDs, C_BidirectionalCommunicationWithAtLeastOneVIDIsPossible,
+ * C_EveryTaggedDot1InterfaceRequiresAnOpposite): Beide Seiten haben denselben Typ, dieselben VLAN-IDs und Tagged Interfaces
+ * mit denselben VLAN-IDs.
+ * 
+ * - Aggregation (C_AssociatedLayer1InterfacesAreProperlyConnected, S_AggregationInterfacesHaveDistinctLayer1Interfaces): Ein
+ * LAG (bei MC-LAGs inkl. Partner) führt mit allen Mitgliedern zu genau einem anderen LAG mit gleich vielen Mitgliedern.
+ * 
+ * Suchraum sind alle freien Layer1Interfaces, wobei freie Mitglieder eines LAGs eine Einheit bilden. Interfaces, die wegen
+ * fehlender CDP-Informationen nicht ausgegeben werden (siehe NetworkComponent.getFilteredLayer1Interfaces()), werden bei
+ * Bedarf in der SOIL-Ausgabe der Links nachträglich erstellt; bei LAGs nur, sofern das ganze LAG nicht ausgegeben wird und
+ * nicht verschmolzen ist. Verbunden werden müssen Einheiten, die angefordert wurden (siehe
+ * require()), unvollständig verbundene LAGs sowie Interfaces, deren CDP-Informationen oder Beschreibung eine andere
+ * Netzkomponente nennen (der Partner muss dann auf dieser Netzkomponente liegen).
+ * 
+ * Die Suche ist ein Backtracking über die geforderten Einheiten: Als nächstes wird immer die Einheit mit den wenigsten
+ * verbleibenden Kandidaten verbunden (MRV). Die Kandidaten werden über Buckets gleicher Signatur gezählt, deren Zähler beim
+ * Verbinden und Lösen angepasst werden (Forward Checking), sodass auch Topologien mit hunderten Netzkomponenten in Sekunden
+ * gelöst werden. Optional dürfen VLANs angepasst werden; dann werden auch Kandidaten gleichen Typs mit anderen VLAN-IDs
+ * verwendet (nachrangig) und die nötigen Änderungen berichtet.
+ * 
+ * Alternativ lässt sich dasselbe Problem als CNF im DIMACS-Format für einen beliebigen externen SAT-Solver exportieren (siehe
+ * getDIMACS()).
+ * 
+ * @author Marcel Schuster
+ *
+ */
+public class LinkCompletionSolver {
+	// Fehlende Links auf Interfaces anfordern, für die CDP-Informationen zu einer anderen Netzkomponente vorliegen
+	public boolean useCDP = true;
+	// Fehlende Links auf Interfaces anfordern, deren Beschreibung den Hostnamen einer anderen Netzkomponente enthält
+	public boolean useDescriptions = true;
+	// Kandidaten gleichen Typs mit abweichenden VLAN-IDs zulassen (die Änderungen werden berichtet)
+	public boolean allowVlanChanges = false;
+	// Maximale Anzahl an Schritten der Suche, danach wird abgebrochen
+	public long maxSteps = 1000000;
+
+	// Trennzeichen zwischen Wörtern einer Beschreibung (Hostnamen enthalten "-", "_" und ".")
+	private static final Pattern WORDS = Pattern.compile("[\\s,;:()\\[\\]/<>\"']+");
+
+	private final Topology topology;
+	private final Set<Layer1Interface> requested = Collections.newSetFromMap(new IdentityHashMap<>());
+	// Freie Interfaces, die nicht in der SOIL-Ausgabe der Topologie enthalten sind
+	private final Set<Layer1Interface> unfiltered = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	private List<Unit> units;
+	private List<Unit> requiredUnits;
+	private Map<String, Bucket> strictBuckets;
+	private Map<String, Bucket> relaxedBuckets;
+
+	// Ergebnis der Suche
+	private final List<String> conflicts = new ArrayList<>();
+	private Boolean solved;
+	private long steps;
+
+	/**
+	 * Einheit der Suche: Ein freies Layer1Interface oder alle freien Mitglieder eines LAGs.
+	 */
+	private static class Unit {
+		private final int index;
+		private final boolean lag;
+		// Layer2Interface, dessen Konfiguration für den Link maßgeblich ist (Aggregator Interface bzw. Interface selbst)
+		private final Layer2Interface layer2Interface;
+		private final List<Layer1Interface> ports = new ArrayList<>();
+		private final List<Layer1Interface> linkedPorts = new ArrayList<>();
+		private final Set<NetworkComponent> components = Collections.newSetFromMap(new IdentityHashMap<>());
+		private final Set<NetworkComponent> hints = Collections.newSetFromMap(new IdentityHashMap<>());
+		private boolean required = false;
+		private Bucket strict;
+		private Bucket relaxed;
+		private Unit partner;
+
+		private Unit(int index, boolean lag, Layer2Interface layer2Interface) {
+			this.index = index;
+			this.lag = lag;
+			this.layer2Interface = layer2Interface;
+		}
+
+		private NetworkComponent component() {
+			return this.ports.get(0).networkComponent;
+		}
+
+		private String name() {
+			if (this.lag) {
+				return this.layer2Interface.networkComponent.name + "/" + this.layer2Interface.name;
+			}
+			return this.component().name + "/" + this.ports.get(0).name;
+		}
+	}
+
+	/**
+	 * Einheiten gleicher Signatur mit der Anzahl der noch freien Einheiten (gesamt und pro Netzkomponente). Einheiten über
+	 * mehrere Netzkomponenten (MC-LAG) zählen bei jeder ihrer Netzkomponenten, sodass count() für Hinweise eine obere
+	 * Schranke bleibt.
+	 */
+	private static class Bucket {
+		private final List<Unit> units = new ArrayList<>();
+		private final Map<NetworkComponent, Integer> liveByComponent = new IdentityHashMap<>();
+		private int live = 0;
+
+		private void update(Unit unit, int delta) {
+			this.live += delta;
+			for (NetworkComponent networkComponent : unit.components) {
+				this.liveByComponent.merge(networkComponent, delta, Integer::sum);
+			}
+		}
+
+		private int count(Unit unit) {
+			if (!unit.hints.isEmpty()) {
+				int result = 0;
+				for (NetworkComponent hint : unit.hints) {
+					result += this.liveByComponent.getOrDefault(hint, 0);
+				}
+				return result;
+			}
+			return this.live - this.liveByComponent.getOrDefault(unit.component(), 0);
+		}
+	}
+
+	/**
+	 * Entscheidung der Suche: Einheit mit ihren Kandidaten und dem nächsten zu probierenden Kandidaten.
+	 */
+	private static class Frame {
+		private final Unit unit;
+		private final List<Unit> candidates;
+		private int next = 0;
+
+		private Frame(Unit unit, List<Unit> candidates) {
+			this.unit = unit;
+			this.candidates = candidates;
+		}
+	}
+
+	/**
+	 * Konstruktor.
+	 * 
+	 * @param topology
+	 *            Korrelierte Topologie mit den bereits bekannten Links
+	 */
+	public LinkCompletionSolver(Topology topology) {
+		this.topology = topology;
+	}
+
+	/**
+	 * Fordert einen Link für das angegebene Layer1Interface an (bei Mitgliedern eines LAGs für das ganze LAG).
+	 * 
+	 * @param layer1Interface
+	 *            Freies Layer1Interface
+	 */
+	public void require(Layer1Interface layer1Interface) {
+		this.requested.add(layer1Interface);
+		this.solved = null;
+	}
+
+	/**
+	 * Sucht eine Belegung der fehlenden Links, die alle Anforderungen erfüllt. Anforderungen ohne jeden Kandidaten werden
+	 * vorab als Konflikt berichtet und nicht weiter verfolgt. Lässt sich der Rest nicht vollständig erfüllen, werden so viele
+	 * Anforderungen wie möglich ohne Backtracking erfüllt.
+	 * 
+	 * @return true, sofern alle (erfüllbaren) Anforderungen erfüllt wurden
+	 */
+	public boolean solve() {
+		this.prepare();
+
+		// Anforderungen ohne Kandidaten können nie erfüllt werden
+		for (Unit unit : new ArrayList<>(this.requiredUnits)) {
+			if (unit.partner == null && this.candidates(unit).isEmpty()) {
+				this.conflicts.add("No candidate for " + unit.name() + " (" + this.describe(unit) + ")");
+				unit.required = false;
+				this.requiredUnits.remove(unit);
+			}
+		}
+
+		Deque<Frame> stack = new ArrayDeque<>();
+		while (true) {
+			Unit next = this.select();
+			if (next == null) {
+				this.solved = true;
+				break;
+			} else if (++this.steps > this.maxSteps) {
+				this.conflicts.add("Search aborted after " + this.maxSteps + " steps");
+				this.solved = false;
+				this.greedy();
+				break;
+			}
+
+			// Die Schätzung dient nur der Auswahl (MRV), die Kandidaten werden immer vollständig ermittelt
+			Frame frame = new Frame(next, this.candidates(next));
+			if (this.advance(frame)) {
+				stack.push(frame);
+				continue;
+			}
+
+			// Backtracking: Letzte Entscheidung lösen und den nächsten Kandidaten probieren
+			boolean advanced = false;
+			while (!stack.isEmpty()) {
+				Frame top = stack.peek();
+				this.unmatch(top.unit);
+				if (this.advance(top)) {
+					advanced = true;
+					break;
+				}
+				stack.pop();
+			}
+
+			if (!advanced) {
+				this.solved = false;
+				this.greedy();
+				break;
+			}
+		}
+
+		return this.solved;
+	}
+
+	/**
+	 * Gibt die vorgeschlagenen Layer1Links zurück (ohne die bereits bekannten Links).
+	 * 
+	 * @return Paare aus Layer1Interfaces
+	 */
+	public List<Layer1Interface[]> getLinks() {
+		List<Layer1Interface[]> result = new ArrayList<>();
+		for (Unit[] match : this.getMatches()) {
+			List<Layer1Interface> src = sortedPorts(match[0]);
+			List<Layer1Interface> dst = sortedPorts(match[1]);
+			for (int i = 0; i < src.size(); i++) {
+				result.add(new Layer1Interface[] { src.get(i), dst.get(i) });
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Gibt die VLAN-Änderungen zurück, die für die vorgeschlagenen Links nötig sind (nur mit allowVlanChanges).
+	 * 
+	 * @return Änderungen als lesbare Zeilen
+	 */
+	public List<String> getVlanChanges() {
+		List<String> result = new ArrayList<>();
+		for (Unit[] match : this.getMatches()) {
+			if (match[0].strict == match[1].strict) {
+				continue;
+			}
+
+			Layer2Interface src = match[0].layer2Interface;
+			Layer2Interface dst = match[1].layer2Interface;
+			if ("trunk".equalsIgnoreCase(src.interfaceType)) {
+				addVlanChange(result, dst, src, difference(src.getVIDs(), dst.getVIDs()), "add");
+				addVlanChange(result, src, dst, difference(dst.getVIDs(), src.getVIDs()), "add");
+			} else if (!src.getVIDs().equals(dst.getVIDs())) {
+				addVlanChange(result, dst, src, src.getVIDs(), "set");
+			}
+			addVlanChange(result, dst, src, difference(taggedVIDs(src), taggedVIDs(dst)), "add tagged");
+			addVlanChange(result, src, dst, difference(taggedVIDs(dst), taggedVIDs(src)), "add tagged");
+		}
+		return result;
+	}
+
+	/**
+	 * Gibt die Konflikte zurück, d.h. Anforderungen, die nicht erfüllt werden können.
+	 * 
+	 * @return Konflikte als lesbare Zeilen
+	 */
+	public List<String> getConflicts() {
+		this.ensureSolved();
+		return this.conflicts;
+	}
+
+	/**
+	 * Erstellt die SOIL-Repräsentation der vorgeschlagenen Links (Layer1Links und Layer2Links), die an die SOIL-Ausgabe der
+	 * Topologie angehängt werden kann, um das Ergebnis in USE zu prüfen.
+	 * 
+	 * @return SOIL-Repräsentation als Liste von Strings
+	 */
+	public List<String> getSOIL() {
+		List<String> result = new ArrayList<>();
+		SOILVisitor visitor = new SOILVisitor(this.topology.mergedReferences, result::add);
+
+		// Interfaces ohne CDP-Informationen zuerst nachträglich bei ihrer Netzkomponente erstellen
+		for (Unit[] match : this.getMatches()) {
+			for (Unit unit : match) {
+				if (this.unfiltered.contains(unit.ports.get(0))) {
+					declare(unit, visitor, result);
+				}
+			}
+		}
+
+		for (Unit[] match : this.getMatches()) {
+			List<Layer1Interface> src = sortedPorts(match[0]);
+			List<Layer1Interface> dst = sortedPorts(match[1]);
+			for (int i = 0; i < src.size(); i++) {
+				visitor.visitLayer1Link(src.get(i), dst.get(i));
+			}
+
+			Layer2Interface srcL2Int = match[0].layer2Interface;
+			Layer2Interface dstL2Int = match[1].layer2Interface;
+			// Unvollständig verbundene LAGs besitzen ihren Layer2Link bereits, es fehlen nur die Layer1Links
+			if (srcL2Int != null && dstL2Int != null && match[0].linkedPorts.isEmpty()) {
+				visitor.visitLayer2Link(srcL2Int, dstL2Int);
+
+				// Tagged Interfaces mit denselben VLAN-IDs verbinden
+				for (Layer2Interface srcTagged : srcL2Int.taggedInterfaces.values()) {
+					for (Layer2Interface dstTagged : dstL2Int.taggedInterfaces.values()) {
+						if (srcTagged.getVIDs().equals(dstTagged.getVIDs())) {
+							visitor.visitLayer2Link(srcTagged, dstTagged);
+							break;
+						}
+					}
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Exportiert das Problem als CNF im DIMACS-Format. Jede Variable steht für die Verbindung zweier Einheiten (siehe
+	 * Kommentarzeilen "c link"). Jede geforderte Einheit wird mit mindestens einem Kandidaten verbunden, jede Einheit mit
+	 * höchstens einem (Sequential Counter ab sieben Kandidaten). Anforderungen ohne Kandidaten sind nicht enthalten. Das
+	 * Ergebnis einer vorherigen Suche wird verworfen.
+	 * 
+	 * @return CNF im DIMACS-Format als Liste von Strings
+	 */
+	public List<String> getDIMACS() {
+		this.prepare();
+
+		List<String> comments = new ArrayList<>();
+		List<int[]> clauses = new ArrayList<>();
+		Map<Long, Integer> variables = new HashMap<>();
+		Map<Unit, List<Integer>> incident = new LinkedHashMap<>();
+
+		comments.add("c Link completion for " + this.topology.networkComponents.size() + " network components");
+		for (Unit unit : this.requiredUnits) {
+			if (unit.partner != null) {
+				continue;
+			}
+
+			List<Integer> atLeastOne = new ArrayList<>();
+			for (Unit candidate : this.candidates(unit)) {
+				Unit first = unit.index < candidate.index ? unit : candidate;
+				Unit second = first == unit ? candidate : unit;
+				long key = ((long) first.index << 32) | second.index;
+
+				Integer variable = variables.get(key);
+				if (variable == null) {
+					variable = variables.size() + 1;
+					variables.put(key, variable);
+					comments.add("c link " + variable + " " + first.name() + " " + second.name());
+					incident.computeIfAbsent(first, k -> new ArrayList<>()).add(variable);
+					incident.computeIfAbsent(second, k -> new ArrayList<>()).add(variable);
+				}
+				atLeastOne.add(variable);
+			}
+
+			if (atLeastOne.isEmpty()) {
+				comments.add("c no candidate for " + unit.name());
+			} else {
+				clauses.add(atLeastOne.stream().mapToInt(Integer::intValue).toArray());
+			}
+		}
+
+		// Höchstens ein Link pro Einheit
+		int[] next = { variables.size() + 1 };
+		for (List<Integer> vars : incident.values()) {
+			if (vars.size() <= 6) {
+				for (int i = 0; i < vars.size(); i++) {
+					for (int j = i + 1; j < vars.size(); j++) {
+						clauses.add(new int[] { -vars.get(i), -vars.get(j) });
+					}
+				}
+			} else {
+				// Sequential Counter (Sinz): s_i = "einer der ersten i Kandidaten ist verbunden"
+				int previous = 0;
+				for (int i = 0; i < vars.size(); i++) {
+					int x = vars.get(i);
+					if (i < vars.size() - 1) {
+						int s = next[0]++;
+						clauses.add(new int[] { -x, s });
+						if (previous != 0) {
+							clauses.add(new int[] { -previous, s });
+							clauses.add(new int[] { -x, -previous });
+						}
+						previous = s;
+					} else {
+						clauses.add(new int[] { -x, -previous });
+					}
+				}
+			}
+		}
+
+		List<String> result = new ArrayList<>(comments);
+		result.add("p cnf " + (next[0] - 1) + " " + clauses.size());
+		for (int[] clause : clauses) {
+			StringBuilder line = new StringBuilder();
+			for (int literal : clause) {
+				line.append(literal).append(' ');
+			}
+			result.add(line.append('0').toString());
+		}
+		return result;
+	}
+
+	/**
+	 * Erstellt einen lesbaren Bericht über die vorgeschlagenen Links, VLAN-Änderungen und Konflikte.
+	 * 
+	 * @return Bericht als Liste von Strings
+	 */
+	public List<String> getReport() {
+		this.ensureSolved();
+		List<String> result = new ArrayList<>(this.conflicts);
+
+		for (Layer1Interface[] link : this.getLinks()) {
+			result.add("Missing link: " + link[0].networkComponent.name + "/" + link[0].name + " <-> "
+					+ link[1].networkComponent.name + "/" + link[1].name);
+		}
+		result.addAll(this.getVlanChanges());
+
+		return result;
+	}
+
+	/**
+	 * Gibt die Anzahl der Schritte der letzten Suche zurück.
+	 * 
+	 * @return Anzahl der Schritte
+	 */
+	public long getSteps() {
+		return this.steps;
+	}
+
+	/**
+	 * Baut die Einheiten, Buckets und Anforderungen aus der Topologie auf. Unvollständig verbundene LAGs werden dabei direkt
+	 * mit ihrem Gegenüber verbunden.
+	 */
+	private void prepare() {
+		this.units = new ArrayList<>();
+		this.requiredUnits = new ArrayList<>();
+		this.strictBuckets = new LinkedHashMap<>();
+		this.relaxedBuckets = new LinkedHashMap<>();
+		this.unfiltered.clear();
+		this.conflicts.clear();
+		this.steps = 0;
+
+		Map<Layer2Interface, Unit> lagUnits = new IdentityHashMap<>();
+		Map<Layer1Interface, Unit> unitsByPort = new IdentityHashMap<>();
+		Map<NetworkComponent, Integer> componentIndex = new IdentityHashMap<>();
+		for (NetworkComponent networkComponent : this.topology.networkComponents) {
+			componentIndex.put(networkComponent, componentIndex.size());
+		}
+
+		// Freie Interfaces zu Einheiten zusammenfassen
+		List<Unit> lags = new ArrayList<>();
+		for (NetworkComponent networkComponent : this.topology.networkComponents) {
+			Set<Layer1Interface> filtered = Collections.newSetFromMap(new IdentityHashMap<>());
+			filtered.addAll(networkComponent.getFilteredLayer1Interfaces());
+			Set<Layer2Interface> filteredAggregators = networkComponent.getFilteredAggregatorInterfaces();
+
+			for (Layer1Interface port : networkComponent.layer1Interfaces.values()) {
+				Layer2Interface aggregator = canonical(aggregator(port), componentIndex);
+				if (!filtered.contains(port)) {
+					if (port.layer1LinkTo != null) {
+						continue;
+					}
+					// Mitglieder eines LAGs, das bereits ausgegeben wird (z.B. nur teilweise per CDP gesehen), sind ebenfalls
+					// Kandidaten, erscheinen aber ohnehin in der Ausgabe
+					if (aggregator == null
+							|| !filteredAggregators.contains(aggregator) && aggregator.mergedInterface == null) {
+						this.unfiltered.add(port);
+					}
+				}
+
+				Unit unit;
+				if (aggregator != null) {
+					unit = lagUnits.get(aggregator);
+					if (unit == null) {
+						unit = new Unit(-1, true, aggregator);
+						lagUnits.put(aggregator, unit);
+						lags.add(unit);
+					}
+				} else if (port.layer1LinkTo == null) {
+					unit = new Unit(this.units.size(), false, effective(port));
+					this.units.add(unit);
+				} else {
+					continue;
+				}
+
+				if (port.layer1LinkTo == null) {
+					unit.ports.add(port);
+					unit.components.add(networkComponent);
+					unitsByPort.put(port, unit);
+				} else {
+					unit.linkedPorts.add(port);
+				}
+			}
+		}
+
+		// LAGs ohne freie Mitglieder spielen nur noch als Gegenüber unvollständiger LAGs eine Rolle
+		for (Unit lag : lags) {
+			if (!lag.ports.isEmpty()) {
+				Unit unit = new Unit(this.units.size(), true, lag.layer2Interface);
+				unit.ports.addAll(lag.ports);
+				unit.linkedPorts.addAll(lag.linkedPorts);
+				unit.components.addAll(lag.components);
+				this.units.add(unit);
+				lagUnits.put(lag.layer2Interface, unit);
+				for (Layer1Interface port : unit.ports) {
+					unitsByPort.put(port, unit);
+				}
+			}
+		}
+		for (Unit lag : lags) {
+			Unit unit = lagUnits.get(lag.layer2Interface);
+			if (unit.ports.isEmpty() || unit.linkedPorts.isEmpty() || unit.partner != null) {
+				continue;
+			}
+
+			// Unvollständig verbundenes LAG: Die freien Mitglieder müssen zum selben Gegenüber führen
+			Layer1Interface opposite = unit.linkedPorts.get(0).layer1LinkTo;
+			Layer2Interface oppositeAggregator = canonical(aggregator(opposite), componentIndex);
+			Unit oppositeUnit = oppositeAggregator != null ? lagUnits.get(oppositeAggregator) : null;
+			if (oppositeAggregator == null) {
+				this.conflicts.add("Incomplete LAG " + unit.name() + " is connected to the non-aggregated interface "
+						+ opposite.networkComponent.name + "/" + opposite.name);
+			} else if (oppositeUnit == null || oppositeUnit.ports.size() != unit.ports.size()) {
+				this.conflicts.add("Incomplete LAG " + unit.name() + " has " + unit.ports.size() + " free members, but "
+						+ oppositeAggregator.networkComponent.name + "/" + oppositeAggregator.name + " has "
+						+ (oppositeUnit == null ? 0 : oppositeUnit.ports.size()));
+			} else {
+				unit.partner = oppositeUnit;
+				oppositeUnit.partner = unit;
+			}
+		}
+
+		// Anforderungen und Hinweise auf die Netzkomponente des Gegenübers sammeln
+		for (Layer1Interface port : this.requested) {
+			Unit unit = unitsByPort.get(port);
+			if (unit == null) {
+				this.conflicts.add("Requested interface " + port.networkComponent.name + "/" + port.name
+						+ " is already linked or not part of the output");
+			} else {
+				unit.required = true;
+			}
+		}
+		Map<String, NetworkComponent> names = new LinkedHashMap<>();
+		for (NetworkComponent networkComponent : this.topology.networkComponents) {
+			names.put(networkComponent.name.toUpperCase(Locale.ROOT), networkComponent);
+		}
+		if (this.useCDP) {
+			// Jeder Block wird nur einmal gelesen und allen Netzkomponenten zugeordnet, deren Name in der ersten Zeile steht
+			// (wie bei der Linkerstellung, siehe Topology)
+			for (NetworkComponent srcNC : this.topology.networkComponents) {
+				if (srcNC.cdpResult == null) {
+					continue;
+				}
+				for (List<String> block : srcNC.cdpResult.findNeighbors("")) {
+					String deviceId = block.get(0).toUpperCase(Locale.ROOT);
+					for (Map.Entry<String, NetworkComponent> name : names.entrySet()) {
+						if (name.getValue() != srcNC && deviceId.contains(name.getKey())) {
+							for (InterfaceId interfaceId : Toolbox
+									.getInterfaceNamesToNeighbors(srcNC.cdpResult, Collections.singletonList(block)).keySet()) {
+								this.hint(unitsByPort.get(srcNC.layer1Interfaces.get(interfaceId)), name.getValue());
+							}
+						}
+					}
+				}
+			}
+		}
+		if (this.useDescriptions) {
+			for (Unit unit : this.units) {
+				List<String> descriptions = new ArrayList<>();
+				if (unit.layer2Interface != null) {
+					descriptions.add(unit.layer2Interface.description);
+				}
+				for (Layer1Interface port : unit.ports) {
+					for (Layer2Interface layer2Interface : port.layer2Interfaces.values()) {
+						descriptions.add(layer2Interface.description);
+					}
+				}
+				for (String description : descriptions) {
+					if (description == null) {
+						continue;
+					}
+					for (String word : WORDS.split(description.toUpperCase(Locale.ROOT))) {
+						NetworkComponent networkComponent = names.get(word);
+						if (networkComponent != null) {
+							this.hint(unit, networkComponent);
+						}
+					}
+				}
+			}
+		}
+
+		// Buckets füllen; verbundene Einheiten zählen nicht als frei
+		for (Unit unit : this.units) {
+			unit.strict = this.strictBuckets.computeIfAbsent(signature(unit, true), k -> new Bucket());
+			unit.relaxed = this.relaxedBuckets.computeIfAbsent(signature(unit, false), k -> new Bucket());
+			unit.strict.units.add(unit);
+			unit.relaxed.units.add(unit);
+			if (unit.partner == null) {
+				unit.strict.update(unit, 1);
+				unit.relaxed.update(unit, 1);
+			}
+			if (unit.required) {
+				this.requiredUnits.add(unit);
+			}
+		}
+
+		this.solved = null;
+	}
+
+	/**
+	 * Merkt sich eine andere Netzkomponente als Hinweis auf das Gegenüber und fordert damit einen Link an.
+	 * 
+	 * @param unit
+	 *            Einheit oder null, sofern das Interface nicht frei ist
+	 * @param networkComponent
+	 *            Netzkomponente des Gegenübers
+	 */
+	private void hint(Unit unit, NetworkComponent networkComponent) {
+		if (unit != null && !unit.components.contains(networkComponent)) {
+			unit.hints.add(networkComponent);
+			unit.required = true;
+		}
+	}
+
+	/**
+	 * Wählt die nächste noch nicht verbundene geforderte Einheit mit den wenigsten Kandidaten (MRV).
+	 * 
+	 * @return Einheit oder null, sofern alle Anforderungen erfüllt sind
+	 */
+	private Unit select() {
+		Unit result = null;
+		int min = Integer.MAX_VALUE;
+		for (Unit unit : this.requiredUnits) {
+			if (unit.partner == null) {
+				int count = this.count(unit);
+				if (count < min) {
+					result = unit;
+					min = count;
+					if (count == 0) {
+						break;
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Schätzt die Anzahl der Kandidaten einer Einheit nach oben ab (ohne Prüfung der Hinweise des Gegenübers).
+	 * 
+	 * @param unit
+	 *            Einheit
+	 * @return Obere Schranke für die Anzahl der Kandidaten
+	 */
+	private int count(Unit unit) {
+		return this.allowVlanChanges ? unit.relaxed.count(unit) : unit.strict.count(unit);
+	}
+
+	/**
+	 * Gibt die freien Kandidaten einer Einheit zurück: Zuerst Kandidaten mit derselben Konfiguration, danach (sofern
+	 * erlaubt) Kandidaten mit anderen VLAN-IDs. Jeweils werden geforderte Einheiten bevorzugt.
+	 * 
+	 * @param unit
+	 *            Einheit
+	 * @return Kandidaten in der Reihenfolge, in der sie probiert werden
+	 */
+	private List<Unit> candidates(Unit unit) {
+		List<Unit> result = new ArrayList<>();
+		this.addCandidates(result, unit, unit.strict, null);
+		if (this.allowVlanChanges) {
+			this.addCandidates(result, unit, unit.relaxed, unit.strict);
+		}
+		return result;
+	}
+
+	/**
+	 * Fügt die freien Kandidaten eines Buckets hinzu.
+	 * 
+	 * @param result
+	 *            Liste der Kandidaten
+	 * @param unit
+	 *            Einheit
+	 * @param bucket
+	 *            Bucket
+	 * @param exclude
+	 *            Bucket, dessen Einheiten bereits hinzugefügt wurden, oder null
+	 */
+	private void addCandidates(List<Unit> result, Unit unit, Bucket bucket, Bucket exclude) {
+		for (boolean required : new boolean[] { true, false }) {
+			for (Unit candidate : bucket.units) {
+				if (candidate.required == required && candidate.partner == null && candidate != unit
+						&& candidate.strict != exclude && Collections.disjoint(unit.components, candidate.components)
+						&& accepts(unit, candidate) && accepts(candidate, unit)) {
+					result.add(candidate);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Probiert den nächsten freien Kandidaten einer Entscheidung.
+	 * 
+	 * @param frame
+	 *            Entscheidung
+	 * @return true, sofern ein Kandidat verbunden wurde
+	 */
+	private boolean advance(Frame frame) {
+		while (frame.next < frame.candidates.size()) {
+			Unit candidate = frame.candidates.get(frame.next++);
+			if (candidate.partner == null) {
+				this.match(frame.unit, candidate);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Erfüllt ohne Backtracking so viele Anforderungen wie möglich, nachdem die vollständige Suche gescheitert ist.
+	 */
+	private void greedy() {
+		for (Unit unit = this.select(); unit != null; unit = this.select()) {
+			List<Unit> candidates = this.candidates(unit);
+			if (candidates.isEmpty()) {
+				this.conflicts.add("No free candidate left for " + unit.name() + " (" + this.describe(unit) + ")");
+				unit.required = false;
+				this.requiredUnits.remove(unit);
+			} else {
+				this.match(unit, candidates.get(0));
+			}
+		}
+	}
+
+	/**
+	 * Verbindet zwei Einheiten.
+	 * 
+	 * @param unit
+	 *            Einheit
+	 * @param partner
+	 *            Gegenüber
+	 */
+	private void match(Unit unit, Unit partner) {
+		unit.partner = partner;
+		partner.partner = unit;
+		for (Unit u : new Unit[] { unit, partner }) {
+			u.strict.update(u, -1);
+			u.relaxed.update(u, -1);
+		}
+	}
+
+	/**
+	 * Löst die Verbindung einer Einheit.
+	 * 
+	 * @param unit
+	 *            Verbundene Einheit
+	 */
+	private void unmatch(Unit unit) {
+		Unit partner = unit.partner;
+		unit.partner = null;
+		partner.partner = null;
+		for (Unit u : new Unit[] { unit, partner }) {
+			u.strict.update(u, 1);
+			u.relaxed.update(u, 1);
+		}
+	}
+
+	/**
+	 * Gibt alle verbundenen Einheiten als Paare zurück (jedes Paar nur einmal).
+	 * 
+	 * @return Paare aus Einheiten
+	 */
+	private List<Unit[]> getMatches() {
+		this.ensureSolved();
+		List<Unit[]> result = new ArrayList<>();
+		for (Unit unit : this.units) {
+			if (unit.partner != null && unit.index < unit.partner.index) {
+				result.add(new Unit[] { unit, unit.partner });
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Führt die Suche aus, sofern noch nicht geschehen.
+	 */
+	private void ensureSolved() {
+		if (this.solved == null) {
+			this.solve();
+		}
+	}
+
+	/**
+	 * Beschreibt die Konfiguration einer Einheit für Konfliktmeldungen.
+	 * 
+	 * @param unit
+	 *            Einheit
+	 * @return Typ, VLAN-IDs und ggf. Hinweise auf das Gegenüber
+	 */
+	private String describe(Unit unit) {
+		String result = signature(unit, true).replace('|', ' ');
+		if (!unit.hints.isEmpty()) {
+			result += " to " + unit.hints.stream().map(n -> n.name).sorted().collect(Collectors.joining(", "));
+		}
+		return result;
+	}
+
+	/**
+	 * Prüft, ob eine Einheit mit dem Kandidaten verbunden werden darf (Hinweise auf die Netzkomponente des Gegenübers).
+	 * 
+	 * @param unit
+	 *            Einheit
+	 * @param candidate
+	 *            Kandidat
+	 * @return true, sofern die Einheit keine Hinweise hat oder der Kandidat auf einer der genannten Netzkomponenten liegt
+	 */
+	private static boolean accepts(Unit unit, Unit candidate) {
+		return unit.hints.isEmpty() || !Collections.disjoint(unit.hints, candidate.components);
+	}
+
+	/**
+	 * Signatur einer Einheit. Einheiten mit gleicher strenger Signatur können verbunden werden; gleiche lockere Signatur
+	 * bedeutet, dass dafür nur VLANs angepasst werden müssen.
+	 * 
+	 * @param unit
+	 *            Einheit
+	 * @param strict
+	 *            true für die strenge Signatur (inkl. VLAN-IDs)
+	 * @return Signatur
+	 */
+	private static String signature(Unit unit, boolean strict) {
+		Layer2Interface layer2Interface = unit.layer2Interface;
+		String result = (unit.lag ? "lag(" + unit.ports.size() + ")" : "port") + "|"
+				+ (layer2Interface == null ? "none"
+						: layer2Interface.interfaceType == null ? "untagged"
+								: layer2Interface.interfaceType.toLowerCase(Locale.ROOT));
+
+		if (strict && layer2Interface != null) {
+			result += "|vlan " + layer2Interface.getVIDs() + "|tagged " + taggedVIDs(layer2Interface);
+		}
+		return result;
+	}
+
+	/**
+	 * Erstellt die Interfaces einer Einheit, die nicht in der SOIL-Ausgabe der Topologie enthalten sind, analog zu
+	 * NetworkComponent.accept() (ohne Layer3Interfaces).
+	 * 
+	 * @param unit
+	 *            Einheit aus nicht ausgegebenen Interfaces
+	 * @param visitor
+	 *            SOILVisitor
+	 * @param result
+	 *            SOIL-Ausgabe
+	 */
+	private static void declare(Unit unit, SOILVisitor visitor, List<String> result) {
+		result.add("!nc := NetworkComponent.allInstances()->any(p | p.name = '" + unit.component().name + "')");
+		result.add("");
+
+		Layer2Interface aggregatorInterface = unit.lag ? unit.layer2Interface : null;
+		if (aggregatorInterface != null) {
+			visitor.visitAggregatorInterface(aggregatorInterface);
+			for (Layer2Interface taggedInterface : aggregatorInterface.taggedInterfaces.values()) {
+				visitor.visitTaggedInterface(taggedInterface, aggregatorInterface);
+			}
+		}
+
+		for (Layer1Interface port : sortedPorts(unit)) {
+			visitor.visitLayer1Interface(port);
+			for (Layer2Interface layer2Interface : port.layer2Interfaces.values()) {
+				visitor.visitLayer2Interface(layer2Interface, port, aggregatorInterface);
+				if (aggregatorInterface == null) {
+					for (Layer2Interface taggedInterface : layer2Interface.taggedInterfaces.values()) {
+						visitor.visitTaggedInterface(taggedInterface, layer2Interface);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gibt das Aggregator Interface eines Layer1Interfaces zurück.
+	 * 
+	 * @param port
+	 *            Layer1Interface
+	 * @return Aggregator Interface oder null
+	 */
+	private static Layer2Interface aggregator(Layer1Interface port) {
+		for (Layer2Interface aggregatorInterface : port.aggregatorInterfaces.values()) {
+			return aggregatorInterface;
+		}
+		return null;
+	}
+
+	/**
+	 * Gibt für verschmolzene Aggregator Interfaces (MC-LAG) immer dasselbe der beiden Interfaces zurück.
+	 * 
+	 * @param aggregatorInterface
+	 *            Aggregator Interface oder null
+	 * @param componentIndex
+	 *            Position der Netzkomponenten in der Topologie
+	 * @return Aggregator Interface der zuerst stehenden Netzkomponente
+	 */
+	private static Layer2Interface canonical(Layer2Interface aggregatorInterface,
+			Map<NetworkComponent, Integer> componentIndex) {
+		if (aggregatorInterface == null || aggregatorInterface.mergedInterface == null) {
+			return aggregatorInterface;
+		}
+
+		Layer2Interface partner = aggregatorInterface.mergedInterface;
+		return componentIndex.get(partner.networkComponent) < componentIndex.get(aggregatorInterface.networkComponent)
+				? partner : aggregatorInterface;
+	}
+
+	/**
+	 * Gibt das Layer2Interface zurück, dessen Konfiguration für einen Link des Layer1Interfaces maßgeblich ist.
+	 * 
+	 * @param port
+	 *            Layer1Interface ohne Aggregator Interface
+	 * @return Layer2Interface oder null, sofern keines definiert ist
+	 */
+	private static Layer2Interface effective(Layer1Interface port) {
+		for (Layer2Interface layer2Interface : port.layer2Interfaces.values()) {
+			return layer2Interface;
+		}
+		return null;
+	}
+
+	/**
+	 * Gibt die Layer1Interfaces einer Einheit in Portreihenfolge zurück, sodass die Mitglieder zweier LAGs paarweise
+	 * verbunden werden können.
+	 * 
+	 * @param unit
+	 *            Einheit
+	 * @return Sortierte Layer1Interfaces
+	 */
+	private static List<Layer1Interface> sortedPorts(Unit unit) {
+		List<Layer1Interface> result = new ArrayList<>(unit.ports);
+		result.sort((a, b) -> a.networkComponent == b.networkComponent ? a.key.compareTo(b.key)
+				: a.networkComponent.name.compareTo(b.networkComponent.name));
+		return result;
+	}
+
+	/**
+	 * Gibt die VLAN-IDs aller Tagged Interfaces eines Layer2Interfaces zurück.
+	 * 
+	 * @param layer2Interface
+	 *            Layer2Interface
+	 * @return Vereinigung der VLAN-IDs
+	 */
+	private static BitSet taggedVIDs(Layer2Interface layer2Interface) {
+		BitSet result = new BitSet();
+		for (Layer2Interface taggedInterface : layer2Interface.taggedInterfaces.values()) {
+			result.or(taggedInterface.getVIDs());
+		}
+		return result;
+	}
+
+	/**
+	 * Gibt die VLAN-IDs zurück, die in der ersten, aber nicht in der zweiten Menge enthalten sind.
+	 * 
+	 * @param a
+	 *            Erste Menge
+	 * @param b
+	 *            Zweite Menge
+	 * @return Differenz
+	 */
+	private static BitSet difference(BitSet a, BitSet b) {
+		BitSet result = (BitSet) a.clone();
+		result.andNot(b);
+		return result;
+	}
+
+	/**
+	 * Fügt eine VLAN-Änderung hinzu, sofern VLAN-IDs betroffen sind.
+	 * 
+	 * @param result
+	 *            Liste der Änderungen
+	 * @param target
+	 *            Zu änderndes Interface
+	 * @param reference
+	 *            Gegenüber, dessen Konfiguration übernommen wird
+	 * @param vids
+	 *            VLAN-IDs
+	 * @param action
+	 *            Art der Änderung (z.B. "add" oder "set")
+	 */
+	private static void addVlanChange(List<String> result, Layer2Interface target, Layer2Interface reference, BitSet vids,
+			String action) {
+		if (!vids.isEmpty()) {
+			result.add("VLAN assignment: " + target.networkComponent.name + "/" + target.name + " " + action + " "
+					+ vids.stream().mapToObj(Integer::toString).collect(Collectors.joining(",")) + " (to match "
+					+ reference.networkComponent.name + "/" + reference.name + ")");
+		}
+	}
+}
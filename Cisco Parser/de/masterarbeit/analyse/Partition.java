@@ -0,0 +1,149 @@
+package de.masterarbeit.analyse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import de.masterarbeit.modell.*;
+
+/**
+ * Teilbereich (Partition) einer Topologie, der unabhängig von den übrigen Partitionen validiert werden kann (siehe
+ * TopologyPartitioner). Die SOIL-Ausgabe enthält alle Netzkomponenten der Partition mit ihren Interfaces sowie alle Links
+ * innerhalb der Partition.
+ * 
+ * Links zu anderen Partitionen (Grenzlinks) werden nicht ausgegeben, die Interfaces an der Grenze hingegen schon. Die
+ * Invarianten, die sich über einen Grenzlink erstrecken, prüft stattdessen der Grenzbericht (siehe getBoundaryReport()).
+ * 
+ * @author Marcel Schuster
+ *
+ */
+public class Partition {
+	public final int index;
+	public final List<NetworkComponent> networkComponents;
+	// Grenzlinks als Paar {Interface innerhalb, Interface außerhalb der Partition}
+	public final List<Layer1Interface[]> boundaryLinks;
+
+	private final Topology topology;
+	private final Map<NetworkComponent, Integer> partitionIndex;
+
+	/**
+	 * Konstruktor zur Initialisierung.
+	 * 
+	 * @param topology
+	 *            Topologie, aus der die Partition stammt
+	 * @param index
+	 *            Nummer der Partition
+	 * @param networkComponents
+	 *            Netzkomponenten der Partition (in der Reihenfolge der Topologie)
+	 * @param boundaryLinks
+	 *            Grenzlinks zu anderen Partitionen
+	 * @param partitionIndex
+	 *            Nummer der Partition jeder Netzkomponente, um die Gegenseite eines Grenzlinks zu benennen
+	 */
+	Partition(Topology topology, int index, List<NetworkComponent> networkComponents, List<Layer1Interface[]> boundaryLinks,
+			Map<NetworkComponent, Integer> partitionIndex) {
+		this.topology = topology;
+		this.index = index;
+		this.networkComponents = Collections.unmodifiableList(networkComponents);
+		this.boundaryLinks = Collections.unmodifiableList(boundaryLinks);
+		this.partitionIndex = partitionIndex;
+	}
+
+	/**
+	 * Gibt die SOIL-Repräsentation der Partition zurück: Zunächst alle Netzkomponenten, danach die Layer1- und Layer2Links
+	 * innerhalb der Partition.
+	 * 
+	 * @return SOIL-Repräsentation als Liste von Strings
+	 */
+	public List<String> getSOIL() {
+		List<String> result = new ArrayList<>();
+
+		for (NetworkComponent networkComponent : this.networkComponents) {
+			result.addAll(networkComponent.getClassSOIL(this.topology.mergedReferences));
+		}
+		result.addAll(this.topology.getLinkSOIL(this.networkComponents));
+
+		return result;
+	}
+
+	/**
+	 * Prüft die Grenzlinks der Partition auf Konsistenz. Geprüft wird, ob beide Seiten gleichermaßen in einem LAG stecken,
+	 * ob über den Link mindestens ein Layer2Link besteht und ob die verbundenen Layer2Interfaces denselben Typ und dieselben
+	 * VLAN-IDs haben. TaggedDot1QInterfaces ohne Gegenstelle werden ebenfalls gemeldet.
+	 * 
+	 * @return Bericht als Liste von Strings (eine Zeile pro Grenzlink)
+	 */
+	public List<String> getBoundaryReport() {
+		List<String> result = new ArrayList<>();
+
+		for (Layer1Interface[] boundaryLink : this.boundaryLinks) {
+			Layer1Interface inside = boundaryLink[0];
+			Layer1Interface outside = boundaryLink[1];
+			List<Layer2Interface> outsideInterfaces = withMergedInterfaces(outside.getAllLayer2Interfaces());
+			List<String> problems = new ArrayList<>();
+			int layer2Links = 0;
+
+			if (inside.aggregatorInterfaces.isEmpty() != outside.aggregatorInterfaces.isEmpty()) {
+				problems.add("LAG membership differs");
+			}
+
+			for (Layer2Interface srcL2Int : withMergedInterfaces(inside.getAllLayer2Interfaces())) {
+				for (Layer2Interface dstL2Int : srcL2Int.layer2LinksTo.values()) {
+					if (!outsideInterfaces.contains(dstL2Int)) {
+						continue;
+					}
+
+					layer2Links++;
+
+					if (srcL2Int.interfaceType == null ? dstL2Int.interfaceType != null
+							: !srcL2Int.interfaceType.equalsIgnoreCase(dstL2Int.interfaceType)) {
+						problems.add("Interface types differ: " + srcL2Int.name + " (" + srcL2Int.interfaceType + ") vs. "
+								+ dstL2Int.name + " (" + dstL2Int.interfaceType + ")");
+					}
+
+					if (!Objects.equals(srcL2Int.getVIDs(), dstL2Int.getVIDs())) {
+						problems.add("VLANs differ: " + srcL2Int.name + " " + srcL2Int.getVIDs() + " vs. " + dstL2Int.name
+								+ " " + dstL2Int.getVIDs());
+					}
+				}
+
+				if (srcL2Int.layer2LinksTo.isEmpty() && "encapsulation".equalsIgnoreCase(srcL2Int.interfaceType)) {
+					problems.add("Tagged interface without opposite: " + srcL2Int.name);
+				}
+			}
+
+			if (layer2Links == 0) {
+				problems.add("No Layer2Link across boundary");
+			}
+
+			result.add("Boundary P" + this.index + " " + inside.networkComponent.name + ":" + inside.name + " <-> "
+					+ outside.networkComponent.name + ":" + outside.name + " (P"
+					+ this.partitionIndex.get(outside.networkComponent) + "): "
+					+ (problems.isEmpty() ? "OK" : String.join("; ", problems)));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Ergänzt die Layer2Interfaces um ihre verschmolzenen Interfaces (vPC), da die Layer2Links eines verschmolzenen LAGs nur
+	 * an einem der beiden Interfaces hängen.
+	 * 
+	 * @param layer2Interfaces
+	 *            Layer2Interfaces eines Layer1Interfaces
+	 * @return Layer2Interfaces inklusive der verschmolzenen Interfaces
+	 */
+	private static List<Layer2Interface> withMergedInterfaces(List<Layer2Interface> layer2Interfaces) {
+		List<Layer2Interface> result = new ArrayList<>(layer2Interfaces);
+
+		for (Layer2Interface layer2Interface : layer2Interfaces) {
+			if (layer2Interface.mergedInterface != null && !result.contains(layer2Interface.mergedInterface)) {
+				result.add(layer2Interface.mergedInterface);
+			}
+		}
+
+		return result;
+	}
+}
@@ -0,0 +1,697 @@
+package de.masterarbeit.analyse;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import de.masterarbeit.cisco.ConfigFingerprint;
+import de.masterarbeit.modell.*;
+
+/**
+ * Verlauf der Topologie über viele Stände (z.B. ein Stand pro Tag), um Fragen wie "Wann hat dieser Trunk VLAN 300 verloren?"
+ * zu beantworten, ohne für jeden Tag die vollständige SOIL-Ausgabe aufzubewahren oder erneut zu parsen.
+ * 
+ * Der Zustand jedes Layer2Interfaces wird auf einen kanonischen Datensatz reduziert (siehe getRecord()): Typ, VLAN-IDs,
+ * Beschreibung, LAG, vPC, IP-Adressen und Nachbarn. Datensätze werden inhaltsadressiert unter ihrem Hash abgelegt, ebenso
+ * das Manifest jeder Netzkomponente (Name und Hash pro Interface). Ein Stand ist nur noch die Liste der Manifeste. Unveränderte
+ * Interfaces und Netzkomponenten werden dadurch zwischen allen Ständen geteilt (Structural Sharing); ein neuer Stand kostet
+ * nur die tatsächlich geänderten Datensätze.
+ * 
+ * Zusätzlich wird pro Interface ein Änderungsindex geführt (Zeitpunkt und neuer Hash bei jeder Änderung). Der Zustand eines
+ * Interfaces zu einem Zeitpunkt und die Änderungen zwischen zwei Zeitpunkten werden darüber per binärer Suche bestimmt; der
+ * vollständige Stand zu einem Zeitpunkt direkt über dessen Manifeste. Es müssen also nie Stände nachgespielt werden.
+ * 
+ * Alle Dateien im Verzeichnis werden nur angehängt (objects.txt, snapshots.txt, changes.txt) und beim Öffnen vollständig
+ * gelesen. Ein Stand gilt erst als aufgenommen, wenn seine Zeile in snapshots.txt steht; diese wird daher zuletzt
+ * geschrieben. Änderungen eines abgebrochenen Stands werden beim Öffnen verworfen.
+ * 
+ * Schlüssel der Interfaces sind "Netzkomponente/Interface". Wie bei TopologyQuery sind dabei Kürzel (siehe InterfaceId)
+ * und beliebige Groß- und Kleinschreibung des Hostnamens erlaubt, z.B. "nx-a/Eth1/1".
+ * 
+ * @author Marcel Schuster
+ *
+ */
+public class TopologyHistory {
+	private final Path objectsFile;
+	private final Path snapshotsFile;
+	private final Path changesFile;
+	private final Charset charset = Charset.defaultCharset();
+
+	// Inhaltsadressierte Datensätze und Manifeste
+	private final Map<Long, String> objects = new HashMap<>();
+	// Stände: Zeitpunkt -> Hashes der Manifeste in der Reihenfolge der Netzkomponenten
+	private final TreeMap<Long, long[]> snapshots = new TreeMap<>();
+	// Änderungsindex: Normalisierter Schlüssel (siehe normalize()) -> Zeitpunkt -> Hash des neuen Datensatzes (null =
+	// Interface entfernt)
+	private final Map<String, TreeMap<Long, Long>> changes = new HashMap<>();
+
+	/**
+	 * Konstruktor, der den Verlauf aus dem Verzeichnis liest bzw. das Verzeichnis bei Bedarf anlegt.
+	 * 
+	 * @param directory
+	 *            Verzeichnis, in dem der Verlauf abgelegt wird
+	 * @throws IOException
+	 *             Sofern das Verzeichnis nicht angelegt oder gelesen werden kann
+	 */
+	public TopologyHistory(String directory) throws IOException {
+		Path path = Paths.get(directory);
+		Files.createDirectories(path);
+		this.objectsFile = path.resolve("objects.txt");
+		this.snapshotsFile = path.resolve("snapshots.txt");
+		this.changesFile = path.resolve("changes.txt");
+
+		for (String line : this.read(this.objectsFile)) {
+			int separator = line.indexOf('\t');
+			this.objects.put(Long.parseUnsignedLong(line.substring(0, separator), 16), line.substring(separator + 1));
+		}
+		for (String line : this.read(this.snapshotsFile)) {
+			String[] fields = line.split("\t");
+			long[] manifests = new long[fields.length - 1];
+			for (int i = 1; i < fields.length; i++) {
+				manifests[i - 1] = Long.parseUnsignedLong(fields[i], 16);
+			}
+			this.snapshots.put(Long.parseLong(fields[0]), manifests);
+		}
+
+		// Änderungen ohne zugehörigen Stand stammen aus einem abgebrochenen add() und würden sonst einem späteren Stand
+		// zugerechnet. Sie werden daher auch aus der Datei entfernt.
+		List<String> lines = this.read(this.changesFile);
+		List<String> kept = new ArrayList<>();
+		for (String line : lines) {
+			String[] fields = line.split("\t");
+			if (fields.length == 3 && this.snapshots.containsKey(Long.parseLong(fields[0]))) {
+				kept.add(line);
+			}
+		}
+		if (kept.size() < lines.size()) {
+			Files.write(this.changesFile, kept, this.charset);
+		}
+		for (String line : kept) {
+			this.index(line);
+		}
+	}
+
+	/**
+	 * Nimmt einen neuen Stand der Topologie auf. Netzkomponenten, deren Manifest sich seit dem letzten Stand nicht geändert
+	 * hat, werden nicht weiter betrachtet. Der Stand wird vollständig aufgebaut und geschrieben, bevor der Verlauf im Speicher
+	 * aktualisiert wird; schlägt das Schreiben fehl, bleibt der bisherige Verlauf unverändert.
+	 * 
+	 * @param time
+	 *            Zeitpunkt des Stands in Millisekunden seit 1970 (muss nach dem letzten Stand liegen)
+	 * @param topology
+	 *            Korrelierte Topologie
+	 * @return Anzahl der geänderten, hinzugekommenen und entfernten Interfaces
+	 * @throws IOException
+	 *             Sofern der Verlauf nicht geschrieben werden kann
+	 */
+	public synchronized int add(long time, Topology topology) throws IOException {
+		if (!this.snapshots.isEmpty() && time <= this.snapshots.lastKey()) {
+			throw new IllegalArgumentException("Snapshot " + format(time) + " is not after the last snapshot "
+					+ format(this.snapshots.lastKey()));
+		}
+
+		Map<Long, String> newObjects = new LinkedHashMap<>();
+		List<String> newChanges = new ArrayList<>();
+
+		// Manifeste des letzten Stands nach Netzkomponente
+		Map<String, Long> previous = new HashMap<>();
+		if (!this.snapshots.isEmpty()) {
+			for (long manifest : this.snapshots.lastEntry().getValue()) {
+				previous.put(componentName(this.objects.get(manifest)), manifest);
+			}
+		}
+
+		long[] manifests = new long[topology.networkComponents.size()];
+		for (int i = 0; i < manifests.length; i++) {
+			NetworkComponent networkComponent = topology.networkComponents.get(i);
+
+			Map<String, Long> hashes = new LinkedHashMap<>();
+			StringBuilder manifest = new StringBuilder(networkComponent.name);
+			for (Layer2Interface layer2Interface : networkComponent.layer2Rows) {
+				long hash = this.store(getRecord(layer2Interface), newObjects);
+				hashes.put(layer2Interface.name, hash);
+				manifest.append('\t').append(layer2Interface.name).append('=').append(ConfigFingerprint.toHex(hash));
+			}
+			manifests[i] = this.store(manifest.toString(), newObjects);
+
+			Long before = previous.remove(networkComponent.name);
+			if (before == null || before != manifests[i]) {
+				this.diff(networkComponent.name, before == null ? new HashMap<>() : this.getHashes(before), hashes, time,
+						newChanges);
+			}
+		}
+		for (Map.Entry<String, Long> removed : previous.entrySet()) {
+			this.diff(removed.getKey(), this.getHashes(removed.getValue()), new LinkedHashMap<>(), time, newChanges);
+		}
+
+		List<String> objectLines = new ArrayList<>();
+		for (Map.Entry<Long, String> object : newObjects.entrySet()) {
+			objectLines.add(ConfigFingerprint.toHex(object.getKey()) + "\t" + object.getValue());
+		}
+		StringBuilder snapshot = new StringBuilder(Long.toString(time));
+		for (long manifest : manifests) {
+			snapshot.append('\t').append(ConfigFingerprint.toHex(manifest));
+		}
+
+		// snapshots.txt zuletzt, da der Stand erst mit dieser Zeile als aufgenommen gilt (siehe Konstruktor)
+		this.append(this.objectsFile, objectLines);
+		this.append(this.changesFile, newChanges);
+		this.append(this.snapshotsFile, Arrays.asList(snapshot.toString()));
+
+		this.objects.putAll(newObjects);
+		for (String line : newChanges) {
+			this.index(line);
+		}
+		this.snapshots.put(time, manifests);
+
+		return newChanges.size();
+	}
+
+	/**
+	 * Gibt die Zeitpunkte aller Stände zurück.
+	 * 
+	 * @return Zeitpunkte in Millisekunden seit 1970, aufsteigend
+	 */
+	public synchronized List<Long> getSnapshots() {
+		return new ArrayList<>(this.snapshots.keySet());
+	}
+
+	/**
+	 * Gibt die Anzahl der gespeicherten Datensätze und Manifeste zurück.
+	 * 
+	 * @return Anzahl der Objekte
+	 */
+	public synchronized int getObjectCount() {
+		return this.objects.size();
+	}
+
+	/**
+	 * Stellt den Stand zum angegebenen Zeitpunkt wieder her (letzter Stand, der nicht nach dem Zeitpunkt liegt).
+	 * 
+	 * @param time
+	 *            Zeitpunkt in Millisekunden seit 1970
+	 * @return Datensätze aller Interfaces nach Schlüssel in der Reihenfolge der Netzkomponenten
+	 * @throws IllegalArgumentException
+	 *             Sofern es vor dem Zeitpunkt keinen Stand gibt
+	 */
+	public synchronized Map<String, String> reconstruct(long time) {
+		Map<String, String> result = new LinkedHashMap<>();
+		for (long manifest : this.getManifests(time)) {
+			result.putAll(this.getInterfaces(manifest));
+		}
+		return result;
+	}
+
+	/**
+	 * Gibt den Datensatz eines Interfaces zum angegebenen Zeitpunkt zurück.
+	 * 
+	 * @param key
+	 *            Schlüssel der Form "Netzkomponente/Interface"
+	 * @param time
+	 *            Zeitpunkt in Millisekunden seit 1970
+	 * @return Datensatz oder null, sofern das Interface zu diesem Zeitpunkt nicht existierte
+	 */
+	public synchronized String getState(String key, long time) {
+		TreeMap<Long, Long> index = this.changes.get(normalize(key));
+		Map.Entry<Long, Long> entry = index == null ? null : index.floorEntry(time);
+		return entry == null || entry.getValue() == null ? null : this.objects.get(entry.getValue());
+	}
+
+	/**
+	 * Gibt alle Änderungen eines Interfaces zwischen zwei Zeitpunkten zurück.
+	 * 
+	 * @param key
+	 *            Schlüssel der Form "Netzkomponente/Interface"
+	 * @param from
+	 *            Beginn (ausschließlich) in Millisekunden seit 1970
+	 * @param to
+	 *            Ende (einschließlich) in Millisekunden seit 1970
+	 * @return Änderungen als lesbare Zeilen der Form "Zeitpunkt Schlüssel Feld: alt -> neu"
+	 */
+	public synchronized List<String> getChanges(String key, long from, long to) {
+		List<String> result = new ArrayList<>();
+		TreeMap<Long, Long> index = this.changes.get(normalize(key));
+		if (index == null) {
+			return result;
+		}
+
+		for (Map.Entry<Long, Long> entry : index.subMap(from, false, to, true).entrySet()) {
+			Map.Entry<Long, Long> before = index.lowerEntry(entry.getKey());
+			String oldRecord = before == null || before.getValue() == null ? null : this.objects.get(before.getValue());
+			String newRecord = entry.getValue() == null ? null : this.objects.get(entry.getValue());
+			result.add(format(entry.getKey()) + " " + describe(key, oldRecord, newRecord));
+		}
+		return result;
+	}
+
+	/**
+	 * Sucht die Zeitpunkte, zu denen ein VLAN auf einem Interface hinzugefügt oder entfernt wurde (z.B. "Wann hat dieser
+	 * Trunk VLAN 300 verloren?").
+	 * 
+	 * @param key
+	 *            Schlüssel der Form "Netzkomponente/Interface"
+	 * @param vid
+	 *            VLAN-ID
+	 * @param from
+	 *            Beginn (ausschließlich) in Millisekunden seit 1970
+	 * @param to
+	 *            Ende (einschließlich) in Millisekunden seit 1970
+	 * @return Änderungen als lesbare Zeilen der Form "Zeitpunkt Schlüssel VLAN x added/removed"
+	 */
+	public synchronized List<String> findVlanChanges(String key, int vid, long from, long to) {
+		List<String> result = new ArrayList<>();
+		TreeMap<Long, Long> index = this.changes.get(normalize(key));
+		if (index == null) {
+			return result;
+		}
+
+		Map.Entry<Long, Long> before = index.floorEntry(from);
+		boolean present = before != null && hasVlan(before.getValue(), vid);
+		for (Map.Entry<Long, Long> entry : index.subMap(from, false, to, true).entrySet()) {
+			boolean now = hasVlan(entry.getValue(), vid);
+			if (now != present) {
+				result.add(format(entry.getKey()) + " " + key + " VLAN " + vid + (now ? " added" : " removed"));
+				present = now;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Vergleicht zwei Stände. Netzkomponenten mit identischem Manifest werden übersprungen.
+	 * 
+	 * @param from
+	 *            Zeitpunkt des ersten Stands in Millisekunden seit 1970
+	 * @param to
+	 *            Zeitpunkt des zweiten Stands in Millisekunden seit 1970
+	 * @return Bericht über geänderte, hinzugekommene und entfernte Interfaces
+	 */
+	public synchronized List<String> diff(long from, long to) {
+		List<String> result = new ArrayList<>();
+
+		Map<String, Long> before = new LinkedHashMap<>();
+		for (long manifest : this.getManifests(from)) {
+			before.put(componentName(this.objects.get(manifest)), manifest);
+		}
+
+		for (long manifest : this.getManifests(to)) {
+			String name = componentName(this.objects.get(manifest));
+			Long previous = before.remove(name);
+			if (previous == null || previous != manifest) {
+				result.addAll(this.compare(previous == null ? new LinkedHashMap<>() : this.getInterfaces(previous),
+						this.getInterfaces(manifest)));
+			}
+		}
+		for (long manifest : before.values()) {
+			result.addAll(this.compare(this.getInterfaces(manifest), new LinkedHashMap<>()));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Reduziert ein Layer2Interface auf seinen kanonischen Datensatz. Die Felder sind durch Tabulatoren getrennt und haben
+	 * die Form "feld=wert"; leere Felder werden ausgelassen.
+	 * 
+	 * @param layer2Interface
+	 *            Interface einer korrelierten Topologie
+	 * @return Datensatz
+	 */
+	public static String getRecord(Layer2Interface layer2Interface) {
+		List<String> fields = new ArrayList<>();
+		fields.add("type=" + (layer2Interface.interfaceType == null ? "untagged" : layer2Interface.interfaceType));
+		addField(fields, "vlan", ConfigFingerprint.toRanges(layer2Interface.getVIDs()));
+		addField(fields, "description", layer2Interface.description);
+		addField(fields, "lag", layer2Interface.aggregator2Interface == null ? null : layer2Interface.aggregator2Interface.name);
+		addField(fields, "vpc", layer2Interface.vpc);
+		addField(fields, "peer-link", layer2Interface.peerLink);
+
+		List<String> addresses = new ArrayList<>();
+		for (Layer3Interface layer3Interface : layer2Interface.layer3Interfaces.values()) {
+			addresses.add(layer3Interface.ip + " " + layer3Interface.subnet);
+		}
+		addField(fields, "ip", String.join(",", addresses));
+
+		TreeSet<String> neighbors = new TreeSet<>();
+		for (Layer1Interface layer1Interface : layer2Interface.layer1Interfaces.values()) {
+			if (layer1Interface.layer1LinkTo != null) {
+				neighbors.add(layer1Interface.layer1LinkTo.networkComponent.name + "/" + layer1Interface.layer1LinkTo.name);
+			}
+		}
+		addField(fields, "neighbor", String.join(",", neighbors));
+
+		return String.join("\t", fields);
+	}
+
+	/**
+	 * Wandelt einen Zeitpunkt aus einer Anfrage um. Erlaubt sind Millisekunden seit 1970, ISO-Zeitpunkte
+	 * ("2020-01-31T12:00:00Z") und Tage ("2020-01-31", gemeint ist das Ende des Tages in UTC).
+	 * 
+	 * @param value
+	 *            Zeitpunkt
+	 * @return Zeitpunkt in Millisekunden seit 1970
+	 * @throws IllegalArgumentException
+	 *             Sofern der Zeitpunkt nicht gelesen werden kann
+	 */
+	public static long parseTime(String value) {
+		try {
+			if (value.matches("^\\d+$")) {
+				return Long.parseLong(value);
+			} else if (value.contains("T")) {
+				return Instant.parse(value).toEpochMilli();
+			}
+			return LocalDate.parse(value).plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli() - 1;
+		} catch (DateTimeParseException e) {
+			throw new IllegalArgumentException("Invalid time: " + value);
+		}
+	}
+
+	/**
+	 * Gibt einen Zeitpunkt lesbar zurück.
+	 * 
+	 * @param time
+	 *            Zeitpunkt in Millisekunden seit 1970
+	 * @return ISO-Zeitpunkt in UTC
+	 */
+	public static String format(long time) {
+		return Instant.ofEpochMilli(time).toString();
+	}
+
+	/**
+	 * Legt ein Objekt ab, sofern es noch nicht existiert.
+	 * 
+	 * @param object
+	 *            Datensatz oder Manifest
+	 * @param newObjects
+	 *            Neue Objekte des Stands (noch nicht in "objects")
+	 * @return Hash des Objekts
+	 */
+	private long store(String object, Map<Long, String> newObjects) {
+		long hash = ConfigFingerprint.hash(ConfigFingerprint.EMPTY, object);
+		String existing = this.objects.get(hash);
+		if (existing == null) {
+			existing = newObjects.putIfAbsent(hash, object);
+		}
+		if (existing != null && !existing.equals(object)) {
+			throw new IllegalStateException("Hash collision in topology history: " + ConfigFingerprint.toHex(hash));
+		}
+		return hash;
+	}
+
+	/**
+	 * Ermittelt die Unterschiede zweier Manifeste einer Netzkomponente als Zeilen für changes.txt.
+	 * 
+	 * @param name
+	 *            Name der Netzkomponente
+	 * @param oldHashes
+	 *            Hashes des bisherigen Manifests (leer, sofern die Netzkomponente neu ist; wird verändert)
+	 * @param newHashes
+	 *            Hashes des neuen Manifests (leer, sofern die Netzkomponente entfernt wurde)
+	 * @param time
+	 *            Zeitpunkt des neuen Stands
+	 * @param newChanges
+	 *            Neue Zeilen für changes.txt
+	 */
+	private void diff(String name, Map<String, Long> oldHashes, Map<String, Long> newHashes, long time,
+			List<String> newChanges) {
+		for (Map.Entry<String, Long> entry : newHashes.entrySet()) {
+			Long old = oldHashes.remove(entry.getKey());
+			if (old == null || !old.equals(entry.getValue())) {
+				this.change(name + "/" + entry.getKey(), time, entry.getValue(), newChanges);
+			}
+		}
+		for (String removed : oldHashes.keySet()) {
+			this.change(name + "/" + removed, time, null, newChanges);
+		}
+	}
+
+	/**
+	 * Erstellt die Zeile einer Änderung für changes.txt.
+	 * 
+	 * @param key
+	 *            Schlüssel des Interfaces
+	 * @param time
+	 *            Zeitpunkt
+	 * @param hash
+	 *            Hash des neuen Datensatzes oder null, sofern das Interface entfernt wurde
+	 * @param newChanges
+	 *            Neue Zeilen für changes.txt
+	 */
+	private void change(String key, long time, Long hash, List<String> newChanges) {
+		newChanges.add(time + "\t" + key + "\t" + (hash == null ? "-" : ConfigFingerprint.toHex(hash)));
+	}
+
+	/**
+	 * Trägt eine Zeile aus changes.txt in den Änderungsindex ein.
+	 * 
+	 * @param line
+	 *            Zeile der Form "Zeitpunkt Schlüssel Hash" (durch Tabulatoren getrennt, "-" = Interface entfernt)
+	 */
+	private void index(String line) {
+		String[] fields = line.split("\t");
+		this.changes.computeIfAbsent(normalize(fields[1]), k -> new TreeMap<>()).put(Long.parseLong(fields[0]),
+				fields[2].equals("-") ? null : Long.parseUnsignedLong(fields[2], 16));
+	}
+
+	/**
+	 * Normalisiert den Schlüssel eines Interfaces: Hostname in Großbuchstaben und Interfacename in der vollständigen Form
+	 * (siehe InterfaceId), z.B. "nx-a/Eth1/1" zu "NX-A/Ethernet1/1".
+	 * 
+	 * @param key
+	 *            Schlüssel der Form "Netzkomponente/Interface"
+	 * @return Normalisierter Schlüssel
+	 */
+	private static String normalize(String key) {
+		int separator = key.indexOf('/');
+		if (separator < 0) {
+			return key.toUpperCase(Locale.ROOT);
+		}
+		return key.substring(0, separator).toUpperCase(Locale.ROOT) + "/" + InterfaceId.of(key.substring(separator + 1));
+	}
+
+	/**
+	 * Gibt die Manifeste des Stands zum angegebenen Zeitpunkt zurück.
+	 * 
+	 * @param time
+	 *            Zeitpunkt in Millisekunden seit 1970
+	 * @return Hashes der Manifeste
+	 * @throws IllegalArgumentException
+	 *             Sofern es vor dem Zeitpunkt keinen Stand gibt
+	 */
+	private long[] getManifests(long time) {
+		Map.Entry<Long, long[]> entry = this.snapshots.floorEntry(time);
+		if (entry == null) {
+			throw new IllegalArgumentException("No snapshot at or before " + format(time));
+		}
+		return entry.getValue();
+	}
+
+	/**
+	 * Gibt die Hashes der Datensätze eines Manifests zurück.
+	 * 
+	 * @param manifest
+	 *            Hash des Manifests
+	 * @return Hash pro Interfacename in der Reihenfolge des Manifests
+	 */
+	private Map<String, Long> getHashes(long manifest) {
+		Map<String, Long> result = new LinkedHashMap<>();
+		String[] fields = this.objects.get(manifest).split("\t");
+		for (int i = 1; i < fields.length; i++) {
+			int separator = fields[i].lastIndexOf('=');
+			result.put(fields[i].substring(0, separator), Long.parseUnsignedLong(fields[i].substring(separator + 1), 16));
+		}
+		return result;
+	}
+
+	/**
+	 * Gibt die Datensätze eines Manifests zurück.
+	 * 
+	 * @param manifest
+	 *            Hash des Manifests
+	 * @return Datensatz pro Schlüssel in der Reihenfolge des Manifests
+	 */
+	private Map<String, String> getInterfaces(long manifest) {
+		Map<String, String> result = new LinkedHashMap<>();
+		String name = componentName(this.objects.get(manifest));
+		for (Map.Entry<String, Long> entry : this.getHashes(manifest).entrySet()) {
+			result.put(name + "/" + entry.getKey(), this.objects.get(entry.getValue()));
+		}
+		return result;
+	}
+
+	/**
+	 * Vergleicht die Datensätze zweier Stände einer Netzkomponente.
+	 * 
+	 * @param before
+	 *            Datensätze des ersten Stands
+	 * @param after
+	 *            Datensätze des zweiten Stands
+	 * @return Unterschiede als lesbare Zeilen
+	 */
+	private List<String> compare(Map<String, String> before, Map<String, String> after) {
+		List<String> result = new ArrayList<>();
+		for (Map.Entry<String, String> entry : after.entrySet()) {
+			String old = before.remove(entry.getKey());
+			if (!entry.getValue().equals(old)) {
+				result.add(describe(entry.getKey(), old, entry.getValue()));
+			}
+		}
+		for (Map.Entry<String, String> entry : before.entrySet()) {
+			result.add(describe(entry.getKey(), entry.getValue(), null));
+		}
+		return result;
+	}
+
+	/**
+	 * Prüft, ob ein Datensatz die VLAN-ID enthält.
+	 * 
+	 * @param hash
+	 *            Hash des Datensatzes oder null
+	 * @param vid
+	 *            VLAN-ID
+	 * @return true, sofern das Interface existiert und die VLAN-ID enthält
+	 */
+	private boolean hasVlan(Long hash, int vid) {
+		if (hash == null) {
+			return false;
+		}
+
+		String vlans = parseRecord(this.objects.get(hash)).get("vlan");
+		if (vlans == null) {
+			return false;
+		}
+
+		BitSet result = new BitSet();
+		ConfigFingerprint.addVlans(result, vlans);
+		return result.get(vid);
+	}
+
+	/**
+	 * Beschreibt die Änderung eines Interfaces feldweise.
+	 * 
+	 * @param key
+	 *            Schlüssel des Interfaces
+	 * @param before
+	 *            Bisheriger Datensatz oder null
+	 * @param after
+	 *            Neuer Datensatz oder null
+	 * @return Lesbare Zeile
+	 */
+	private static String describe(String key, String before, String after) {
+		if (before == null) {
+			return "Interface added: " + key;
+		} else if (after == null) {
+			return "Interface removed: " + key;
+		}
+
+		Map<String, String> oldFields = parseRecord(before);
+		Map<String, String> newFields = parseRecord(after);
+		List<String> differences = new ArrayList<>();
+		for (Map.Entry<String, String> entry : newFields.entrySet()) {
+			String old = oldFields.remove(entry.getKey());
+			if (!entry.getValue().equals(old)) {
+				differences.add(entry.getKey() + ": " + (old == null ? "-" : old) + " -> " + entry.getValue());
+			}
+		}
+		for (Map.Entry<String, String> entry : oldFields.entrySet()) {
+			differences.add(entry.getKey() + ": " + entry.getValue() + " -> -");
+		}
+		return "Configuration changed: " + key + " (" + String.join("; ", differences) + ")";
+	}
+
+	/**
+	 * Zerlegt einen Datensatz in seine Felder.
+	 * 
+	 * @param record
+	 *            Datensatz (siehe getRecord())
+	 * @return Werte nach Feldname
+	 */
+	private static Map<String, String> parseRecord(String record) {
+		Map<String, String> result = new LinkedHashMap<>();
+		for (String field : record.split("\t")) {
+			int separator = field.indexOf('=');
+			result.put(field.substring(0, separator), field.substring(separator + 1));
+		}
+		return result;
+	}
+
+	/**
+	 * Fügt ein Feld hinzu, sofern es einen Wert hat. Tabulatoren im Wert werden durch Leerzeichen ersetzt.
+	 * 
+	 * @param fields
+	 *            Felder des Datensatzes
+	 * @param name
+	 *            Feldname
+	 * @param value
+	 *            Wert oder null
+	 */
+	private static void addField(List<String> fields, String name, String value) {
+		if (value != null && !value.isEmpty()) {
+			fields.add(name + "=" + value.replace('\t', ' '));
+		}
+	}
+
+	/**
+	 * Gibt den Namen der Netzkomponente eines Manifests zurück.
+	 * 
+	 * @param manifest
+	 *            Manifest
+	 * @return Name der Netzkomponente
+	 */
+	private static String componentName(String manifest) {
+		int separator = manifest.indexOf('\t');
+		return separator < 0 ? manifest : manifest.substring(0, separator);
+	}
+
+	/**
+	 * Liest eine Datei des Verlaufs.
+	 * 
+	 * @param file
+	 *            Datei
+	 * @return Nicht leere Zeilen (leer, sofern die Datei nicht existiert)
+	 * @throws IOException
+	 *             Sofern die Datei nicht gelesen werden kann
+	 */
+	private List<String> read(Path file) throws IOException {
+		List<String> result = new ArrayList<>();
+		if (Files.isRegularFile(file)) {
+			for (String line : Files.readAllLines(file, this.charset)) {
+				if (!line.isEmpty()) {
+					result.add(line);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Hängt Zeilen an eine Datei des Verlaufs an.
+	 * 
+	 * @param file
+	 *            Datei
+	 * @param lines
+	 *            Zeilen
+	 * @throws IOException
+	 *             Sofern die Datei nicht geschrieben werden kann
+	 */
+	private void append(Path file, List<String> lines) throws IOException {
+		Files.write(file, lines, this.charset, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+	}
+}
@@ -0,0 +1,397 @@
+package de.masterarbeit.analyse;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import de.masterarbeit.modell.*;
+
+/**
+ * Zerlegt eine Topologie in zusammenhängende Teiltopologien (Partitionen), die unabhängig voneinander und damit auch parallel
+ * validiert werden können. Rechenzentren bestehen in der Regel aus lose gekoppelten Pods, die über wenige Uplinks verbunden
+ * sind. Die Laufzeit der Validierung wächst hingegen stark mit der Anzahl der Netzkomponenten (siehe Performancetest).
+ * 
+ * Vorgehen:
+ * 
+ * 1. Netzkomponenten, die über einen Peer Link oder ein verschmolzenes Interface (vPC) verbunden sind, bilden eine Domäne.
+ * Domänen werden nie zerschnitten, da sich die SOIL-Ausgaben der Netzkomponenten gegenseitig referenzieren. Ein VSS ist
+ * bereits eine einzelne Netzkomponente.
+ * 
+ * 2. Zwischen den Domänen wird anhand der konfigurierten Grenzen (siehe Boundary) geschnitten. Mehrere Layer1Links zwischen
+ * zwei Domänen gelten dabei als eine Kante.
+ * 
+ * 3. Optional werden benachbarte Partitionen wieder zusammengefasst, solange sie die maximale Anzahl an Netzkomponenten
+ * nicht überschreiten. Stark gekoppelte Partitionen (viele Links) werden dabei bevorzugt.
+ * 
+ * @author Marcel Schuster
+ *
+ */
+public class TopologyPartitioner {
+	/**
+	 * Mögliche Grenzen, an denen die Topologie zerschnitten wird.
+	 */
+	public enum Boundary {
+		// Jede Domäne (einzelne Netzkomponente, vPC-Paar oder VSS) ist eine eigene Partition
+		DOMAIN,
+		// Links zwischen Netzkomponenten unterschiedlicher Pods (siehe podPattern)
+		POD,
+		// Links, deren Entfernen die Topologie in zwei Teile zerfallen lässt (Brücken zwischen Domänen)
+		ARTICULATION
+	}
+
+	// Grenzen, an denen geschnitten wird
+	public Set<Boundary> boundaries = EnumSet.of(Boundary.ARTICULATION);
+
+	// Regex Pattern, dessen erste capturing group den Pod aus dem Hostnamen extrahiert (z.B. "^(POD[\\d]+)-")
+	public String podPattern = null;
+
+	// Maximale Anzahl an Netzkomponenten pro Partition beim Zusammenfassen (0 = nicht zusammenfassen)
+	public int maxComponents = 0;
+
+	private final Topology topology;
+
+	/**
+	 * Kante zwischen zwei Domänen mit allen Layer1Links, die die Domänen verbinden.
+	 */
+	private static class Edge {
+		private final int from;
+		private final int to;
+		private final List<Layer1Interface> links = new ArrayList<>();
+		private boolean cut = false;
+
+		private Edge(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+	}
+
+	/**
+	 * Konstruktor zur Initialisierung.
+	 * 
+	 * @param topology
+	 *            Topologie, die zerlegt werden soll
+	 */
+	public TopologyPartitioner(Topology topology) {
+		this.topology = topology;
+	}
+
+	/**
+	 * Zerlegt die Topologie anhand der konfigurierten Grenzen.
+	 * 
+	 * @return Partitionen in der Reihenfolge ihrer ersten Netzkomponente
+	 */
+	public List<Partition> partition() {
+		List<NetworkComponent> networkComponents = this.topology.networkComponents;
+		Map<NetworkComponent, Integer> index = new IdentityHashMap<>();
+		for (int i = 0; i < networkComponents.size(); i++) {
+			index.put(networkComponents.get(i), i);
+		}
+
+		// [Schritt 1] Domänen bilden (Peer Links und verschmolzene Interfaces)
+		int[] domains = identity(networkComponents.size());
+		for (NetworkComponent networkComponent : networkComponents) {
+			for (Layer2Interface layer2Interface : networkComponent.layer2Rows) {
+				if (layer2Interface.mergedInterface != null) {
+					union(domains, index.get(networkComponent), index.get(layer2Interface.mergedInterface.networkComponent));
+				}
+
+				if (layer2Interface.peerLink != null) {
+					for (Layer2Interface opposite : layer2Interface.layer2LinksTo.values()) {
+						if (opposite.peerLink != null) {
+							union(domains, index.get(networkComponent), index.get(opposite.networkComponent));
+						}
+					}
+				}
+			}
+		}
+
+		// [Schritt 2] Kanten zwischen den Domänen sammeln. Jeder Layer1Link wird nur von einer Seite aus betrachtet.
+		Map<Long, Edge> edges = new LinkedHashMap<>();
+		for (NetworkComponent networkComponent : networkComponents) {
+			for (Layer1Interface layer1Interface : networkComponent.layer1Rows) {
+				Layer1Interface opposite = layer1Interface.layer1LinkTo;
+				if (opposite == null || index.get(networkComponent) > index.get(opposite.networkComponent)) {
+					continue;
+				}
+
+				int from = find(domains, index.get(networkComponent));
+				int to = find(domains, index.get(opposite.networkComponent));
+				if (from != to) {
+					long key = (long) Math.min(from, to) << 32 | Math.max(from, to);
+					edges.computeIfAbsent(key, k -> new Edge(Math.min(from, to), Math.max(from, to))).links
+							.add(layer1Interface);
+				}
+			}
+		}
+
+		// [Schritt 3] Kanten anhand der Grenzen schneiden
+		if (this.boundaries.contains(Boundary.ARTICULATION)) {
+			this.markBridges(networkComponents.size(), new ArrayList<>(edges.values()));
+		}
+		for (Edge edge : edges.values()) {
+			edge.cut |= this.boundaries.contains(Boundary.DOMAIN) || this.crossesPods(edge);
+		}
+
+		// [Schritt 4] Partitionen über die nicht geschnittenen Kanten bilden
+		int[] partitions = domains.clone();
+		for (Edge edge : edges.values()) {
+			if (!edge.cut) {
+				union(partitions, edge.from, edge.to);
+			}
+		}
+
+		// [Schritt 5] Optional benachbarte Partitionen zusammenfassen, stark gekoppelte zuerst. Pod-Grenzen bleiben bestehen.
+		if (this.maxComponents > 0) {
+			int[] sizes = sizes(partitions);
+			List<Edge> candidates = new ArrayList<>(edges.values());
+			candidates.sort((e1, e2) -> e1.links.size() != e2.links.size() ? e2.links.size() - e1.links.size()
+					: e1.from != e2.from ? e1.from - e2.from : e1.to - e2.to);
+
+			for (Edge edge : candidates) {
+				int from = find(partitions, edge.from);
+				int to = find(partitions, edge.to);
+
+				if (from != to && !this.crossesPods(edge)
+						&& sizes[from] + sizes[to] <= this.maxComponents) {
+					union(partitions, sizes, from, to);
+				}
+			}
+		}
+
+		return this.createPartitions(partitions);
+	}
+
+	/**
+	 * Erstellt die Partitionen inklusive der Grenzlinks aus der Zuordnung der Netzkomponenten.
+	 * 
+	 * @param partitions
+	 *            Union-Find Struktur über die Indizes der Netzkomponenten
+	 * @return Partitionen in der Reihenfolge ihrer ersten Netzkomponente
+	 */
+	private List<Partition> createPartitions(int[] partitions) {
+		List<NetworkComponent> networkComponents = this.topology.networkComponents;
+		Map<Integer, List<NetworkComponent>> members = new LinkedHashMap<>();
+		Map<NetworkComponent, Integer> partitionIndex = new IdentityHashMap<>();
+
+		for (int i = 0; i < networkComponents.size(); i++) {
+			members.computeIfAbsent(find(partitions, i), k -> new ArrayList<>()).add(networkComponents.get(i));
+		}
+
+		int number = 0;
+		for (List<NetworkComponent> partition : members.values()) {
+			for (NetworkComponent networkComponent : partition) {
+				partitionIndex.put(networkComponent, number);
+			}
+			number++;
+		}
+
+		List<Partition> result = new ArrayList<>();
+		number = 0;
+		for (List<NetworkComponent> partition : members.values()) {
+			List<Layer1Interface[]> boundaryLinks = new ArrayList<>();
+
+			for (NetworkComponent networkComponent : partition) {
+				for (Layer1Interface layer1Interface : networkComponent.layer1Rows) {
+					Layer1Interface opposite = layer1Interface.layer1LinkTo;
+
+					if (opposite != null && partitionIndex.get(opposite.networkComponent) != number) {
+						boundaryLinks.add(new Layer1Interface[] { layer1Interface, opposite });
+					}
+				}
+			}
+
+			result.add(new Partition(this.topology, number++, partition, boundaryLinks, partitionIndex));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Markiert alle Brücken des Domänengraphen als geschnitten (Algorithmus von Tarjan über die Tiefensuche).
+	 * 
+	 * @param nodes
+	 *            Anzahl der Knoten (Indizes der Netzkomponenten, von denen nur die Domänen verwendet werden)
+	 * @param edges
+	 *            Kanten zwischen den Domänen
+	 */
+	private void markBridges(int nodes, List<Edge> edges) {
+		List<List<Edge>> adjacency = new ArrayList<>();
+		for (int i = 0; i < nodes; i++) {
+			adjacency.add(new ArrayList<>());
+		}
+		for (Edge edge : edges) {
+			adjacency.get(edge.from).add(edge);
+			adjacency.get(edge.to).add(edge);
+		}
+
+		int[] discovery = new int[nodes];
+		int[] low = new int[nodes];
+		int[] time = { 0 };
+
+		for (Edge edge : edges) {
+			if (discovery[edge.from] == 0) {
+				this.markBridges(edge.from, null, adjacency, discovery, low, time);
+			}
+		}
+	}
+
+	/**
+	 * Rekursive Tiefensuche für markBridges().
+	 * 
+	 * @param node
+	 *            Aktueller Knoten
+	 * @param parent
+	 *            Kante, über die der Knoten erreicht wurde
+	 * @param adjacency
+	 *            Kanten pro Knoten
+	 * @param discovery
+	 *            Entdeckungszeitpunkt pro Knoten (0 = nicht besucht)
+	 * @param low
+	 *            Frühester erreichbarer Entdeckungszeitpunkt pro Knoten
+	 * @param time
+	 *            Aktueller Zeitpunkt
+	 */
+	private void markBridges(int node, Edge parent, List<List<Edge>> adjacency, int[] discovery, int[] low, int[] time) {
+		discovery[node] = low[node] = ++time[0];
+
+		for (Edge edge : adjacency.get(node)) {
+			if (edge == parent) {
+				continue;
+			}
+
+			int next = edge.from == node ? edge.to : edge.from;
+			if (discovery[next] == 0) {
+				this.markBridges(next, edge, adjacency, discovery, low, time);
+				low[node] = Math.min(low[node], low[next]);
+
+				if (low[next] > discovery[node]) {
+					edge.cut = true;
+				}
+			} else {
+				low[node] = Math.min(low[node], discovery[next]);
+			}
+		}
+	}
+
+	/**
+	 * Prüft, ob eine Kante zwei Pods verbindet. Ohne Pod-Grenze (bzw. ohne podPattern) ist das nie der Fall.
+	 * 
+	 * @param edge
+	 *            Kante zwischen zwei Domänen
+	 * @return true, sofern die Domänen zu unterschiedlichen Pods gehören
+	 */
+	private boolean crossesPods(Edge edge) {
+		if (!this.boundaries.contains(Boundary.POD) || this.podPattern == null) {
+			return false;
+		}
+
+		return !this.podOf(this.topology.networkComponents.get(edge.from))
+				.equals(this.podOf(this.topology.networkComponents.get(edge.to)));
+	}
+
+	/**
+	 * Extrahiert den Pod aus dem Hostnamen der Netzkomponente.
+	 * 
+	 * @param networkComponent
+	 *            Netzkomponente
+	 * @return Name des Pods oder ein leerer String, sofern das Pattern nicht passt
+	 */
+	private String podOf(NetworkComponent networkComponent) {
+		Matcher matcher = Pattern.compile(this.podPattern, Pattern.CASE_INSENSITIVE).matcher(networkComponent.name);
+		return matcher.find() && matcher.groupCount() > 0 && matcher.group(1) != null ? matcher.group(1) : "";
+	}
+
+	/**
+	 * Erstellt eine Union-Find Struktur, in der jedes Element seine eigene Menge ist.
+	 * 
+	 * @param size
+	 *            Anzahl der Elemente
+	 * @return Union-Find Struktur
+	 */
+	private static int[] identity(int size) {
+		int[] result = new int[size];
+		for (int i = 0; i < size; i++) {
+			result[i] = i;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Sucht den Repräsentanten der Menge (mit Pfadverkürzung). Der Repräsentant ist immer das Element mit dem kleinsten
+	 * Index, sodass die Reihenfolge der Netzkomponenten erhalten bleibt.
+	 * 
+	 * @param sets
+	 *            Union-Find Struktur
+	 * @param element
+	 *            Element
+	 * @return Repräsentant
+	 */
+	private static int find(int[] sets, int element) {
+		while (sets[element] != element) {
+			sets[element] = sets[sets[element]];
+			element = sets[element];
+		}
+
+		return element;
+	}
+
+	/**
+	 * Vereinigt die Mengen der beiden Elemente.
+	 * 
+	 * @param sets
+	 *            Union-Find Struktur
+	 * @param a
+	 *            Erstes Element
+	 * @param b
+	 *            Zweites Element
+	 */
+	private static void union(int[] sets, int a, int b) {
+		int rootA = find(sets, a);
+		int rootB = find(sets, b);
+		sets[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+	}
+
+	/**
+	 * Vereinigt die Mengen der beiden Elemente und führt die Größe der Mengen mit.
+	 * 
+	 * @param sets
+	 *            Union-Find Struktur
+	 * @param sizes
+	 *            Anzahl der Elemente je Repräsentant (siehe sizes())
+	 * @param a
+	 *            Erstes Element
+	 * @param b
+	 *            Zweites Element
+	 */
+	private static void union(int[] sets, int[] sizes, int a, int b) {
+		int rootA = find(sets, a);
+		int rootB = find(sets, b);
+		if (rootA != rootB) {
+			sizes[Math.min(rootA, rootB)] += sizes[Math.max(rootA, rootB)];
+			sets[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+		}
+	}
+
+	/**
+	 * Zählt die Elemente aller Mengen einmalig. Danach werden die Größen über union(sets, sizes, a, b) mitgeführt.
+	 * 
+	 * @param sets
+	 *            Union-Find Struktur
+	 * @return Anzahl der Elemente je Repräsentant (für andere Elemente ohne Bedeutung)
+	 */
+	private static int[] sizes(int[] sets) {
+		int[] result = new int[sets.length];
+		for (int i = 0; i < sets.length; i++) {
+			result[find(sets, i)]++;
+		}
+
+		return result;
+	}
+}
@@ -0,0 +1,396 @@
+package de.masterarbeit.analyse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import de.masterarbeit.modell.*;
+import static de.masterarbeit.toolbox.Toolbox.*;
+
+/**
+ * Abfrageschnittstelle über eine korrelierte Topologie. Bisher mussten Fragen an das Modell entweder über verschachtelte
+ * Schleifen oder in USE über "allInstances()->any(...)" beantwortet werden, was jeweils alle Interfaces durchläuft.
+ * 
+ * Beim Erstellen werden Sekundärindizes über die Layer2Interfaces aufgebaut: Name der Netzkomponente, Name des Interfaces,
+ * VLAN (siehe VlanDomainIndex), IPv4-Subnetz (siehe IPv4PrefixIndex), vPC-Nummer, Mitgliedschaft in einem Port Channel,
+ * Beschreibung (Trigramme) und Endpunkt eines Layer2Links.
+ * 
+ * Abfragen werden über select() zusammengesetzt, z.B. alle Trunks im VLAN 100 auf vPC 12:
+ * 
+ * query.select().vlan(100).vpc("12").type("trunk").stream()
+ * 
+ * Als Ausgangsmenge wird dabei der kleinste der beteiligten Indizes verwendet, alle übrigen Bedingungen werden als Filter
+ * auf dem (lazy ausgewerteten) Stream angewendet.
+ * 
+ * @author Marcel Schuster
+ *
+ */
+public class TopologyQuery {
+	private final VlanDomainIndex vlanIndex;
+	private final IPv4PrefixIndex prefixIndex;
+
+	private final Map<String, NetworkComponent> componentsByName = new HashMap<>();
+	private final Map<InterfaceId, List<Layer2Interface>> interfacesByName = new HashMap<>();
+	private final Map<String, List<Layer2Interface>> interfacesByVpc = new HashMap<>();
+	private final Map<InterfaceId, List<Layer2Interface>> membersByPortChannel = new HashMap<>();
+	private final Map<String, List<Layer2Interface>> interfacesByTrigram = new HashMap<>();
+	private final Map<Long, List<Layer3Interface>> interfacesBySubnet = new HashMap<>();
+	private final List<Layer2Interface> allInterfaces = new ArrayList<>();
+
+	/**
+	 * Erstellt alle Indizes über die angegebene Topologie.
+	 * 
+	 * @param topology
+	 *            Korrelierte Topologie
+	 */
+	public TopologyQuery(Topology topology) {
+		this.vlanIndex = new VlanDomainIndex(topology);
+		this.prefixIndex = new IPv4PrefixIndex(topology.networkComponents);
+
+		for (NetworkComponent networkComponent : topology.networkComponents) {
+			this.componentsByName.put(networkComponent.name.toUpperCase(Locale.ROOT), networkComponent);
+
+			for (Layer2Interface layer2Interface : networkComponent.layer2Rows) {
+				this.allInterfaces.add(layer2Interface);
+				add(this.interfacesByName, layer2Interface.key, layer2Interface);
+
+				if (layer2Interface.vpc != null) {
+					add(this.interfacesByVpc, layer2Interface.vpc, layer2Interface);
+				}
+
+				if (layer2Interface.aggregator2Interface != null) {
+					add(this.membersByPortChannel, layer2Interface.aggregator2Interface.key, layer2Interface);
+				}
+
+				if (layer2Interface.description != null) {
+					String description = layer2Interface.description.toLowerCase(Locale.ROOT);
+					Set<String> trigrams = new HashSet<>();
+
+					for (int i = 0; i + 3 <= description.length(); i++) {
+						if (trigrams.add(description.substring(i, i + 3))) {
+							add(this.interfacesByTrigram, description.substring(i, i + 3), layer2Interface);
+						}
+					}
+				}
+			}
+
+			for (Layer3Interface layer3Interface : networkComponent.layer3Rows) {
+				try {
+					add(this.interfacesBySubnet, subnetKey(layer3Interface.getNetworkAddress(),
+							layer3Interface.getPrefixLength()), layer3Interface);
+				} catch (IllegalArgumentException e) {
+					// Ungültige Adressen tauchen bereits im Bericht des IPv4PrefixIndex auf
+				}
+			}
+		}
+	}
+
+	/**
+	 * Startet eine neue, zusammengesetzte Abfrage über die Layer2Interfaces.
+	 * 
+	 * @return Leere Abfrage (ohne Bedingungen liefert sie alle Layer2Interfaces)
+	 */
+	public Selection select() {
+		return new Selection();
+	}
+
+	/**
+	 * Sucht eine Netzkomponente anhand ihres Hostnamens (ohne Beachtung der Groß- und Kleinschreibung).
+	 * 
+	 * @param name
+	 *            Hostname
+	 * @return Netzkomponente oder null, sofern sie nicht existiert
+	 */
+	public NetworkComponent getNetworkComponent(String name) {
+		return this.componentsByName.get(name.toUpperCase(Locale.ROOT));
+	}
+
+	/**
+	 * Sucht ein Layer2Interface anhand der Netzkomponente und des Interfacenamens (Kürzel sind erlaubt, siehe InterfaceId).
+	 * 
+	 * @param component
+	 *            Hostname der Netzkomponente
+	 * @param interfaceName
+	 *            Name des Interfaces
+	 * @return Interface oder null, sofern es nicht existiert
+	 */
+	public Layer2Interface getLayer2Interface(String component, String interfaceName) {
+		NetworkComponent networkComponent = this.getNetworkComponent(component);
+		if (networkComponent == null) {
+			return null;
+		}
+
+		// Aggregator Interfaces liegen in einer eigenen Map (siehe NetworkComponent)
+		InterfaceId key = InterfaceId.of(interfaceName);
+		Layer2Interface result = networkComponent.layer2Interfaces.get(key);
+		return result != null ? result : networkComponent.aggregatorInterfaces.get(key);
+	}
+
+	/**
+	 * Gibt alle Layer3Interfaces zurück, die exakt im angegebenen Subnetz liegen.
+	 * 
+	 * @param subnet
+	 *            Subnetz in CIDR-Notation, z.B. "10.0.0.0/30"
+	 * @return Stream der Layer3Interfaces
+	 */
+	public Stream<Layer3Interface> layer3InSubnet(String subnet) {
+		String[] parts = subnet.trim().split("/");
+		if (parts.length != 2) {
+			throw new IllegalArgumentException("Invalid IPv4 subnet: " + subnet);
+		}
+
+		int prefixLength = Integer.parseInt(parts[1]);
+		int network = ipToInt(parts[0]) & prefixToMask(prefixLength);
+		return this.interfacesBySubnet.getOrDefault(subnetKey(network, prefixLength), Collections.emptyList()).stream();
+	}
+
+	/**
+	 * Gibt alle Layer3Interfaces zurück, deren Subnetz die angegebene Adresse enthält (siehe IPv4PrefixIndex).
+	 * 
+	 * @param ip
+	 *            IPv4-Adresse in Dotted Decimal Notation
+	 * @return Stream der Layer3Interfaces
+	 */
+	public Stream<Layer3Interface> layer3Covering(String ip) {
+		return this.prefixIndex.findCovering(ip).stream();
+	}
+
+	/**
+	 * Index über die VLANs, auf dem die Abfrage aufbaut (z.B. für die Suche nach Schleifen).
+	 * 
+	 * @return VLAN-Index
+	 */
+	public VlanDomainIndex getVlanIndex() {
+		return this.vlanIndex;
+	}
+
+	/**
+	 * Zusammengesetzte Abfrage über die Layer2Interfaces. Jede Bedingung schränkt die Ergebnismenge weiter ein (UND).
+	 */
+	public class Selection {
+		private List<Layer2Interface> candidates = null;
+		private Predicate<Layer2Interface> filter = layer2Interface -> true;
+
+		private Selection() {
+		}
+
+		/**
+		 * Interfaces der angegebenen Netzkomponente.
+		 * 
+		 * @param name
+		 *            Hostname der Netzkomponente
+		 * @return Diese Abfrage
+		 */
+		public Selection component(String name) {
+			NetworkComponent networkComponent = TopologyQuery.this.getNetworkComponent(name);
+			List<Layer2Interface> rows = networkComponent == null ? Collections.emptyList() : networkComponent.layer2Rows;
+			return this.add(rows, layer2Interface -> layer2Interface.networkComponent == networkComponent);
+		}
+
+		/**
+		 * Interfaces mit dem angegebenen Namen (Kürzel sind erlaubt, siehe InterfaceId).
+		 * 
+		 * @param interfaceName
+		 *            Name des Interfaces
+		 * @return Diese Abfrage
+		 */
+		public Selection name(String interfaceName) {
+			InterfaceId key = InterfaceId.of(interfaceName);
+			return this.add(TopologyQuery.this.interfacesByName.getOrDefault(key, Collections.emptyList()),
+					layer2Interface -> layer2Interface.key.equals(key));
+		}
+
+		/**
+		 * Interfaces, die das VLAN führen (inkl. Native VLAN, siehe VlanDomainIndex).
+		 * 
+		 * @param vlan
+		 *            VLAN-ID
+		 * @return Diese Abfrage
+		 */
+		public Selection vlan(int vlan) {
+			return this.add(TopologyQuery.this.vlanIndex.getInterfaces(vlan),
+					layer2Interface -> VlanDomainIndex.hasVID(layer2Interface, vlan));
+		}
+
+		/**
+		 * Interfaces mit der angegebenen vPC-Nummer.
+		 * 
+		 * @param vpc
+		 *            vPC-Nummer
+		 * @return Diese Abfrage
+		 */
+		public Selection vpc(String vpc) {
+			return this.add(TopologyQuery.this.interfacesByVpc.getOrDefault(vpc, Collections.emptyList()),
+					layer2Interface -> vpc.equals(layer2Interface.vpc));
+		}
+
+		/**
+		 * Mitglieder (Aggregation Interfaces) eines Port Channels mit dem angegebenen Namen.
+		 * 
+		 * @param portChannel
+		 *            Name des Port Channels, z.B. "port-channel12" oder "Po12"
+		 * @return Diese Abfrage
+		 */
+		public Selection portChannel(String portChannel) {
+			InterfaceId key = InterfaceId.of(portChannel);
+			return this.add(TopologyQuery.this.membersByPortChannel.getOrDefault(key, Collections.emptyList()),
+					layer2Interface -> layer2Interface.aggregator2Interface != null
+							&& layer2Interface.aggregator2Interface.key.equals(key));
+		}
+
+		/**
+		 * Interfaces, deren Beschreibung den Text enthält (ohne Beachtung der Groß- und Kleinschreibung). Ab drei Zeichen
+		 * wird der Trigramm-Index verwendet, ansonsten wird nur gefiltert.
+		 * 
+		 * @param text
+		 *            Gesuchter Text
+		 * @return Diese Abfrage
+		 */
+		public Selection description(String text) {
+			String search = text.toLowerCase(Locale.ROOT);
+			Predicate<Layer2Interface> predicate = layer2Interface -> layer2Interface.description != null
+					&& layer2Interface.description.toLowerCase(Locale.ROOT).contains(search);
+
+			if (search.length() < 3) {
+				return this.add(null, predicate);
+			}
+
+			// Das seltenste Trigramm des Suchtexts liefert die kleinste Ausgangsmenge
+			List<Layer2Interface> rarest = null;
+			for (int i = 0; i + 3 <= search.length(); i++) {
+				List<Layer2Interface> posting = TopologyQuery.this.interfacesByTrigram.get(search.substring(i, i + 3));
+				if (posting == null) {
+					rarest = Collections.emptyList();
+					break;
+				} else if (rarest == null || posting.size() < rarest.size()) {
+					rarest = posting;
+				}
+			}
+
+			return this.add(rarest, predicate);
+		}
+
+		/**
+		 * Interfaces mit dem angegebenen Typ (z.B. "trunk", "access" oder "encapsulation"). Ohne Index, daher nur als Filter.
+		 * 
+		 * @param interfaceType
+		 *            Typ des Interfaces (ohne Beachtung der Groß- und Kleinschreibung)
+		 * @return Diese Abfrage
+		 */
+		public Selection type(String interfaceType) {
+			return this.add(null, layer2Interface -> interfaceType.equalsIgnoreCase(layer2Interface.interfaceType));
+		}
+
+		/**
+		 * Interfaces, die über einen Layer2Link mit dem angegebenen Endpunkt verbunden sind.
+		 * 
+		 * @param component
+		 *            Hostname der Netzkomponente des Endpunkts
+		 * @param interfaceName
+		 *            Name des Interfaces des Endpunkts
+		 * @return Diese Abfrage
+		 */
+		public Selection linkedTo(String component, String interfaceName) {
+			Layer2Interface endpoint = TopologyQuery.this.getLayer2Interface(component, interfaceName);
+			List<Layer2Interface> opposites = endpoint == null ? Collections.emptyList()
+					: new ArrayList<>(endpoint.layer2LinksTo.values());
+			Set<Layer2Interface> members = Collections.newSetFromMap(new IdentityHashMap<>());
+			members.addAll(opposites);
+
+			return this.add(opposites, members::contains);
+		}
+
+		/**
+		 * Interfaces mit einem Layer3Interface, dessen Subnetz die Adresse enthält.
+		 * 
+		 * @param ip
+		 *            IPv4-Adresse in Dotted Decimal Notation
+		 * @return Diese Abfrage
+		 */
+		public Selection covering(String ip) {
+			// Reihenfolge wie in findCovering(), damit das Ergebnis von Lauf zu Lauf gleich ist
+			Set<Layer2Interface> members = new LinkedHashSet<>();
+			for (Layer3Interface layer3Interface : TopologyQuery.this.prefixIndex.findCovering(ip)) {
+				members.addAll(layer3Interface.layer2Interfaces.values());
+			}
+
+			return this.add(new ArrayList<>(members), members::contains);
+		}
+
+		/**
+		 * Beliebige weitere Bedingung.
+		 * 
+		 * @param predicate
+		 *            Bedingung, die ein Interface erfüllen muss
+		 * @return Diese Abfrage
+		 */
+		public Selection where(Predicate<Layer2Interface> predicate) {
+			return this.add(null, predicate);
+		}
+
+		/**
+		 * Wertet die Abfrage aus. Der Stream wird erst bei einer terminalen Operation durchlaufen.
+		 * 
+		 * @return Stream der passenden Layer2Interfaces
+		 */
+		public Stream<Layer2Interface> stream() {
+			List<Layer2Interface> source = this.candidates != null ? this.candidates : TopologyQuery.this.allInterfaces;
+			return source.stream().filter(this.filter);
+		}
+
+		/**
+		 * Fügt eine Bedingung hinzu. Die Ausgangsmenge wird ersetzt, sofern die neue kleiner ist.
+		 * 
+		 * @param index
+		 *            Ausgangsmenge aus einem Index (null = kein Index, leere Liste = kein Treffer möglich)
+		 * @param predicate
+		 *            Bedingung, die ein Interface erfüllen muss
+		 * @return Diese Abfrage
+		 */
+		private Selection add(List<Layer2Interface> index, Predicate<Layer2Interface> predicate) {
+			this.filter = this.filter.and(predicate);
+
+			if (index != null && (this.candidates == null || index.size() < this.candidates.size())) {
+				this.candidates = index;
+			}
+
+			return this;
+		}
+	}
+
+	/**
+	 * Bildet den Schlüssel für den Subnetz-Index.
+	 * 
+	 * @param network
+	 *            Gepackte Netzadresse
+	 * @param prefixLength
+	 *            Präfixlänge
+	 * @return Schlüssel aus Netzadresse und Präfixlänge
+	 */
+	private static long subnetKey(int network, int prefixLength) {
+		return (Integer.toUnsignedLong(network) << 8) | (prefixLength & 0xFF);
+	}
+
+	/**
+	 * Fügt ein Element zur Liste des Schlüssels hinzu und legt die Liste bei Bedarf an.
+	 * 
+	 * @param map
+	 *            Index
+	 * @param key
+	 *            Schlüssel
+	 * @param element
+	 *            Element
+	 */
+	private static <K, V> void add(Map<K, List<V>> map, K key, V element) {
+		map.computeIfAbsent(key, k -> new ArrayList<>()).add(element);
+	}
+}
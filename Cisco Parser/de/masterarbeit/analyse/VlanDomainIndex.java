@@ -0,0 +1,395 @@
+package de.masterarbeit.analyse;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import de.masterarbeit.modell.*;
+
+/**
+ * Index über die Layer 2 Domänen aller VLANs einer Topologie. Für jede VLAN-ID werden die Layer2Interfaces, die das VLAN
+ * führen, sowie die Layer2Links, über die das VLAN transportiert wird, vorab gesammelt. Abfragen pro VLAN benötigen danach
+ * keinen Durchlauf über alle Interfaces mehr.
+ * 
+ * Ein Layer2Link transportiert ein VLAN, sofern beide Seiten des Links das VLAN führen. Aufbauend darauf werden pro VLAN die
+ * zusammenhängenden Segmente (Netzkomponenten, die über das VLAN verbunden sind) sowie Schleifen ermittelt. Als Schleife
+ * gilt jeder Layer2Link, dessen Netzkomponenten im VLAN bereits anderweitig verbunden sind.
+ * 
+ * LAGs sind dabei kein Problem, da die Layer2Links der Mitglieder bereits am Aggregator Interface hängen (siehe Topology).
+ * Verschmolzene Interfaces (vPC) zählen als ein Interface, sodass die Links eines vPC zu beiden Peers nur einmal gezählt
+ * werden. Die VLANs sind voneinander unabhängig und können daher parallel geprüft werden.
+ * 
+ * @author Marcel Schuster
+ *
+ */
+public class VlanDomainIndex {
+	public static final int MAX_VLAN = 4094;
+
+	// Anzahl der VLANs, die bei paralleler Verarbeitung zu einer Aufgabe zusammengefasst werden
+	private static final int VLANS_PER_TASK = 64;
+
+	private final List<NetworkComponent> networkComponents;
+	private final InterfaceOrder order;
+
+	// Interfaces und Links pro VLAN-ID (Index = VLAN-ID, null = VLAN kommt nicht vor)
+	private final List<List<Layer2Interface>> interfaces = new ArrayList<>(Collections.nCopies(MAX_VLAN + 1, null));
+	private final List<List<Layer2Interface[]>> links = new ArrayList<>(Collections.nCopies(MAX_VLAN + 1, null));
+	private final BitSet vlans = new BitSet(MAX_VLAN + 1);
+
+	/**
+	 * Erstellt den Index über alle Layer2Interfaces und Layer2Links der Topologie.
+	 * 
+	 * @param topology
+	 *            Korrelierte Topologie
+	 */
+	public VlanDomainIndex(Topology topology) {
+		this.networkComponents = topology.networkComponents;
+		this.order = new InterfaceOrder(this.networkComponents);
+
+		// Layer2Links werden über ihre (ggf. verschmolzenen) Interfaces nur einmal gezählt. Die VLANs doppelter Links (z.B.
+		// zu beiden Peers eines vPC) werden vereinigt, da sich die Konfiguration der Peers unterscheiden kann.
+		Map<List<Layer2Interface>, Layer2Interface[]> linkPairs = new LinkedHashMap<>();
+		Map<List<Layer2Interface>, BitSet> linkVids = new HashMap<>();
+
+		for (NetworkComponent networkComponent : this.networkComponents) {
+			for (Layer2Interface layer2Interface : networkComponent.layer2Rows) {
+				BitSet vids = getVIDs(layer2Interface);
+				for (int vid = vids.nextSetBit(1); vid >= 0 && vid <= MAX_VLAN; vid = vids.nextSetBit(vid + 1)) {
+					add(this.interfaces, vid, layer2Interface);
+				}
+
+				for (Layer2Interface opposite : layer2Interface.layer2LinksTo.values()) {
+					List<Layer2Interface> key = this.order.key(layer2Interface, opposite);
+					BitSet shared = getLinkVIDs(layer2Interface, this.order);
+					shared.and(getLinkVIDs(opposite, this.order));
+
+					linkPairs.putIfAbsent(key, new Layer2Interface[] { layer2Interface, opposite });
+					linkVids.computeIfAbsent(key, k -> new BitSet()).or(shared);
+				}
+			}
+		}
+
+		for (Map.Entry<List<Layer2Interface>, Layer2Interface[]> entry : linkPairs.entrySet()) {
+			BitSet shared = linkVids.get(entry.getKey());
+			for (int vid = shared.nextSetBit(1); vid >= 0 && vid <= MAX_VLAN; vid = shared.nextSetBit(vid + 1)) {
+				add(this.links, vid, entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Gibt die VLAN-IDs zurück, die mindestens auf einem Interface vorkommen.
+	 * 
+	 * @return VLAN-IDs in aufsteigender Reihenfolge
+	 */
+	public List<Integer> getVlans() {
+		List<Integer> result = new ArrayList<>();
+		for (int vid = this.vlans.nextSetBit(0); vid >= 0; vid = this.vlans.nextSetBit(vid + 1)) {
+			result.add(vid);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Gibt alle Layer2Interfaces zurück, die das VLAN führen.
+	 * 
+	 * @param vlan
+	 *            VLAN-ID
+	 * @return Interfaces in der Reihenfolge der Netzkomponenten (ggf. leer)
+	 */
+	public List<Layer2Interface> getInterfaces(int vlan) {
+		return get(this.interfaces, vlan);
+	}
+
+	/**
+	 * Gibt alle Layer2Links zurück, über die das VLAN transportiert wird.
+	 * 
+	 * @param vlan
+	 *            VLAN-ID
+	 * @return Links als Paar von Layer2Interfaces (ggf. leer)
+	 */
+	public List<Layer2Interface[]> getLinks(int vlan) {
+		return get(this.links, vlan);
+	}
+
+	/**
+	 * Gibt alle Netzkomponenten zurück, auf denen das VLAN konfiguriert ist.
+	 * 
+	 * @param vlan
+	 *            VLAN-ID
+	 * @return Netzkomponenten in der Reihenfolge der Topologie (ggf. leer)
+	 */
+	public List<NetworkComponent> getNetworkComponents(int vlan) {
+		Set<NetworkComponent> result = Collections.newSetFromMap(new LinkedHashMap<>());
+		for (Layer2Interface layer2Interface : this.getInterfaces(vlan)) {
+			result.add(layer2Interface.networkComponent);
+		}
+
+		return new ArrayList<>(result);
+	}
+
+	/**
+	 * Ermittelt die zusammenhängenden Segmente des VLANs. Netzkomponenten, die das VLAN zwar führen, aber keinen Link im VLAN
+	 * haben, bilden jeweils ein eigenes Segment.
+	 * 
+	 * @param vlan
+	 *            VLAN-ID
+	 * @return Segmente als Listen von Netzkomponenten (in der Reihenfolge der Topologie)
+	 */
+	public List<List<NetworkComponent>> findSegments(int vlan) {
+		int[] sets = this.connect(vlan, null);
+		Map<Integer, List<NetworkComponent>> result = new LinkedHashMap<>();
+
+		for (NetworkComponent networkComponent : this.getNetworkComponents(vlan)) {
+			int root = find(sets, this.order.indexOf(networkComponent));
+			result.computeIfAbsent(root, k -> new ArrayList<>()).add(networkComponent);
+		}
+
+		return new ArrayList<>(result.values());
+	}
+
+	/**
+	 * Ermittelt die Layer2Links, die im VLAN eine Schleife schließen.
+	 * 
+	 * @param vlan
+	 *            VLAN-ID
+	 * @return Links als Paar von Layer2Interfaces (leer, sofern das VLAN schleifenfrei ist)
+	 */
+	public List<Layer2Interface[]> findLoops(int vlan) {
+		List<Layer2Interface[]> result = new ArrayList<>();
+		this.connect(vlan, result);
+		return result;
+	}
+
+	/**
+	 * Ermittelt die Schleifen aller VLANs.
+	 * 
+	 * @return Links, die eine Schleife schließen, pro VLAN-ID (nur VLANs mit Schleifen)
+	 */
+	public Map<Integer, List<Layer2Interface[]>> findLoops() {
+		return this.findLoops(this.getVlans());
+	}
+
+	/**
+	 * Wie findLoops(), jedoch werden die VLANs in Gruppen parallel auf dem angegebenen Executor geprüft.
+	 * 
+	 * @param executor
+	 *            Executor (z.B. Thread Pool), auf dem die VLANs geprüft werden
+	 * @return Links, die eine Schleife schließen, pro VLAN-ID (nur VLANs mit Schleifen)
+	 */
+	public Map<Integer, List<Layer2Interface[]>> findLoops(ExecutorService executor) {
+		List<Integer> vlans = this.getVlans();
+		List<Future<Map<Integer, List<Layer2Interface[]>>>> tasks = new ArrayList<>();
+
+		for (int i = 0; i < vlans.size(); i += VLANS_PER_TASK) {
+			List<Integer> group = vlans.subList(i, Math.min(i + VLANS_PER_TASK, vlans.size()));
+			tasks.add(executor.submit(() -> this.findLoops(group)));
+		}
+
+		Map<Integer, List<Layer2Interface[]>> result = new TreeMap<>();
+		for (Future<Map<Integer, List<Layer2Interface[]>>> task : tasks) {
+			try {
+				result.putAll(task.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted while checking VLAN domains", e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException("Error while checking VLAN domains", e.getCause());
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Anzahl der VLANs im Index.
+	 * 
+	 * @return Anzahl der VLAN-IDs, die mindestens auf einem Interface vorkommen
+	 */
+	public int size() {
+		return this.vlans.cardinality();
+	}
+
+	/**
+	 * Erstellt einen Bericht über alle Schleifen.
+	 * 
+	 * @param loops
+	 *            Ergebnis von findLoops()
+	 * @return Bericht als Liste von Strings (eine Zeile pro Link, der eine Schleife schließt)
+	 */
+	public static List<String> getReport(Map<Integer, List<Layer2Interface[]>> loops) {
+		List<String> result = new ArrayList<>();
+
+		for (Map.Entry<Integer, List<Layer2Interface[]>> entry : loops.entrySet()) {
+			for (Layer2Interface[] link : entry.getValue()) {
+				result.add("VLAN " + entry.getKey() + ": Loop closed by " + link[0].networkComponent.name + ":"
+						+ link[0].name + " <-> " + link[1].networkComponent.name + ":" + link[1].name);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Prüft die angegebenen VLANs nacheinander auf Schleifen.
+	 * 
+	 * @param vlans
+	 *            VLAN-IDs
+	 * @return Links, die eine Schleife schließen, pro VLAN-ID (nur VLANs mit Schleifen)
+	 */
+	private Map<Integer, List<Layer2Interface[]>> findLoops(List<Integer> vlans) {
+		Map<Integer, List<Layer2Interface[]>> result = new TreeMap<>();
+
+		for (int vlan : vlans) {
+			List<Layer2Interface[]> loops = this.findLoops(vlan);
+			if (!loops.isEmpty()) {
+				result.put(vlan, loops);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Verbindet die Netzkomponenten über die Links des VLANs (Union-Find über die Indizes der Netzkomponenten).
+	 * 
+	 * @param vlan
+	 *            VLAN-ID
+	 * @param loops
+	 *            Liste, in der Links abgelegt werden, die bereits verbundene Netzkomponenten verbinden (oder null)
+	 * @return Union-Find Struktur
+	 */
+	private int[] connect(int vlan, List<Layer2Interface[]> loops) {
+		int[] sets = new int[this.networkComponents.size()];
+		for (int i = 0; i < sets.length; i++) {
+			sets[i] = i;
+		}
+
+		for (Layer2Interface[] link : this.getLinks(vlan)) {
+			int src = find(sets, this.order.indexOf(link[0].networkComponent));
+			int dst = find(sets, this.order.indexOf(link[1].networkComponent));
+
+			if (src != dst) {
+				sets[Math.max(src, dst)] = Math.min(src, dst);
+			} else if (loops != null) {
+				loops.add(link);
+			}
+		}
+
+		return sets;
+	}
+
+	/**
+	 * Fügt ein Element zur Liste der VLAN-ID hinzu und legt die Liste bei Bedarf an.
+	 * 
+	 * @param lists
+	 *            Listen pro VLAN-ID
+	 * @param vlan
+	 *            VLAN-ID
+	 * @param element
+	 *            Element
+	 */
+	private <T> void add(List<List<T>> lists, int vlan, T element) {
+		if (lists.get(vlan) == null) {
+			lists.set(vlan, new ArrayList<>());
+		}
+		lists.get(vlan).add(element);
+		this.vlans.set(vlan);
+	}
+
+	/**
+	 * Gibt die Liste der VLAN-ID zurück.
+	 * 
+	 * @param lists
+	 *            Listen pro VLAN-ID
+	 * @param vlan
+	 *            VLAN-ID
+	 * @return Nicht veränderbare Liste (ggf. leer)
+	 */
+	private static <T> List<T> get(List<List<T>> lists, int vlan) {
+		if (vlan < 0 || vlan > MAX_VLAN || lists.get(vlan) == null) {
+			return Collections.emptyList();
+		}
+
+		return Collections.unmodifiableList(lists.get(vlan));
+	}
+
+	/**
+	 * Gibt die VLAN-IDs zurück, die über das Interface transportiert werden. Bei Access Interfaces ist das Access VLAN
+	 * bereits enthalten, bei Trunks kommt das Native VLAN hinzu, da es ungetaggt ebenfalls übertragen wird. Gilt für alle
+	 * Analysen der VLAN-Domänen (siehe FailureSimulator und TopologyQuery).
+	 * 
+	 * @param layer2Interface
+	 *            Interface
+	 * @return VLAN-IDs als Bitmenge (ggf. leer)
+	 */
+	static BitSet getVIDs(Layer2Interface layer2Interface) {
+		BitSet result = layer2Interface.getVIDs();
+		if (layer2Interface.nativeVlan > 0) {
+			result.set(layer2Interface.nativeVlan);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Prüft, ob das VLAN über das Interface transportiert wird (gleiche Definition wie getVIDs, inkl. Native VLAN).
+	 * 
+	 * @param layer2Interface
+	 *            Interface
+	 * @param vlan
+	 *            VLAN-ID
+	 * @return true, wenn das Interface das VLAN führt
+	 */
+	static boolean hasVID(Layer2Interface layer2Interface, int vlan) {
+		return layer2Interface.hasVID(vlan) || vlan > 0 && layer2Interface.nativeVlan == vlan;
+	}
+
+	/**
+	 * Gibt die VLAN-IDs zurück, die ein Link über das Interface transportieren kann. Bei verschmolzenen Interfaces (vPC)
+	 * zählen die VLANs beider Peers, da der Link nur an einem der beiden Interfaces hängt.
+	 * 
+	 * @param layer2Interface
+	 *            Interface
+	 * @param order
+	 *            Ordnung der Topologie (verschmolzene Interfaces außerhalb der Topologie zählen nicht)
+	 * @return VLAN-IDs als Bitmenge (ggf. leer)
+	 */
+	static BitSet getLinkVIDs(Layer2Interface layer2Interface, InterfaceOrder order) {
+		BitSet result = getVIDs(layer2Interface);
+		Layer2Interface merged = layer2Interface.mergedInterface;
+		if (merged != null && order.contains(merged.networkComponent)) {
+			result.or(getVIDs(merged));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Sucht den Repräsentanten der Menge (mit Pfadverkürzung).
+	 * 
+	 * @param sets
+	 *            Union-Find Struktur
+	 * @param element
+	 *            Element
+	 * @return Repräsentant
+	 */
+	private static int find(int[] sets, int element) {
+		while (sets[element] != element) {
+			sets[element] = sets[sets[element]];
+			element = sets[element];
+		}
+
+		return element;
+	}
+}
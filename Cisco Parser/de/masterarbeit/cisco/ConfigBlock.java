@@ -0,0 +1,127 @@
+package de.masterarbeit.cisco;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Verweis auf einen Block (siehe JCiscoConfParse) in der Konfigurationsdatei. Anstatt des Textes werden nur die Datei, der
+ * Byte-Offset und die Länge des Blocks gespeichert. Der Text wird bei Bedarf per wahlfreiem Zugriff aus der Datei gelesen,
+ * sodass er nicht während der gesamten Verarbeitung im Speicher gehalten werden muss.
+ * 
+ * Da sich die Datei nach dem Einlesen ändern kann (z.B. im Watch Mode, siehe TopologyWatcher), werden zusätzlich Zeitstempel
+ * und Größe der Datei gemerkt. Weichen diese beim Lesen ab, wird die Datei erneut geparst und der Block anhand seines
+ * Parents neu lokalisiert.
+ * 
+ * @author Marcel Schuster
+ *
+ */
+public class ConfigBlock {
+	public final Path file;
+	public final String parent;
+
+	// Position des Blocks sowie Zeitstempel und Größe der Datei, auf die sich die Position bezieht
+	private long offset;
+	private int length;
+	private long modified;
+	private long size;
+
+	/**
+	 * Konstruktor zur Initialisierung.
+	 * 
+	 * @param file
+	 *            Konfigurationsdatei, in der sich der Block befindet
+	 * @param parent
+	 *            Erste Zeile (Parent) des Blocks
+	 * @param offset
+	 *            Byte-Offset der ersten Zeile (Parent) des Blocks
+	 * @param length
+	 *            Länge des Blocks in Bytes bis zum Ende der letzten Zeile
+	 * @param modified
+	 *            Zeitstempel der Datei beim Einlesen (in ms, -1 = unbekannt, d.h. beim ersten Lesen neu lokalisieren)
+	 * @param size
+	 *            Größe der Datei beim Einlesen
+	 */
+	public ConfigBlock(Path file, String parent, long offset, int length, long modified, long size) {
+		this.file = file;
+		this.parent = parent;
+		this.offset = offset;
+		this.length = length;
+		this.modified = modified;
+		this.size = size;
+	}
+
+	/**
+	 * Liest den Block erneut aus der Konfigurationsdatei. Es gelten dieselben Regeln wie beim Einlesen durch JCiscoConfParse,
+	 * d.h. leere Zeilen und Kommentare werden übersprungen. Hat sich die Datei seit dem Einlesen geändert, wird der Block
+	 * zuvor neu lokalisiert (siehe locate()).
+	 * 
+	 * @return Zeilen des Blocks
+	 * @throws IOException
+	 *             Sofern die Datei nicht gelesen werden kann oder den Block nicht mehr enthält
+	 */
+	public synchronized List<String> read() throws IOException {
+		BasicFileAttributes attributes = Files.readAttributes(this.file, BasicFileAttributes.class);
+		if (attributes.lastModifiedTime().toMillis() != this.modified || attributes.size() != this.size) {
+			this.locate();
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(this.length);
+
+		try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ)) {
+			// Positionales Lesen, da die Position des Kanals für andere Leser nicht verändert werden soll
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, this.offset + buffer.position()) < 0) {
+					throw new IOException("Unexpected end of file: " + this.file);
+				}
+			}
+		}
+
+		buffer.flip();
+		List<String> result = new ArrayList<>();
+		for (String line : Charset.defaultCharset().decode(buffer).toString().split("\n")) {
+			line = JCiscoConfParse.stripLineEnd(line);
+			if (!JCiscoConfParse.isSkipped(line)) {
+				result.add(line);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Parst die Datei erneut und übernimmt die Position des ersten Blocks mit demselben Parent.
+	 * 
+	 * @throws IOException
+	 *             Sofern die Datei nicht gelesen werden kann oder keinen Block mit diesem Parent mehr enthält
+	 */
+	private void locate() throws IOException {
+		JCiscoConfParse runningConfig = new JCiscoConfParse(this.file.toString());
+
+		for (List<String> block : runningConfig.findParents("^" + Pattern.quote(this.parent) + "$")) {
+			ConfigBlock located = runningConfig.locate(block);
+			if (located != null && block.get(0).equals(this.parent)) {
+				this.offset = located.offset;
+				this.length = located.length;
+				this.modified = located.modified;
+				this.size = located.size;
+				return;
+			}
+		}
+
+		throw new IOException("Block \"" + this.parent + "\" no longer found in " + this.file);
+	}
+
+	@Override
+	public synchronized String toString() {
+		return this.file + "@" + this.offset + "+" + this.length;
+	}
+}
@@ -0,0 +1,244 @@
+package de.masterarbeit.cisco;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Normalisierter Fingerabdruck der Konfiguration eines Interfaces. Der Fingerabdruck wird einmalig beim Parsen aus dem Block
+ * (siehe JCiscoConfParse) berechnet, sodass Vergleiche der Konfiguration (z.B. Mitglieder eines Port Channels, identisch
+ * konfigurierte Ports oder Änderungen seit dem letzten Lauf) nur noch ein Vergleich bzw. eine Gruppierung von Hashwerten
+ * sind.
+ * 
+ * Normalisierung der Kindzeilen des Blocks (die erste Zeile mit dem Namen des Interfaces zählt nicht dazu):
+ * 
+ * 1. Leerzeichen am Rand entfernen, mehrfache Leerzeichen zusammenfassen und in Kleinbuchstaben umwandeln.
+ * 
+ * 2. Leere Zeilen, Kommentare ("!") und veränderliche Zeilen ohne Einfluss auf das Verhalten (siehe VOLATILE) entfernen.
+ * 
+ * 3. Alle "switchport trunk allowed vlan" Zeilen der Reihe nach auf eine VLAN-Menge anwenden und zu einer Zeile mit der
+ * kanonischen VLAN-Menge zusammenfassen, sodass "10,20" + "add 30" und "10,20,30" denselben Fingerabdruck ergeben. Eine
+ * Liste ohne Schlüsselwort ersetzt die Menge, "add", "remove" und "except" ergänzen, entfernen bzw. setzen alle VLANs außer
+ * der Liste, "all" und "none" setzen alle bzw. keine VLANs. Wie bei IOS beginnt die Menge eines Trunks mit allen VLANs
+ * (1-4094), sodass z.B. "remove 30" ohne vorherige Liste alle VLANs außer 30 ergibt. Umfasst die Menge am Ende alle VLANs,
+ * entfällt die Zeile, da dies dem Trunk ohne "allowed vlan" entspricht. Ebenso wird die VLAN-Liste eines Access Ports
+ * kanonisiert.
+ * 
+ * 4. Zeilen sortieren, sodass die Reihenfolge innerhalb des Blocks keine Rolle spielt.
+ * 
+ * Der Fingerabdruck ist ein 64 Bit FNV-1a Hash über die normalisierten Zeilen.
+ * 
+ * @author Marcel Schuster
+ *
+ */
+public final class ConfigFingerprint {
+	// Präfixe veränderlicher Zeilen, die nicht in den Fingerabdruck eingehen (bereits normalisiert)
+	public static final List<String> VOLATILE = Arrays.asList("description");
+
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+	private static final Pattern VLAN_LIST = Pattern.compile("^(switchport trunk allowed vlan|switchport access vlan)"
+			+ "(?: (add|remove|except))? (all|none|[\\d]+(?:-[\\d]+)?(?:,[\\d]+(?:-[\\d]+)?)*)$");
+
+	// Höchste VLAN-ID ("switchport trunk allowed vlan all" bzw. "except")
+	private static final int MAX_VLAN = 4094;
+
+	// Hash ohne Zeilen (Startwert des 64 Bit FNV-1a Hashes)
+	public static final long EMPTY = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	/**
+	 * Keine Instanzen.
+	 */
+	private ConfigFingerprint() {
+	}
+
+	/**
+	 * Berechnet den Fingerabdruck eines Blocks.
+	 * 
+	 * @param block
+	 *            Block der Running Config (erste Zeile ist der Name des Interfaces)
+	 * @return Fingerabdruck
+	 */
+	public static long of(List<String> block) {
+		long hash = EMPTY;
+		for (String line : normalize(block)) {
+			hash = hash(hash, line);
+		}
+		return hash;
+	}
+
+	/**
+	 * Erweitert einen 64 Bit FNV-1a Hash um eine Zeile (inkl. Zeilenende). Beginnend mit EMPTY lassen sich so auch andere
+	 * Inhalte zeilenweise hashen (z.B. eine ganze Running Config, siehe JCiscoConfParse).
+	 * 
+	 * @param hash
+	 *            Bisheriger Hash
+	 * @param line
+	 *            Zeile
+	 * @return Neuer Hash
+	 */
+	public static long hash(long hash, String line) {
+		for (int i = 0; i < line.length(); i++) {
+			hash = (hash ^ line.charAt(i)) * FNV_PRIME;
+		}
+		return (hash ^ '\n') * FNV_PRIME;
+	}
+
+	/**
+	 * Gibt die normalisierten Zeilen eines Blocks zurück, über die der Fingerabdruck gebildet wird (z.B. zur Anzeige der
+	 * Unterschiede zweier Interfaces).
+	 * 
+	 * @param block
+	 *            Block der Running Config (erste Zeile ist der Name des Interfaces)
+	 * @return Normalisierte und sortierte Zeilen
+	 */
+	public static List<String> normalize(List<String> block) {
+		List<String> result = new ArrayList<>();
+		BitSet trunkVlans = null;
+		BitSet accessVlans = null;
+
+		for (int i = 1; i < block.size(); i++) {
+			String line = WHITESPACE.matcher(block.get(i).trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+			if (line.isEmpty() || line.startsWith("!") || isVolatile(line)) {
+				continue;
+			}
+
+			// VLAN-Listen sammeln und erst am Ende kanonisch ausgeben
+			Matcher matcher = VLAN_LIST.matcher(line);
+			if (matcher.matches()) {
+				boolean trunk = matcher.group(1).startsWith("switchport trunk");
+				BitSet vlans = trunk ? trunkVlans : accessVlans;
+				if (vlans == null) {
+					vlans = new BitSet();
+					if (trunk) {
+						vlans.set(1, MAX_VLAN + 1);
+					}
+				}
+				applyVlans(vlans, matcher.group(2), matcher.group(3));
+				if (trunk) {
+					trunkVlans = vlans;
+				} else {
+					accessVlans = vlans;
+				}
+				continue;
+			}
+
+			result.add(line);
+		}
+
+		if (trunkVlans != null && trunkVlans.nextClearBit(1) <= MAX_VLAN) {
+			result.add("switchport trunk allowed vlan " + (trunkVlans.isEmpty() ? "none" : toRanges(trunkVlans)));
+		}
+		if (accessVlans != null) {
+			result.add("switchport access vlan " + toRanges(accessVlans));
+		}
+
+		Collections.sort(result);
+		return result;
+	}
+
+	/**
+	 * Gibt den Fingerabdruck als Hexadezimalzahl zurück (z.B. für Dateien).
+	 * 
+	 * @param fingerprint
+	 *            Fingerabdruck
+	 * @return 16-stellige Hexadezimalzahl
+	 */
+	public static String toHex(long fingerprint) {
+		return String.format("%016x", fingerprint);
+	}
+
+	/**
+	 * Prüft, ob eine normalisierte Zeile veränderlich ist.
+	 * 
+	 * @param line
+	 *            Normalisierte Zeile
+	 * @return true, sofern die Zeile nicht in den Fingerabdruck eingeht
+	 */
+	private static boolean isVolatile(String line) {
+		for (String prefix : VOLATILE) {
+			if (line.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Wendet eine Zeile "switchport ... vlan [add|remove|except] <Liste|all|none>" auf die bisherige VLAN-Menge an.
+	 * 
+	 * @param vlans
+	 *            Bisherige VLAN-Menge (wird verändert)
+	 * @param operation
+	 *            "add", "remove", "except" oder null (Menge ersetzen)
+	 * @param list
+	 *            VLAN-Liste, "all" oder "none"
+	 */
+	private static void applyVlans(BitSet vlans, String operation, String list) {
+		BitSet listed = new BitSet();
+		if (list.equals("all")) {
+			listed.set(1, MAX_VLAN + 1);
+		} else if (!list.equals("none")) {
+			addVlans(listed, list);
+		}
+
+		if (operation == null) {
+			vlans.clear();
+			vlans.or(listed);
+		} else if (operation.equals("add")) {
+			vlans.or(listed);
+		} else if (operation.equals("remove")) {
+			vlans.andNot(listed);
+		} else {
+			vlans.set(1, MAX_VLAN + 1);
+			vlans.andNot(listed);
+		}
+	}
+
+	/**
+	 * Fügt eine VLAN-Liste der Art "5,10,20-100" zur Bitmenge hinzu.
+	 * 
+	 * @param vlans
+	 *            Bitmenge
+	 * @param list
+	 *            VLAN-Liste
+	 */
+	public static void addVlans(BitSet vlans, String list) {
+		for (String elem : list.split(",")) {
+			int dash = elem.indexOf('-');
+			if (dash < 0) {
+				vlans.set(Integer.parseInt(elem));
+			} else {
+				vlans.set(Integer.parseInt(elem.substring(0, dash)), Integer.parseInt(elem.substring(dash + 1)) + 1);
+			}
+		}
+	}
+
+	/**
+	 * Gibt die Bitmenge als kanonische VLAN-Liste mit zusammengefassten Bereichen zurück.
+	 * 
+	 * @param vlans
+	 *            Bitmenge
+	 * @return VLAN-Liste der Art "5,10,20-100"
+	 */
+	public static String toRanges(BitSet vlans) {
+		StringBuilder result = new StringBuilder();
+		for (int from = vlans.nextSetBit(0); from >= 0; from = vlans.nextSetBit(from)) {
+			int to = vlans.nextClearBit(from) - 1;
+			if (result.length() > 0) {
+				result.append(',');
+			}
+			result.append(from);
+			if (to > from) {
+				result.append('-').append(to);
+			}
+			from = to + 1;
+		}
+		return result.toString();
+	}
+}
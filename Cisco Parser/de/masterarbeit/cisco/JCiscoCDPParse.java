@@ -6,6 +6,7 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -16,8 +17,26 @@ import java.util.regex.Pattern;
  *
  */
 public class JCiscoCDPParse {
+	// Spalten der Tabelle, deren Anfang aus der Kopfzeile bestimmt wird ("Device ID" steht immer am Zeilenanfang)
+	private static final int COLUMN_LOCAL = 0;
+	private static final int COLUMN_HOLDTIME = 1;
+	private static final int COLUMN_CAPABILITY = 2;
+	private static final int COLUMN_PLATFORM = 3;
+	private static final int COLUMN_PORT = 4;
+	private static final Pattern[] COLUMN_HEADERS = { Pattern.compile("Local Int(?:rfce|erface)", Pattern.CASE_INSENSITIVE),
+			Pattern.compile("H(?:o)?ldti?me|Hold Time", Pattern.CASE_INSENSITIVE),
+			Pattern.compile("Capability", Pattern.CASE_INSENSITIVE), Pattern.compile("Platform", Pattern.CASE_INSENSITIVE),
+			Pattern.compile("Port ID", Pattern.CASE_INSENSITIVE) };
+
+	// Kopfzeile der Tabelle ("Device-ID" oder "Device ID") und Fortsetzungszeilen eines Blocks
+	private static final Pattern HEADER = Pattern.compile("^Device(-| )ID[\\s]+(.*)");
+	private static final Pattern CHILD = Pattern.compile("^[\\s]+(.*)");
+
 	private List<List<String>> cdpResult = new ArrayList<>();
 
+	// Spaltenanfänge (siehe COLUMN_*) oder null, sofern die Kopfzeile nicht vollständig erkannt wurde
+	private int[] columns;
+
 	/**
 	 * Verarbeitet die angegebene CDP-Datei zeilenweise und speichert das Resultat als Liste von Blöcken.
 	 * 
@@ -27,20 +46,30 @@ public class JCiscoCDPParse {
 	 *             Stumpfe Weiterleitung der Exception
 	 */
 	public JCiscoCDPParse(String path) throws IOException {
-		List<String> config = Files.readAllLines(Paths.get(path), Charset.defaultCharset());
+		this(Files.readAllLines(Paths.get(path), Charset.defaultCharset()));
+	}
+
+	/**
+	 * Verarbeitet bereits gelesene CDP-Informationen (z.B. aus einem Archiv, siehe ArchiveReader).
+	 * 
+	 * @param config
+	 *            Zeilen der CDP-Datei
+	 */
+	public JCiscoCDPParse(List<String> config) {
 		List<String> block = new ArrayList<>();
 		Boolean start = false;
 
 		for (String line : config) {
 			if (!start) {
 				// Entweder "Device-ID" oder "Device ID"
-				if (Pattern.matches("^Device(-| )ID[\\s]+(.*)", line)) {
+				if (HEADER.matcher(line).matches()) {
 					start = true;
+					this.columns = findColumns(line);
 				}
 				continue;
 			} else if (line.isEmpty()) {
 				continue;
-			} else if (Pattern.matches("^[\\s]+(.*)", line)) {
+			} else if (CHILD.matcher(line).matches()) {
 				// Zum letzten Block hinzufügen, welcher über "block" noch referenziert sein sollte.
 				block.add(line);
 			} else {
@@ -60,14 +89,88 @@ public class JCiscoCDPParse {
 	 */
 	public List<List<String>> findNeighbors(String neighbor) {
 		List<List<String>> result = new ArrayList<>();
+		Pattern pattern = Pattern.compile(neighbor, Pattern.CASE_INSENSITIVE);
 
 		for (List<String> block : cdpResult) {
 			// Im Inhalt der ersten Zeile filtern
-			if (Pattern.compile(neighbor, Pattern.CASE_INSENSITIVE).matcher(block.get(0)).find()) {
+			if (pattern.matcher(block.get(0)).find()) {
 				result.add(block);
 			}
 		}
 
 		return result;
 	}
+
+	/**
+	 * Schneidet das lokale und das entfernte Interface anhand der Spaltenanfänge aus der Kopfzeile aus einem ein- oder
+	 * zweizeiligen Block. Bei zweizeiligen Blöcken steht in der ersten Zeile nur die (zu lange) Device ID. Der Aufwand ist
+	 * linear in der Länge der Zeile, Leerzeichen in Interfacenamen ("Ten 1/1/1") sind kein Problem.
+	 * 
+	 * Passt die Zeile nicht zu den Spalten (z.B. weil ein Wert in die nächste Spalte hineinragt), wird null zurückgegeben und
+	 * der Aufrufer muss auf die Regex Pattern zurückgreifen (siehe Toolbox.getInterfaceNamesToNeighbors()).
+	 * 
+	 * @param block
+	 *            Block der CDP-Datei (siehe findNeighbors())
+	 * @return Array aus lokalem und entferntem Interface oder null, sofern die Zeile nicht geschnitten werden kann
+	 */
+	public String[] sliceInterfaces(List<String> block) {
+		if (this.columns == null || block.isEmpty() || block.size() > 2) {
+			return null;
+		}
+
+		String line = block.get(block.size() - 1);
+		if (line.length() <= this.columns[COLUMN_PORT]) {
+			return null;
+		}
+
+		// Jede Spalte muss an einer Wortgrenze beginnen, ansonsten ragt ein Wert in die nächste Spalte hinein
+		for (int column : this.columns) {
+			if (line.charAt(column - 1) != ' ') {
+				return null;
+			}
+		}
+
+		// Die Holdtime ist der einzige Wert mit festem Format und dient daher als Plausibilitätsprüfung
+		String holdtime = line.substring(this.columns[COLUMN_HOLDTIME], this.columns[COLUMN_HOLDTIME + 1]).trim();
+		if (holdtime.isEmpty()) {
+			return null;
+		}
+		for (int i = 0; i < holdtime.length(); i++) {
+			if (!Character.isDigit(holdtime.charAt(i))) {
+				return null;
+			}
+		}
+
+		String localInterface = line.substring(this.columns[COLUMN_LOCAL], this.columns[COLUMN_HOLDTIME]).trim();
+		String remoteInterface = line.substring(this.columns[COLUMN_PORT]).trim();
+		if (localInterface.isEmpty() || remoteInterface.isEmpty()) {
+			return null;
+		}
+
+		return new String[] { localInterface, remoteInterface };
+	}
+
+	/**
+	 * Bestimmt die Spaltenanfänge aus der Kopfzeile der Tabelle.
+	 * 
+	 * @param header
+	 *            Kopfzeile, z.B. "Device ID        Local Intrfce     Holdtme    Capability  Platform  Port ID"
+	 * @return Spaltenanfänge (siehe COLUMN_*) oder null, sofern nicht alle Spalten in aufsteigender Reihenfolge gefunden
+	 *         wurden
+	 */
+	private static int[] findColumns(String header) {
+		int[] result = new int[COLUMN_HEADERS.length];
+		int previous = 0;
+
+		for (int i = 0; i < COLUMN_HEADERS.length; i++) {
+			Matcher matcher = COLUMN_HEADERS[i].matcher(header);
+			if (!matcher.find(previous + 1) || header.charAt(matcher.start() - 1) != ' ') {
+				return null;
+			}
+
+			result[i] = previous = matcher.start();
+		}
+
+		return result;
+	}
 }
@@ -3,9 +3,13 @@ package de.masterarbeit.cisco;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 /**
@@ -18,11 +22,27 @@ import java.util.regex.Pattern;
  * 
  * Children = Eingerückte Linie in einem Block (s.o.), Kinder vom Parent.
  * 
+ * Zu jedem Block wird zusätzlich die Position in der Datei gemerkt (siehe ConfigBlock). Nach der Extraktion der Attribute
+ * kann der Text über release() verworfen und später bei Bedarf über die Position wieder gelesen werden.
+ * 
  * @author Marcel Schuster
  */
 public class JCiscoConfParse {
 	private List<List<String>> runningConfig = new ArrayList<>();
 
+	// Position der Blöcke in der Datei. Identitätsbasiert, da gleiche Blöcke an verschiedenen Stellen stehen können.
+	private Map<List<String>, ConfigBlock> locations = new IdentityHashMap<>();
+
+	// Herkunft der Konfiguration (Pfad oder Name im Archiv) für Fehlermeldungen
+	private final String source;
+
+	// Hash über alle eingelesenen Zeilen (ohne leere Zeilen und Kommentare), bleibt auch nach release() erhalten
+	private long contentHash = ConfigFingerprint.EMPTY;
+
+	// Zeitstempel und Größe der Konfigurationsdatei beim Einlesen (siehe ConfigBlock)
+	private long modified = -1;
+	private long size = -1;
+
 	/**
 	 * Verarbeitet die angegebene Konfigurationsdatei zeilenweise und speichert das Resultat als Liste von Blocks (s.o.).
 	 * 
@@ -32,21 +52,56 @@ public class JCiscoConfParse {
 	 *             Stumpfe Weiterleitung der Exception
 	 */
 	public JCiscoConfParse(String path) throws IOException {
-		List<String> config = Files.readAllLines(Paths.get(path), Charset.defaultCharset());
+		this(Files.readAllBytes(Paths.get(path)), Paths.get(path), path);
+	}
+
+	/**
+	 * Verarbeitet eine bereits gelesene Konfiguration (z.B. aus einem Archiv, siehe ArchiveReader). Ohne Datei werden keine
+	 * Positionen der Blöcke gemerkt, d.h. locate() liefert immer null.
+	 * 
+	 * @param content
+	 *            Inhalt der Konfigurationsdatei
+	 * @param file
+	 *            Datei, aus der die Blöcke später wieder gelesen werden können, oder null
+	 * @param source
+	 *            Herkunft der Konfiguration für Fehlermeldungen
+	 */
+	public JCiscoConfParse(byte[] content, Path file, String source) {
+		this.source = source;
+		this.setFileState(file, content.length);
 		List<String> block = new ArrayList<>();
+		long blockStart = -1;
+		long blockEnd = -1;
+
+		// Zeilenweise über die Bytes laufen, um die Offsets der Blöcke bestimmen zu können
+		for (int start = 0, end; start < content.length; start = end + 1) {
+			end = start;
+			while (end < content.length && content[end] != '\n') {
+				end++;
+			}
 
-		for (String line : config) {
-			if (line.isEmpty() || line.startsWith("!")) {
+			String line = stripLineEnd(new String(content, start, end - start, Charset.defaultCharset()));
+
+			if (isSkipped(line)) {
 				continue;
-			} else if (line.startsWith("  ") || line.startsWith(" ")) {
+			}
+
+			this.contentHash = ConfigFingerprint.hash(this.contentHash, line);
+			if (line.startsWith("  ") || line.startsWith(" ")) {
 				// Zum letzten Block hinzufügen, welcher über "block" noch referenziert sein sollte.
 				block.add(line);
 			} else {
+				this.locate(file, block, blockStart, blockEnd);
 				block = new ArrayList<>();
 				block.add(line);
 				runningConfig.add(block);
+				blockStart = start;
 			}
+
+			blockEnd = end;
 		}
+
+		this.locate(file, block, blockStart, blockEnd);
 	}
 
 	/**
@@ -58,14 +113,115 @@ public class JCiscoConfParse {
 	 */
 	public List<List<String>> findParents(String pattern) {
 		List<List<String>> result = new ArrayList<>();
+		Pattern compiled = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE);
 
 		for (List<String> block : runningConfig) {
 			// Im Inhalt der ersten Zeile (= Parent) ein Match suchen
-			if (Pattern.compile(pattern, Pattern.CASE_INSENSITIVE).matcher(block.get(0)).find()) {
+			if (compiled.matcher(block.get(0)).find()) {
 				result.add(block);
 			}
 		}
 
 		return result;
 	}
+
+	/**
+	 * Gibt die Position des angegebenen Blocks in der Konfigurationsdatei zurück.
+	 * 
+	 * @param block
+	 *            Block, wie er von findParents() zurückgegeben wurde
+	 * @return Position des Blocks oder null, sofern der Block nicht aus dieser Datei stammt
+	 */
+	public ConfigBlock locate(List<String> block) {
+		return locations.get(block);
+	}
+
+	/**
+	 * Merkt sich die Position eines vollständig eingelesenen Blocks.
+	 * 
+	 * @param file
+	 *            Konfigurationsdatei
+	 * @param block
+	 *            Eingelesener Block
+	 * @param start
+	 *            Byte-Offset des Parents oder -1, sofern (noch) kein Parent gelesen wurde
+	 * @param end
+	 *            Byte-Offset des Endes der letzten Zeile des Blocks
+	 */
+	private void locate(Path file, List<String> block, long start, long end) {
+		if (file != null && start >= 0) {
+			locations.put(block, new ConfigBlock(file, block.get(0), start, (int) (end - start), this.modified, this.size));
+		}
+	}
+
+	/**
+	 * Merkt sich Zeitstempel und Größe der Konfigurationsdatei für die Positionen der Blöcke (siehe ConfigBlock). Wurde die
+	 * Datei bereits zwischen dem Lesen des Inhalts und diesem Aufruf verändert (abweichende Größe), gilt der Zeitstempel als
+	 * unbekannt, sodass die Blöcke beim ersten Lesen neu lokalisiert werden.
+	 * 
+	 * @param file
+	 *            Konfigurationsdatei oder null
+	 * @param length
+	 *            Länge des gelesenen Inhalts in Bytes
+	 */
+	private void setFileState(Path file, int length) {
+		if (file == null) {
+			return;
+		}
+
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+			this.modified = attributes.size() == length ? attributes.lastModifiedTime().toMillis() : -1;
+			this.size = attributes.size();
+		} catch (IOException e) {
+			// Datei nicht mehr vorhanden: ConfigBlock.read() scheitert ohnehin mit einer entsprechenden Meldung
+			this.modified = -1;
+		}
+	}
+
+	/**
+	 * Verwirft den eingelesenen Text aller Blöcke. Danach liefert findParents() keine Ergebnisse mehr; die Blöcke können nur
+	 * noch über ihre Position (siehe locate() bzw. ConfigBlock.read()) gelesen werden.
+	 */
+	public void release() {
+		runningConfig = new ArrayList<>();
+		locations = new IdentityHashMap<>();
+	}
+
+	/**
+	 * Gibt den Hash über den eingelesenen Inhalt zurück. Zwei Konfigurationen mit gleichem Hash ergeben dieselben
+	 * Interfaces, unabhängig von leeren Zeilen, Kommentaren und Zeilenenden.
+	 * 
+	 * @return 64 Bit FNV-1a Hash über alle eingelesenen Zeilen
+	 */
+	public long getContentHash() {
+		return this.contentHash;
+	}
+
+	@Override
+	public String toString() {
+		return this.source;
+	}
+
+	/**
+	 * Prüft, ob eine Zeile beim Einlesen übersprungen wird (leere Zeilen und Kommentare).
+	 * 
+	 * @param line
+	 *            Zeile der Konfigurationsdatei
+	 * @return true, sofern die Zeile ignoriert wird
+	 */
+	static boolean isSkipped(String line) {
+		return line.isEmpty() || line.startsWith("!");
+	}
+
+	/**
+	 * Entfernt ein abschließendes Carriage Return (Windows-Zeilenenden).
+	 * 
+	 * @param line
+	 *            Zeile der Konfigurationsdatei
+	 * @return Zeile ohne Zeilenende
+	 */
+	static String stripLineEnd(String line) {
+		return line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+	}
 }
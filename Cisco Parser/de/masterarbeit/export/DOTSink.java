@@ -0,0 +1,68 @@
+package de.masterarbeit.export;
+
+import java.io.Writer;
+
+import de.masterarbeit.modell.*;
+
+/**
+ * Senke für eine Übersicht der Topologie im DOT-Format (Graphviz). Knoten sind die Netzkomponenten, Kanten die Links
+ * zwischen ihnen: Layer1Links durchgezogen, Layer2Links gestrichelt und Peer Links fett. Die Interfaces stehen jeweils an
+ * den Enden der Kanten.
+ * 
+ * @author Marcel Schuster
+ *
+ */
+public class DOTSink extends WriterSink {
+	/**
+	 * Konstruktor.
+	 * 
+	 * @param writer
+	 *            Ziel der Ausgabe
+	 */
+	public DOTSink(Writer writer) {
+		super(writer);
+	}
+
+	@Override
+	public void begin(Topology topology) {
+		this.out.println("graph topology {");
+		this.out.println("\tnode [shape=box];");
+	}
+
+	@Override
+	protected void end() {
+		this.out.println("}");
+	}
+
+	@Override
+	public void visitNetworkComponent(NetworkComponent networkComponent) {
+		this.out.println("\t" + quote(networkComponent.name) + (networkComponent.vss ? " [label="
+				+ quote(networkComponent.name + " (VSS)") + "]" : "") + ";");
+	}
+
+	@Override
+	public void visitLayer1Link(Layer1Interface srcL1Int, Layer1Interface dstL1Int) {
+		this.out.println("\t" + quote(srcL1Int.networkComponent.name) + " -- " + quote(dstL1Int.networkComponent.name)
+				+ " [taillabel=" + quote(srcL1Int.name) + ", headlabel=" + quote(dstL1Int.name) + "];");
+	}
+
+	@Override
+	public void visitLayer2Link(Layer2Interface srcL2Int, Layer2Interface dstL2Int) {
+		boolean peerLink = srcL2Int.peerLink != null && dstL2Int.peerLink != null;
+
+		this.out.println("\t" + quote(srcL2Int.networkComponent.name) + " -- " + quote(dstL2Int.networkComponent.name)
+				+ " [style=" + (peerLink ? "bold" : "dashed") + ", taillabel=" + quote(srcL2Int.name) + ", headlabel="
+				+ quote(dstL2Int.name) + "];");
+	}
+
+	/**
+	 * Setzt eine ID in Anführungszeichen und maskiert enthaltene Sonderzeichen.
+	 * 
+	 * @param id
+	 *            ID
+	 * @return Maskierte ID
+	 */
+	private static String quote(String id) {
+		return "\"" + id.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+	}
+}
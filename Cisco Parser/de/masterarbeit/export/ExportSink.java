@@ -0,0 +1,34 @@
+package de.masterarbeit.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import de.masterarbeit.modell.*;
+
+/**
+ * Ziel eines Exports (siehe TopologyExporter). Eine Senke erhält die Elemente der Topologie als Besucher in der Reihenfolge
+ * der SOIL-Ausgabe und schreibt sie direkt in ihr eigenes Format. Dadurch können beliebig viele Senken mit einem einzigen
+ * Durchlauf über das Modell bedient werden.
+ * 
+ * @author Marcel Schuster
+ *
+ */
+public interface ExportSink extends TopologyVisitor, Closeable {
+	/**
+	 * Wird vor dem Durchlauf aufgerufen (z.B. zum Schreiben eines Kopfes).
+	 * 
+	 * @param topology
+	 *            Topologie, die exportiert wird
+	 */
+	default void begin(Topology topology) {
+	}
+
+	/**
+	 * Wird nach dem Durchlauf aufgerufen, schließt das Format ab und gibt die Ressourcen der Senke frei.
+	 * 
+	 * @throws IOException
+	 *             Sofern die Ausgabe nicht (vollständig) geschrieben werden konnte
+	 */
+	@Override
+	void close() throws IOException;
+}
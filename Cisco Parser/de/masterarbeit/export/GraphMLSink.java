@@ -0,0 +1,243 @@
+package de.masterarbeit.export;
+
+import java.io.Writer;
+import java.util.Map;
+
+import de.masterarbeit.modell.*;
+
+/**
+ * Senke für den vollständigen Interface-Graphen im GraphML-Format (z.B. für yEd oder Gephi). Knoten sind die
+ * Netzkomponenten und alle Interfaces, Kanten die Assoziationen des Topologiemodells (HasInterfaces, DependsOn..., Links).
+ * Die Art eines Knotens bzw. einer Kante steht im Attribut "kind".
+ * 
+ * Verschmolzene Interfaces (siehe Layer2Interface.mergedInterface) werden als eigene Knoten ausgegeben und über eine Kante
+ * "MergedInterface" mit ihrem Partner verbunden.
+ * 
+ * @author Marcel Schuster
+ *
+ */
+public class GraphMLSink extends WriterSink {
+	private Map<Layer2Interface, Layer2Interface> mergedReferences;
+	private int edgeCount = 0;
+
+	/**
+	 * Konstruktor.
+	 * 
+	 * @param writer
+	 *            Ziel der Ausgabe
+	 */
+	public GraphMLSink(Writer writer) {
+		super(writer);
+	}
+
+	@Override
+	public void begin(Topology topology) {
+		this.mergedReferences = topology.mergedReferences;
+
+		this.out.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+		this.out.println("<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">");
+		this.out.println("\t<key id=\"kind\" for=\"all\" attr.name=\"kind\" attr.type=\"string\"/>");
+		this.out.println("\t<key id=\"name\" for=\"node\" attr.name=\"name\" attr.type=\"string\"/>");
+		this.out.println("\t<key id=\"description\" for=\"node\" attr.name=\"description\" attr.type=\"string\"/>");
+		this.out.println("\t<key id=\"interfaceType\" for=\"node\" attr.name=\"interfaceType\" attr.type=\"string\"/>");
+		this.out.println("\t<key id=\"vlans\" for=\"node\" attr.name=\"vlans\" attr.type=\"string\"/>");
+		this.out.println("\t<key id=\"vpc\" for=\"node\" attr.name=\"vpc\" attr.type=\"string\"/>");
+		this.out.println("\t<key id=\"ip\" for=\"node\" attr.name=\"ip\" attr.type=\"string\"/>");
+		this.out.println("\t<key id=\"subnet\" for=\"node\" attr.name=\"subnet\" attr.type=\"string\"/>");
+		this.out.println("\t<graph id=\"topology\" edgedefault=\"undirected\">");
+	}
+
+	@Override
+	protected void end() {
+		this.out.println("\t</graph>");
+		this.out.println("</graphml>");
+	}
+
+	@Override
+	public void visitNetworkComponent(NetworkComponent networkComponent) {
+		this.node(networkComponent.name, networkComponent.vss ? "VSS" : "NetworkComponent", networkComponent.name);
+		this.out.println("\t\t</node>");
+	}
+
+	@Override
+	public void visitAggregatorInterface(Layer2Interface aggregatorInterface) {
+		this.layer2Node(aggregatorInterface, "AggregatorInterface");
+	}
+
+	@Override
+	public void visitLayer3Interface(Layer3Interface layer3Interface, Layer2Interface layer2Interface) {
+		String id = id(layer3Interface);
+
+		this.node(id, "Layer3Interface", layer3Interface.name);
+		this.data("description", layer3Interface.description);
+		this.data("ip", layer3Interface.ip);
+		this.data("subnet", layer3Interface.subnet);
+		this.out.println("\t\t</node>");
+
+		this.edge(layer3Interface.networkComponent.name, id, "HasInterfaces");
+		this.edge(id, id(layer2Interface), "DependsOnLayer2Interfaces");
+	}
+
+	@Override
+	public void visitTaggedInterface(Layer2Interface taggedInterface, Layer2Interface untaggedInterface) {
+		this.layer2Node(taggedInterface, "TaggedInterface");
+		this.edge(id(taggedInterface), id(untaggedInterface), "DependsOnUntaggedDot1QInterface");
+	}
+
+	@Override
+	public void visitLayer1Interface(Layer1Interface layer1Interface) {
+		String id = id(layer1Interface);
+
+		this.node(id, "Layer1Interface", layer1Interface.name);
+		this.out.println("\t\t</node>");
+		this.edge(layer1Interface.networkComponent.name, id, "HasInterfaces");
+	}
+
+	@Override
+	public void visitLayer2Interface(Layer2Interface layer2Interface, Layer1Interface layer1Interface,
+			Layer2Interface aggregatorInterface) {
+		this.layer2Node(layer2Interface, "Layer2Interface");
+		this.edge(id(layer2Interface), id(layer1Interface), "DependsOnLayer1Interface");
+
+		if (aggregatorInterface != null) {
+			this.edge(id(aggregatorInterface), id(layer2Interface), "HasAggregationLayer2Interfaces");
+		}
+	}
+
+	@Override
+	public void visitLayer1Link(Layer1Interface srcL1Int, Layer1Interface dstL1Int) {
+		this.edge(id(srcL1Int), id(dstL1Int), "Layer1Link");
+	}
+
+	@Override
+	public void visitLayer2Link(Layer2Interface srcL2Int, Layer2Interface dstL2Int) {
+		boolean peerLink = srcL2Int.peerLink != null && dstL2Int.peerLink != null;
+		this.edge(id(srcL2Int), id(dstL2Int), peerLink ? "PeerLink" : "Layer2Link");
+	}
+
+	/**
+	 * Schreibt den Knoten eines Layer2Interfaces inklusive HasInterfaces-Kante und ggf. MergedInterface-Kante.
+	 * 
+	 * @param layer2Interface
+	 *            Layer2Interface
+	 * @param kind
+	 *            Art des Knotens
+	 */
+	private void layer2Node(Layer2Interface layer2Interface, String kind) {
+		String id = id(layer2Interface);
+		String vlans = layer2Interface.getVIDs().toString();
+
+		this.node(id, kind, layer2Interface.name);
+		this.data("description", layer2Interface.description);
+		this.data("interfaceType", layer2Interface.interfaceType);
+		this.data("vlans", vlans.substring(1, vlans.length() - 1));
+		this.data("vpc", layer2Interface.vpc);
+		this.out.println("\t\t</node>");
+
+		this.edge(layer2Interface.networkComponent.name, id, "HasInterfaces");
+
+		// Kante nur beim referenzierenden Interface ausgeben, damit sie nicht doppelt erscheint
+		if (this.mergedReferences.get(layer2Interface) != null) {
+			this.edge(id, id(layer2Interface.mergedInterface), "MergedInterface");
+		}
+	}
+
+	/**
+	 * Öffnet einen Knoten (muss mit "</node>" geschlossen werden).
+	 * 
+	 * @param id
+	 *            ID des Knotens
+	 * @param kind
+	 *            Art des Knotens
+	 * @param name
+	 *            Name des Knotens
+	 */
+	private void node(String id, String kind, String name) {
+		this.out.println("\t\t<node id=\"" + escape(id) + "\">");
+		this.data("kind", kind);
+		this.data("name", name);
+	}
+
+	/**
+	 * Schreibt ein Attribut eines Knotens, sofern ein Wert vorhanden ist.
+	 * 
+	 * @param key
+	 *            Schlüssel des Attributs
+	 * @param value
+	 *            Wert (ggf. null oder leer)
+	 */
+	private void data(String key, String value) {
+		if (value != null && !value.isEmpty()) {
+			this.out.println("\t\t\t<data key=\"" + key + "\">" + escape(value) + "</data>");
+		}
+	}
+
+	/**
+	 * Schreibt eine Kante.
+	 * 
+	 * @param source
+	 *            ID des ersten Knotens
+	 * @param target
+	 *            ID des zweiten Knotens
+	 * @param kind
+	 *            Art der Kante
+	 */
+	private void edge(String source, String target, String kind) {
+		this.out.println("\t\t<edge id=\"e" + (this.edgeCount++) + "\" source=\"" + escape(source) + "\" target=\""
+				+ escape(target) + "\"><data key=\"kind\">" + kind + "</data></edge>");
+	}
+
+	/**
+	 * Gibt die eindeutige Knoten-ID des Layer1Interfaces zurück.
+	 * 
+	 * @param layer1Interface
+	 *            Layer1Interface
+	 * @return Knoten-ID
+	 */
+	private static String id(Layer1Interface layer1Interface) {
+		return layer1Interface.networkComponent.name + "/l1/" + layer1Interface.name;
+	}
+
+	/**
+	 * Gibt die eindeutige Knoten-ID des Layer2Interfaces zurück.
+	 * 
+	 * @param layer2Interface
+	 *            Layer2Interface
+	 * @return Knoten-ID
+	 */
+	private static String id(Layer2Interface layer2Interface) {
+		return layer2Interface.networkComponent.name + "/l2/" + layer2Interface.name;
+	}
+
+	/**
+	 * Gibt die eindeutige Knoten-ID des Layer3Interfaces zurück.
+	 * 
+	 * @param layer3Interface
+	 *            Layer3Interface
+	 * @return Knoten-ID
+	 */
+	private static String id(Layer3Interface layer3Interface) {
+		return layer3Interface.networkComponent.name + "/l3/" + layer3Interface.name;
+	}
+
+	/**
+	 * Maskiert die Sonderzeichen von XML.
+	 * 
+	 * @param value
+	 *            Text
+	 * @return Maskierter Text
+	 */
+	private static String escape(String value) {
+		// Schneller Pfad für den Normalfall (Namen und Beschreibungen ohne Sonderzeichen)
+		boolean plain = true;
+		for (int i = 0; i < value.length() && plain; i++) {
+			char c = value.charAt(i);
+			plain = c != '&' && c != '<' && c != '>' && c != '"';
+		}
+		if (plain) {
+			return value;
+		}
+
+		return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+	}
+}
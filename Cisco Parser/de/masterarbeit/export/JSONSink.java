@@ -0,0 +1,282 @@
+package de.masterarbeit.export;
+
+import java.io.Writer;
+import java.util.Map;
+
+import de.masterarbeit.modell.*;
+
+/**
+ * Senke für ein Inventar der Topologie im JSON-Format (z.B. für Skripte oder Dashboards). Das Dokument enthält die
+ * Netzkomponenten mit allen ausgegebenen Interfaces sowie die Layer1Links und Layer2Links:
+ * 
+ * {"networkComponents": [{"name": ..., "vss": ..., "interfaces": [...]}, ...], "layer1Links": [...], "layer2Links": [...]}
+ * 
+ * Jedes Interface hat die Attribute "layer" (1, 2 oder 3) und "name". Layer2Interfaces haben zusätzlich eine Rolle
+ * ("aggregator", "tagged" oder "layer2"), Abhängigkeiten stehen in "dependsOn" bzw. "aggregator". Ein Link besteht aus
+ * den beiden Enden "a" und "b" mit Netzkomponente und Interface. Das Dokument wird während des Durchlaufs geschrieben und
+ * nicht im Speicher aufgebaut.
+ * 
+ * @author Marcel Schuster
+ *
+ */
+public class JSONSink extends WriterSink {
+	// Arrays der obersten Ebene in der Reihenfolge des Durchlaufs
+	private static final String[] SECTIONS = { "networkComponents", "layer1Links", "layer2Links" };
+
+	private Map<Layer2Interface, Layer2Interface> mergedReferences;
+
+	// Index des aktuell geöffneten Arrays der obersten Ebene und Zustand der Trennzeichen
+	private int section = -1;
+	private boolean firstElement = true;
+	private boolean firstInterface = true;
+	private boolean componentOpen = false;
+
+	/**
+	 * Konstruktor.
+	 * 
+	 * @param writer
+	 *            Ziel der Ausgabe
+	 */
+	public JSONSink(Writer writer) {
+		super(writer);
+	}
+
+	@Override
+	public void begin(Topology topology) {
+		this.mergedReferences = topology.mergedReferences;
+		this.out.print("{");
+		this.openSection(0);
+	}
+
+	@Override
+	protected void end() {
+		this.openSection(SECTIONS.length);
+		this.out.println("\n}");
+	}
+
+	@Override
+	public void visitNetworkComponent(NetworkComponent networkComponent) {
+		this.closeComponent();
+
+		StringBuilder json = new StringBuilder("{");
+		append(json, "name", networkComponent.name);
+		append(json, "vss", networkComponent.vss);
+		json.append(", \"interfaces\": [");
+
+		this.element(json.toString());
+		this.componentOpen = true;
+		this.firstInterface = true;
+	}
+
+	@Override
+	public void visitAggregatorInterface(Layer2Interface aggregatorInterface) {
+		this.interfaceElement(this.layer2Object(aggregatorInterface, "aggregator", null, null));
+	}
+
+	@Override
+	public void visitLayer3Interface(Layer3Interface layer3Interface, Layer2Interface layer2Interface) {
+		StringBuilder json = new StringBuilder("{");
+		append(json, "layer", 3);
+		append(json, "name", layer3Interface.name);
+		append(json, "description", layer3Interface.description);
+		append(json, "ip", layer3Interface.ip);
+		append(json, "subnet", layer3Interface.subnet);
+		append(json, "dependsOn", layer2Interface.name);
+
+		this.interfaceElement(json.append("}").toString());
+	}
+
+	@Override
+	public void visitTaggedInterface(Layer2Interface taggedInterface, Layer2Interface untaggedInterface) {
+		this.interfaceElement(this.layer2Object(taggedInterface, "tagged", untaggedInterface.name, null));
+	}
+
+	@Override
+	public void visitLayer1Interface(Layer1Interface layer1Interface) {
+		StringBuilder json = new StringBuilder("{");
+		append(json, "layer", 1);
+		append(json, "name", layer1Interface.name);
+
+		this.interfaceElement(json.append("}").toString());
+	}
+
+	@Override
+	public void visitLayer2Interface(Layer2Interface layer2Interface, Layer1Interface layer1Interface,
+			Layer2Interface aggregatorInterface) {
+		this.interfaceElement(this.layer2Object(layer2Interface, "layer2", layer1Interface.name,
+				aggregatorInterface != null ? aggregatorInterface.name : null));
+	}
+
+	@Override
+	public void visitLayer1Link(Layer1Interface srcL1Int, Layer1Interface dstL1Int) {
+		this.openSection(1);
+		this.element("{\"a\": " + endpoint(srcL1Int.networkComponent, srcL1Int.name) + ", \"b\": "
+				+ endpoint(dstL1Int.networkComponent, dstL1Int.name) + "}");
+	}
+
+	@Override
+	public void visitLayer2Link(Layer2Interface srcL2Int, Layer2Interface dstL2Int) {
+		this.openSection(2);
+		this.element("{\"a\": " + endpoint(srcL2Int.networkComponent, srcL2Int.name) + ", \"b\": "
+				+ endpoint(dstL2Int.networkComponent, dstL2Int.name) + ", \"peerLink\": "
+				+ (srcL2Int.peerLink != null && dstL2Int.peerLink != null) + "}");
+	}
+
+	/**
+	 * Erzeugt das JSON-Objekt eines Layer2Interfaces.
+	 * 
+	 * @param layer2Interface
+	 *            Layer2Interface
+	 * @param role
+	 *            Rolle des Interfaces
+	 * @param dependsOn
+	 *            Name des Interfaces, von dem es abhängt (ggf. null)
+	 * @param aggregator
+	 *            Name des Aggregator Interfaces (ggf. null)
+	 * @return JSON-Objekt
+	 */
+	private String layer2Object(Layer2Interface layer2Interface, String role, String dependsOn, String aggregator) {
+		StringBuilder json = new StringBuilder("{");
+		String vlans = layer2Interface.getVIDs().toString();
+
+		append(json, "layer", 2);
+		append(json, "role", role);
+		append(json, "name", layer2Interface.name);
+		append(json, "description", layer2Interface.description);
+		append(json, "interfaceType", layer2Interface.interfaceType);
+		json.append(", \"vlans\": [").append(vlans.substring(1, vlans.length() - 1)).append("]");
+		append(json, "vpc", layer2Interface.vpc);
+		append(json, "peerLink", layer2Interface.peerLink != null);
+		append(json, "dependsOn", dependsOn);
+		append(json, "aggregator", aggregator);
+
+		// Verschmolzene Interfaces verweisen (wie in der SOIL-Ausgabe) auf ihren Partner
+		Layer2Interface reference = this.mergedReferences.get(layer2Interface);
+		if (reference != null) {
+			json.append(", \"mergedInterface\": ").append(endpoint(reference.networkComponent, reference.name));
+		}
+
+		return json.append("}").toString();
+	}
+
+	/**
+	 * Schreibt ein Interface in das Array der aktuellen Netzkomponente.
+	 * 
+	 * @param json
+	 *            JSON-Objekt des Interfaces
+	 */
+	private void interfaceElement(String json) {
+		this.out.print(this.firstInterface ? "\n\t\t\t" : ",\n\t\t\t");
+		this.out.print(json);
+		this.firstInterface = false;
+	}
+
+	/**
+	 * Schreibt ein Element in das aktuelle Array der obersten Ebene.
+	 * 
+	 * @param json
+	 *            JSON-Objekt
+	 */
+	private void element(String json) {
+		this.out.print(this.firstElement ? "\n\t\t" : ",\n\t\t");
+		this.out.print(json);
+		this.firstElement = false;
+	}
+
+	/**
+	 * Schließt das Interface-Array und Objekt der aktuellen Netzkomponente, sofern geöffnet.
+	 */
+	private void closeComponent() {
+		if (this.componentOpen) {
+			this.out.print(this.firstInterface ? "]}" : "\n\t\t]}");
+			this.componentOpen = false;
+		}
+	}
+
+	/**
+	 * Schließt die Arrays der obersten Ebene bis zum angegebenen Array und öffnet dieses. Dazwischenliegende Arrays
+	 * werden leer ausgegeben, sodass das Dokument immer alle Arrays enthält.
+	 * 
+	 * @param index
+	 *            Index des Arrays in SECTIONS (SECTIONS.length, um alle zu schließen)
+	 */
+	private void openSection(int index) {
+		while (this.section < index) {
+			if (this.section >= 0) {
+				this.closeComponent();
+				this.out.print(this.firstElement ? "]" : "\n\t]");
+			}
+
+			this.section++;
+			if (this.section < SECTIONS.length) {
+				this.out.print((this.section > 0 ? "," : "") + "\n\t\"" + SECTIONS[this.section] + "\": [");
+				this.firstElement = true;
+			}
+		}
+	}
+
+	/**
+	 * Erzeugt das JSON-Objekt eines Link-Endes.
+	 * 
+	 * @param networkComponent
+	 *            Netzkomponente
+	 * @param name
+	 *            Name des Interfaces
+	 * @return JSON-Objekt
+	 */
+	private static String endpoint(NetworkComponent networkComponent, String name) {
+		return "{\"networkComponent\": " + quote(networkComponent.name) + ", \"interface\": " + quote(name) + "}";
+	}
+
+	/**
+	 * Hängt ein Attribut an ein (geöffnetes) JSON-Objekt an. Attribute ohne Wert werden ausgelassen.
+	 * 
+	 * @param json
+	 *            JSON-Objekt
+	 * @param key
+	 *            Schlüssel
+	 * @param value
+	 *            Wert (String, Zahl, Boolean oder null)
+	 */
+	private static void append(StringBuilder json, String key, Object value) {
+		if (value == null) {
+			return;
+		}
+
+		json.append(json.length() > 1 ? ", " : "").append(quote(key)).append(": ");
+		json.append(value instanceof String ? quote((String) value) : value.toString());
+	}
+
+	/**
+	 * Setzt einen Text in Anführungszeichen und maskiert die Sonderzeichen von JSON.
+	 * 
+	 * @param value
+	 *            Text
+	 * @return JSON-String
+	 */
+	private static String quote(String value) {
+		// Schneller Pfad für den Normalfall (Namen und Beschreibungen ohne Sonderzeichen)
+		boolean plain = true;
+		for (int i = 0; i < value.length() && plain; i++) {
+			char c = value.charAt(i);
+			plain = c != '"' && c != '\\' && c >= 0x20;
+		}
+		if (plain) {
+			return "\"" + value + "\"";
+		}
+
+		StringBuilder result = new StringBuilder("\"");
+
+		for (char c : value.toCharArray()) {
+			if (c == '"' || c == '\\') {
+				result.append('\\').append(c);
+			} else if (c < 0x20) {
+				result.append(String.format("\\u%04x", (int) c));
+			} else {
+				result.append(c);
+			}
+		}
+
+		return result.append("\"").toString();
+	}
+}
@@ -0,0 +1,294 @@
+package de.masterarbeit.export;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+import de.masterarbeit.cisco.ConfigFingerprint;
+import de.masterarbeit.modell.*;
+
+/**
+ * Inhaltsadressierter Zwischenspeicher für die SOIL-Ausgaben der einzelnen Netzkomponenten (siehe getClassSOIL()). Jedes
+ * Fragment liegt als eigene Datei im Verzeichnis des Caches; der Dateiname ist ein Hash über alles, wovon die Ausgabe der
+ * Netzkomponente abhängt (siehe key()):
+ * 
+ * - der eingelesene Inhalt der Running Config (siehe JCiscoConfParse.getContentHash()),
+ * 
+ * - die gefilterten Layer1Interfaces, die sich aus den CDP-Informationen und den übrigen Netzkomponenten ergeben,
+ * 
+ * - die Partner verschmolzener Interfaces und ob das Interface erstellt oder auf den Partner verwiesen wird.
+ * 
+ * Beim Zusammenbau der Ausgabe werden daher nur Netzkomponenten neu erzeugt, deren Fragment noch nicht existiert. Die
+ * Fragmente werden anschließend ohne Umweg über den Heap in die Ausgabedatei übertragen (FileChannel.transferTo()); nur die
+ * Links werden jedes Mal neu erzeugt, da sie von allen Netzkomponenten abhängen. Die Ausgabe entspricht dabei Byte für Byte
+ * der Ausgabe von Topology.getSOIL().
+ * 
+ * Neben jedem Fragment liegt die Statistik seiner Erzeugung (Datei mit der Endung ".stats"). Sie wird auch für
+ * wiederverwendete Fragmente ausgegeben, sodass die Ausgabe auf der Konsole nicht davon abhängt, ob ein Fragment neu erzeugt
+ * wurde. Fehlt die Statistik, wird das Fragment neu erzeugt.
+ * 
+ * Fragmente, die beim letzten Zusammenbau nicht verwendet wurden, werden gelöscht. Das Verzeichnis sollte daher nur für
+ * diesen Cache verwendet werden.
+ * 
+ * @author Marcel Schuster
+ *
+ */
+public class SOILFragmentCache {
+	// Version der SOIL-Ausgabe. Ändert sich die Ausgabe der Netzkomponenten, werden so alle Fragmente neu erzeugt.
+	private static final String FORMAT = "SOIL 1";
+	private static final Pattern FRAGMENT = Pattern.compile("^[0-9a-f]{16}\\.(soil|stats)$");
+
+	private final Path directory;
+	private final Charset charset = Charset.defaultCharset();
+
+	// Hash über den letzten Zusammenbau, um eine unveränderte Ausgabe nicht erneut zu schreiben (Watch Mode)
+	private long lastOutput;
+	private Path lastFile;
+
+	// Statistik über den letzten Zusammenbau
+	private int rendered = 0;
+	private int reused = 0;
+
+	/**
+	 * Konstruktor, der das Verzeichnis des Caches bei Bedarf anlegt. Fragmente früherer Läufe werden weiterverwendet.
+	 * 
+	 * @param directory
+	 *            Verzeichnis, in dem die Fragmente abgelegt werden
+	 * @throws IOException
+	 *             Sofern das Verzeichnis nicht angelegt werden kann
+	 */
+	public SOILFragmentCache(String directory) throws IOException {
+		this.directory = Paths.get(directory);
+		Files.createDirectories(this.directory);
+	}
+
+	/**
+	 * Berechnet den Schlüssel des Fragments einer Netzkomponente. Gleicher Schlüssel bedeutet gleiche SOIL-Ausgabe.
+	 * 
+	 * @param networkComponent
+	 *            Netzkomponente einer Topologie
+	 * @param mergedReferences
+	 *            Verschmolzene Interfaces der Topologie, die auf ihren Partner verweisen (siehe Topology)
+	 * @return Schlüssel des Fragments
+	 */
+	public static long key(NetworkComponent networkComponent, Map<Layer2Interface, Layer2Interface> mergedReferences) {
+		long hash = ConfigFingerprint.hash(ConfigFingerprint.EMPTY, FORMAT);
+		hash = ConfigFingerprint.hash(hash, ConfigFingerprint.toHex(networkComponent.runningConfig.getContentHash()));
+
+		for (InterfaceId interfaceId : networkComponent.layer1InterfaceFilter) {
+			hash = ConfigFingerprint.hash(hash, "filter " + interfaceId);
+		}
+
+		for (Layer2Interface layer2Interface : networkComponent.layer2Rows) {
+			Layer2Interface partner = layer2Interface.mergedInterface;
+			if (partner != null) {
+				hash = ConfigFingerprint.hash(hash, "merged " + layer2Interface.name + " "
+						+ (mergedReferences.get(layer2Interface) == partner ? "reference" : "create") + " "
+						+ partner.networkComponent.name + " " + partner.name);
+			}
+		}
+
+		return hash;
+	}
+
+	/**
+	 * Schreibt die vollständige SOIL-Ausgabe der Topologie (siehe Topology.getSOIL()) in die angegebene Datei. Fehlende
+	 * Fragmente werden zuvor erzeugt. Hat sich seit dem letzten Aufruf nichts geändert, bleibt die Datei unangetastet.
+	 * 
+	 * @param topology
+	 *            Topologie
+	 * @param file
+	 *            Ausgabedatei
+	 * @param executor
+	 *            Executor, auf dem fehlende Fragmente parallel erzeugt werden, oder null für sequentielle Verarbeitung
+	 * @throws IOException
+	 *             Sofern Fragmente oder Ausgabe nicht geschrieben werden können
+	 */
+	public void write(Topology topology, String file, ExecutorService executor) throws IOException {
+		List<Path> fragments = new ArrayList<>();
+		List<Future<Path>> futures = new ArrayList<>();
+		long output = ConfigFingerprint.EMPTY;
+
+		this.rendered = 0;
+		this.reused = 0;
+
+		// Fragmente aller Netzkomponenten bestimmen und fehlende erzeugen
+		for (NetworkComponent networkComponent : topology.networkComponents) {
+			long key = key(networkComponent, topology.mergedReferences);
+			Path fragment = this.directory.resolve(ConfigFingerprint.toHex(key) + ".soil");
+			output = ConfigFingerprint.hash(output, fragment.getFileName().toString());
+			fragments.add(fragment);
+
+			Path statistics = statistics(fragment);
+			if (Files.isRegularFile(fragment) && Files.isRegularFile(statistics)) {
+				System.out.println(new String(Files.readAllBytes(statistics), this.charset));
+				this.reused++;
+			} else if (executor != null) {
+				futures.add(executor.submit(() -> this.render(networkComponent, topology.mergedReferences, fragment)));
+				this.rendered++;
+			} else {
+				this.render(networkComponent, topology.mergedReferences, fragment);
+				this.rendered++;
+			}
+		}
+
+		for (Future<Path> future : futures) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted while generating SOIL-Output", e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException("Error while generating SOIL-Output", e.getCause());
+			}
+		}
+
+		// Links hängen von allen Netzkomponenten ab und werden daher immer neu erzeugt
+		StringBuilder links = new StringBuilder();
+		for (String line : topology.getLinkSOIL()) {
+			links.append(line).append(System.lineSeparator());
+			output = ConfigFingerprint.hash(output, line);
+		}
+
+		Path path = Paths.get(file);
+		if (!(path.equals(this.lastFile) && output == this.lastOutput && Files.isRegularFile(path))) {
+			this.assemble(fragments, links.toString(), path);
+			this.lastFile = path;
+			this.lastOutput = output;
+		}
+
+		this.prune(fragments);
+	}
+
+	/**
+	 * Gibt die Anzahl der beim letzten Zusammenbau neu erzeugten Fragmente zurück.
+	 * 
+	 * @return Anzahl neu erzeugter Fragmente
+	 */
+	public int getRendered() {
+		return this.rendered;
+	}
+
+	/**
+	 * Gibt die Anzahl der beim letzten Zusammenbau wiederverwendeten Fragmente zurück.
+	 * 
+	 * @return Anzahl wiederverwendeter Fragmente
+	 */
+	public int getReused() {
+		return this.reused;
+	}
+
+	/**
+	 * Gibt die Datei mit der Statistik eines Fragments zurück.
+	 * 
+	 * @param fragment
+	 *            Datei des Fragments
+	 * @return Datei der Statistik
+	 */
+	private static Path statistics(Path fragment) {
+		String name = fragment.getFileName().toString();
+		return fragment.resolveSibling(name.substring(0, name.length() - ".soil".length()) + ".stats");
+	}
+
+	/**
+	 * Erzeugt das Fragment einer Netzkomponente und gibt die Statistik aus. Fragment und Statistik werden zunächst in
+	 * temporäre Dateien geschrieben und dann umbenannt, sodass ein abgebrochener Lauf keine unvollständigen Fragmente
+	 * hinterlässt. Die Statistik wird zuletzt umbenannt, da erst sie das Fragment als vollständig kennzeichnet.
+	 * 
+	 * @param networkComponent
+	 *            Netzkomponente
+	 * @param mergedReferences
+	 *            Verschmolzene Interfaces der Topologie
+	 * @param fragment
+	 *            Datei des Fragments
+	 * @return Datei des Fragments
+	 * @throws IOException
+	 *             Sofern das Fragment nicht geschrieben werden kann
+	 */
+	private Path render(NetworkComponent networkComponent, Map<Layer2Interface, Layer2Interface> mergedReferences,
+			Path fragment) throws IOException {
+		StringBuilder statistics = new StringBuilder();
+		Path temp = fragment.resolveSibling(fragment.getFileName() + ".tmp");
+		Files.write(temp, networkComponent.getClassSOIL(mergedReferences, statistics::append), this.charset);
+		Files.move(temp, fragment, StandardCopyOption.REPLACE_EXISTING);
+		System.out.println(statistics);
+
+		Path statisticsFile = statistics(fragment);
+		temp = statisticsFile.resolveSibling(statisticsFile.getFileName() + ".tmp");
+		Files.write(temp, statistics.toString().getBytes(this.charset));
+		Files.move(temp, statisticsFile, StandardCopyOption.REPLACE_EXISTING);
+
+		return fragment;
+	}
+
+	/**
+	 * Fügt die Fragmente und die Links zur Ausgabedatei zusammen. Die Fragmente werden dabei direkt zwischen den Dateien
+	 * übertragen.
+	 * 
+	 * @param fragments
+	 *            Dateien der Fragmente in der Reihenfolge der Netzkomponenten
+	 * @param links
+	 *            SOIL-Ausgabe der Links
+	 * @param file
+	 *            Ausgabedatei
+	 * @throws IOException
+	 *             Sofern die Ausgabe nicht geschrieben werden kann
+	 */
+	private void assemble(List<Path> fragments, String links, Path file) throws IOException {
+		try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			for (Path fragment : fragments) {
+				try (FileChannel in = FileChannel.open(fragment, StandardOpenOption.READ)) {
+					long size = in.size();
+					for (long position = 0; position < size;) {
+						position += in.transferTo(position, size - position, out);
+					}
+				}
+			}
+
+			ByteBuffer buffer = ByteBuffer.wrap(links.getBytes(this.charset));
+			while (buffer.hasRemaining()) {
+				out.write(buffer);
+			}
+		}
+	}
+
+	/**
+	 * Löscht alle Fragmente im Verzeichnis, die nicht mehr verwendet werden (inkl. ihrer Statistik).
+	 * 
+	 * @param fragments
+	 *            Dateien der verwendeten Fragmente
+	 * @throws IOException
+	 *             Sofern das Verzeichnis nicht gelesen werden kann
+	 */
+	private void prune(List<Path> fragments) throws IOException {
+		Set<Path> used = new HashSet<>(fragments);
+		for (Path fragment : fragments) {
+			used.add(statistics(fragment));
+		}
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory)) {
+			for (Path path : stream) {
+				if (FRAGMENT.matcher(path.getFileName().toString()).matches() && !used.contains(path)) {
+					Files.deleteIfExists(path);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package de.masterarbeit.export;
+
+import java.io.Writer;
+
+import de.masterarbeit.modell.*;
+
+/**
+ * Senke für die SOIL-Ausgabe. Die Zeilen werden vom SOILVisitor erzeugt und entsprechen damit Topology.getSOIL(), werden
+ * aber direkt in den Writer geschrieben statt in einer Liste gesammelt.
+ * 
+ * @author Marcel Schuster
+ *
+ */
+public class SOILSink extends WriterSink {
+	private SOILVisitor visitor;
+
+	/**
+	 * Konstruktor.
+	 * 
+	 * @param writer
+	 *            Ziel der Ausgabe
+	 */
+	public SOILSink(Writer writer) {
+		super(writer);
+	}
+
+	@Override
+	public void begin(Topology topology) {
+		this.visitor = new SOILVisitor(topology.mergedReferences, this.out::println);
+	}
+
+	@Override
+	public void visitNetworkComponent(NetworkComponent networkComponent) {
+		this.visitor.visitNetworkComponent(networkComponent);
+	}
+
+	@Override
+	public void visitAggregatorInterface(Layer2Interface aggregatorInterface) {
+		this.visitor.visitAggregatorInterface(aggregatorInterface);
+	}
+
+	@Override
+	public void visitLayer3Interface(Layer3Interface layer3Interface, Layer2Interface layer2Interface) {
+		this.visitor.visitLayer3Interface(layer3Interface, layer2Interface);
+	}
+
+	@Override
+	public void visitTaggedInterface(Layer2Interface taggedInterface, Layer2Interface untaggedInterface) {
+		this.visitor.visitTaggedInterface(taggedInterface, untaggedInterface);
+	}
+
+	@Override
+	public void visitLayer1Interface(Layer1Interface layer1Interface) {
+		this.visitor.visitLayer1Interface(layer1Interface);
+	}
+
+	@Override
+	public void visitLayer2Interface(Layer2Interface layer2Interface, Layer1Interface layer1Interface,
+			Layer2Interface aggregatorInterface) {
+		this.visitor.visitLayer2Interface(layer2Interface, layer1Interface, aggregatorInterface);
+	}
+
+	@Override
+	public void visitLayer1Link(Layer1Interface srcL1Int, Layer1Interface dstL1Int) {
+		this.visitor.visitLayer1Link(srcL1Int, dstL1Int);
+	}
+
+	@Override
+	public void visitLayer2Link(Layer2Interface srcL2Int, Layer2Interface dstL2Int) {
+		this.visitor.visitLayer2Link(srcL2Int, dstL2Int);
+	}
+}
@@ -0,0 +1,210 @@
+package de.masterarbeit.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import de.masterarbeit.modell.*;
+
+/**
+ * Exportiert eine Topologie in beliebig viele Formate mit einem einzigen Durchlauf über das Modell (siehe
+ * Topology.accept()). Jedes Element wird nacheinander an alle Senken übergeben, die es direkt in ihre eigene Datei
+ * schreiben. Der Durchlauf (Filter, Markierungen, Reihenfolge) fällt damit nur einmal an, unabhängig von der Anzahl der
+ * Formate.
+ * 
+ * Die Reihenfolge entspricht der SOIL-Ausgabe (Aggregator Interfaces vor ihren Aggregation Interfaces, Links am Ende),
+ * sodass auch die Senken anderer Formate sich darauf verlassen können, dass referenzierte Elemente bereits geschrieben
+ * wurden.
+ * 
+ * Die Senken werden von export() geschlossen. Schlägt bereits das Hinzufügen fehl, müssen die bis dahin geöffneten Senken
+ * über close() freigegeben werden (z.B. per try-with-resources).
+ * 
+ * @author Marcel Schuster
+ *
+ */
+public class TopologyExporter implements Closeable {
+	// Unterstützte Formate (entsprechen zugleich der Dateiendung, siehe createSink())
+	public static final String[] FORMATS = { "soil", "dot", "graphml", "json" };
+
+	private final List<ExportSink> sinks = new ArrayList<>();
+
+	/**
+	 * Fügt eine Senke hinzu.
+	 * 
+	 * @param sink
+	 *            Senke
+	 * @return Exporter (für Verkettung)
+	 */
+	public TopologyExporter add(ExportSink sink) {
+		this.sinks.add(sink);
+		return this;
+	}
+
+	/**
+	 * Fügt eine Senke für das angegebene Format hinzu, die in die Datei "base.format" schreibt.
+	 * 
+	 * @param base
+	 *            Pfad und Dateiname ohne Endung
+	 * @param format
+	 *            Format (siehe FORMATS)
+	 * @return Exporter (für Verkettung)
+	 * @throws IOException
+	 *             Sofern die Datei nicht geöffnet werden kann
+	 */
+	public TopologyExporter add(String base, String format) throws IOException {
+		// Format vor dem Öffnen prüfen, damit eine bestehende Datei bei einem unbekannten Format nicht geleert wird
+		if (!isFormat(format)) {
+			throw new IllegalArgumentException("Unknown export format: " + format);
+		}
+
+		Writer writer = Files.newBufferedWriter(Paths.get(base + "." + format.toLowerCase()), StandardCharsets.UTF_8);
+		return this.add(createSink(format, writer));
+	}
+
+	/**
+	 * Exportiert die Topologie in alle Senken und schließt diese anschließend (auch im Fehlerfall).
+	 * 
+	 * @param topology
+	 *            Topologie
+	 * @throws IOException
+	 *             Sofern eine der Senken nicht geschrieben werden konnte
+	 */
+	public void export(Topology topology) throws IOException {
+		try {
+			for (ExportSink sink : this.sinks) {
+				sink.begin(topology);
+			}
+
+			topology.accept(new Dispatcher());
+		} finally {
+			this.close();
+		}
+	}
+
+	/**
+	 * Schließt alle Senken und entfernt sie aus dem Exporter. Ein erneuter Aufruf hat keine Wirkung.
+	 * 
+	 * @throws IOException
+	 *             Sofern eine der Senken nicht geschlossen werden konnte (die übrigen werden trotzdem geschlossen)
+	 */
+	@Override
+	public void close() throws IOException {
+		IOException error = null;
+
+		for (ExportSink sink : this.sinks) {
+			try {
+				sink.close();
+			} catch (IOException e) {
+				error = error == null ? e : error;
+			}
+		}
+		this.sinks.clear();
+
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	/**
+	 * Prüft, ob das angegebene Format unterstützt wird.
+	 * 
+	 * @param format
+	 *            Format (Groß-/Kleinschreibung egal)
+	 * @return true, sofern das Format in FORMATS enthalten ist
+	 */
+	public static boolean isFormat(String format) {
+		return Arrays.asList(FORMATS).contains(format.toLowerCase());
+	}
+
+	/**
+	 * Erstellt eine Senke für das angegebene Format.
+	 * 
+	 * @param format
+	 *            Format (siehe FORMATS, Groß-/Kleinschreibung egal)
+	 * @param writer
+	 *            Ziel der Ausgabe
+	 * @return Senke
+	 */
+	public static ExportSink createSink(String format, Writer writer) {
+		switch (format.toLowerCase()) {
+		case "soil":
+			return new SOILSink(writer);
+		case "dot":
+			return new DOTSink(writer);
+		case "graphml":
+			return new GraphMLSink(writer);
+		case "json":
+			return new JSONSink(writer);
+		default:
+			throw new IllegalArgumentException("Unknown export format: " + format);
+		}
+	}
+
+	/**
+	 * Verteilt jedes besuchte Element an alle Senken.
+	 */
+	private class Dispatcher implements TopologyVisitor {
+		@Override
+		public void visitNetworkComponent(NetworkComponent networkComponent) {
+			for (ExportSink sink : sinks) {
+				sink.visitNetworkComponent(networkComponent);
+			}
+		}
+
+		@Override
+		public void visitAggregatorInterface(Layer2Interface aggregatorInterface) {
+			for (ExportSink sink : sinks) {
+				sink.visitAggregatorInterface(aggregatorInterface);
+			}
+		}
+
+		@Override
+		public void visitLayer3Interface(Layer3Interface layer3Interface, Layer2Interface layer2Interface) {
+			for (ExportSink sink : sinks) {
+				sink.visitLayer3Interface(layer3Interface, layer2Interface);
+			}
+		}
+
+		@Override
+		public void visitTaggedInterface(Layer2Interface taggedInterface, Layer2Interface untaggedInterface) {
+			for (ExportSink sink : sinks) {
+				sink.visitTaggedInterface(taggedInterface, untaggedInterface);
+			}
+		}
+
+		@Override
+		public void visitLayer1Interface(Layer1Interface layer1Interface) {
+			for (ExportSink sink : sinks) {
+				sink.visitLayer1Interface(layer1Interface);
+			}
+		}
+
+		@Override
+		public void visitLayer2Interface(Layer2Interface layer2Interface, Layer1Interface layer1Interface,
+				Layer2Interface aggregatorInterface) {
+			for (ExportSink sink : sinks) {
+				sink.visitLayer2Interface(layer2Interface, layer1Interface, aggregatorInterface);
+			}
+		}
+
+		@Override
+		public void visitLayer1Link(Layer1Interface srcL1Int, Layer1Interface dstL1Int) {
+			for (ExportSink sink : sinks) {
+				sink.visitLayer1Link(srcL1Int, dstL1Int);
+			}
+		}
+
+		@Override
+		public void visitLayer2Link(Layer2Interface srcL2Int, Layer2Interface dstL2Int) {
+			for (ExportSink sink : sinks) {
+				sink.visitLayer2Link(srcL2Int, dstL2Int);
+			}
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package de.masterarbeit.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+
+/**
+ * Basisklasse für Senken, die zeilenweise in einen Writer schreiben. Die Besucher-Methoden dürfen keine IOException
+ * werfen, daher wird über einen PrintWriter geschrieben und ein Fehler erst beim Schließen gemeldet.
+ * 
+ * @author Marcel Schuster
+ *
+ */
+public abstract class WriterSink implements ExportSink {
+	protected final PrintWriter out;
+
+	/**
+	 * Konstruktor.
+	 * 
+	 * @param writer
+	 *            Ziel der Ausgabe (wird beim Schließen der Senke ebenfalls geschlossen)
+	 */
+	protected WriterSink(Writer writer) {
+		this.out = new PrintWriter(writer instanceof BufferedWriter ? writer : new BufferedWriter(writer));
+	}
+
+	/**
+	 * Schreibt den Abschluss des Formats. Wird von close() vor dem Schließen des Writers aufgerufen.
+	 */
+	protected void end() {
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.end();
+		this.out.close();
+
+		if (this.out.checkError()) {
+			throw new IOException("Could not write " + this.getClass().getSimpleName() + " output");
+		}
+	}
+}
@@ -0,0 +1,346 @@
+package de.masterarbeit.modell;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Strukturierter Schlüssel für Interfacenamen. Ein Name wie "TenGigabitEthernet1/1/1.100" wird einmalig in den Typ, die
+ * Portnummern (Slot/Modul/Port) und die Nummer des Subinterfaces zerlegt. Die Kürzel aus der CDP-Ausgabe ("Ten 1/1/1",
+ * "Gig1/0/1", "Eth1/1", "Po12", ...) ergeben dabei denselben Schlüssel wie der vollständige Name aus der Running Config.
+ * 
+ * Alle Instanzen werden interniert, d.h. gleiche Interfaces teilen sich dasselbe Objekt (auch über Netzkomponenten hinweg).
+ * Interniert bleiben nur Instanzen, die noch verwendet werden (schwache Referenzen); der Cache der Schreibweisen ist auf
+ * MAX_NAMES Einträge beschränkt. Ein lang laufender Prozess (z.B. TopologyServer) wächst dadurch nicht unbegrenzt.
+ * Der Hashwert wird vorberechnet, sodass Maps mit diesem Schlüssel ohne Stringvergleiche auskommen. Die natürliche Ordnung
+ * entspricht der Portreihenfolge (Ethernet1/2 vor Ethernet1/10).
+ * 
+ * @author Marcel Schuster
+ *
+ */
+public final class InterfaceId implements Comparable<InterfaceId> {
+	/**
+	 * Bekannte Interfacetypen mit dem vollständigen Namen aus der Running Config und den Kürzeln, wie sie in der CDP-Ausgabe
+	 * verwendet werden. Das erste Kürzel ist die Kurzform der Cisco CLI und damit ein Anfang des vollständigen Namens; weitere
+	 * Kürzel sind abweichende Schreibweisen (z.B. "TwentyFiveGigE" unter IOS XE). Die Reihenfolge bestimmt die Ordnung der
+	 * Schlüssel.
+	 */
+	public enum Type {
+		ETHERNET("Ethernet", "Eth", "Et"),
+		FAST_ETHERNET("FastEthernet", "Fas", "Fa"),
+		GIGABIT_ETHERNET("GigabitEthernet", "Gig", "Gi"),
+		TEN_GIGABIT_ETHERNET("TenGigabitEthernet", "Ten", "Te"),
+		TWENTY_FIVE_GIGABIT_ETHERNET("TwentyFiveGigabitEthernet", "Twe", "TwentyFiveGigE"),
+		FORTY_GIGABIT_ETHERNET("FortyGigabitEthernet", "For", "Fo"),
+		HUNDRED_GIGABIT_ETHERNET("HundredGigabitEthernet", "Hu", "Hun", "HundredGigE"),
+		PORT_CHANNEL("port-channel", "Po"),
+		MANAGEMENT("mgmt"),
+		VLAN("Vlan", "Vl"),
+		LOOPBACK("Loopback", "Lo"),
+		OTHER("");
+
+		public final String longName;
+		private final String[] abbreviations;
+
+		private Type(String longName, String... abbreviations) {
+			this.longName = longName;
+			this.abbreviations = abbreviations;
+		}
+	}
+
+	// Lookup der Typen über den vollständigen Namen und die Kürzel (jeweils in Kleinbuchstaben)
+	private static final Map<String, Type> TYPES = new HashMap<>();
+	static {
+		for (Type type : Type.values()) {
+			if (type != Type.OTHER) {
+				register(type.longName, type);
+				for (String abbreviation : type.abbreviations) {
+					register(abbreviation, type);
+				}
+			}
+		}
+	}
+
+	// Maximale Anzahl an Schreibweisen im Cache, bevor er geleert wird
+	private static final int MAX_NAMES = 65536;
+
+	// Cache von der Schreibweise auf den internierten Schlüssel und von der Struktur auf den internierten Schlüssel. Letzterer
+	// hält seine Schlüssel nur schwach, sodass nicht mehr verwendete Instanzen entfernt werden.
+	private static final ConcurrentMap<String, InterfaceId> NAMES = new ConcurrentHashMap<>();
+	private static final Map<InterfaceId, WeakReference<InterfaceId>> INSTANCES = Collections
+			.synchronizedMap(new WeakHashMap<>());
+
+	public final Type type;
+	public final int subinterface;
+	private final int[] ports;
+	// Nur für Type.OTHER: Name in Kleinbuchstaben als Ersatz für die Struktur
+	private final String other;
+	private final int hash;
+
+	/**
+	 * Privater Konstruktor, Instanzen werden ausschließlich über of() erzeugt.
+	 * 
+	 * @param type
+	 *            Typ des Interfaces
+	 * @param ports
+	 *            Portnummern (Slot/Modul/Port)
+	 * @param subinterface
+	 *            Nummer des Subinterfaces oder -1
+	 * @param other
+	 *            Name für unbekannte Typen, sonst null
+	 */
+	private InterfaceId(Type type, int[] ports, int subinterface, String other) {
+		this.type = type;
+		this.ports = ports;
+		this.subinterface = subinterface;
+		this.other = other;
+		// Ordinal statt hashCode() des Enums, damit der Hash (und damit die Reihenfolge in HashMaps) bei jedem Lauf gleich ist
+		this.hash = 31 * (31 * (31 * type.ordinal() + Arrays.hashCode(ports)) + subinterface)
+				+ (other == null ? 0 : other.hashCode());
+	}
+
+	/**
+	 * Liefert den internierten Schlüssel zu einem Interfacenamen. Jede Schreibweise wird nur beim ersten Auftreten geparst.
+	 * 
+	 * @param name
+	 *            Interfacename aus der Running Config oder der CDP-Ausgabe
+	 * @return Internierter Schlüssel
+	 */
+	public static InterfaceId of(String name) {
+		InterfaceId result = NAMES.get(name);
+
+		if (result == null) {
+			result = intern(parse(name));
+			if (NAMES.size() >= MAX_NAMES) {
+				NAMES.clear();
+			}
+			NAMES.putIfAbsent(name, result);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Gibt den Schlüssel des übergeordneten Interfaces zurück. Bei "Ethernet1/1.100" ist das "Ethernet1/1".
+	 * 
+	 * @return Schlüssel ohne Subinterface (bzw. this, sofern kein Subinterface vorliegt)
+	 */
+	public InterfaceId parent() {
+		return this.subinterface < 0 ? this : intern(new InterfaceId(this.type, this.ports, -1, this.other));
+	}
+
+	/**
+	 * Gibt an, ob es sich um ein Subinterface handelt.
+	 * 
+	 * @return true, sofern eine Nummer für das Subinterface angegeben ist
+	 */
+	public boolean isSubinterface() {
+		return this.subinterface >= 0;
+	}
+
+	/**
+	 * Gibt die Portnummern zurück (Slot/Modul/Port).
+	 * 
+	 * @return Kopie der Portnummern
+	 */
+	public int[] getPorts() {
+		return this.ports.clone();
+	}
+
+	/**
+	 * Zerlegt einen Interfacenamen ohne regulären Ausdruck: Präfix aus Buchstaben, optionales Leerzeichen, durch "/" getrennte
+	 * Portnummern und optional ".<Subinterface>". Namen, die nicht diesem Aufbau entsprechen, werden als Type.OTHER abgelegt.
+	 * 
+	 * @param name
+	 *            Interfacename
+	 * @return Nicht internierter Schlüssel
+	 */
+	private static InterfaceId parse(String name) {
+		String trimmed = name.trim();
+		int digits = 0;
+		while (digits < trimmed.length() && !Character.isDigit(trimmed.charAt(digits))) {
+			digits++;
+		}
+
+		Type type = findType(trimmed.substring(0, digits).trim().toLowerCase(Locale.ROOT));
+		int[] ports = new int[4];
+		int portCount = 0;
+		int subinterface = -1;
+		int value = -1;
+		boolean valid = type != null && digits < trimmed.length();
+
+		for (int i = digits; valid && i < trimmed.length(); i++) {
+			char c = trimmed.charAt(i);
+
+			if (c >= '0' && c <= '9') {
+				value = (value < 0 ? 0 : value * 10) + (c - '0');
+			} else if (c == '/' && value >= 0 && subinterface < 0) {
+				if (portCount == ports.length) {
+					ports = Arrays.copyOf(ports, portCount * 2);
+				}
+				ports[portCount++] = value;
+				value = -1;
+			} else if (c == '.' && value >= 0 && subinterface < 0) {
+				if (portCount == ports.length) {
+					ports = Arrays.copyOf(ports, portCount * 2);
+				}
+				ports[portCount++] = value;
+				value = -1;
+				subinterface = 0;
+			} else {
+				valid = false;
+			}
+		}
+
+		if (!valid || value < 0) {
+			return new InterfaceId(Type.OTHER, new int[0], -1, trimmed.toLowerCase(Locale.ROOT));
+		}
+
+		if (subinterface == 0) {
+			subinterface = value;
+		} else {
+			if (portCount == ports.length) {
+				ports = Arrays.copyOf(ports, portCount + 1);
+			}
+			ports[portCount++] = value;
+		}
+
+		return new InterfaceId(type, Arrays.copyOf(ports, portCount), subinterface, null);
+	}
+
+	/**
+	 * Registriert einen Namen bzw. ein Kürzel für einen Typ. Dabei wird geprüft, dass jede Kurzform zu ihrem vollständigen
+	 * Namen passt (siehe Type) und kein Name mehreren Typen zugeordnet ist.
+	 * 
+	 * @param name
+	 *            Vollständiger Name oder Kürzel
+	 * @param type
+	 *            Typ
+	 */
+	private static void register(String name, Type type) {
+		String key = name.toLowerCase(Locale.ROOT);
+
+		if (type.abbreviations.length > 0 && name.equals(type.abbreviations[0])
+				&& !type.longName.toLowerCase(Locale.ROOT).startsWith(key)) {
+			throw new IllegalStateException("Short form " + name + " does not match " + type.longName);
+		}
+
+		Type existing = TYPES.put(key, type);
+		if (existing != null && existing != type) {
+			throw new IllegalStateException("Interface name " + name + " is used by " + existing + " and " + type);
+		}
+	}
+
+	/**
+	 * Sucht den Typ zu einem Präfix. Zunächst werden vollständige Namen und Kürzel verglichen, anschließend wird (wie in der
+	 * Cisco CLI) ein eindeutiger Anfang eines vollständigen Namens akzeptiert.
+	 * 
+	 * @param prefix
+	 *            Präfix in Kleinbuchstaben
+	 * @return Typ oder null, sofern kein eindeutiger Typ gefunden wurde
+	 */
+	private static Type findType(String prefix) {
+		Type result = TYPES.get(prefix);
+		if (result != null || prefix.length() < 2) {
+			return result;
+		}
+
+		for (Type type : Type.values()) {
+			if (type != Type.OTHER && type.longName.toLowerCase(Locale.ROOT).startsWith(prefix)) {
+				if (result != null) {
+					return null;
+				}
+				result = type;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Liefert die internierte Instanz zu einem Schlüssel.
+	 * 
+	 * @param id
+	 *            Neu erstellter Schlüssel
+	 * @return Internierte Instanz
+	 */
+	private static InterfaceId intern(InterfaceId id) {
+		synchronized (INSTANCES) {
+			WeakReference<InterfaceId> reference = INSTANCES.get(id);
+			InterfaceId existing = reference != null ? reference.get() : null;
+			if (existing != null) {
+				return existing;
+			}
+
+			INSTANCES.put(id, new WeakReference<>(id));
+			return id;
+		}
+	}
+
+	@Override
+	public int compareTo(InterfaceId o) {
+		if (this == o) {
+			return 0;
+		} else if (this.type != o.type) {
+			return this.type.compareTo(o.type);
+		}
+
+		for (int i = 0; i < Math.min(this.ports.length, o.ports.length); i++) {
+			if (this.ports[i] != o.ports[i]) {
+				return Integer.compare(this.ports[i], o.ports[i]);
+			}
+		}
+
+		if (this.ports.length != o.ports.length) {
+			return Integer.compare(this.ports.length, o.ports.length);
+		} else if (this.subinterface != o.subinterface) {
+			return Integer.compare(this.subinterface, o.subinterface);
+		} else if (this.other != null && o.other != null) {
+			return this.other.compareTo(o.other);
+		}
+
+		return 0;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		} else if (!(obj instanceof InterfaceId)) {
+			return false;
+		}
+
+		InterfaceId o = (InterfaceId) obj;
+		return this.hash == o.hash && this.type == o.type && this.subinterface == o.subinterface
+				&& Arrays.equals(this.ports, o.ports) && (this.other == null ? o.other == null : this.other.equals(o.other));
+	}
+
+	@Override
+	public int hashCode() {
+		return this.hash;
+	}
+
+	/**
+	 * Gibt den vollständigen Namen zurück (z.B. "TenGigabitEthernet1/1/1.100"). Unbekannte Typen werden in Kleinbuchstaben
+	 * zurückgegeben.
+	 */
+	@Override
+	public String toString() {
+		if (this.type == Type.OTHER) {
+			return this.other;
+		}
+
+		StringBuilder result = new StringBuilder(this.type.longName);
+		for (int i = 0; i < this.ports.length; i++) {
+			result.append(i == 0 ? "" : "/").append(this.ports[i]);
+		}
+
+		return this.subinterface < 0 ? result.toString() : result.append('.').append(this.subinterface).toString();
+	}
+}
@@ -0,0 +1,285 @@
+package de.masterarbeit.modell;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Kompakte Map für die Assoziationen zwischen Interfaces. Die meisten Assoziationen der Interfaces sind leer oder haben genau
+ * ein Element, sodass eine TreeMap pro Assoziation unverhältnismäßig viel Speicher belegt. Diese Map speichert Schlüssel und
+ * Werte stattdessen in zwei sortierten Arrays, die erst beim ersten Einfügen angelegt und nur bei Bedarf vergrößert werden.
+ * 
+ * Die Schlüssel sind nach der natürlichen Ordnung der InterfaceId (Portreihenfolge) sortiert. Für große Maps (z.B. alle
+ * Interfaces einer Netzkomponente) ist die Map nicht gedacht, da das Einfügen linear von der Größe abhängt.
+ * 
+ * Gemessener Effekt (zusammen mit den VLAN-IDs als BitSet, 1262 Netzkomponenten mit 37936 Interfaces, davon 726 Trunks
+ * mit VLAN 2-1000): Das Modell ohne Running Config und CDP-Informationen sinkt laut FootprintReport von 1787 auf 426 Byte
+ * pro Interface (Faktor 4,2), der tatsächlich belegte Heap nach dem Parsen von 1664 auf 586 Byte (Faktor 2,8). Ohne große
+ * VLAN-Bereiche sind es nur 795 auf 424 Byte (Faktor 1,9) bzw. 655 auf 584 Byte. Eine Größenordnung wird damit nicht
+ * erreicht: Den größten Anteil haben danach die rund 136000 InterfaceMaps selbst (ca. 200 Byte pro Interface), da
+ * jede Assoziation eine eigene Map ist.
+ * 
+ * @author Marcel Schuster
+ * 
+ * @param <V>
+ *            Typ der assoziierten Interfaces
+ */
+public class InterfaceMap<V> extends AbstractMap<InterfaceId, V> {
+	// Werden erst beim ersten Einfügen angelegt!
+	private InterfaceId[] keys;
+	private Object[] values;
+	private int size = 0;
+
+	// Nach dem Einfrieren (siehe Topology) sind keine Änderungen mehr erlaubt
+	private boolean frozen = false;
+
+	/**
+	 * Friert die Map ein, sodass sie nur noch lesbar ist. Andere Maps werden stattdessen in eine nicht veränderbare Sicht
+	 * verpackt.
+	 * 
+	 * @param map
+	 *            Map, die eingefroren werden soll
+	 * @return Eingefrorene Map
+	 */
+	public static <V> Map<InterfaceId, V> freeze(Map<InterfaceId, V> map) {
+		if (map instanceof InterfaceMap) {
+			((InterfaceMap<V>) map).frozen = true;
+			return map;
+		}
+
+		return Collections.unmodifiableMap(map);
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return this.indexOf(key) >= 0;
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		for (int i = 0; i < this.size; i++) {
+			if (value == null ? this.values[i] == null : value.equals(this.values[i])) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	@Override
+	public V get(Object key) {
+		int index = this.indexOf(key);
+		return index >= 0 ? this.valueAt(index) : null;
+	}
+
+	@Override
+	public V put(InterfaceId key, V value) {
+		if (key == null) {
+			throw new NullPointerException("Interface key must not be null");
+		}
+		this.checkFrozen();
+
+		int index = this.indexOf(key);
+
+		// Vorhandenen Eintrag überschreiben
+		if (index >= 0) {
+			V old = this.valueAt(index);
+			this.values[index] = value;
+			return old;
+		}
+
+		// Arrays anlegen bzw. vergrößern. Startet bewusst mit einem Element, da das der häufigste Fall ist.
+		if (this.keys == null) {
+			this.keys = new InterfaceId[1];
+			this.values = new Object[1];
+		} else if (this.size == this.keys.length) {
+			int capacity = this.size + (this.size >> 1) + 1;
+			this.keys = Arrays.copyOf(this.keys, capacity);
+			this.values = Arrays.copyOf(this.values, capacity);
+		}
+
+		// Einfügeposition aus der binären Suche ableiten und nachfolgende Elemente verschieben
+		int insert = -(index + 1);
+		System.arraycopy(this.keys, insert, this.keys, insert + 1, this.size - insert);
+		System.arraycopy(this.values, insert, this.values, insert + 1, this.size - insert);
+		this.keys[insert] = key;
+		this.values[insert] = value;
+		this.size++;
+
+		return null;
+	}
+
+	@Override
+	public V remove(Object key) {
+		int index = this.indexOf(key);
+		if (index < 0) {
+			return null;
+		}
+
+		this.checkFrozen();
+		V old = this.valueAt(index);
+		this.removeAt(index);
+		return old;
+	}
+
+	@Override
+	public void clear() {
+		this.checkFrozen();
+		this.keys = null;
+		this.values = null;
+		this.size = 0;
+	}
+
+	@Override
+	public Collection<V> values() {
+		// Eigene Implementierung, um keine Map.Entry Objekte pro Iteration erzeugen zu müssen
+		return new AbstractCollection<V>() {
+			@Override
+			public Iterator<V> iterator() {
+				return new ArrayIterator<V>() {
+					@Override
+					protected V get(int index) {
+						return valueAt(index);
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	@Override
+	public Set<Map.Entry<InterfaceId, V>> entrySet() {
+		return new AbstractSet<Map.Entry<InterfaceId, V>>() {
+			@Override
+			public Iterator<Map.Entry<InterfaceId, V>> iterator() {
+				return new ArrayIterator<Map.Entry<InterfaceId, V>>() {
+					@Override
+					protected Map.Entry<InterfaceId, V> get(int index) {
+						return new SimpleImmutableEntry<>(keys[index], valueAt(index));
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	/**
+	 * Binäre Suche nach dem Schlüssel.
+	 * 
+	 * @param key
+	 *            Gesuchter Schlüssel
+	 * @return Index des Schlüssels oder (-(Einfügeposition) - 1), sofern der Schlüssel nicht vorhanden ist
+	 */
+	private int indexOf(Object key) {
+		if (!(key instanceof InterfaceId)) {
+			return -1;
+		} else if (this.size == 0) {
+			return -1;
+		}
+
+		// Die Schlüssel sind interniert, daher zunächst der (häufige) Fall eines einzelnen Elements per Identität
+		if (this.keys[0] == key) {
+			return 0;
+		}
+
+		return Arrays.binarySearch(this.keys, 0, this.size, (InterfaceId) key);
+	}
+
+	/**
+	 * Wirft eine Exception, sofern die Map bereits eingefroren ist.
+	 * 
+	 * @throws UnsupportedOperationException
+	 *             Sofern die Map eingefroren ist
+	 */
+	private void checkFrozen() {
+		if (this.frozen) {
+			throw new UnsupportedOperationException("Interface map is frozen");
+		}
+	}
+
+	/**
+	 * Entfernt den Eintrag an der angegebenen Position.
+	 * 
+	 * @param index
+	 *            Position des Eintrags
+	 */
+	private void removeAt(int index) {
+		System.arraycopy(this.keys, index + 1, this.keys, index, this.size - index - 1);
+		System.arraycopy(this.values, index + 1, this.values, index, this.size - index - 1);
+		this.size--;
+		this.keys[this.size] = null;
+		this.values[this.size] = null;
+	}
+
+	/**
+	 * Typsicherer Zugriff auf das Werte-Array.
+	 * 
+	 * @param index
+	 *            Position des Eintrags
+	 * @return Wert an der Position
+	 */
+	@SuppressWarnings("unchecked")
+	private V valueAt(int index) {
+		return (V) this.values[index];
+	}
+
+	/**
+	 * Gemeinsamer Iterator für Werte und Einträge, der auch das Entfernen während der Iteration unterstützt.
+	 * 
+	 * @param <T>
+	 *            Typ der zurückgegebenen Elemente
+	 */
+	private abstract class ArrayIterator<T> implements Iterator<T> {
+		private int next = 0;
+		private int last = -1;
+
+		@Override
+		public boolean hasNext() {
+			return this.next < size;
+		}
+
+		@Override
+		public T next() {
+			if (this.next >= size) {
+				throw new NoSuchElementException();
+			}
+
+			this.last = this.next++;
+			return this.get(this.last);
+		}
+
+		@Override
+		public void remove() {
+			if (this.last < 0) {
+				throw new IllegalStateException();
+			}
+			checkFrozen();
+
+			removeAt(this.last);
+			this.next = this.last;
+			this.last = -1;
+		}
+
+		protected abstract T get(int index);
+	}
+}
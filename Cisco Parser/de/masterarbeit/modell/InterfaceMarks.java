@@ -0,0 +1,107 @@
+package de.masterarbeit.modell;
+
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Verarbeitungszustand eines einzelnen Durchlaufs über die Topologie (z.B. "Link bereits verarbeitet" oder "SOIL-Ausgabe
+ * bereits erzeugt"). Bisher wurde dieser Zustand über Flags direkt an den Interfaces gespeichert, sodass ein geparstes Modell
+ * immer nur von einem Durchlauf gleichzeitig verwendet werden konnte.
+ * 
+ * Jeder Durchlauf erstellt nun seine eigenen Markierungen. Intern wird pro Netzkomponente eine Bitmenge über die IDs der
+ * Interfaces (siehe NetworkComponent.layer1Rows bzw. layer2Rows) geführt. Eine Instanz ist nicht threadsicher und sollte
+ * daher nur innerhalb eines Durchlaufs verwendet werden.
+ * 
+ * @author Marcel Schuster
+ *
+ */
+public class InterfaceMarks {
+	private Map<NetworkComponent, BitSet> layer1Marks = new IdentityHashMap<>();
+	private Map<NetworkComponent, BitSet> layer2Marks = new IdentityHashMap<>();
+
+	/**
+	 * Markiert das Layer1Interface.
+	 * 
+	 * @param layer1Interface
+	 *            Interface, welches markiert werden soll
+	 * @return true, sofern das Interface vorher noch nicht markiert war
+	 */
+	public boolean mark(Layer1Interface layer1Interface) {
+		return mark(this.layer1Marks, layer1Interface.networkComponent, layer1Interface.id);
+	}
+
+	/**
+	 * Markiert das Layer2Interface.
+	 * 
+	 * @param layer2Interface
+	 *            Interface, welches markiert werden soll
+	 * @return true, sofern das Interface vorher noch nicht markiert war
+	 */
+	public boolean mark(Layer2Interface layer2Interface) {
+		return mark(this.layer2Marks, layer2Interface.networkComponent, layer2Interface.id);
+	}
+
+	/**
+	 * Prüft, ob das Layer1Interface markiert ist.
+	 * 
+	 * @param layer1Interface
+	 *            Interface, welches geprüft werden soll
+	 * @return true, sofern das Interface markiert ist
+	 */
+	public boolean isMarked(Layer1Interface layer1Interface) {
+		return isMarked(this.layer1Marks, layer1Interface.networkComponent, layer1Interface.id);
+	}
+
+	/**
+	 * Prüft, ob das Layer2Interface markiert ist.
+	 * 
+	 * @param layer2Interface
+	 *            Interface, welches geprüft werden soll
+	 * @return true, sofern das Interface markiert ist
+	 */
+	public boolean isMarked(Layer2Interface layer2Interface) {
+		return isMarked(this.layer2Marks, layer2Interface.networkComponent, layer2Interface.id);
+	}
+
+	/**
+	 * Setzt das Bit der ID in der Bitmenge der Netzkomponente. Die Bitmenge wird bei Bedarf angelegt.
+	 * 
+	 * @param marks
+	 *            Bitmengen pro Netzkomponente
+	 * @param networkComponent
+	 *            Netzkomponente des Interfaces
+	 * @param id
+	 *            ID des Interfaces
+	 * @return true, sofern das Bit vorher nicht gesetzt war
+	 */
+	private static boolean mark(Map<NetworkComponent, BitSet> marks, NetworkComponent networkComponent, int id) {
+		if (id < 0) {
+			throw new IllegalArgumentException("Interface is not registered at a NetworkComponent");
+		}
+
+		BitSet bits = marks.computeIfAbsent(networkComponent, k -> new BitSet());
+		if (bits.get(id)) {
+			return false;
+		}
+
+		bits.set(id);
+		return true;
+	}
+
+	/**
+	 * Prüft das Bit der ID in der Bitmenge der Netzkomponente.
+	 * 
+	 * @param marks
+	 *            Bitmengen pro Netzkomponente
+	 * @param networkComponent
+	 *            Netzkomponente des Interfaces
+	 * @param id
+	 *            ID des Interfaces
+	 * @return true, sofern das Bit gesetzt ist
+	 */
+	private static boolean isMarked(Map<NetworkComponent, BitSet> marks, NetworkComponent networkComponent, int id) {
+		BitSet bits = marks.get(networkComponent);
+		return bits != null && id >= 0 && bits.get(id);
+	}
+}
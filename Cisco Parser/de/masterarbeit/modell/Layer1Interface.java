@@ -3,7 +3,6 @@ package de.masterarbeit.modell;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
 
 /**
  * Einfache Repräsentation eines Interfaces der ersten (OSI-)Schicht. In diesem Falle ein physisches Interface.
@@ -16,17 +15,11 @@ import java.util.TreeMap;
 public class Layer1Interface {
 	public String name;
 
-	// SOIL-Ausgabe bereits bearbeitet?
-	public boolean soilProcessed = false;
+	// Strukturierter Schlüssel des Namens (siehe InterfaceId), wird für alle Maps verwendet
+	public InterfaceId key;
 
-	// Wurde der Link (Verbindung) bereits verarbeitet?
-	public boolean linkProcessed = false;
-
-	// Wurde die SOIL-Ausgabe des Links bereits verarbeitet?
-	public boolean linkSoilProcessed = false;
-
-	// Wurde das Interface bereits verschmolzen (MC-LAG)?
-	public boolean mergeProcessed = false;
+	// Position des Interfaces in der Zeilentabelle der Netzkomponente (siehe NetworkComponent.layer1Rows)
+	public int id = -1;
 
 	// Keine Maps nötig, da nur ein Element möglich!
 	public NetworkComponent networkComponent;
@@ -34,8 +27,8 @@ public class Layer1Interface {
 
 	// Verschiedene Listen sind zwar umständlich, aber spart unnötiges Filtern!
 	// Bei den layer2Interfaces kann es sich auch um Aggregation Interfaces handeln (Rollenname)!
-	public Map<String, Layer2Interface> layer2Interfaces = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
-	public Map<String, Layer2Interface> aggregatorInterfaces = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+	public Map<InterfaceId, Layer2Interface> layer2Interfaces = new InterfaceMap<>();
+	public Map<InterfaceId, Layer2Interface> aggregatorInterfaces = new InterfaceMap<>();
 
 	/**
 	 * Konstruktor zur Initialisierung
@@ -45,6 +38,7 @@ public class Layer1Interface {
 	 */
 	public Layer1Interface(String name) {
 		this.name = name;
+		this.key = InterfaceId.of(name);
 	}
 
 	/**
@@ -89,4 +83,12 @@ public class Layer1Interface {
 
 		return result;
 	}
+
+	/**
+	 * Friert die Assoziationen des Interfaces ein (siehe NetworkComponent.freeze()).
+	 */
+	void freeze() {
+		this.layer2Interfaces = InterfaceMap.freeze(this.layer2Interfaces);
+		this.aggregatorInterfaces = InterfaceMap.freeze(this.aggregatorInterfaces);
+	}
 }
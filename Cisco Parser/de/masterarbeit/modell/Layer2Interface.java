@@ -1,11 +1,15 @@
 package de.masterarbeit.modell;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
 import java.util.regex.Pattern;
 
+import de.masterarbeit.cisco.ConfigBlock;
+
 /**
  * Einfache Repräsentation eines Interfaces der zweiten (OSI-)Schicht. In diesem Falle ein Ethernet Interface ohne speziellen
  * Typ (Access, Trunk, Untagged, Tagged). Der Typ wird bei der SOIL-Ausgabe aus den Attributen abgeleitet.
@@ -16,41 +20,54 @@ import java.util.regex.Pattern;
  *
  */
 public class Layer2Interface {
+	// Einzelne VLAN-ID bzw. Bereich von VLAN-IDs (siehe addVIDs())
+	private static final Pattern VID = Pattern.compile("^[\\d]+$");
+	private static final Pattern VID_RANGE = Pattern.compile("^[\\d]+-[\\d]+$");
+
 	public String name;
 	public String description;
 	public String interfaceType;
 	public String vpc;
 	public String peerLink;
 	public String vsl;
-	protected List<String> vlanIDs = new ArrayList<>();
 
-	// Speicher den aktuellen Block (siehe JCiscoConfParse) des Interfaces zu Analysezwecken
-	public List<String> runningConfig = new ArrayList<>();
+	// Strukturierter Schlüssel des Namens (siehe InterfaceId), wird für alle Maps verwendet
+	public InterfaceId key;
 
-	// SOIL-Ausgabe bereits bearbeitet?
-	public boolean soilProcessed = false;
+	// VLAN-IDs als Bitmenge statt als Liste von Strings. Ein Trunk mit "1-4094" belegt so 512 Byte anstatt 4094 Strings.
+	// Wird erst beim ersten Hinzufügen einer VLAN-ID angelegt.
+	protected BitSet vlanIDs;
 
-	// Wurde der Link (Verbindung) bereits verarbeitet?
-	public boolean linkProcessed = false;
+	// Native VLAN eines Trunks ("switchport trunk native vlan"), das ungetaggt übertragen wird. -1 = nicht konfiguriert
+	public int nativeVlan = -1;
+
+	// Position des Interfaces in der Zeilentabelle der Netzkomponente (siehe NetworkComponent.layer2Rows)
+	public int id = -1;
+
+	// Speicher den aktuellen Block (siehe JCiscoConfParse) des Interfaces zu Analysezwecken
+	public List<String> runningConfig;
 
-	// Wurde die SOIL-Ausgabe des Links bereits verarbeitet?
-	public boolean linkSoilProcessed = false;
+	// Im sparsamen Modus (siehe NetworkComponent) nur die Position des Blocks anstatt "runningConfig"
+	public ConfigBlock configBlock;
+
+	// Normalisierter Fingerabdruck des Blocks, wird beim Parsen berechnet (siehe ConfigFingerprint)
+	public long configFingerprint;
 
 	public NetworkComponent networkComponent;
 
 	// Layer 1 Assoziationen
-	public Map<String, Layer1Interface> layer1Interfaces = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+	public Map<InterfaceId, Layer1Interface> layer1Interfaces = new InterfaceMap<>();
 
 	// Layer 2 Assoziationen
 	public Layer2Interface mergedInterface;
-	public Map<String, Layer2Interface> layer2LinksTo = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+	public Map<InterfaceId, Layer2Interface> layer2LinksTo = new InterfaceMap<>();
 	public Layer2Interface untaggedInterface;
-	public Map<String, Layer2Interface> taggedInterfaces = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+	public Map<InterfaceId, Layer2Interface> taggedInterfaces = new InterfaceMap<>();
 	public Layer2Interface aggregator2Interface;
-	public Map<String, Layer2Interface> aggregationInterfaces = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+	public Map<InterfaceId, Layer2Interface> aggregationInterfaces = new InterfaceMap<>();
 
 	// Layer 3 Assoziationen
-	public Map<String, Layer3Interface> layer3Interfaces = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+	public Map<InterfaceId, Layer3Interface> layer3Interfaces = new InterfaceMap<>();
 
 	/**
 	 * Konstruktur zur Initialisierung.
@@ -60,20 +77,23 @@ public class Layer2Interface {
 	 */
 	public Layer2Interface(String name) {
 		this.name = name;
+		this.key = InterfaceId.of(name);
 	}
 
 	/**
 	 * Gibt die SOIL-Repräsentation des Interfaces als Liste von Strings zurück. Besonderheit hierbei ist, dass der Typ des
 	 * Interfaces aus den gesetzten Parametern (hauptsächlich "interfaceType") abgeleitet wird.
 	 * 
+	 * @param mergedReferences
+	 *            Verschmolzene Interfaces, die nicht erstellt, sondern auf ihren Partner verweisen sollen (siehe Topology)
 	 * @return SOIL-Repräsentation als Liste von Strings
 	 */
-	public List<String> getSOIL() {
+	public List<String> getSOIL(Map<Layer2Interface, Layer2Interface> mergedReferences) {
 		List<String> result = new ArrayList<>();
 		String var = !this.aggregationInterfaces.isEmpty() ? "al2i" : "sl2i";
 
-		if (this.mergedInterface != null && this.mergedInterface.soilProcessed) {
-			// Wenn Interface verschmolzen ist und Partner bereits ausgegeben wurde, wird dieses per OCL rausgesucht.
+		if (this.mergedInterface != null && mergedReferences.get(this) == this.mergedInterface) {
+			// Wenn Interface verschmolzen ist und Partner bereits ausgegeben wird, wird dieses per OCL rausgesucht.
 			result.add("!" + var + " := NetworkComponent.allInstances()->any(p | p.name = '"
 					+ this.mergedInterface.networkComponent.name + "').getLayer2Interfaces()->any(i | i.name='"
 					+ this.mergedInterface.name + "')");
@@ -105,13 +125,29 @@ public class Layer2Interface {
 			// Panik?
 		}
 
-		this.soilProcessed = true;
-
 		// Zu Analysezwecken kann an dieser Stelle auch "runningConfig" zurückgegeben werden!
 		// return this.runningConfig;
 		return result;
 	}
 
+	/**
+	 * Gibt den Block der Running Config zurück, in dem das Interface definiert ist. Im sparsamen Modus wird der Block dazu
+	 * erneut aus der Konfigurationsdatei gelesen.
+	 * 
+	 * @return Zeilen des Blocks oder eine leere Liste, sofern kein Block bekannt ist
+	 * @throws IOException
+	 *             Stumpfe Weiterleitung der Exception
+	 */
+	public List<String> getRunningConfig() throws IOException {
+		if (this.runningConfig != null) {
+			return this.runningConfig;
+		} else if (this.configBlock != null) {
+			return this.configBlock.read();
+		}
+
+		return Collections.emptyList();
+	}
+
 	/**
 	 * Fügt VLAN-IDs zum Interface hinzu. Dabei sind Angaben der Art "5", "5-10" oder auch "5,10,20-100" möglich, wie sie
 	 * auch in Cisco Konfigurationsdateien vorkommen können. Zahlenbereiche werden aufgelöst; also "5-8" wird zu "5,6,7,8,".
@@ -124,15 +160,15 @@ public class Layer2Interface {
 			String[] vidsArray = vid.split(Pattern.quote(","));
 
 			for (String elem : vidsArray) {
-				if (Pattern.matches("^[\\d]+$", elem)) {
-					this.vlanIDs.add(elem);
-				} else if (Pattern.matches("^[\\d]+-[\\d]+$", elem)) {
+				if (VID.matcher(elem).matches()) {
+					this.addVID(Integer.parseInt(elem));
+				} else if (VID_RANGE.matcher(elem).matches()) {
 					String[] range = elem.split(Pattern.quote("-"));
 					Integer from = Integer.parseInt(range[0]);
 					Integer to = Integer.parseInt(range[1]);
 
 					for (int i = from; i <= to; i++) {
-						this.vlanIDs.add(Integer.toString(i));
+						this.addVID(i);
 					}
 				} else {
 					// Panik?
@@ -141,6 +177,39 @@ public class Layer2Interface {
 		}
 	}
 
+	/**
+	 * Fügt eine einzelne VLAN-ID zum Interface hinzu und legt die Bitmenge bei Bedarf an.
+	 * 
+	 * @param vid
+	 *            VLAN-ID, die hinzugefügt werden soll
+	 */
+	public void addVID(int vid) {
+		if (this.vlanIDs == null) {
+			this.vlanIDs = new BitSet(vid + 1);
+		}
+		this.vlanIDs.set(vid);
+	}
+
+	/**
+	 * Gibt eine Kopie der VLAN-IDs des Interfaces zurück.
+	 * 
+	 * @return VLAN-IDs als Bitmenge (ggf. leer)
+	 */
+	public BitSet getVIDs() {
+		return this.vlanIDs == null ? new BitSet() : (BitSet) this.vlanIDs.clone();
+	}
+
+	/**
+	 * Prüft, ob das Interface die VLAN-ID führt, ohne die Bitmenge zu kopieren.
+	 * 
+	 * @param vid
+	 *            VLAN-ID
+	 * @return true, sofern die VLAN-ID gesetzt ist
+	 */
+	public boolean hasVID(int vid) {
+		return this.vlanIDs != null && vid >= 0 && this.vlanIDs.get(vid);
+	}
+
 	/**
 	 * Fügt mehrere VLAN-IDs zum aktuellen Interface hinzu und benutzt dabei die Operation addVIDs(). Kommt meistens bei
 	 * Trunks vor, bei denen mehrzeilig VLAN-ID hinzugefügt (bzw. erlaubt) werden können.
@@ -165,9 +234,7 @@ public class Layer2Interface {
 	 * @return true, wenn sich die VLAN-IDs der Interfaces überschneiden
 	 */
 	public boolean vlanIntersection(Layer2Interface layer2Interface) {
-		List<String> tmpVlanIDs = new ArrayList<>(this.vlanIDs);
-		tmpVlanIDs.retainAll(layer2Interface.vlanIDs);
-		return !tmpVlanIDs.isEmpty();
+		return this.vlanIDs != null && layer2Interface.vlanIDs != null && this.vlanIDs.intersects(layer2Interface.vlanIDs);
 	}
 
 	/**
@@ -186,7 +253,16 @@ public class Layer2Interface {
 	 * @return VLAN-IDs als String
 	 */
 	private String vids2String() {
-		return String.join(",", this.vlanIDs);
+		if (this.vlanIDs == null) {
+			return "";
+		}
+
+		StringBuilder result = new StringBuilder();
+		for (int vid = this.vlanIDs.nextSetBit(0); vid >= 0; vid = this.vlanIDs.nextSetBit(vid + 1)) {
+			result.append(result.length() == 0 ? "" : ",").append(vid);
+		}
+
+		return result.toString();
 	}
 
 	/**
@@ -197,4 +273,15 @@ public class Layer2Interface {
 	private String desc2String() {
 		return this.description == null ? "" : this.description;
 	}
+
+	/**
+	 * Friert die Assoziationen des Interfaces ein (siehe NetworkComponent.freeze()).
+	 */
+	void freeze() {
+		this.layer1Interfaces = InterfaceMap.freeze(this.layer1Interfaces);
+		this.layer2LinksTo = InterfaceMap.freeze(this.layer2LinksTo);
+		this.taggedInterfaces = InterfaceMap.freeze(this.taggedInterfaces);
+		this.aggregationInterfaces = InterfaceMap.freeze(this.aggregationInterfaces);
+		this.layer3Interfaces = InterfaceMap.freeze(this.layer3Interfaces);
+	}
 }
@@ -3,9 +3,10 @@ package de.masterarbeit.modell;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
 import java.util.regex.Pattern;
 
+import static de.masterarbeit.toolbox.Toolbox.*;
+
 /**
  * Einfache Repräsentation eines Interfaces der dritten (OSI-)Schicht. In diesem Falle ein IPv4-Interface.
  * 
@@ -20,8 +21,14 @@ public class Layer3Interface {
 	public String ip;
 	public String subnet;
 
+	// Strukturierter Schlüssel des Namens (siehe InterfaceId), wird für alle Maps verwendet
+	public InterfaceId key;
+
+	// Position des Interfaces in der Zeilentabelle der Netzkomponente (siehe NetworkComponent.layer3Rows)
+	public int id = -1;
+
 	public NetworkComponent networkComponent;
-	public Map<String, Layer2Interface> layer2Interfaces = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+	public Map<InterfaceId, Layer2Interface> layer2Interfaces = new InterfaceMap<>();
 
 	/**
 	 * Konstruktur zur Initialisierung.
@@ -31,6 +38,7 @@ public class Layer3Interface {
 	 */
 	public Layer3Interface(String name) {
 		this.name = name;
+		this.key = InterfaceId.of(name);
 	}
 
 	/**
@@ -50,6 +58,33 @@ public class Layer3Interface {
 		return result;
 	}
 
+	/**
+	 * Gibt die IP-Adresse des Interfaces als gepackte 32 Bit Ganzzahl zurück (siehe Toolbox.ipToInt()).
+	 * 
+	 * @return Gepackte IP-Adresse
+	 */
+	public int getAddress() {
+		return ipToInt(this.ip);
+	}
+
+	/**
+	 * Gibt die Präfixlänge der definierten Subnetzmaske zurück. Beide Notationen (CIDR-Suffix und Dotted Decimal) sind erlaubt.
+	 * 
+	 * @return Präfixlänge oder -1, sofern die Subnetzmaske nicht ausgewertet werden kann
+	 */
+	public int getPrefixLength() {
+		return prefixLength(this.subnet);
+	}
+
+	/**
+	 * Gibt die Netzadresse des Interfaces zurück, also die IP-Adresse ohne den Hostanteil.
+	 * 
+	 * @return Gepackte Netzadresse
+	 */
+	public int getNetworkAddress() {
+		return this.getAddress() & prefixToMask(Math.max(this.getPrefixLength(), 0));
+	}
+
 	/**
 	 * Gibt die definierte Subnetzmaske als String zurück. Die Operation übersetzt dabei die CIDR-Suffix Notation in die
 	 * Dotted Decimal Notation, sofern notwendig. Siehe auch: https://de.wikipedia.org/wiki/Classless_Inter-Domain_Routing.
@@ -62,19 +97,18 @@ public class Layer3Interface {
 		if (Pattern.matches("^(?:[\\d]{1,3}\\.){3}[\\d]{1,3}$", this.subnet)) {
 			return this.subnet;
 		} else if (Pattern.matches("^/[\\d]+$", this.subnet)) {
-			switch (this.subnet) {
-			case "/24":
-				return "255.255.255.0";
-			case "/30":
-				return "255.255.255.252";
-			case "/32":
-				return "255.255.255.255";
-			default:
-				return "<NOT_FOUND>";
-			}
+			int prefixLength = prefixLength(this.subnet);
+			return prefixLength < 0 ? "<NOT_FOUND>" : intToIP(prefixToMask(prefixLength));
 		}
 
 		// Panik?
 		return null;
 	}
+
+	/**
+	 * Friert die Assoziationen des Interfaces ein (siehe NetworkComponent.freeze()).
+	 */
+	void freeze() {
+		this.layer2Interfaces = InterfaceMap.freeze(this.layer2Interfaces);
+	}
 }
@@ -2,12 +2,14 @@ package de.masterarbeit.modell;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
-import java.util.regex.Pattern;
+import java.util.function.Consumer;
 
 import de.masterarbeit.cisco.*;
 import static de.masterarbeit.toolbox.Toolbox.*;
@@ -25,19 +27,35 @@ import static de.masterarbeit.toolbox.Toolbox.*;
 public class NetworkComponent {
 	public String name;
 	public boolean vss = false;
+
+	// Sparsamer Modus: Text der Running Config wird nach dem Parsen verworfen (siehe Konstruktor)
+	public boolean lean = false;
 	public JCiscoConfParse runningConfig;
 	public JCiscoCDPParse cdpResult;
 
-	// Liste von Interfacenamen, die am Schluss wirklich ausgegeben werden sollen. Die Liste in der Main Methode anhand der
+	// Liste von Interfaces, die am Schluss wirklich ausgegeben werden sollen. Die Liste in der Main Methode anhand der
 	// CDP-Informationen gefüllt, sodass nur die Interfaces verarbeitet werden, die für eine Verbindung untereinander sorgen.
-	public List<String> layer1InterfaceFilter = new ArrayList<>();
+	public List<InterfaceId> layer1InterfaceFilter = new ArrayList<>();
 
-	public Map<String, Layer1Interface> layer1Interfaces = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+	// Schlüssel ist die InterfaceId (Hash-Lookup), die Reihenfolge entspricht der Reihenfolge in der Running Config
+	public Map<InterfaceId, Layer1Interface> layer1Interfaces = new LinkedHashMap<>();
 	// Bei den layer2Interfaces kann es sich auch um Aggregation Interfaces (Rollenname) oder Tagged Interfaces handeln!
-	public Map<String, Layer2Interface> layer2Interfaces = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+	public Map<InterfaceId, Layer2Interface> layer2Interfaces = new LinkedHashMap<>();
 	// Die Aggregator Interfaces werden in einer separaten Liste gespeichert, was die Ausgabe erleichtert
-	public Map<String, Layer2Interface> aggregatorInterfaces = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
-	public Map<String, Layer3Interface> layer3Interfaces = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+	public Map<InterfaceId, Layer2Interface> aggregatorInterfaces = new LinkedHashMap<>();
+	public Map<InterfaceId, Layer3Interface> layer3Interfaces = new LinkedHashMap<>();
+
+	// Zeilentabellen aller Interfaces der Netzkomponente, adressiert über die ID der Interfaces. Analysen können so mit
+	// int-Arrays anstatt mit Maps über Interfacenamen arbeiten.
+	public List<Layer1Interface> layer1Rows = new ArrayList<>();
+	public List<Layer2Interface> layer2Rows = new ArrayList<>();
+	public List<Layer3Interface> layer3Rows = new ArrayList<>();
+
+	/**
+	 * Leerer Konstruktor für copy().
+	 */
+	private NetworkComponent() {
+	}
 
 	/**
 	 * Klassenkonstruktur, der bei Initialisierung des Objekts direkt die Running Config parst. Die CDP-Informationen werden
@@ -54,8 +72,60 @@ public class NetworkComponent {
 	 *             Stumpfe Weiterleitung der Exception
 	 */
 	public NetworkComponent(String runningConfig, String cdpResult) throws IOException {
-		this.runningConfig = new JCiscoConfParse(runningConfig);
-		this.cdpResult = new JCiscoCDPParse(cdpResult);
+		this(runningConfig, cdpResult, false);
+	}
+
+	/**
+	 * Klassenkonstruktur wie oben, jedoch optional im sparsamen Modus ("lean"). Dabei wird der Text der Running Config nach der
+	 * Extraktion der Attribute verworfen. Die Layer2Interfaces merken sich lediglich die Position ihres Blocks in der Datei
+	 * (siehe ConfigBlock), sodass der Speicherbedarf nicht mehr mit der Größe der Konfigurationsdateien wächst.
+	 * 
+	 * @param runningConfig
+	 *            Running Config der Komponente, die geparst wird
+	 * @param cdpResult
+	 *            CDP-Informationen der Komponente (wird nicht geparst, sondern nur zwischengespeichert)
+	 * @param lean
+	 *            true, sofern der Text der Running Config nach dem Parsen verworfen werden soll
+	 * @throws IOException
+	 *             Stumpfe Weiterleitung der Exception
+	 */
+	public NetworkComponent(String runningConfig, String cdpResult, boolean lean) throws IOException {
+		this(new JCiscoConfParse(runningConfig), new JCiscoCDPParse(cdpResult), lean);
+	}
+
+	/**
+	 * Klassenkonstruktur wie oben, jedoch mit bereits eingelesener Running Config und CDP-Informationen (z.B. aus einem
+	 * Archiv, siehe ArchiveReader). Kennt die Running Config die Positionen ihrer Blöcke nicht, behalten die Interfaces im
+	 * sparsamen Modus ihren Text.
+	 * 
+	 * @param runningConfig
+	 *            Eingelesene Running Config der Komponente, die geparst wird
+	 * @param cdpResult
+	 *            Eingelesene CDP-Informationen der Komponente
+	 * @param lean
+	 *            true, sofern der Text der Running Config nach dem Parsen verworfen werden soll
+	 */
+	public NetworkComponent(JCiscoConfParse runningConfig, JCiscoCDPParse cdpResult, boolean lean) {
+		this(runningConfig, cdpResult, lean, true);
+	}
+
+	/**
+	 * Klassenkonstruktur wie oben, jedoch optional ohne Ausgabe der Statistik (z.B. wenn eine Netzkomponente erneut geparst
+	 * wird, siehe BatchPipeline).
+	 * 
+	 * @param runningConfig
+	 *            Eingelesene Running Config der Komponente, die geparst wird
+	 * @param cdpResult
+	 *            Eingelesene CDP-Informationen der Komponente
+	 * @param lean
+	 *            true, sofern der Text der Running Config nach dem Parsen verworfen werden soll
+	 * @param verbose
+	 *            true, sofern die Statistik über die gefundenen Interfaces ausgegeben werden soll
+	 */
+	public NetworkComponent(JCiscoConfParse runningConfig, JCiscoCDPParse cdpResult, boolean lean, boolean verbose) {
+		this.lean = lean;
+		this.runningConfig = runningConfig;
+		this.cdpResult = cdpResult;
 
 		// Alle benötigten Regex Pattern definieren
 		String search_pattern_hostname = "^hostname[\\s]?(.*)$";
@@ -72,6 +142,7 @@ public class NetworkComponent {
 		String pattern_int_vpc = "^[\\s]+vpc[\\s]?([\\d]+)";
 		String pattern_int_peerlink = "^[\\s]+vpc[\\s]?(peer-link)";
 		String pattern_int_vlan = "^[\\s]+switchport[\\s]?(access|trunk)[\\s]?(?:allowed)?[\\s]?vlan[\\s]?(?:add)?[\\s]?([\\d,-]+)";
+		String pattern_int_native = "^[\\s]+switchport trunk native vlan[\\s]?([\\d]+)";
 		String pattern_int_vlan_enc = "^[\\s]+(encapsulation)[\\s]?dot1q[\\s]?([\\d]+)";
 		String pattern_int_ip_sub = "^[\\s]+ip address[\\s]?((?:[\\d]{1,3}\\.){3}[\\d]{1,3})[\\s]?([\\d\\./]+)";
 		String pattern_int_vsl = "^[\\s]+switch virtual link[\\s]?([\\d]+)";
@@ -98,6 +169,7 @@ public class NetworkComponent {
 			String desc = extractGroup(pattern_int_desc, block, 1);
 			String int_type = extractGroup(pattern_int_vlan, block, 1);
 			List<String> vlan_ids = extractGroups(pattern_int_vlan, block, 2);
+			String native_vlan = extractGroup(pattern_int_native, block, 1);
 			String vpc = extractGroup(pattern_int_vpc, block, 1);
 			String peer_link = extractGroup(pattern_int_peerlink, block, 1);
 			String ip = extractGroup(pattern_int_ip_sub, block, 1);
@@ -107,33 +179,34 @@ public class NetworkComponent {
 			String vsl = extractGroup(pattern_int_vsl, block, 1);
 
 			// Neues Aggregator Interface erstellen
-			Layer2Interface al2i = new Layer2Interface(name);
-			al2i.runningConfig = block;
+			Layer2Interface al2i = this.register(new Layer2Interface(name));
+			this.attachConfig(al2i, block);
 			al2i.description = desc;
 			al2i.interfaceType = int_type;
 			al2i.addVIDs(vlan_ids);
+			al2i.nativeVlan = native_vlan != null ? Integer.parseInt(native_vlan) : -1;
 			al2i.vpc = vpc;
 			al2i.peerLink = peer_link;
 			al2i.vsl = vsl;
 
 			// Assoziation NetworkComponent <-> Aggregator Interface
-			this.aggregatorInterfaces.put(name, al2i);
+			this.aggregatorInterfaces.put(al2i.key, al2i);
 			al2i.networkComponent = this;
 
 			// Wenn eine IP-Adresse definiert wurde, neues Layer3Interface erstellen
 			if (ip != null && subnet != null) {
-				Layer3Interface l3i = new Layer3Interface(name);
+				Layer3Interface l3i = this.register(new Layer3Interface(name));
 				l3i.description = desc;
 				l3i.ip = ip;
 				l3i.subnet = subnet;
 
 				// Assoziation NetworkComponent <-> Layer3Interface
-				this.layer3Interfaces.put(name, l3i);
+				this.layer3Interfaces.put(l3i.key, l3i);
 				l3i.networkComponent = this;
 
 				// Assoziation Aggregator Interface <-> Layer3Interface
-				al2i.layer3Interfaces.put(l3i.name, l3i);
-				l3i.layer2Interfaces.put(al2i.name, al2i);
+				al2i.layer3Interfaces.put(l3i.key, l3i);
+				l3i.layer2Interfaces.put(al2i.key, al2i);
 			}
 
 			count_po++;
@@ -152,37 +225,37 @@ public class NetworkComponent {
 
 			// Vorhandenes Aggregator Interface raussuchen. Setzt voraus, dass Subinterfaces _nicht_ vor dem eigentlichen
 			// Port Channel definiert werden! Sollte aber durch Running Config gegeben sein!
-			Layer2Interface ul2i = this.aggregatorInterfaces.get(name.split(Pattern.quote("."))[0]);
+			Layer2Interface ul2i = this.aggregatorInterfaces.get(InterfaceId.of(name).parent());
 
 			// Neues (Tagged) Interface erstellen
-			Layer2Interface tl2i = new Layer2Interface(name);
-			tl2i.runningConfig = block;
+			Layer2Interface tl2i = this.register(new Layer2Interface(name));
+			this.attachConfig(tl2i, block);
 			tl2i.description = desc;
 			tl2i.interfaceType = int_type;
 			tl2i.addVIDs(vlan_ids);
 
 			// Assoziation NetworkComponent <-> (Tagged) Interface
-			this.layer2Interfaces.put(name, tl2i);
+			this.layer2Interfaces.put(tl2i.key, tl2i);
 			tl2i.networkComponent = this;
 
 			// Assoziation Aggregator Interface <-> (Tagged) Interface
-			ul2i.taggedInterfaces.put(name, tl2i);
+			ul2i.taggedInterfaces.put(tl2i.key, tl2i);
 			tl2i.untaggedInterface = ul2i;
 
 			// Wenn eine IP-Adresse definiert wurde, neues Layer3Interface erstellen
 			if (ip != null && subnet != null) {
-				Layer3Interface l3i = new Layer3Interface(name);
+				Layer3Interface l3i = this.register(new Layer3Interface(name));
 				l3i.description = desc;
 				l3i.ip = ip;
 				l3i.subnet = subnet;
 
 				// Assoziation NetworkComponent <-> Layer3Interface
-				this.layer3Interfaces.put(name, l3i);
+				this.layer3Interfaces.put(l3i.key, l3i);
 				l3i.networkComponent = this;
 
 				// Assoziation (Tagged) Interface <-> Layer3Interface
-				tl2i.layer3Interfaces.put(l3i.name, l3i);
-				l3i.layer2Interfaces.put(tl2i.name, tl2i);
+				tl2i.layer3Interfaces.put(l3i.key, l3i);
+				l3i.layer2Interfaces.put(tl2i.key, tl2i);
 			}
 
 			count_po_subint++;
@@ -196,31 +269,33 @@ public class NetworkComponent {
 			String desc = extractGroup(pattern_int_desc, block, 1);
 			String int_type = extractGroup(pattern_int_vlan, block, 1);
 			List<String> vlan_ids = extractGroups(pattern_int_vlan, block, 2);
+			String native_vlan = extractGroup(pattern_int_native, block, 1);
 			String channelGroup = extractGroup(pattern_int_chgroup, block, 1);
 			String ip = extractGroup(pattern_int_ip_sub, block, 1);
 			String subnet = extractGroup(pattern_int_ip_sub, block, 2);
 
 			// Neues Layer1Interface mit dazugehörigem Layer2Interface erstellen
-			Layer1Interface l1i = new Layer1Interface(name);
-			Layer2Interface sl2i = new Layer2Interface(name);
-			sl2i.runningConfig = block;
+			Layer1Interface l1i = this.register(new Layer1Interface(name));
+			Layer2Interface sl2i = this.register(new Layer2Interface(name));
+			this.attachConfig(sl2i, block);
 			sl2i.description = desc;
 			sl2i.interfaceType = int_type;
 			sl2i.addVIDs(vlan_ids);
+			sl2i.nativeVlan = native_vlan != null ? Integer.parseInt(native_vlan) : -1;
 
 			// Wenn ein Port Channel gefunden wird, vorhandenes Aggregator Interface raussuchen und verlinken
 			if (channelGroup != null) {
 				// Setzt voraus, dass das Aggregation Interface _nicht_ vor dem Aggregator Interface definiert wurde. Sollte
 				// aber in der Running Config gegeben sein.
-				Layer2Interface al2i = this.aggregatorInterfaces.get("port-channel" + channelGroup);
+				Layer2Interface al2i = this.aggregatorInterfaces.get(InterfaceId.of("port-channel" + channelGroup));
 
 				// Assoziation Layer1Interface <-> Aggregator Interface
-				l1i.aggregatorInterfaces.put(al2i.name, al2i);
-				al2i.layer1Interfaces.put(name, l1i);
+				l1i.aggregatorInterfaces.put(al2i.key, al2i);
+				al2i.layer1Interfaces.put(l1i.key, l1i);
 
 				// Assoziation (Aggregation) Layer2Interface <-> Aggregator Interface
 				sl2i.aggregator2Interface = al2i;
-				al2i.aggregationInterfaces.put(name, sl2i);
+				al2i.aggregationInterfaces.put(sl2i.key, sl2i);
 
 				// Annahme: VSL werden nur bei PortChannels definiert!
 				// Somit werden die VSL-Interfaces zwar mit ausgegeben, jedoch findet die Verarbeitung der Links anhand der
@@ -229,37 +304,37 @@ public class NetworkComponent {
 					this.vss = true;
 					al2i.description = "Switch Virtual Link";
 					sl2i.description = "Switch Virtual Link";
-					this.layer1InterfaceFilter.add(name);
+					this.layer1InterfaceFilter.add(l1i.key);
 				}
 			}
 
 			// Assoziation NetworkComponent <-> Layer1Interface
-			this.layer1Interfaces.put(name, l1i);
+			this.layer1Interfaces.put(l1i.key, l1i);
 			l1i.networkComponent = this;
 
 			// Assoziation NetworkComponent <-> (Aggregation) Layer2Interface
-			this.layer2Interfaces.put(name, sl2i);
+			this.layer2Interfaces.put(sl2i.key, sl2i);
 			sl2i.networkComponent = this;
 
 			// Assoziation Layer1Interface <-> (Aggregation) Layer2Interface
-			l1i.layer2Interfaces.put(name, sl2i);
-			sl2i.layer1Interfaces.put(name, l1i);
+			l1i.layer2Interfaces.put(sl2i.key, sl2i);
+			sl2i.layer1Interfaces.put(l1i.key, l1i);
 
 			// Wenn eine IP-Adresse definiert wurde, neues Layer3Interface erstellen. Schließt sich das mit dem Vorhandensein
 			// eines Port Channels (Aggregator) aus?
 			if (ip != null && subnet != null) {
-				Layer3Interface l3i = new Layer3Interface(name);
+				Layer3Interface l3i = this.register(new Layer3Interface(name));
 				l3i.description = desc;
 				l3i.ip = ip;
 				l3i.subnet = subnet;
 
 				// Assoziation NetworkComponent <-> Layer3Interface
-				this.layer3Interfaces.put(name, l3i);
+				this.layer3Interfaces.put(l3i.key, l3i);
 				l3i.networkComponent = this;
 
 				// Assoziation (Aggregation) Layer2Interface <-> Layer3Interface
-				sl2i.layer3Interfaces.put(l3i.name, l3i);
-				l3i.layer2Interfaces.put(sl2i.name, sl2i);
+				sl2i.layer3Interfaces.put(l3i.key, l3i);
+				l3i.layer2Interfaces.put(sl2i.key, sl2i);
 			}
 
 			count_int++;
@@ -278,136 +353,408 @@ public class NetworkComponent {
 
 			// Vorhandenes Layer2Interfaces raussuchen. Setzt voraus, dass Subinterfaces _nicht_ vor dem eigentlichen
 			// Layer2Interface definiert werden! Sollte aber per Cisco Config gegeben sein.
-			Layer2Interface ul2i = this.layer2Interfaces.get(name.split(Pattern.quote("."))[0]);
+			Layer2Interface ul2i = this.layer2Interfaces.get(InterfaceId.of(name).parent());
 
 			// Neues Tagged Interface erstellen
-			Layer2Interface tl2i = new Layer2Interface(name);
-			tl2i.runningConfig = block;
+			Layer2Interface tl2i = this.register(new Layer2Interface(name));
+			this.attachConfig(tl2i, block);
 			tl2i.description = desc;
 			tl2i.interfaceType = int_type;
 			tl2i.addVIDs(vlan_ids);
 
 			// Assoziation NetworkComponent <-> Layer2Interface
-			this.layer2Interfaces.put(name, tl2i);
+			this.layer2Interfaces.put(tl2i.key, tl2i);
 			tl2i.networkComponent = this;
 
 			// Assoziation Layer2Interface <-> Tagged Interface
-			ul2i.taggedInterfaces.put(name, tl2i);
+			ul2i.taggedInterfaces.put(tl2i.key, tl2i);
 			tl2i.untaggedInterface = ul2i;
 
 			// Wenn eine IP-Adresse definiert wurde, neues Layer3Interface erstellen
 			if (ip != null && subnet != null) {
-				Layer3Interface l3i = new Layer3Interface(name);
+				Layer3Interface l3i = this.register(new Layer3Interface(name));
 				l3i.description = desc;
 				l3i.ip = ip;
 				l3i.subnet = subnet;
 
 				// Assoziation NetworkComponent <-> Layer3Interface
-				this.layer3Interfaces.put(name, l3i);
+				this.layer3Interfaces.put(l3i.key, l3i);
 				l3i.networkComponent = this;
 
 				// Assoziation Tagged Interface <-> Layer3Interface
-				tl2i.layer3Interfaces.put(l3i.name, l3i);
-				l3i.layer2Interfaces.put(tl2i.name, tl2i);
+				tl2i.layer3Interfaces.put(l3i.key, l3i);
+				l3i.layer2Interfaces.put(tl2i.key, tl2i);
 			}
 
 			count_int_subint++;
 		}
 
-		// Statistik ausgeben
-		System.out.println("Hostname: " + this.name + (this.vss ? " - Virtual Switching System (VSS) detected!" : ""));
-		System.out.println("> Interfaces found:\t" + count_int);
-		System.out.println("> Subinterfaces found:\t" + count_int_subint);
-		System.out.println("> Port-Channels found:\t" + count_po);
-		System.out.println("> PO-Subinterf. found:\t" + count_po_subint);
-		System.out.println();
+		// Im sparsamen Modus wird der Text der Running Config nicht mehr benötigt
+		if (this.lean) {
+			this.runningConfig.release();
+		}
+
+		// Statistik in einem Aufruf ausgeben, damit sie beim parallelen Einlesen (siehe ArchiveReader) zusammenhängend bleibt
+		if (!verbose) {
+			return;
+		}
+		System.out.println("Hostname: " + this.name + (this.vss ? " - Virtual Switching System (VSS) detected!" : "") + "\n"
+				+ "> Interfaces found:\t" + count_int + "\n" + "> Subinterfaces found:\t" + count_int_subint + "\n"
+				+ "> Port-Channels found:\t" + count_po + "\n" + "> PO-Subinterf. found:\t" + count_po_subint + "\n");
 	}
 
 	/**
-	 * Gibt die SOIL-Repräsentation der Netzkomponente als Liste von Strings zurück. Bei der Verarbeitung kommt es auf die
-	 * richtige Reihenfolge der Ausgabe an, da die Assoziationen sonst nicht richtig gesetzt werden können. So muss
-	 * beispielweise ein Aggregator Interface immer vor seinen Aggregation Interfaces definiert werden.
+	 * Verknüpft ein Layer2Interface mit seinem Block der Running Config. Im sparsamen Modus wird dabei nur die Position des
+	 * Blocks gespeichert (sofern bekannt), ansonsten der Text selbst. Der Fingerabdruck des Blocks wird in beiden Fällen sofort berechnet,
+	 * solange der Text noch vorliegt.
 	 * 
-	 * @return SOIL-Repräsentation als Liste von Strings
+	 * @param layer2Interface
+	 *            Interface, zu dem der Block gehört
+	 * @param block
+	 *            Block der Running Config (siehe JCiscoConfParse)
 	 */
-	public List<String> getClassSOIL() {
-		List<String> result = new ArrayList<String>();
-		List<Layer1Interface> layer1InterfacesFiltered = new ArrayList<>();
-		Set<Layer2Interface> portChannelsFiltered = new HashSet<>();
+	private void attachConfig(Layer2Interface layer2Interface, List<String> block) {
+		layer2Interface.configFingerprint = ConfigFingerprint.of(block);
+		if (this.lean) {
+			layer2Interface.configBlock = this.runningConfig.locate(block);
+		}
+		if (layer2Interface.configBlock == null) {
+			layer2Interface.runningConfig = block;
+		}
+	}
 
-		// Relevante Layer1Interfaces filtern. Leere Filterliste heißt "zeige alle Interfaces".
-		if (this.layer1InterfaceFilter.isEmpty()) {
-			layer1InterfacesFiltered = new ArrayList<>(this.layer1Interfaces.values());
+	/**
+	 * Vergibt die nächste freie ID an das Layer1Interface und legt es in der Zeilentabelle ab.
+	 * 
+	 * @param layer1Interface
+	 *            Neu erstelltes Interface
+	 * @return Das übergebene Interface
+	 */
+	private Layer1Interface register(Layer1Interface layer1Interface) {
+		layer1Interface.id = this.layer1Rows.size();
+		this.layer1Rows.add(layer1Interface);
+		return layer1Interface;
+	}
+
+	/**
+	 * Vergibt die nächste freie ID an das Layer2Interface und legt es in der Zeilentabelle ab.
+	 * 
+	 * @param layer2Interface
+	 *            Neu erstelltes Interface
+	 * @return Das übergebene Interface
+	 */
+	private Layer2Interface register(Layer2Interface layer2Interface) {
+		layer2Interface.id = this.layer2Rows.size();
+		this.layer2Rows.add(layer2Interface);
+		return layer2Interface;
+	}
+
+	/**
+	 * Vergibt die nächste freie ID an das Layer3Interface und legt es in der Zeilentabelle ab.
+	 * 
+	 * @param layer3Interface
+	 *            Neu erstelltes Interface
+	 * @return Das übergebene Interface
+	 */
+	private Layer3Interface register(Layer3Interface layer3Interface) {
+		layer3Interface.id = this.layer3Rows.size();
+		this.layer3Rows.add(layer3Interface);
+		return layer3Interface;
+	}
+
+	/**
+	 * Erstellt eine Kopie der Netzkomponente mit allen Interfaces und deren Assoziationen untereinander, ohne die Running
+	 * Config erneut zu parsen. Der Zustand der Korrelation (Layer1Links, Layer2Links und verschmolzene Interfaces) wird nicht
+	 * kopiert, sodass die Kopie in einer neuen Topologie verwendet werden kann. Die Texte der Running Config und die
+	 * CDP-Informationen werden nur gelesen und daher geteilt.
+	 * 
+	 * Sinnvoll ist das nur für Netzkomponenten, die noch nicht Teil einer Topologie waren (z.B. als Vorlage im Watch Mode),
+	 * da ansonsten auch die Interfaces aus den CDP-Informationen im Filter stehen.
+	 * 
+	 * @return Unverknüpfte Kopie der Netzkomponente
+	 */
+	public NetworkComponent copy() {
+		return this.copy(false);
+	}
+
+	/**
+	 * Erstellt eine Zusammenfassung der Netzkomponente, die nur noch enthält, was für die Korrelation benötigt wird: Die
+	 * Layer1- und Layer2Interfaces mit Typ, VLAN-IDs, LAG- und vPC-Zugehörigkeit sowie die CDP-Informationen. Ohne Running
+	 * Config, Beschreibungen und Layer3Interfaces lässt sich die Zusammenfassung zwar korrelieren, aber nicht ausgeben (siehe
+	 * BatchPipeline).
+	 * 
+	 * @return Unverknüpfte Zusammenfassung der Netzkomponente
+	 */
+	public NetworkComponent summarize() {
+		return this.copy(true);
+	}
+
+	/**
+	 * Erstellt eine Kopie oder Zusammenfassung der Netzkomponente (siehe copy() und summarize()).
+	 * 
+	 * @param summary
+	 *            true, sofern Running Config, Beschreibungen und Layer3Interfaces ausgelassen werden sollen
+	 * @return Unverknüpfte Kopie der Netzkomponente
+	 */
+	private NetworkComponent copy(boolean summary) {
+		NetworkComponent result = new NetworkComponent();
+		result.name = this.name;
+		result.vss = this.vss;
+		result.lean = this.lean || summary;
+		result.runningConfig = summary ? null : this.runningConfig;
+		result.cdpResult = this.cdpResult;
+		result.layer1InterfaceFilter.addAll(this.layer1InterfaceFilter);
+		List<Layer3Interface> layer3Rows = summary ? Collections.emptyList() : this.layer3Rows;
+
+		// Interfaces in derselben Reihenfolge anlegen, sodass die IDs der Kopie denen des Originals entsprechen
+		for (Layer1Interface layer1Interface : this.layer1Rows) {
+			Layer1Interface l1i = result.register(new Layer1Interface(layer1Interface.name));
+			l1i.networkComponent = result;
+		}
+		for (Layer2Interface layer2Interface : this.layer2Rows) {
+			Layer2Interface l2i = result.register(new Layer2Interface(layer2Interface.name));
+			l2i.interfaceType = layer2Interface.interfaceType;
+			l2i.vpc = layer2Interface.vpc;
+			l2i.peerLink = layer2Interface.peerLink;
+			l2i.vsl = layer2Interface.vsl;
+			l2i.vlanIDs = layer2Interface.vlanIDs == null ? null : (BitSet) layer2Interface.vlanIDs.clone();
+			l2i.nativeVlan = layer2Interface.nativeVlan;
+			l2i.configFingerprint = layer2Interface.configFingerprint;
+			l2i.networkComponent = result;
+			if (!summary) {
+				l2i.description = layer2Interface.description;
+				l2i.runningConfig = layer2Interface.runningConfig;
+				l2i.configBlock = layer2Interface.configBlock;
+			}
+		}
+		for (Layer3Interface layer3Interface : layer3Rows) {
+			Layer3Interface l3i = result.register(new Layer3Interface(layer3Interface.name));
+			l3i.description = layer3Interface.description;
+			l3i.ip = layer3Interface.ip;
+			l3i.subnet = layer3Interface.subnet;
+			l3i.networkComponent = result;
+		}
+
+		// Assoziationen über die IDs auf die Interfaces der Kopie übertragen
+		copyRows(this.layer1Interfaces, result.layer1Interfaces, result.layer1Rows);
+		copyRows(this.layer2Interfaces, result.layer2Interfaces, result.layer2Rows);
+		copyRows(this.aggregatorInterfaces, result.aggregatorInterfaces, result.layer2Rows);
+		if (!summary) {
+			copyRows(this.layer3Interfaces, result.layer3Interfaces, result.layer3Rows);
+		}
+
+		for (Layer1Interface layer1Interface : this.layer1Rows) {
+			Layer1Interface l1i = result.layer1Rows.get(layer1Interface.id);
+			copyRows(layer1Interface.layer2Interfaces, l1i.layer2Interfaces, result.layer2Rows);
+			copyRows(layer1Interface.aggregatorInterfaces, l1i.aggregatorInterfaces, result.layer2Rows);
+		}
+		for (Layer2Interface layer2Interface : this.layer2Rows) {
+			Layer2Interface l2i = result.layer2Rows.get(layer2Interface.id);
+			copyRows(layer2Interface.layer1Interfaces, l2i.layer1Interfaces, result.layer1Rows);
+			copyRows(layer2Interface.taggedInterfaces, l2i.taggedInterfaces, result.layer2Rows);
+			copyRows(layer2Interface.aggregationInterfaces, l2i.aggregationInterfaces, result.layer2Rows);
+			if (!summary) {
+				copyRows(layer2Interface.layer3Interfaces, l2i.layer3Interfaces, result.layer3Rows);
+			}
+
+			if (layer2Interface.untaggedInterface != null) {
+				l2i.untaggedInterface = result.layer2Rows.get(layer2Interface.untaggedInterface.id);
+			}
+			if (layer2Interface.aggregator2Interface != null) {
+				l2i.aggregator2Interface = result.layer2Rows.get(layer2Interface.aggregator2Interface.id);
+			}
+		}
+		for (Layer3Interface layer3Interface : layer3Rows) {
+			Layer3Interface l3i = result.layer3Rows.get(layer3Interface.id);
+			copyRows(layer3Interface.layer2Interfaces, l3i.layer2Interfaces, result.layer2Rows);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Überträgt die Einträge einer Map von Interfaces auf die Interfaces mit derselben ID aus der Zeilentabelle einer Kopie.
+	 * 
+	 * @param source
+	 *            Map des Originals
+	 * @param target
+	 *            Map der Kopie
+	 * @param rows
+	 *            Zeilentabelle der Kopie
+	 */
+	private static <T> void copyRows(Map<InterfaceId, T> source, Map<InterfaceId, T> target, List<T> rows) {
+		for (Map.Entry<InterfaceId, T> entry : source.entrySet()) {
+			target.put(entry.getKey(), rows.get(rowId(entry.getValue())));
+		}
+	}
+
+	/**
+	 * Gibt die ID (Position in der Zeilentabelle) eines beliebigen Interfaces zurück.
+	 * 
+	 * @param row
+	 *            Layer1-, Layer2- oder Layer3Interface
+	 * @return ID des Interfaces
+	 */
+	private static int rowId(Object row) {
+		if (row instanceof Layer1Interface) {
+			return ((Layer1Interface) row).id;
+		} else if (row instanceof Layer2Interface) {
+			return ((Layer2Interface) row).id;
 		} else {
-			for (String interfaceName : this.layer1InterfaceFilter) {
-				Layer1Interface layer1Interface = this.layer1Interfaces.get(interfaceName);
+			return ((Layer3Interface) row).id;
+		}
+	}
 
-				if (layer1Interface != null) {
-					layer1InterfacesFiltered.add(layer1Interface);
-				}
+	/**
+	 * Friert die Netzkomponente nach der Korrelation ein (siehe Topology). Alle Maps und Listen der Netzkomponente und ihrer
+	 * Interfaces sind danach nur noch lesbar, sodass die Netzkomponente gefahrlos von mehreren Durchläufen gleichzeitig
+	 * verwendet werden kann.
+	 */
+	void freeze() {
+		this.layer1InterfaceFilter = Collections.unmodifiableList(this.layer1InterfaceFilter);
+		this.layer1Interfaces = Collections.unmodifiableMap(this.layer1Interfaces);
+		this.layer2Interfaces = Collections.unmodifiableMap(this.layer2Interfaces);
+		this.aggregatorInterfaces = Collections.unmodifiableMap(this.aggregatorInterfaces);
+		this.layer3Interfaces = Collections.unmodifiableMap(this.layer3Interfaces);
+		this.layer1Rows = Collections.unmodifiableList(this.layer1Rows);
+		this.layer2Rows = Collections.unmodifiableList(this.layer2Rows);
+		this.layer3Rows = Collections.unmodifiableList(this.layer3Rows);
+
+		for (Layer1Interface layer1Interface : this.layer1Rows) {
+			layer1Interface.freeze();
+		}
+		for (Layer2Interface layer2Interface : this.layer2Rows) {
+			layer2Interface.freeze();
+		}
+		for (Layer3Interface layer3Interface : this.layer3Rows) {
+			layer3Interface.freeze();
+		}
+	}
+
+	/**
+	 * Gibt die Layer1Interfaces zurück, die ausgegeben werden sollen (siehe layer1InterfaceFilter). Leere Filterliste heißt
+	 * "zeige alle Interfaces".
+	 * 
+	 * @return Gefilterte Layer1Interfaces
+	 */
+	public List<Layer1Interface> getFilteredLayer1Interfaces() {
+		if (this.layer1InterfaceFilter.isEmpty()) {
+			return new ArrayList<>(this.layer1Interfaces.values());
+		}
+
+		List<Layer1Interface> result = new ArrayList<>();
+		for (InterfaceId interfaceId : this.layer1InterfaceFilter) {
+			Layer1Interface layer1Interface = this.layer1Interfaces.get(interfaceId);
+
+			if (layer1Interface != null) {
+				result.add(layer1Interface);
 			}
 		}
 
-		// Relevante Port Channels (Aggregator) filtern. das Set verhindert doppelte Elemente!
-		for (Layer1Interface layer1Interface : layer1InterfacesFiltered) {
-			portChannelsFiltered.addAll(layer1Interface.aggregatorInterfaces.values());
+		return result;
+	}
+
+	/**
+	 * Gibt die Aggregator Interfaces (Port Channels) der gefilterten Layer1Interfaces zurück. Das Set verhindert doppelte
+	 * Elemente! Die Reihenfolge entspricht der der gefilterten Layer1Interfaces, sodass die SOIL-Ausgabe bei jedem Lauf
+	 * gleich ist (Layer2Interfaces haben keinen eigenen Hashcode).
+	 * 
+	 * @return Gefilterte Aggregator Interfaces
+	 */
+	public Set<Layer2Interface> getFilteredAggregatorInterfaces() {
+		Set<Layer2Interface> result = new LinkedHashSet<>();
+
+		for (Layer1Interface layer1Interface : this.getFilteredLayer1Interfaces()) {
+			result.addAll(layer1Interface.aggregatorInterfaces.values());
 		}
 
-		int count_l1_int = 0;
-		int count_l2_int = 0;
-		int count_l2_agg_int = 0;
-		int count_l2_tag_int = 0;
-		int count_l3_int = 0;
+		return result;
+	}
+
+	/**
+	 * Gibt die SOIL-Repräsentation der Netzkomponente als Liste von Strings zurück. Bei der Verarbeitung kommt es auf die
+	 * richtige Reihenfolge der Ausgabe an, da die Assoziationen sonst nicht richtig gesetzt werden können. So muss
+	 * beispielweise ein Aggregator Interface immer vor seinen Aggregation Interfaces definiert werden. Die Reihenfolge ergibt
+	 * sich aus dem Durchlauf von accept().
+	 * 
+	 * Verschmolzene Interfaces (siehe Layer2Interface.mergedInterface) werden nur einmal erstellt und danach per OCL
+	 * referenziert. Welche Interfaces referenziert werden, ist vorab in "mergedReferences" festgelegt (siehe Topology), sodass
+	 * die Ausgabe nicht von anderen Netzkomponenten abhängt und parallel erfolgen kann.
+	 * 
+	 * @param mergedReferences
+	 *            Verschmolzene Interfaces, die nicht erstellt, sondern auf ihren Partner verweisen sollen
+	 * @return SOIL-Repräsentation als Liste von Strings
+	 */
+	public List<String> getClassSOIL(Map<Layer2Interface, Layer2Interface> mergedReferences) {
+		return this.getClassSOIL(mergedReferences, System.out::println);
+	}
+
+	/**
+	 * Wie getClassSOIL(), übergibt die Statistik der Ausgabe aber an den angegebenen Consumer, statt sie auszugeben (siehe
+	 * SOILFragmentCache).
+	 * 
+	 * @param mergedReferences
+	 *            Verschmolzene Interfaces, die nicht erstellt, sondern auf ihren Partner verweisen sollen
+	 * @param statistics
+	 *            Consumer, der die Statistik als einen einzigen String erhält
+	 * @return SOIL-Repräsentation als Liste von Strings
+	 */
+	public List<String> getClassSOIL(Map<Layer2Interface, Layer2Interface> mergedReferences,
+			Consumer<String> statistics) {
+		List<String> result = new ArrayList<String>();
+		SOILVisitor visitor = new SOILVisitor(mergedReferences, result::add);
+
+		this.accept(visitor);
+
+		// Statistik in einem Aufruf übergeben, damit sich die Ausgaben paralleler Netzkomponenten nicht vermischen
+		statistics.accept("NetworkComponent: " + this.name + (this.vss ? " (VSS!)" : "") + "\n"
+				+ "Layer1Interfaces created: " + visitor.count_l1_int + "\n"
+				+ "Layer2Interfaces created: " + visitor.count_l2_int + "\n"
+				+ "Layer2Interfaces (Agg.) created: " + visitor.count_l2_agg_int + "\n"
+				+ "Layer2Interfaces (Tag.) created: " + visitor.count_l2_tag_int + "\n"
+				+ "Layer3Interfaces created: " + visitor.count_l3_int + "\n");
 
-		result.add("!nc := new NetworkComponent");
-		result.add("!nc.name := '" + this.name + "'");
-		result.add("");
+		return result;
+	}
+
+	/**
+	 * Durchläuft die gefilterten Interfaces der Netzkomponente in der Reihenfolge der SOIL-Ausgabe und übergibt sie an den
+	 * Besucher: Zunächst alle Aggregator Interfaces mit ihren Layer3-, Tagged- und Layer1Interfaces (inkl. Aggregation
+	 * Interfaces), danach die übrigen Layer1Interfaces. Jeder Aufruf verwendet eigene Markierungen und kann daher beliebig
+	 * oft (auch parallel) erfolgen.
+	 * 
+	 * @param visitor
+	 *            Besucher, der die Interfaces verarbeitet
+	 */
+	public void accept(TopologyVisitor visitor) {
+		List<Layer1Interface> layer1InterfacesFiltered = this.getFilteredLayer1Interfaces();
+		Set<Layer2Interface> portChannelsFiltered = this.getFilteredAggregatorInterfaces();
+		InterfaceMarks visited = new InterfaceMarks();
+
+		visitor.visitNetworkComponent(this);
 
 		// Zunächst alle Aggregator Interfaces mit dazugehörigen Layer1Interface und Aggregation Interfaces verarbeiten
 		for (Layer2Interface aggregatorInterface : portChannelsFiltered) {
-			count_l2_agg_int++;
-			result.addAll(aggregatorInterface.getSOIL());
-			result.add("!insert (nc, al2i) into HasInterfaces");
-			result.add("");
+			visitor.visitAggregatorInterface(aggregatorInterface);
 
 			for (Layer3Interface layer3Interface : aggregatorInterface.layer3Interfaces.values()) {
-				count_l3_int++;
-				result.addAll(layer3Interface.getSOIL());
-				result.add("!insert (nc, l3i) into HasInterfaces");
-				result.add("!insert (l3i, al2i) into DependsOnLayer2Interfaces");
-				result.add("");
+				visitor.visitLayer3Interface(layer3Interface, aggregatorInterface);
 			}
 
 			for (Layer2Interface taggedInterface : aggregatorInterface.taggedInterfaces.values()) {
-				count_l2_tag_int++;
-				result.addAll(taggedInterface.getSOIL());
-				result.add("!insert (nc, tl2i) into HasInterfaces");
-				result.add("!insert (tl2i, al2i) into DependsOnUntaggedDot1QInterface");
-				result.add("");
+				visitor.visitTaggedInterface(taggedInterface, aggregatorInterface);
 
 				for (Layer3Interface layer3Interface : taggedInterface.layer3Interfaces.values()) {
-					count_l3_int++;
-					result.addAll(layer3Interface.getSOIL());
-					result.add("!insert (nc, l3i) into HasInterfaces");
-					result.add("!insert (l3i, tl2i) into DependsOnLayer2Interfaces");
-					result.add("");
+					visitor.visitLayer3Interface(layer3Interface, taggedInterface);
 				}
 			}
 
 			for (Layer1Interface layer1Interface : aggregatorInterface.layer1Interfaces.values()) {
-				count_l1_int++;
-				layer1Interface.soilProcessed = true;
-				result.addAll(layer1Interface.getSOIL());
-				result.add("!insert (nc, l1i) into HasInterfaces");
-				result.add("");
+				visited.mark(layer1Interface);
+				visitor.visitLayer1Interface(layer1Interface);
 
 				for (Layer2Interface layer2Interface : layer1Interface.layer2Interfaces.values()) {
-					count_l2_int++;
-					result.addAll(layer2Interface.getSOIL());
-					result.add("!insert (nc, sl2i) into HasInterfaces");
-					result.add("!insert (sl2i, l1i) into DependsOnLayer1Interface");
-					result.add("!insert (al2i, sl2i) into HasAggregationLayer2Interfaces");
-					result.add("");
+					visitor.visitLayer2Interface(layer2Interface, layer1Interface, aggregatorInterface);
 
 					// Layer3Interfaces müssen an dieser Stelle nicht beachtet werden, da es sich bei den Layer2Interfaces um
 					// "UntaggedDot1QInterfaces"(siehe Topologiemodell) handeln muss, die keine L3I assoziiert haben dürften.
@@ -417,57 +764,25 @@ public class NetworkComponent {
 
 		// Restliche Layer1Interfaces verarbeiten, die kein LAG haben und demnach noch nicht verarbeitet wurden
 		for (Layer1Interface layer1Interface : layer1InterfacesFiltered) {
-			if (!layer1Interface.soilProcessed) {
-				count_l1_int++;
-				result.addAll(layer1Interface.getSOIL());
-				result.add("!insert (nc, l1i) into HasInterfaces");
-				result.add("");
+			if (visited.mark(layer1Interface)) {
+				visitor.visitLayer1Interface(layer1Interface);
 
 				for (Layer2Interface layer2Interface : layer1Interface.layer2Interfaces.values()) {
-					count_l2_int++;
-					result.addAll(layer2Interface.getSOIL());
-					result.add("!insert (nc, sl2i) into HasInterfaces");
-					result.add("!insert (sl2i, l1i) into DependsOnLayer1Interface");
-					result.add("");
+					visitor.visitLayer2Interface(layer2Interface, layer1Interface, null);
 
 					for (Layer3Interface layer3Interface : layer2Interface.layer3Interfaces.values()) {
-						count_l3_int++;
-						result.addAll(layer3Interface.getSOIL());
-						result.add("!insert (nc, l3i) into HasInterfaces");
-						result.add("!insert (l3i, sl2i) into DependsOnLayer2Interfaces");
-						result.add("");
+						visitor.visitLayer3Interface(layer3Interface, layer2Interface);
 					}
 
 					for (Layer2Interface taggedInterface : layer2Interface.taggedInterfaces.values()) {
-						count_l2_tag_int++;
-						result.addAll(taggedInterface.getSOIL());
-						result.add("!insert (nc, tl2i) into HasInterfaces");
-						result.add("!insert (tl2i, sl2i) into DependsOnUntaggedDot1QInterface");
-						result.add("");
+						visitor.visitTaggedInterface(taggedInterface, layer2Interface);
 
 						for (Layer3Interface layer3Interface : taggedInterface.layer3Interfaces.values()) {
-							count_l3_int++;
-							result.addAll(layer3Interface.getSOIL());
-							result.add("!insert (nc, l3i) into HasInterfaces");
-							result.add("!insert (l3i, tl2i) into DependsOnLayer2Interfaces");
-							result.add("");
+							visitor.visitLayer3Interface(layer3Interface, taggedInterface);
 						}
 					}
 				}
 			}
-
-			// Verarbeitungsflag wieder zurücksetzen. Spart eine Schleife am Ende!
-			layer1Interface.soilProcessed = false;
 		}
-
-		System.out.println("NetworkComponent: " + this.name + (this.vss ? " (VSS!)" : ""));
-		System.out.println("Layer1Interfaces created: " + count_l1_int);
-		System.out.println("Layer2Interfaces created: " + count_l2_int);
-		System.out.println("Layer2Interfaces (Agg.) created: " + count_l2_agg_int);
-		System.out.println("Layer2Interfaces (Tag.) created: " + count_l2_tag_int);
-		System.out.println("Layer3Interfaces created: " + count_l3_int);
-		System.out.println();
-
-		return result;
 	}
 }
@@ -0,0 +1,154 @@
+package de.masterarbeit.modell;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Erzeugt beim Durchlauf über die Topologie (siehe TopologyVisitor) die SOIL-Ausgabe und übergibt sie zeilenweise an
+ * einen Consumer (z.B. eine Liste oder einen Writer). Die Ausgabe entspricht der bisherigen Ausgabe von getClassSOIL()
+ * und getLinkSOIL().
+ * 
+ * Die SOIL-Variablen der Layer2Interfaces ergeben sich aus ihrer Rolle: Aggregator Interfaces sind "al2i", Tagged
+ * Interfaces (mit Untagged Interface) sind "tl2i" und alle übrigen Layer2Interfaces sind "sl2i".
+ * 
+ * @author Marcel Schuster
+ *
+ */
+public class SOILVisitor implements TopologyVisitor {
+	private final Map<Layer2Interface, Layer2Interface> mergedReferences;
+	private final Consumer<String> output;
+
+	// Counter für die Statistik (siehe NetworkComponent.getClassSOIL())
+	public int count_l1_int = 0;
+	public int count_l2_int = 0;
+	public int count_l2_agg_int = 0;
+	public int count_l2_tag_int = 0;
+	public int count_l3_int = 0;
+
+	/**
+	 * Konstruktor.
+	 * 
+	 * @param mergedReferences
+	 *            Verschmolzene Interfaces, die nicht erstellt, sondern auf ihren Partner verweisen sollen
+	 * @param output
+	 *            Empfänger der SOIL-Zeilen
+	 */
+	public SOILVisitor(Map<Layer2Interface, Layer2Interface> mergedReferences, Consumer<String> output) {
+		this.mergedReferences = mergedReferences;
+		this.output = output;
+	}
+
+	@Override
+	public void visitNetworkComponent(NetworkComponent networkComponent) {
+		this.output.accept("!nc := new NetworkComponent");
+		this.output.accept("!nc.name := '" + networkComponent.name + "'");
+		this.output.accept("");
+	}
+
+	@Override
+	public void visitAggregatorInterface(Layer2Interface aggregatorInterface) {
+		this.count_l2_agg_int++;
+		this.addAll(aggregatorInterface.getSOIL(this.mergedReferences));
+		this.output.accept("!insert (nc, al2i) into HasInterfaces");
+		this.output.accept("");
+	}
+
+	@Override
+	public void visitLayer3Interface(Layer3Interface layer3Interface, Layer2Interface layer2Interface) {
+		this.count_l3_int++;
+		this.addAll(layer3Interface.getSOIL());
+		this.output.accept("!insert (nc, l3i) into HasInterfaces");
+		this.output.accept("!insert (l3i, " + this.getVariable(layer2Interface) + ") into DependsOnLayer2Interfaces");
+		this.output.accept("");
+	}
+
+	@Override
+	public void visitTaggedInterface(Layer2Interface taggedInterface, Layer2Interface untaggedInterface) {
+		this.count_l2_tag_int++;
+		this.addAll(taggedInterface.getSOIL(this.mergedReferences));
+		this.output.accept("!insert (nc, tl2i) into HasInterfaces");
+		this.output.accept(
+				"!insert (tl2i, " + this.getVariable(untaggedInterface) + ") into DependsOnUntaggedDot1QInterface");
+		this.output.accept("");
+	}
+
+	@Override
+	public void visitLayer1Interface(Layer1Interface layer1Interface) {
+		this.count_l1_int++;
+		this.addAll(layer1Interface.getSOIL());
+		this.output.accept("!insert (nc, l1i) into HasInterfaces");
+		this.output.accept("");
+	}
+
+	@Override
+	public void visitLayer2Interface(Layer2Interface layer2Interface, Layer1Interface layer1Interface,
+			Layer2Interface aggregatorInterface) {
+		this.count_l2_int++;
+		this.addAll(layer2Interface.getSOIL(this.mergedReferences));
+		this.output.accept("!insert (nc, sl2i) into HasInterfaces");
+		this.output.accept("!insert (sl2i, l1i) into DependsOnLayer1Interface");
+		if (aggregatorInterface != null) {
+			this.output.accept("!insert (al2i, sl2i) into HasAggregationLayer2Interfaces");
+		}
+		this.output.accept("");
+	}
+
+	@Override
+	public void visitLayer1Link(Layer1Interface srcL1Int, Layer1Interface dstL1Int) {
+		this.output.accept("!l1l := new Layer1Link");
+		this.output.accept("!i1 := NetworkComponent.allInstances()->any(p | p.name = '" + srcL1Int.networkComponent.name
+				+ "').getLayer1Interfaces()->any(i | i.name='" + srcL1Int.name + "')");
+		this.output.accept("!i2 := NetworkComponent.allInstances()->any(p | p.name = '" + dstL1Int.networkComponent.name
+				+ "').getLayer1Interfaces()->any(i | i.name='" + dstL1Int.name + "')");
+		this.output.accept("!insert (i1, l1l) into HasLayer1Link");
+		this.output.accept("!insert (i2, l1l) into HasLayer1Link");
+		this.output.accept("");
+	}
+
+	@Override
+	public void visitLayer2Link(Layer2Interface srcL2Int, Layer2Interface dstL2Int) {
+		this.output.accept("!l2l := new Layer2Link");
+
+		// Peer Links gesondert markieren
+		if (srcL2Int.peerLink != null && dstL2Int.peerLink != null) {
+			this.output.accept("!l2l.peerLink := true");
+		}
+
+		this.output.accept("!i1 := NetworkComponent.allInstances()->any(p | p.name = '" + srcL2Int.networkComponent.name
+				+ "').getLayer2Interfaces()->any(i | i.name='" + srcL2Int.name + "')");
+		this.output.accept("!i2 := NetworkComponent.allInstances()->any(p | p.name = '" + dstL2Int.networkComponent.name
+				+ "').getLayer2Interfaces()->any(i | i.name='" + dstL2Int.name + "')");
+		this.output.accept("!insert (i1, l2l) into HasLayer2Links");
+		this.output.accept("!insert (i2, l2l) into HasLayer2Links");
+		this.output.accept("");
+	}
+
+	/**
+	 * Gibt die SOIL-Variable eines Layer2Interfaces anhand seiner Rolle zurück.
+	 * 
+	 * @param layer2Interface
+	 *            Layer2Interface
+	 * @return "al2i", "tl2i" oder "sl2i"
+	 */
+	private String getVariable(Layer2Interface layer2Interface) {
+		if (layer2Interface.untaggedInterface != null) {
+			return "tl2i";
+		} else if (!layer2Interface.aggregationInterfaces.isEmpty()) {
+			return "al2i";
+		}
+
+		return "sl2i";
+	}
+
+	/**
+	 * Übergibt mehrere Zeilen an den Empfänger.
+	 * 
+	 * @param lines
+	 *            Zeilen
+	 */
+	private void addAll(Iterable<String> lines) {
+		for (String line : lines) {
+			this.output.accept(line);
+		}
+	}
+}
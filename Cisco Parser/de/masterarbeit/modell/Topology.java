@@ -0,0 +1,375 @@
+package de.masterarbeit.modell;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static de.masterarbeit.toolbox.Toolbox.*;
+
+/**
+ * Geparste und korrelierte Netztopologie. Bei Initialisierung werden die Links anhand der CDP-Informationen erstellt und die
+ * LAGs verschmolzen (bisher Schritt 1 und 2 der Main). Anschließend wird das Modell eingefroren (siehe
+ * NetworkComponent.freeze()) und ändert sich nicht mehr.
+ * 
+ * Der Verarbeitungszustand der Ausgaben wird nicht mehr am Modell gespeichert, sondern in InterfaceMarks, die pro Durchlauf
+ * erstellt werden. Dadurch können mehrere Ausgaben (SOIL, Properties, Analysen, ...) nacheinander oder auch gleichzeitig
+ * über dieselbe Topologie laufen, ohne erneut parsen zu müssen.
+ * 
+ * Achtung: Die Attribute der Modellklassen sind weiterhin öffentlich. Nach der Erstellung der Topologie dürfen sie nicht
+ * mehr verändert werden!
+ * 
+ * @author Marcel Schuster
+ *
+ */
+public class Topology {
+	public final List<NetworkComponent> networkComponents;
+	public final int layer1LinkCount;
+	public final int layer2LinkCount;
+
+	// Verschmolzene Interfaces, die in der SOIL-Ausgabe nicht erstellt werden, sondern auf ihren Partner verweisen
+	public final Map<Layer2Interface, Layer2Interface> mergedReferences;
+
+	/**
+	 * Konstruktor, der die Links zwischen den Netzkomponenten erstellt, die LAGs verschmilzt und das Modell anschließend
+	 * einfriert.
+	 * 
+	 * @param networkComponents
+	 *            Geparste Netzkomponenten (mit CDP-Informationen)
+	 */
+	public Topology(List<NetworkComponent> networkComponents) {
+		this.networkComponents = Collections.unmodifiableList(new ArrayList<>(networkComponents));
+
+		int[] linkCounts = this.processLinks();
+		this.layer1LinkCount = linkCounts[0];
+		this.layer2LinkCount = linkCounts[1];
+		this.mergeInterfaces();
+
+		for (NetworkComponent networkComponent : this.networkComponents) {
+			networkComponent.freeze();
+		}
+
+		this.mergedReferences = Collections.unmodifiableMap(this.findMergedReferences());
+	}
+
+	/**
+	 * Interfaces aus den CDP Informationen herausfinden, die für die Verbindung der Komponenten untereinander verantwortlich
+	 * sind und Links für Layer1- und Layer2Interfaces erstellen. Die Verarbeitung passiert auf Grundlage der
+	 * CDP-Informationen. Daher werden die VSL-Interfaces zwar mit ausgegeben, jedoch wird dafür die Link-Verarbeitung nicht
+	 * durchgeführt.
+	 * 
+	 * @return Anzahl der erstellten Layer1Links und Layer2Links
+	 */
+	private int[] processLinks() {
+		InterfaceMarks linked = new InterfaceMarks();
+		int count_l1_links = 0;
+		int count_l2_links = 0;
+
+		for (NetworkComponent srcNC : this.networkComponents) {
+			for (NetworkComponent dstNC : this.networkComponents) {
+				List<List<String>> neighbors = srcNC.cdpResult.findNeighbors("^.*(" + dstNC.name + ").*$");
+				Map<InterfaceId, InterfaceId> interfaces = getInterfaceNamesToNeighbors(srcNC.cdpResult, neighbors);
+
+				// Filter auf Basis der CDP Informationen füllen (Interfaces für Kommunikation untereinander)
+				srcNC.layer1InterfaceFilter.addAll(interfaces.keySet());
+
+				// Layer1Links verarbeiten (Layer1Interfaces verknüpfen)
+				for (Map.Entry<InterfaceId, InterfaceId> i : interfaces.entrySet()) {
+					Layer1Interface srcL1Int = srcNC.layer1Interfaces.get(i.getKey());
+					Layer1Interface dstL1Int = dstNC.layer1Interfaces.get(i.getValue());
+
+					// Prüfung, ob Link bereits existiert (verhindert doppelte Verarbeitung)
+					if (srcL1Int != null && dstL1Int != null && !linked.isMarked(srcL1Int) && !linked.isMarked(dstL1Int)) {
+						// Layer1Interfaces verlinken
+						srcL1Int.layer1LinkTo = dstL1Int;
+						dstL1Int.layer1LinkTo = srcL1Int;
+
+						// Layer1Interfaces als verarbeitet markieren
+						linked.mark(srcL1Int);
+						linked.mark(dstL1Int);
+						count_l1_links++;
+
+						// Verknüpfung der Layer2Links auf Grundlage der zuvor erstellten Layer1Links Alle Layer2Interfaces
+						// abrufen in logisch-chronologischer Reihenfolge
+						for (Layer2Interface srcL2Int : srcL1Int.getAllLayer2Interfaces()) {
+							for (Layer2Interface dstL2Int : dstL1Int.getAllLayer2Interfaces()) {
+
+								// Wenn Layer2Interfaces noch nicht verarbeitet und VLANs sich überschneiden ODER beide
+								// Interfaces keinen expliziten Typ haben (dann senden sie sich ungetaggte Frames)
+								if (!linked.isMarked(srcL2Int) && !linked.isMarked(dstL2Int)
+										&& (srcL2Int.vlanIntersection(dstL2Int)
+												|| (srcL2Int.interfaceType == null && dstL2Int.interfaceType == null))) {
+
+									// Layer2Interfaces verlinken
+									srcL2Int.layer2LinksTo.put(dstL2Int.key, dstL2Int);
+									dstL2Int.layer2LinksTo.put(srcL2Int.key, srcL2Int);
+
+									// Layer2Interfaces als verarbeitet markieren
+									linked.mark(srcL2Int);
+									linked.mark(dstL2Int);
+									count_l2_links++;
+
+									// Alle "logisch untergeordneten Interfaces" auch als verarbeitet markieren. Das klappt
+									// pauschal so, da die Mengen ggf. leer sind!
+									// Hiermit ist nicht die Tagged <-> Untagged Assoziation gemeint!
+									List<Layer2Interface> tmpL2Interfaces = new ArrayList<>();
+									tmpL2Interfaces.addAll(srcL2Int.aggregationInterfaces.values());
+									tmpL2Interfaces.addAll(dstL2Int.aggregationInterfaces.values());
+
+									for (Layer2Interface tmpL2Interface : tmpL2Interfaces) {
+										linked.mark(tmpL2Interface);
+									}
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+
+		return new int[] { count_l1_links, count_l2_links };
+	}
+
+	/**
+	 * LAGs verschmelzen lassen nach obiger Vorarbeit mit der Linkerstellung.
+	 */
+	private void mergeInterfaces() {
+		InterfaceMarks merged = new InterfaceMarks();
+
+		for (NetworkComponent srcNC : this.networkComponents) {
+			for (Layer1Interface srcL1Int : srcNC.layer1Interfaces.values()) {
+				Layer1Interface dstL1Int = srcL1Int.layer1LinkTo;
+
+				// Wenn es ein Ziel gibt und der Merge noch nicht verarbeitet wurde
+				if (dstL1Int != null && !merged.isMarked(srcL1Int) && !merged.isMarked(dstL1Int)) {
+					NetworkComponent dstNC = dstL1Int.networkComponent;
+
+					// Alle Layer2Interfaces logisch von oben nach unten durchgehen (ich gehe hier _nicht_ davon aus, dass
+					// PeerLinks Aggregator Interfaces sind!)
+					for (Layer2Interface srcL2Int : srcL1Int.getAllLayer2Interfaces()) {
+						for (Layer2Interface dstL2Int : dstL1Int.getAllLayer2Interfaces()) {
+
+							// Wenn beide Layer2Interfaces mit einem PeerLink verbunden sind (in beide Richtungen!)
+							if (srcL2Int.peerLink != null && dstL2Int.peerLink != null
+									&& srcL2Int.layer2LinksTo.containsValue(dstL2Int)
+									&& dstL2Int.layer2LinksTo.containsValue(srcL2Int)) {
+
+								// Annahme: Nur Aggregator Interfaces verschmelzen!
+								for (Layer2Interface srcAggL2Int : srcNC.aggregatorInterfaces.values()) {
+									for (Layer2Interface dstAggL2Int : dstNC.aggregatorInterfaces.values()) {
+
+										// Wenn die VPC Nummern übereinstimmen, ist es dasselbe Interface!
+										if (srcAggL2Int.vpc != null && srcAggL2Int.vpc.equals(dstAggL2Int.vpc)) {
+											srcAggL2Int.mergedInterface = dstAggL2Int;
+											dstAggL2Int.mergedInterface = srcAggL2Int;
+										}
+									}
+								}
+
+								// Alle assoziierten Layer1Interfaces als verarbeitet markieren
+								List<Layer1Interface> tmpL1Interfaces = new ArrayList<>();
+								tmpL1Interfaces.addAll(srcL2Int.layer1Interfaces.values());
+								tmpL1Interfaces.addAll(dstL2Int.layer1Interfaces.values());
+
+								for (Layer1Interface tmpL1Interface : tmpL1Interfaces) {
+									merged.mark(tmpL1Interface);
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Legt fest, welche verschmolzenen Interfaces in der SOIL-Ausgabe erstellt und welche nur referenziert werden. Erstellt
+	 * wird jeweils das Interface, das in der Reihenfolge der Netzkomponenten zuerst ausgegeben wird. Das entspricht dem
+	 * Ergebnis der bisherigen, sequentiellen Ausgabe, hängt aber nicht mehr von deren Reihenfolge ab.
+	 * 
+	 * @return Map von referenzierendem Interface auf das erstellte Interface
+	 */
+	private Map<Layer2Interface, Layer2Interface> findMergedReferences() {
+		Map<Layer2Interface, Layer2Interface> result = new IdentityHashMap<>();
+		Set<Layer2Interface> created = Collections.newSetFromMap(new IdentityHashMap<>());
+
+		for (NetworkComponent networkComponent : this.networkComponents) {
+			// Nur Aggregator Interfaces werden verschmolzen (siehe mergeInterfaces())
+			for (Layer2Interface aggregatorInterface : networkComponent.getFilteredAggregatorInterfaces()) {
+				if (aggregatorInterface.mergedInterface == null) {
+					continue;
+				} else if (created.contains(aggregatorInterface.mergedInterface)) {
+					result.put(aggregatorInterface, aggregatorInterface.mergedInterface);
+				} else {
+					created.add(aggregatorInterface);
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Gibt die vollständige SOIL-Repräsentation der Topologie zurück: Zunächst alle Netzkomponenten, danach die Layer1- und
+	 * Layer2Links. Jeder Aufruf verwendet eigene Markierungen und kann daher beliebig oft (auch parallel) erfolgen.
+	 * 
+	 * @return SOIL-Repräsentation als Liste von Strings
+	 */
+	public List<String> getSOIL() {
+		List<String> result = new ArrayList<>();
+
+		// SOIL-Ausgaben der Netzkomponenten sammeln
+		for (NetworkComponent networkComponent : this.networkComponents) {
+			result.addAll(networkComponent.getClassSOIL(this.mergedReferences));
+		}
+
+		// SOIL-Ausgaben der Layer1- und Layer2Links einsammeln
+		result.addAll(this.getLinkSOIL());
+
+		return result;
+	}
+
+	/**
+	 * Wie getSOIL(), jedoch werden die Ausgaben der Netzkomponenten und der Links parallel auf dem angegebenen Executor in
+	 * eigene Puffer erzeugt. Die Puffer werden anschließend in der Reihenfolge der Netzkomponenten zusammengefügt, sodass das
+	 * Ergebnis dem von getSOIL() entspricht.
+	 * 
+	 * @param executor
+	 *            Executor (z.B. Thread Pool), auf dem die Ausgaben erzeugt werden
+	 * @return SOIL-Repräsentation als Liste von Strings
+	 */
+	public List<String> getSOIL(ExecutorService executor) {
+		List<Future<List<String>>> fragments = new ArrayList<>();
+
+		for (NetworkComponent networkComponent : this.networkComponents) {
+			fragments.add(executor.submit(() -> networkComponent.getClassSOIL(this.mergedReferences)));
+		}
+		fragments.add(executor.submit(() -> this.getLinkSOIL()));
+
+		List<String> result = new ArrayList<>();
+		for (Future<List<String>> fragment : fragments) {
+			try {
+				result.addAll(fragment.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted while generating SOIL-Output", e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException("Error while generating SOIL-Output", e.getCause());
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Gibt die SOIL-Repräsentation der Layer1Links und Layer2Links zurück. Die Layer1Links stehen dabei vor den
+	 * Layer2Links.
+	 * 
+	 * @return SOIL-Repräsentation als Liste von Strings
+	 */
+	public List<String> getLinkSOIL() {
+		return this.getLinkSOIL(this.networkComponents);
+	}
+
+	/**
+	 * Wie getLinkSOIL(), jedoch werden nur Links ausgegeben, deren Interfaces beide zu den angegebenen Netzkomponenten gehören
+	 * (z.B. für eine Partition der Topologie).
+	 * 
+	 * @param scope
+	 *            Netzkomponenten, deren Links ausgegeben werden sollen
+	 * @return SOIL-Repräsentation als Liste von Strings
+	 */
+	public List<String> getLinkSOIL(Collection<NetworkComponent> scope) {
+		List<String> result = new ArrayList<>();
+		this.acceptLinks(new SOILVisitor(this.mergedReferences, result::add), scope);
+		return result;
+	}
+
+	/**
+	 * Durchläuft die gesamte Topologie in der Reihenfolge der SOIL-Ausgabe (siehe getSOIL()) und übergibt alle
+	 * Netzkomponenten, Interfaces und Links an den Besucher.
+	 * 
+	 * @param visitor
+	 *            Besucher, der die Topologie verarbeitet
+	 */
+	public void accept(TopologyVisitor visitor) {
+		for (NetworkComponent networkComponent : this.networkComponents) {
+			networkComponent.accept(visitor);
+		}
+
+		this.acceptLinks(visitor, this.networkComponents);
+	}
+
+	/**
+	 * Übergibt alle Links, deren Interfaces beide zu den angegebenen Netzkomponenten gehören, an den Besucher. Jeder Link
+	 * wird nur einmal übergeben; die Layer1Links stehen dabei vor den Layer2Links.
+	 * 
+	 * @param visitor
+	 *            Besucher, der die Links verarbeitet
+	 * @param scope
+	 *            Netzkomponenten, deren Links übergeben werden sollen
+	 */
+	public void acceptLinks(TopologyVisitor visitor, Collection<NetworkComponent> scope) {
+		InterfaceMarks visited = new InterfaceMarks();
+		Set<NetworkComponent> inScope = Collections.newSetFromMap(new IdentityHashMap<>());
+		List<Layer2Interface[]> layer2Links = new ArrayList<>();
+
+		inScope.addAll(scope);
+
+		for (NetworkComponent srcNC : scope) {
+			for (Layer1Interface srcL1Int : srcNC.layer1Interfaces.values()) {
+				Layer1Interface dstL1Int = srcL1Int.layer1LinkTo;
+
+				// Wenn das aktuelle Layer1Interface einen Link (innerhalb des Scopes) hat und zudem beide Interface noch nicht
+				// verarbeitet wurden
+				if (dstL1Int != null && inScope.contains(dstL1Int.networkComponent) && !visited.isMarked(srcL1Int)
+						&& !visited.isMarked(dstL1Int)) {
+					visitor.visitLayer1Link(srcL1Int, dstL1Int);
+
+					// Verarbeitung für beide Layer1Interfaces abhaken
+					visited.mark(srcL1Int);
+					visited.mark(dstL1Int);
+
+					// Alle assoziierten Layer2Interfaces bearbeiten
+					for (Layer2Interface srcL2Int : srcL1Int.getAllLayer2Interfaces()) {
+
+						// Menge ist ggf. leer, sofern das Interface keine Links hat.
+						for (Layer2Interface dstL2Int : srcL2Int.layer2LinksTo.values()) {
+
+							// Sofern die Layer2Interfaces noch nicht verarbeitet wurden. Die Layer2Links werden erst nach
+							// allen Layer1Links übergeben.
+							if (inScope.contains(dstL2Int.networkComponent) && !visited.isMarked(srcL2Int)
+									&& !visited.isMarked(dstL2Int)) {
+								layer2Links.add(new Layer2Interface[] { srcL2Int, dstL2Int });
+
+								// Verarbeitung für beide Layer2Interfaces abhaken
+								visited.mark(srcL2Int);
+								visited.mark(dstL2Int);
+
+								// Sofern Layer2Interface verschmolzen ist, markiere dessen Partner auch als bearbeitet
+								if (srcL2Int.mergedInterface != null) {
+									visited.mark(srcL2Int.mergedInterface);
+								}
+
+								// Sofern Layer2Interface verschmolzen ist, markiere dessen Partner auch als bearbeitet
+								if (dstL2Int.mergedInterface != null) {
+									visited.mark(dstL2Int.mergedInterface);
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+
+		for (Layer2Interface[] layer2Link : layer2Links) {
+			visitor.visitLayer2Link(layer2Link[0], layer2Link[1]);
+		}
+	}
+}
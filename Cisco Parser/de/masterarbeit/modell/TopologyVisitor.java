@@ -0,0 +1,99 @@
+package de.masterarbeit.modell;
+
+/**
+ * Besucher für einen Durchlauf über die Topologie (siehe NetworkComponent.accept() und Topology.accept()). Die Reihenfolge
+ * der Aufrufe entspricht der SOIL-Ausgabe: Pro Netzkomponente zunächst die Aggregator Interfaces mit ihren Layer3-, Tagged-
+ * und Layer1Interfaces (inkl. Aggregation Interfaces), danach die übrigen Layer1Interfaces. Ein Interface wird dabei immer
+ * vor den Interfaces besucht, die von ihm abhängen. Am Ende folgen alle Layer1Links und danach alle Layer2Links.
+ * 
+ * Alle Methoden sind leer vorbelegt, sodass ein Besucher nur die benötigten Methoden überschreiben muss.
+ * 
+ * @author Marcel Schuster
+ *
+ */
+public interface TopologyVisitor {
+	/**
+	 * Beginn einer Netzkomponente. Alle folgenden Interfaces gehören zu dieser Netzkomponente.
+	 * 
+	 * @param networkComponent
+	 *            Netzkomponente
+	 */
+	default void visitNetworkComponent(NetworkComponent networkComponent) {
+	}
+
+	/**
+	 * Aggregator Interface (Port Channel).
+	 * 
+	 * @param aggregatorInterface
+	 *            Aggregator Interface
+	 */
+	default void visitAggregatorInterface(Layer2Interface aggregatorInterface) {
+	}
+
+	/**
+	 * Layer3Interface, das von einem Layer2Interface abhängt.
+	 * 
+	 * @param layer3Interface
+	 *            Layer3Interface
+	 * @param layer2Interface
+	 *            Aggregator-, Tagged- oder einfaches Layer2Interface, von dem das Layer3Interface abhängt
+	 */
+	default void visitLayer3Interface(Layer3Interface layer3Interface, Layer2Interface layer2Interface) {
+	}
+
+	/**
+	 * Tagged Interface (Subinterface).
+	 * 
+	 * @param taggedInterface
+	 *            Tagged Interface
+	 * @param untaggedInterface
+	 *            Aggregator- oder einfaches Layer2Interface, auf dem das Subinterface definiert ist
+	 */
+	default void visitTaggedInterface(Layer2Interface taggedInterface, Layer2Interface untaggedInterface) {
+	}
+
+	/**
+	 * Layer1Interface.
+	 * 
+	 * @param layer1Interface
+	 *            Layer1Interface
+	 */
+	default void visitLayer1Interface(Layer1Interface layer1Interface) {
+	}
+
+	/**
+	 * Layer2Interface, das direkt von einem Layer1Interface abhängt.
+	 * 
+	 * @param layer2Interface
+	 *            Layer2Interface
+	 * @param layer1Interface
+	 *            Layer1Interface, von dem das Layer2Interface abhängt
+	 * @param aggregatorInterface
+	 *            Aggregator Interface, sofern das Layer2Interface ein Aggregation Interface ist (ansonsten null)
+	 */
+	default void visitLayer2Interface(Layer2Interface layer2Interface, Layer1Interface layer1Interface,
+			Layer2Interface aggregatorInterface) {
+	}
+
+	/**
+	 * Layer1Link zwischen zwei Layer1Interfaces.
+	 * 
+	 * @param srcL1Int
+	 *            Erstes Interface
+	 * @param dstL1Int
+	 *            Zweites Interface
+	 */
+	default void visitLayer1Link(Layer1Interface srcL1Int, Layer1Interface dstL1Int) {
+	}
+
+	/**
+	 * Layer2Link zwischen zwei Layer2Interfaces.
+	 * 
+	 * @param srcL2Int
+	 *            Erstes Interface
+	 * @param dstL2Int
+	 *            Zweites Interface
+	 */
+	default void visitLayer2Link(Layer2Interface srcL2Int, Layer2Interface dstL2Int) {
+	}
+}
@@ -0,0 +1,513 @@
+package de.masterarbeit.parser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import de.masterarbeit.cisco.JCiscoCDPParse;
+import de.masterarbeit.cisco.JCiscoConfParse;
+import de.masterarbeit.modell.NetworkComponent;
+
+/**
+ * Liest die Konfigurations- und CDP-Dateien einer Site direkt aus einem Archiv (.zip, .tar.gz bzw. .tgz), ohne es vorher auf
+ * die Festplatte zu entpacken. Die Dateien werden anhand ihres Namens einander zugeordnet: Zu "hostname.txt" gehören die
+ * CDP-Informationen in "hostname-cdp.txt" (siehe extension und cdpSuffix). Verzeichnisse innerhalb des Archivs sowie Groß- und
+ * Kleinschreibung spielen dabei keine Rolle. Die Netzkomponenten werden nach ihren Dateinamen sortiert, sodass die Ausgabe
+ * nicht von der Reihenfolge im Archiv (und damit vom Werkzeug, das es erstellt hat) abhängt.
+ * 
+ * ZIP-Archive werden über das ZIP-Dateisystem des JDK gelesen. Da die Einträge dort wahlfrei zugreifbar sind, werden sie erst
+ * in den (ggf. parallelen) Aufgaben entpackt, die die Netzkomponenten erstellen. TAR-Archive sind dagegen nur sequentiell
+ * lesbar: Der Strom wird einmal entpackt und jedes Paar wird geparst, sobald beide Dateien vollständig gelesen sind. Bis dahin
+ * wird nur die jeweils erste Datei eines Paares im Speicher gehalten.
+ * 
+ * Da die Blöcke der Running Config nicht über eine Position im Archiv wieder gelesen werden können, behalten die Interfaces
+ * im sparsamen Modus ihren Text (siehe NetworkComponent); verworfen wird nur der übrige Text der Running Config.
+ * 
+ * @author Marcel Schuster
+ *
+ */
+public class ArchiveReader {
+	// Dateiendung der Konfigurations- und CDP-Dateien (andere Einträge werden ignoriert)
+	public String extension = ".txt";
+	// Namenszusatz der CDP-Datei vor der Dateiendung
+	public String cdpSuffix = "-cdp";
+
+	private final Path archive;
+
+	/**
+	 * Eine zu verarbeitende Netzkomponente, bestehend aus Running Config und CDP-Informationen. Je nach Archiv liegen die
+	 * Dateien als Pfad im ZIP-Dateisystem oder als bereits entpackter Inhalt vor.
+	 */
+	private static class Entry {
+		private String configName;
+		private String cdpName;
+		private Path configPath;
+		private Path cdpPath;
+		private byte[] config;
+		private byte[] cdp;
+		private Future<NetworkComponent> result;
+	}
+
+	/**
+	 * Konstruktor zur Initialisierung.
+	 * 
+	 * @param archive
+	 *            Pfad zum Archiv (.zip, .tar.gz oder .tgz)
+	 */
+	public ArchiveReader(String archive) {
+		this.archive = Paths.get(archive);
+	}
+
+	/**
+	 * Prüft anhand der Dateiendung, ob es sich um ein unterstütztes Archiv handelt.
+	 * 
+	 * @param path
+	 *            Pfad
+	 * @return true, sofern der Pfad auf ein Archiv zeigt
+	 */
+	public static boolean isArchive(String path) {
+		String name = path.toLowerCase(Locale.ROOT);
+		return name.endsWith(".zip") || name.endsWith(".tar.gz") || name.endsWith(".tgz");
+	}
+
+	/**
+	 * Liest alle Netzkomponenten sequentiell aus dem Archiv.
+	 * 
+	 * @param lean
+	 *            true, sofern der Text der Running Config nach dem Parsen verworfen werden soll
+	 * @return Netzkomponenten sortiert nach ihren Dateinamen
+	 * @throws IOException
+	 *             Sofern das Archiv nicht gelesen werden kann
+	 */
+	public List<NetworkComponent> read(boolean lean) throws IOException {
+		return this.read(lean, null);
+	}
+
+	/**
+	 * Liest alle Netzkomponenten aus dem Archiv. Die Netzkomponenten werden parallel zum Entpacken erstellt, sodass die
+	 * Verarbeitung im besten Fall nur durch das Entpacken begrenzt wird.
+	 * 
+	 * @param lean
+	 *            true, sofern der Text der Running Config nach dem Parsen verworfen werden soll
+	 * @param executor
+	 *            Executor für die Erstellung der Netzkomponenten (null = sequentiell)
+	 * @return Netzkomponenten sortiert nach ihren Dateinamen
+	 * @throws IOException
+	 *             Sofern das Archiv nicht gelesen werden kann
+	 */
+	public List<NetworkComponent> read(boolean lean, ExecutorService executor) throws IOException {
+		Map<String, Entry> entries = new TreeMap<>();
+
+		if (this.archive.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".zip")) {
+			// Das Dateisystem muss bis zum Ende aller Aufgaben geöffnet bleiben
+			try (FileSystem zip = FileSystems.newFileSystem(this.archive, (ClassLoader) null)) {
+				try (Stream<Path> files = Files.walk(zip.getPath("/"))) {
+					for (Path file : files.filter(Files::isRegularFile).collect(Collectors.toList())) {
+						Entry entry = this.pair(entries, file.toString());
+						if (entry != null && file.toString().equals(entry.configName)) {
+							entry.configPath = file;
+						} else if (entry != null) {
+							entry.cdpPath = file;
+						}
+					}
+				}
+
+				for (Entry entry : entries.values()) {
+					this.submit(entry, lean, executor);
+				}
+				return this.collect(entries);
+			}
+		}
+
+		try (InputStream in = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(this.archive)), 65536)) {
+			this.readTar(in, (name, content) -> {
+				Entry entry = this.pair(entries, name);
+				if (entry == null) {
+					return;
+				} else if (name.equals(entry.configName)) {
+					entry.config = content;
+				} else {
+					entry.cdp = content;
+				}
+
+				// Paar vollständig: sofort parsen, während der Strom weiter entpackt wird
+				if (entry.config != null && entry.cdp != null) {
+					this.submit(entry, lean, executor);
+				}
+			});
+		}
+
+		// Konfigurationen ohne CDP-Datei zum Schluss verarbeiten (siehe submit())
+		for (Entry entry : entries.values()) {
+			if (entry.result == null) {
+				this.submit(entry, lean, executor);
+			}
+		}
+		return this.collect(entries);
+	}
+
+	/**
+	 * Ordnet Dateinamen nach derselben Konvention wie im Archiv einander zu, z.B. für die Dateien eines Verzeichnisses (siehe
+	 * TopologyWatcher).
+	 * 
+	 * @param names
+	 *            Dateinamen
+	 * @return Paare aus Running Config und CDP-Datei sortiert nach ihren Namen; Dateien ohne Gegenstück sind nicht enthalten
+	 */
+	public List<String[]> pair(List<String> names) {
+		Map<String, Entry> entries = new TreeMap<>();
+		for (String name : names) {
+			this.pair(entries, name);
+		}
+
+		List<String[]> result = new ArrayList<>();
+		for (Entry entry : entries.values()) {
+			if (entry.configName != null && entry.cdpName != null) {
+				result.add(new String[] { entry.configName, entry.cdpName });
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Ordnet eine Datei des Archivs anhand ihres Namens einer Netzkomponente zu.
+	 * 
+	 * @param entries
+	 *            Bisher gefundene Netzkomponenten, Schlüssel ist der Name ohne Verzeichnis, Endung und CDP-Zusatz
+	 * @param name
+	 *            Vollständiger Name der Datei im Archiv
+	 * @return Netzkomponente, zu der die Datei gehört, oder null, sofern die Datei ignoriert wird
+	 */
+	private Entry pair(Map<String, Entry> entries, String name) {
+		String key = name.substring(name.lastIndexOf('/') + 1).toLowerCase(Locale.ROOT);
+		String extension = this.extension.toLowerCase(Locale.ROOT);
+		String cdpSuffix = this.cdpSuffix.toLowerCase(Locale.ROOT);
+		if (!key.endsWith(extension) || key.startsWith(".")) {
+			return null;
+		}
+
+		key = key.substring(0, key.length() - extension.length());
+		boolean cdp = key.endsWith(cdpSuffix);
+		if (cdp) {
+			key = key.substring(0, key.length() - cdpSuffix.length());
+		}
+
+		Entry entry = entries.computeIfAbsent(key, k -> new Entry());
+		if (cdp) {
+			entry.cdpName = name;
+		} else {
+			entry.configName = name;
+		}
+		return entry;
+	}
+
+	/**
+	 * Übergibt die Erstellung der Netzkomponente an den Executor bzw. führt sie direkt aus. Fehlt die CDP-Datei, wird die
+	 * Netzkomponente ohne CDP-Informationen erstellt; fehlt die Konfigurationsdatei, wird sie ignoriert.
+	 * 
+	 * @param entry
+	 *            Netzkomponente
+	 * @param lean
+	 *            true, sofern der Text der Running Config nach dem Parsen verworfen werden soll
+	 * @param executor
+	 *            Executor oder null
+	 */
+	private void submit(Entry entry, boolean lean, ExecutorService executor) {
+		if (entry.configName == null) {
+			System.out.println("Warning: No configuration file for " + entry.cdpName + "\n");
+			return;
+		} else if (entry.cdpName == null) {
+			System.out.println("Warning: No CDP file for " + entry.configName + "\n");
+		}
+
+		Callable<NetworkComponent> task = () -> {
+			byte[] config = entry.configPath != null ? Files.readAllBytes(entry.configPath) : entry.config;
+			byte[] cdp = entry.cdpPath != null ? Files.readAllBytes(entry.cdpPath) : entry.cdp;
+			entry.config = null;
+			entry.cdp = null;
+
+			return new NetworkComponent(new JCiscoConfParse(config, null, this.archive + "!" + entry.configName),
+					new JCiscoCDPParse(cdp != null ? lines(cdp) : new ArrayList<>()), lean);
+		};
+
+		if (executor != null) {
+			entry.result = executor.submit(task);
+		} else {
+			FutureTask<NetworkComponent> result = new FutureTask<>(task);
+			result.run();
+			entry.result = result;
+		}
+	}
+
+	/**
+	 * Sammelt die Ergebnisse aller Aufgaben in der Reihenfolge der Netzkomponenten ein.
+	 * 
+	 * @param entries
+	 *            Netzkomponenten
+	 * @return Erstellte Netzkomponenten
+	 * @throws IOException
+	 *             Sofern eine Datei nicht gelesen werden konnte
+	 */
+	private List<NetworkComponent> collect(Map<String, Entry> entries) throws IOException {
+		List<NetworkComponent> result = new ArrayList<>();
+
+		for (Entry entry : entries.values()) {
+			if (entry.result == null) {
+				continue;
+			}
+
+			try {
+				result.add(entry.result.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while reading " + this.archive, e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				} else if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new RuntimeException(e.getCause());
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Empfänger für die Dateien eines TAR-Archivs.
+	 */
+	private interface TarConsumer {
+		void accept(String name, byte[] content) throws IOException;
+	}
+
+	/**
+	 * Liest ein TAR-Archiv (ustar bzw. GNU tar) sequentiell aus dem Strom. Übergeben werden nur reguläre Dateien, deren Name
+	 * die gesuchte Endung hat; alle übrigen Einträge werden übersprungen. Lange Namen (GNU "L" und PAX "path") werden
+	 * unterstützt.
+	 * 
+	 * @param in
+	 *            Entpackter Strom des Archivs
+	 * @param consumer
+	 *            Empfänger der Dateien
+	 * @throws IOException
+	 *             Sofern der Strom nicht gelesen werden kann oder kein gültiges TAR-Archiv ist
+	 */
+	private void readTar(InputStream in, TarConsumer consumer) throws IOException {
+		byte[] header = new byte[512];
+		String longName = null;
+
+		while (readFully(in, header, header.length)) {
+			// Zwei leere Header markieren das Ende des Archivs
+			if (isZero(header)) {
+				break;
+			}
+
+			String name = field(header, 0, 100);
+			String prefix = field(header, 345, 155);
+			if (longName != null) {
+				name = longName;
+			} else if (!prefix.isEmpty()) {
+				name = prefix + "/" + name;
+			}
+			longName = null;
+
+			long size = octal(header, 124, 12);
+			char type = (char) header[156];
+			long padding = (512 - size % 512) % 512;
+			boolean wanted = (type == '0' || type == '\0')
+					&& name.toLowerCase(Locale.ROOT).endsWith(this.extension.toLowerCase(Locale.ROOT));
+
+			if (type == 'L' || type == 'x' || wanted) {
+				if (size > Integer.MAX_VALUE - 8) {
+					throw new IOException("TAR entry too large: " + name);
+				}
+
+				byte[] content = new byte[(int) size];
+				if (!readFully(in, content, content.length)) {
+					throw new EOFException("Unexpected end of TAR archive: " + this.archive);
+				}
+				skipFully(in, padding);
+
+				if (type == 'L') {
+					longName = field(content, 0, content.length);
+				} else if (type == 'x') {
+					longName = paxPath(content);
+				} else {
+					consumer.accept(name, content);
+				}
+			} else {
+				skipFully(in, size + padding);
+			}
+		}
+	}
+
+	/**
+	 * Liest den Pfad aus einem PAX-Header ("Länge path=Pfad\n").
+	 * 
+	 * @param content
+	 *            Inhalt des PAX-Headers
+	 * @return Pfad oder null, sofern der Header keinen Pfad enthält
+	 */
+	private static String paxPath(byte[] content) {
+		for (String record : new String(content, StandardCharsets.UTF_8).split("\n")) {
+			int start = record.indexOf(" path=");
+			if (start >= 0) {
+				return record.substring(start + 6);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Liest ein Textfeld des Headers bis zum ersten Nullbyte.
+	 * 
+	 * @param header
+	 *            Header
+	 * @param offset
+	 *            Anfang des Feldes
+	 * @param length
+	 *            Länge des Feldes
+	 * @return Inhalt des Feldes
+	 */
+	private static String field(byte[] header, int offset, int length) {
+		int end = offset;
+		while (end < offset + length && header[end] != 0) {
+			end++;
+		}
+		return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Liest ein oktales Zahlenfeld des Headers.
+	 * 
+	 * @param header
+	 *            Header
+	 * @param offset
+	 *            Anfang des Feldes
+	 * @param length
+	 *            Länge des Feldes
+	 * @return Zahl
+	 * @throws IOException
+	 *             Sofern das Feld keine oktale Zahl enthält
+	 */
+	private static long octal(byte[] header, int offset, int length) throws IOException {
+		String value = field(header, offset, length).trim();
+		try {
+			return value.isEmpty() ? 0 : Long.parseLong(value, 8);
+		} catch (NumberFormatException e) {
+			throw new IOException("Invalid TAR header field: " + value, e);
+		}
+	}
+
+	/**
+	 * Prüft, ob alle Bytes des Headers null sind.
+	 * 
+	 * @param header
+	 *            Header
+	 * @return true, sofern der Header leer ist
+	 */
+	private static boolean isZero(byte[] header) {
+		for (byte b : header) {
+			if (b != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Liest die angegebene Anzahl Bytes aus dem Strom.
+	 * 
+	 * @param in
+	 *            Strom
+	 * @param buffer
+	 *            Ziel
+	 * @param length
+	 *            Anzahl Bytes
+	 * @return false, sofern der Strom vor dem ersten Byte endet
+	 * @throws IOException
+	 *             Sofern der Strom mitten im Puffer endet
+	 */
+	private static boolean readFully(InputStream in, byte[] buffer, int length) throws IOException {
+		int read = 0;
+		while (read < length) {
+			int count = in.read(buffer, read, length - read);
+			if (count < 0) {
+				if (read == 0) {
+					return false;
+				}
+				throw new EOFException("Unexpected end of TAR archive");
+			}
+			read += count;
+		}
+		return true;
+	}
+
+	/**
+	 * Überspringt die angegebene Anzahl Bytes im Strom.
+	 * 
+	 * @param in
+	 *            Strom
+	 * @param count
+	 *            Anzahl Bytes
+	 * @throws IOException
+	 *             Sofern der Strom vorher endet
+	 */
+	private static void skipFully(InputStream in, long count) throws IOException {
+		while (count > 0) {
+			long skipped = in.skip(count);
+			if (skipped <= 0) {
+				if (in.read() < 0) {
+					throw new EOFException("Unexpected end of TAR archive");
+				}
+				skipped = 1;
+			}
+			count -= skipped;
+		}
+	}
+
+	/**
+	 * Zerlegt den Inhalt einer Datei wie Files.readAllLines() in Zeilen.
+	 * 
+	 * @param content
+	 *            Inhalt der Datei
+	 * @return Zeilen
+	 * @throws IOException
+	 *             Sofern der Inhalt nicht dekodiert werden kann
+	 */
+	private static List<String> lines(byte[] content) throws IOException {
+		List<String> result = new ArrayList<>();
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(new ByteArrayInputStream(content), Charset.defaultCharset()))) {
+			for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+				result.add(line);
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,255 @@
+package de.masterarbeit.parser;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import de.masterarbeit.cisco.JCiscoCDPParse;
+import de.masterarbeit.cisco.JCiscoConfParse;
+import de.masterarbeit.modell.*;
+import de.masterarbeit.toolbox.IPCalculator;
+
+/**
+ * Verarbeitet Sites mit tausenden Netzkomponenten mit begrenztem Speicherbedarf (Batch Mode). Anstatt alle Netzkomponenten
+ * vollständig im Speicher zu halten, wird in zwei Durchläufen gearbeitet:
+ * 
+ * 1. Jede Netzkomponente wird geparst und sofort auf ihre Zusammenfassung reduziert (siehe NetworkComponent.summarize()):
+ * Interfaces, VLAN-IDs, LAGs und CDP-Informationen. Die Korrelation (Links, verschmolzene LAGs und Filter) läuft
+ * anschließend auf den Zusammenfassungen (siehe summarize()).
+ * 
+ * 2. Jede Netzkomponente wird erneut geparst, das Ergebnis der Korrelation wird von ihrer Zusammenfassung übernommen und die
+ * SOIL-Ausgabe direkt in die Ausgabedatei geschrieben. Danach wird die Netzkomponente verworfen (siehe write()).
+ * 
+ * Der Speicherbedarf wächst damit nur noch mit den Zusammenfassungen, nicht mit dem Text der Konfigurationen oder der
+ * gesamten SOIL-Ausgabe. Dafür wird jede Running Config zweimal gelesen. Gleichzeitig im Speicher sind höchstens so viele
+ * vollständige Netzkomponenten, wie der Executor Threads hat, bzw. im zweiten Durchlauf "window" Ausgaben. Die
+ * Ausgabe entspricht Byte für Byte der Ausgabe von Topology.getSOIL().
+ * 
+ * Die Dateien dürfen sich zwischen den Durchläufen nicht ändern; ein geänderter Hostname führt zum Abbruch. Analysen, die
+ * die vollständige Topologie benötigen (z.B. IPv4-Prüfung, VLAN-Domänen, Exporte), sind im Batch Mode nicht verfügbar.
+ * 
+ * @author Marcel Schuster
+ *
+ */
+public class BatchPipeline {
+	// Maximale Anzahl an Ausgaben, die im zweiten Durchlauf gleichzeitig erzeugt werden bzw. auf das Schreiben warten
+	public int window = 2 * Runtime.getRuntime().availableProcessors();
+
+	private final String path;
+	private final String[][] components;
+	private final Charset charset = Charset.defaultCharset();
+
+	/**
+	 * Konstruktor.
+	 * 
+	 * @param path
+	 *            Verzeichnis, in dem sich alle Dateien befinden (mit abschließendem (Back-)Slash)
+	 * @param components
+	 *            Paare aus Running Config und CDP-Informationen je Netzkomponente (siehe Main)
+	 */
+	public BatchPipeline(String path, String[][] components) {
+		this.path = path;
+		this.components = components;
+	}
+
+	/**
+	 * Erster Durchlauf: Parst alle Netzkomponenten, reduziert sie auf ihre Zusammenfassungen und korreliert diese.
+	 * 
+	 * @param executor
+	 *            Executor, auf dem die Netzkomponenten parallel geparst werden, oder null für sequentielle Verarbeitung
+	 * @return Korrelierte Topologie aus Zusammenfassungen (nur für write() und Statistiken geeignet)
+	 * @throws IOException
+	 *             Sofern eine Datei nicht gelesen werden kann
+	 */
+	public Topology summarize(ExecutorService executor) throws IOException {
+		List<Callable<NetworkComponent>> tasks = new ArrayList<>();
+		for (String[] component : this.components) {
+			tasks.add(() -> new NetworkComponent(new JCiscoConfParse(this.path + component[0]),
+					new JCiscoCDPParse(this.path + component[1]), true).summarize());
+		}
+
+		List<NetworkComponent> summaries = new ArrayList<>();
+		for (Future<NetworkComponent> future : submit(tasks, executor)) {
+			summaries.add(get(future));
+		}
+
+		return new Topology(summaries);
+	}
+
+	/**
+	 * Zweiter Durchlauf: Parst die Netzkomponenten erneut und schreibt ihre SOIL-Ausgaben in der Reihenfolge der
+	 * Netzkomponenten in die Datei, gefolgt von den Links. Nebenbei wird die Lookup-Table für das binäre UND gefüllt.
+	 * 
+	 * @param summaries
+	 *            Topologie aus Zusammenfassungen (siehe summarize())
+	 * @param file
+	 *            Ausgabedatei
+	 * @param executor
+	 *            Executor, auf dem die Netzkomponenten parallel verarbeitet werden, oder null für sequentielle Verarbeitung
+	 * @return Lookup-Table für alle Layer3Interfaces (siehe IPCalculator.fromTopology())
+	 * @throws IOException
+	 *             Sofern eine Datei nicht gelesen oder die Ausgabe nicht geschrieben werden kann
+	 */
+	public IPCalculator write(Topology summaries, String file, ExecutorService executor) throws IOException {
+		IPCalculator ipCalculator = new IPCalculator();
+		int window = executor != null ? this.window : 1;
+
+		try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(file), this.charset)) {
+			Deque<Future<List<String>>> pending = new ArrayDeque<>();
+
+			for (int i = 0; i < this.components.length; i++) {
+				String[] component = this.components[i];
+				NetworkComponent summary = summaries.networkComponents.get(i);
+				Callable<List<String>> task = () -> this.render(component, summary, summaries.mergedReferences,
+						ipCalculator);
+
+				pending.add(executor != null ? executor.submit(task) : done(task));
+				if (pending.size() >= window) {
+					write(writer, get(pending.poll()));
+				}
+			}
+			while (!pending.isEmpty()) {
+				write(writer, get(pending.poll()));
+			}
+
+			// Links hängen von allen Netzkomponenten ab und werden aus den Zusammenfassungen erzeugt
+			write(writer, summaries.getLinkSOIL());
+		}
+
+		return ipCalculator;
+	}
+
+	/**
+	 * Parst eine Netzkomponente erneut, überträgt das Ergebnis der Korrelation von ihrer Zusammenfassung und erzeugt ihre
+	 * SOIL-Ausgabe.
+	 * 
+	 * @param component
+	 *            Running Config und CDP-Informationen der Netzkomponente
+	 * @param summary
+	 *            Korrelierte Zusammenfassung der Netzkomponente
+	 * @param mergedReferences
+	 *            Verschmolzene Interfaces der Zusammenfassungen, die auf ihren Partner verweisen (siehe Topology)
+	 * @param ipCalculator
+	 *            Lookup-Table, die um die Adressen der Layer3Interfaces ergänzt wird
+	 * @return SOIL-Ausgabe der Netzkomponente
+	 * @throws IOException
+	 *             Sofern die Running Config nicht gelesen werden kann
+	 */
+	private List<String> render(String[] component, NetworkComponent summary,
+			Map<Layer2Interface, Layer2Interface> mergedReferences, IPCalculator ipCalculator) throws IOException {
+		// Die CDP-Informationen werden nicht mehr benötigt, da der Filter aus der Korrelation übernommen wird
+		NetworkComponent networkComponent = new NetworkComponent(new JCiscoConfParse(this.path + component[0]),
+				new JCiscoCDPParse(new ArrayList<>()), true, false);
+		if (!networkComponent.name.equals(summary.name)) {
+			throw new IOException("Hostname changed during batch processing: " + summary.name + " -> "
+					+ networkComponent.name);
+		}
+
+		networkComponent.layer1InterfaceFilter = new ArrayList<>(summary.layer1InterfaceFilter);
+
+		// Verschmolzene Aggregator Interfaces verweisen auf den Partner aus dessen Zusammenfassung. Für die Ausgabe werden
+		// davon nur Name und Netzkomponente benötigt.
+		Map<Layer2Interface, Layer2Interface> references = new IdentityHashMap<>();
+		for (Layer2Interface aggregatorInterface : networkComponent.aggregatorInterfaces.values()) {
+			Layer2Interface summaryInterface = summary.aggregatorInterfaces.get(aggregatorInterface.key);
+			if (summaryInterface != null && summaryInterface.mergedInterface != null) {
+				aggregatorInterface.mergedInterface = summaryInterface.mergedInterface;
+				if (mergedReferences.containsKey(summaryInterface)) {
+					references.put(aggregatorInterface, summaryInterface.mergedInterface);
+				}
+			}
+		}
+
+		synchronized (ipCalculator) {
+			for (Layer3Interface layer3Interface : networkComponent.layer3Interfaces.values()) {
+				// Ungültige Adressen werden übersprungen und gemerkt (siehe IPCalculator.getReport())
+				ipCalculator.add(layer3Interface);
+			}
+		}
+
+		return networkComponent.getClassSOIL(references);
+	}
+
+	/**
+	 * Schreibt die Zeilen so, wie es auch Files.write() tun würde.
+	 * 
+	 * @param writer
+	 *            Ausgabe
+	 * @param lines
+	 *            Zeilen, die geschrieben werden sollen
+	 * @throws IOException
+	 *             Stumpfe Weiterleitung der Exception
+	 */
+	private static void write(BufferedWriter writer, List<String> lines) throws IOException {
+		for (String line : lines) {
+			writer.write(line);
+			writer.write(System.lineSeparator());
+		}
+	}
+
+	/**
+	 * Startet die Aufgaben auf dem Executor oder führt sie sequentiell aus.
+	 * 
+	 * @param tasks
+	 *            Aufgaben
+	 * @param executor
+	 *            Executor oder null für sequentielle Verarbeitung
+	 * @return Ergebnisse in der Reihenfolge der Aufgaben
+	 */
+	private static <T> List<Future<T>> submit(List<Callable<T>> tasks, ExecutorService executor) {
+		List<Future<T>> result = new ArrayList<>();
+		for (Callable<T> task : tasks) {
+			result.add(executor != null ? executor.submit(task) : done(task));
+		}
+		return result;
+	}
+
+	/**
+	 * Führt die Aufgabe sofort aus und gibt ihr Ergebnis als erledigtes Future zurück.
+	 * 
+	 * @param task
+	 *            Aufgabe
+	 * @return Erledigtes Future
+	 */
+	private static <T> Future<T> done(Callable<T> task) {
+		FutureTask<T> future = new FutureTask<>(task);
+		future.run();
+		return future;
+	}
+
+	/**
+	 * Wartet auf das Ergebnis einer Aufgabe.
+	 * 
+	 * @param future
+	 *            Future der Aufgabe
+	 * @return Ergebnis
+	 * @throws IOException
+	 *             Sofern die Aufgabe mit einer IOException abgebrochen ist
+	 */
+	private static <T> T get(Future<T> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted during batch processing", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new RuntimeException("Error during batch processing", e.getCause());
+		}
+	}
+}
@@ -3,13 +3,36 @@ package de.masterarbeit.parser;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
-
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import de.masterarbeit.analyse.ConfigFingerprintIndex;
+import de.masterarbeit.analyse.FailureSimulator;
+import de.masterarbeit.analyse.FootprintReport;
+import de.masterarbeit.analyse.IPv4PrefixIndex;
+import de.masterarbeit.analyse.LinkCompletionSolver;
+import de.masterarbeit.analyse.Partition;
+import de.masterarbeit.analyse.TopologyHistory;
+import de.masterarbeit.analyse.TopologyPartitioner;
+import de.masterarbeit.analyse.TopologyPartitioner.Boundary;
+import de.masterarbeit.analyse.VlanDomainIndex;
+import de.masterarbeit.export.SOILFragmentCache;
+import de.masterarbeit.export.TopologyExporter;
 import de.masterarbeit.modell.*;
-import static de.masterarbeit.toolbox.Toolbox.*;
+import de.masterarbeit.toolbox.BoundsCalculator;
+import de.masterarbeit.toolbox.IPCalculator;
 
 /**
  * Main Klasse des Parsers für die Cisco Konfigurationsdateien des Housing Centers. Die Klasse besteht aus einer großen
@@ -29,241 +52,445 @@ public class Main {
 	 *            Argumente werden nicht verarbeitet
 	 * @throws IOException
 	 *             Stumpfe Weiterleitung der Exception
+	 * @throws InterruptedException
+	 *             Sofern der Watch Mode unterbrochen wird
 	 */
-	public static void main(String[] args) throws IOException {
+	public static void main(String[] args) throws IOException, InterruptedException {
 		// ----------------------------------------------------------------------------
 		// KONFIGURATION START
 		// ----------------------------------------------------------------------------
-		// Pfad, in dem sich alle Dateien befinden. Auf abschließenden (Back-)Slash achten!
+		// Pfad, in dem sich alle Dateien befinden. Auf abschließenden (Back-)Slash achten! Alternativ ein Archiv (.zip, .tar.gz)
+		// einer Site, dessen Dateien anhand ihrer Namen automatisch zugeordnet werden (siehe ArchiveReader). "components" wird
+		// dann ignoriert.
 		String path = "<TBD>";
 		String outputFile = "<TBD>.soil";
 		String[][] components = new String[][] { { "<Running-Config>.txt", "<CDP>.txt" } };
+		// Sparsamer Modus: Text der Running Config nach dem Parsen verwerfen (siehe NetworkComponent)
+		boolean leanMode = false;
+		// Anzahl Threads für die Generierung der SOIL-Ausgabe (1 = sequentiell)
+		int threads = Runtime.getRuntime().availableProcessors();
+		// Zerlegung in unabhängig validierbare Partitionen (leer = keine Zerlegung, siehe TopologyPartitioner)
+		Set<Boundary> partitionBoundaries = EnumSet.noneOf(Boundary.class);
+		// Regex Pattern, dessen erste capturing group den Pod aus dem Hostnamen extrahiert (nur für Boundary.POD)
+		String podPattern = null;
+		// Maximale Anzahl an Netzkomponenten pro Partition beim Zusammenfassen (0 = nicht zusammenfassen)
+		int maxPartitionSize = 0;
+		// Watch Mode: Verzeichnis überwachen und Ausgaben bei Änderungen neu schreiben (siehe TopologyWatcher)
+		boolean watchMode = false;
+		// Ruhezeit in Millisekunden nach dem letzten Dateiereignis, bevor neu verarbeitet wird
+		long watchDebounce = 2000;
+		// Weitere Exportformate, die neben die SOIL-Ausgabe geschrieben werden (z.B. "dot", "graphml", "json", siehe
+		// TopologyExporter.FORMATS). "soil" ist nicht erlaubt, da die SOIL-Ausgabe bereits in "outputFile" geschrieben wird.
+		String[] exportFormats = new String[] {};
+		// Bericht über den geschätzten Speicherbedarf des Modells und die Allokationen pro Phase (siehe FootprintReport)
+		boolean footprintReport = false;
+		// Fingerabdrücke der Interface-Konfigurationen neben die SOIL-Ausgabe schreiben und mit dem letzten Lauf vergleichen
+		boolean configDrift = false;
+		// SOIL-Ausgaben der Netzkomponenten in "<Ausgabe>_fragments" zwischenspeichern, sodass nur geänderte Netzkomponenten
+		// neu erzeugt werden (siehe SOILFragmentCache)
+		boolean fragmentCache = false;
+		// Server Mode: Topologie im Speicher halten und Anfragen per HTTP auf localhost beantworten (siehe TopologyServer)
+		boolean serverMode = false;
+		// Port des Servers
+		int serverPort = 8080;
+		// Token für POST /reparse ("Authorization: Bearer <Token>"); null = Neuparsen per HTTP abgeschaltet
+		String serverReparseToken = null;
+		// Fehlende Links zwischen freien Interfaces ergänzen (z.B. bei fehlenden CDP-Informationen, siehe LinkCompletionSolver)
+		boolean linkCompletion = false;
+		// Dabei abweichende VLAN-IDs zulassen und die nötigen Änderungen berichten
+		boolean linkCompletionVlanChanges = false;
+		// Das Problem zusätzlich als CNF im DIMACS-Format für einen externen SAT-Solver exportieren
+		boolean linkCompletionDIMACS = false;
+		// Batch Mode: Korrelation auf Zusammenfassungen, SOIL-Ausgabe pro Netzkomponente streamen (siehe BatchPipeline). Es
+		// werden nur SOIL-Ausgabe und Lookup-Table geschrieben.
+		boolean batchMode = false;
+		// Verzeichnis, in dem nach jedem Lauf ein Stand der Topologie aufgenommen wird (siehe TopologyHistory), oder null
+		String historyDirectory = null;
+		// Ausfälle, deren Auswirkungen gemeinsam simuliert werden (z.B. "NX-A" oder "DS-C/Gi1/1", siehe FailureSimulator)
+		String[] whatIfFailures = new String[] {};
+		// Zusätzlich den Ausfall jeder einzelnen Netzkomponente und jedes einzelnen Layer1Links simulieren
+		boolean whatIfSweep = false;
 		// ----------------------------------------------------------------------------
 		// KONFIGURATION ENDE
 		// ----------------------------------------------------------------------------
 
 		long startTime = System.currentTimeMillis();
-		int count_l1_links = 0;
-		int count_l2_links = 0;
-
-		System.out.println("=== Reading configuration files..." + "\n");
 
-		// Liste von Netzkomponenten initialisieren und alle Konfigurations- und CDP-Dateien einlesen
-		List<NetworkComponent> networkComponents = new ArrayList<>();
-		for (String[] component : components) {
-			networkComponents.add(new NetworkComponent(path + component[0], path + component[1]));
+		// Exportformate vor der Verarbeitung prüfen, damit nicht erst nach dem Parsen abgebrochen wird
+		for (String format : exportFormats) {
+			if (format.equalsIgnoreCase("soil")) {
+				throw new IllegalArgumentException("Export format \"soil\" is already written to " + outputFile);
+			} else if (!TopologyExporter.isFormat(format)) {
+				throw new IllegalArgumentException("Unknown export format: " + format);
+			}
 		}
 
-		System.out.println("=== Processing links from CDP information..." + "\n");
-
-		// [Schritt 1.1] Interfaces aus den CDP Informationen herausfinden, die für die Verbindung der Komponenten
-		// untereinander verantwortlich sind.
-		// [Schritt 1.2] Links für Layer1- und Layer2Interfaces erstellen lassen. Die Verarbeitung passiert auf Grundlage der
-		// CDP-Informationen. Daher werden die VSL-Interfaces zwar mit ausgegeben, jedoch wird dafür die Link-Verarbeitung
-		// nicht durchgeführt.
-		for (NetworkComponent srcNC : networkComponents) {
-			for (NetworkComponent dstNC : networkComponents) {
-				List<List<String>> neighbors = srcNC.cdpResult.findNeighbors("^.*(" + dstNC.name + ").*$");
-				Map<String, String> interfaces = getInterfaceNamesToNeighbors(neighbors);
-
-				// Filter auf Basis der CDP Informationen füllen (Interfaces für Kommunikation untereinander)
-				srcNC.layer1InterfaceFilter.addAll(interfaces.keySet());
-
-				// Layer1Links verarbeiten (Layer1Interfaces verknüpfen)
-				for (Map.Entry<String, String> i : interfaces.entrySet()) {
-					Layer1Interface srcL1Int = srcNC.layer1Interfaces.get(i.getKey());
-					Layer1Interface dstL1Int = dstNC.layer1Interfaces.get(i.getValue());
-
-					// Prüfung, ob Link bereits existiert (verhindert doppelte Verarbeitung)
-					if (srcL1Int != null && dstL1Int != null && !srcL1Int.linkProcessed && !dstL1Int.linkProcessed) {
-						// Layer1Interfaces verlinken
-						srcL1Int.layer1LinkTo = dstL1Int;
-						dstL1Int.layer1LinkTo = srcL1Int;
-
-						// Layer1Interfaces als verarbeitet markieren
-						srcL1Int.linkProcessed = true;
-						dstL1Int.linkProcessed = true;
-						count_l1_links++;
-
-						// Verknüpfung der Layer2Links auf Grundlage der zuvor erstellten Layer1Links Alle Layer2Interfaces
-						// abrufen in logisch-chronologischer Reihenfolge
-						for (Layer2Interface srcL2Int : srcL1Int.getAllLayer2Interfaces()) {
-							for (Layer2Interface dstL2Int : dstL1Int.getAllLayer2Interfaces()) {
-
-								// Wenn Layer2Interfaces noch nicht verarbeitet und VLANs sich überschneiden ODER beide
-								// Interfaces keinen expliziten Typ haben (dann senden sie sich ungetaggte Frames)
-								if (!srcL2Int.linkProcessed && !dstL2Int.linkProcessed
-										&& (srcL2Int.vlanIntersection(dstL2Int)
-												|| (srcL2Int.interfaceType == null && dstL2Int.interfaceType == null))) {
-
-									// Layer2Interfaces verlinken
-									srcL2Int.layer2LinksTo.put(dstL2Int.name, dstL2Int);
-									dstL2Int.layer2LinksTo.put(srcL2Int.name, srcL2Int);
-
-									// Layer2Interfaces als verarbeitet markieren
-									srcL2Int.linkProcessed = true;
-									dstL2Int.linkProcessed = true;
-									count_l2_links++;
-
-									// Alle "logisch untergeordneten Interfaces" auch als verarbeitet markieren. Das klappt
-									// pauschal so, da die Mengen ggf. leer sind!
-									// Hiermit ist nicht die Tagged <-> Untagged Assoziation gemeint!
-									List<Layer2Interface> tmpL2Interfaces = new ArrayList<>();
-									tmpL2Interfaces.addAll(srcL2Int.aggregationInterfaces.values());
-									tmpL2Interfaces.addAll(dstL2Int.aggregationInterfaces.values());
-
-									for (Layer2Interface tmpL2Interface : tmpL2Interfaces) {
-										tmpL2Interface.linkProcessed = true;
-									}
-								}
-							}
-						}
+		// Gemeinsamer Thread Pool für [Schritt 3+4] und [Schritt 7]. Die Threads bleiben über alle Schritte (und im Watch
+		// Mode über alle Durchläufe) bestehen, sodass ihre Allokationen im FootprintReport erhalten bleiben. Als Daemon
+		// Threads halten sie die JVM am Ende nicht am Leben.
+		ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable);
+			thread.setDaemon(true);
+			return thread;
+		}) : null;
+		FootprintReport footprint = new FootprintReport();
+		SOILFragmentCache fragments = fragmentCache
+				? new SOILFragmentCache(outputFile.replaceAll("\\.soil$", "") + "_fragments") : null;
+		TopologyHistory history = historyDirectory != null ? new TopologyHistory(historyDirectory) : null;
+
+		// [Schritt 0] und [Schritt 3] bis [Schritt 12] verarbeiten jeweils eine fertige Topologie. Im Watch Mode werden sie
+		// nach jeder Änderung der Dateien erneut ausgeführt, daher sind sie hier zusammengefasst.
+		TopologyWatcher.Listener output = (topology, changed) -> {
+			footprint.phase("IPv4 check");
+			System.out.println("=== Checking IPv4 addresses..." + "\n");
+
+			// [Schritt 0] Doppelte IP-Adressen und überschneidende Subnetze über alle Netzkomponenten hinweg finden. Der
+			// Index vermeidet dabei den paarweisen Vergleich aller Layer3Interfaces.
+			IPv4PrefixIndex prefixIndex = new IPv4PrefixIndex(topology.networkComponents);
+			for (String line : prefixIndex.getReport()) {
+				System.out.println(line);
+			}
+			System.out.println("Prefixes indexed: " + prefixIndex.size() + "\n");
+
+			footprint.phase("SOIL output");
+			System.out.println("=== Generating SOIL-Output..." + "\n");
+
+			// [Schritt 3+4] SOIL-Ausgaben der Netzkomponenten sowie der Layer1Links und Layer2Links generieren und in eine
+			// große Datei schreiben. Der Verarbeitungszustand liegt dabei nicht mehr im Modell (siehe InterfaceMarks), sodass
+			// die Netzkomponenten parallel verarbeitet werden können. Die Reihenfolge der Ausgabe bleibt dabei erhalten.
+			// Optional werden nur Netzkomponenten ohne zwischengespeichertes Fragment neu erzeugt.
+			if (fragments != null) {
+				fragments.write(topology, outputFile, executor);
+				System.out.println("Fragments rendered: " + fragments.getRendered() + ", reused: " + fragments.getReused()
+						+ "\n");
+			} else {
+				List<String> fullSOIL = executor != null ? topology.getSOIL(executor) : topology.getSOIL();
+
+				// SOIL-Ausgabe in Datei schreiben
+				write(outputFile, fullSOIL);
+			}
+
+			// [Schritt 5] Lookup-Table für das binäre UND (siehe Workarounds) auf die tatsächlich vorkommenden Kombinationen
+			// aus Subnetzmaske und IP-Adresse beschränken und neben die SOIL-Ausgabe schreiben
+			footprint.phase("Lookup table");
+			IPCalculator ipCalculator = IPCalculator.fromTopology(topology.networkComponents);
+			String lookupTableFile = outputFile.replaceAll("\\.soil$", "");
+			write(lookupTableFile + "_bitand.use", ipCalculator.getUSE());
+			write(lookupTableFile + "_bitand.properties", ipCalculator.getProperties());
+
+			// [Schritt 6] Optional die Topologie in Partitionen zerlegen und pro Partition SOIL-Ausgabe, Schranken und
+			// Grenzbericht schreiben. Die Partitionen können anschließend unabhängig voneinander (und parallel) validiert
+			// werden. Partitionsdateien einer früheren, größeren Zerlegung werden anschließend entfernt.
+			int partitionCount = 0;
+			if (!partitionBoundaries.isEmpty()) {
+				footprint.phase("Partitioning");
+				System.out.println("=== Partitioning topology..." + "\n");
+
+				TopologyPartitioner partitioner = new TopologyPartitioner(topology);
+				partitioner.boundaries = partitionBoundaries;
+				partitioner.podPattern = podPattern;
+				partitioner.maxComponents = maxPartitionSize;
+
+				List<Partition> partitions = partitioner.partition();
+				for (Partition partition : partitions) {
+					String partitionFile = lookupTableFile + "_p" + partition.index;
+					List<String> partitionSOIL = partition.getSOIL();
+
+					write(partitionFile + ".soil", partitionSOIL);
+					write(partitionFile + ".properties", BoundsCalculator.fromSOIL(partitionSOIL).getProperties());
+					write(partitionFile + "_boundary.txt", partition.getBoundaryReport());
+				}
+				System.out.println("Partitions created: " + partitions.size() + "\n");
+				partitionCount = partitions.size();
+			}
+			deletePartitions(lookupTableFile, partitionCount);
+
+			footprint.phase("VLAN domains");
+			System.out.println("=== Checking VLAN domains for loops..." + "\n");
+
+			// [Schritt 7] Pro VLAN die Layer 2 Domäne bestimmen und auf Schleifen prüfen, die nicht durch ein LAG oder einen
+			// vPC abgedeckt sind. Die VLANs sind voneinander unabhängig und werden daher ebenfalls parallel geprüft.
+			VlanDomainIndex vlanIndex = new VlanDomainIndex(topology);
+			Map<Integer, List<Layer2Interface[]>> loops = executor != null ? vlanIndex.findLoops(executor)
+					: vlanIndex.findLoops();
+			for (String line : VlanDomainIndex.getReport(loops)) {
+				System.out.println(line);
+			}
+			System.out.println("VLANs indexed: " + vlanIndex.size() + "\n");
+
+			// [Schritt 8] Optional weitere Formate exportieren. Alle Formate werden mit einem einzigen Durchlauf über die
+			// Topologie erzeugt und direkt in ihre Dateien geschrieben (siehe TopologyExporter).
+			if (exportFormats.length > 0) {
+				footprint.phase("Export");
+				System.out.println("=== Exporting topology..." + "\n");
+
+				// Schlägt das Öffnen einer Datei fehl, werden die bereits geöffneten Senken wieder geschlossen
+				try (TopologyExporter exporter = new TopologyExporter()) {
+					for (String format : exportFormats) {
+						exporter.add(lookupTableFile, format);
 					}
+					exporter.export(topology);
 				}
+				System.out.println("Formats exported: " + String.join(", ", exportFormats) + "\n");
 			}
-		}
 
-		System.out.println("=== Merge Interfaces into LAGs..." + "\n");
-
-		// [Schritt 2] LAGs verschmelzen lassen nach obiger Vorarbeit mit der Linkerstellung
-		for (NetworkComponent srcNC : networkComponents) {
-			for (Layer1Interface srcL1Int : srcNC.layer1Interfaces.values()) {
-				Layer1Interface dstL1Int = srcL1Int.layer1LinkTo;
-
-				// Wenn es ein Ziel gibt und der Merge noch nicht verarbeitet wurde
-				if (dstL1Int != null && !srcL1Int.mergeProcessed && !dstL1Int.mergeProcessed) {
-					NetworkComponent dstNC = dstL1Int.networkComponent;
-
-					// Alle Layer2Interfaces logisch von oben nach unten durchgehen (ich gehe hier _nicht_ davon aus, dass
-					// PeerLinks Aggregator Interfaces sind!)
-					for (Layer2Interface srcL2Int : srcL1Int.getAllLayer2Interfaces()) {
-						for (Layer2Interface dstL2Int : dstL1Int.getAllLayer2Interfaces()) {
-
-							// Wenn beide Layer2Interfaces mit einem PeerLink verbunden sind (in beide Richtungen!)
-							if (srcL2Int.peerLink != null && dstL2Int.peerLink != null
-									&& srcL2Int.layer2LinksTo.containsValue(dstL2Int)
-									&& dstL2Int.layer2LinksTo.containsValue(srcL2Int)) {
-
-								// Annahme: Nur Aggregator Interfaces verschmelzen!
-								for (Layer2Interface srcAggL2Int : srcNC.aggregatorInterfaces.values()) {
-									for (Layer2Interface dstAggL2Int : dstNC.aggregatorInterfaces.values()) {
-
-										// Wenn die VPC Nummern übereinstimmen, ist es dasselbe Interface!
-										if (srcAggL2Int.vpc != null && srcAggL2Int.vpc.equals(dstAggL2Int.vpc)) {
-											srcAggL2Int.mergedInterface = dstAggL2Int;
-											dstAggL2Int.mergedInterface = srcAggL2Int;
-										}
-									}
-								}
-
-								// Alle assoziierten Layer1Interfaces als verarbeitet markieren
-								List<Layer1Interface> tmpL1Interfaces = new ArrayList<>();
-								tmpL1Interfaces.addAll(srcL2Int.layer1Interfaces.values());
-								tmpL1Interfaces.addAll(dstL2Int.layer1Interfaces.values());
-
-								for (Layer1Interface tmpL1Interface : tmpL1Interfaces) {
-									tmpL1Interface.mergeProcessed = true;
-								}
-							}
-						}
+			footprint.phase("Fingerprints");
+			System.out.println("=== Checking configuration fingerprints..." + "\n");
+
+			// [Schritt 9] Interfaces nach dem Fingerabdruck ihrer Konfiguration gruppieren (siehe ConfigFingerprint). Mitglieder
+			// eines Port Channels mit abweichender Konfiguration fallen so ohne paarweisen Vergleich auf. Optional werden die
+			// Fingerabdrücke mit denen des letzten Laufs verglichen und anschließend überschrieben.
+			ConfigFingerprintIndex fingerprintIndex = new ConfigFingerprintIndex(topology.networkComponents);
+			for (String line : fingerprintIndex.getReport()) {
+				System.out.println(line);
+			}
+			if (configDrift) {
+				Path fingerprintFile = Paths.get(lookupTableFile + "_fingerprints.txt");
+				if (Files.isRegularFile(fingerprintFile)) {
+					List<String> previous = Files.readAllLines(fingerprintFile, Charset.defaultCharset());
+					for (String line : fingerprintIndex.findDrift(previous)) {
+						System.out.println(line);
 					}
 				}
+				write(fingerprintFile.toString(), fingerprintIndex.getFingerprints());
+			}
+			System.out.println("Fingerprints indexed: " + fingerprintIndex.size() + "\n");
+
+			// [Schritt 10] Optional fehlende Links zwischen freien Interfaces ergänzen, sodass die Invarianten zu Links, VLANs
+			// und LAGs erfüllt sind. Die Links werden als eigene SOIL-Datei geschrieben, die nach der SOIL-Ausgabe geladen
+			// werden kann.
+			if (linkCompletion) {
+				footprint.phase("Link completion");
+				System.out.println("=== Completing missing links..." + "\n");
+
+				LinkCompletionSolver solver = new LinkCompletionSolver(topology);
+				solver.allowVlanChanges = linkCompletionVlanChanges;
+				if (linkCompletionDIMACS) {
+					write(lookupTableFile + "_completion.cnf", solver.getDIMACS());
+				}
+				boolean solved = solver.solve();
+				for (String line : solver.getReport()) {
+					System.out.println(line);
+				}
+				write(lookupTableFile + "_completion.soil", solver.getSOIL());
+				System.out.println("Links completed: " + solver.getLinks().size() + (solved ? "" : " (partial)") + "\n");
 			}
-		}
 
-		System.out.println("=== Generating SOIL-Output..." + "\n");
-
-		List<String> layer1Links = new ArrayList<>();
-		List<String> layer2Links = new ArrayList<>();
-
-		// [Schritt 3] SOIL-Ausgaben der Layer1Links und Layer2Links generieren
-		for (NetworkComponent srcNC : networkComponents) {
-			for (Layer1Interface srcL1Int : srcNC.layer1Interfaces.values()) {
-				Layer1Interface dstL1Int = srcL1Int.layer1LinkTo;
-
-				// Wenn das aktuelle Layer1Interface einen Link hat und zudem beide Interface noch nicht verarbeitet wurden
-				if (dstL1Int != null && !srcL1Int.linkSoilProcessed && !dstL1Int.linkSoilProcessed) {
-					NetworkComponent dstNC = dstL1Int.networkComponent;
-
-					// SOIL-Ausgaben generieren
-					layer1Links.add("!l1l := new Layer1Link");
-					layer1Links.add("!i1 := NetworkComponent.allInstances()->any(p | p.name = '" + srcNC.name
-							+ "').getLayer1Interfaces()->any(i | i.name='" + srcL1Int.name + "')");
-					layer1Links.add("!i2 := NetworkComponent.allInstances()->any(p | p.name = '" + dstNC.name
-							+ "').getLayer1Interfaces()->any(i | i.name='" + dstL1Int.name + "')");
-					layer1Links.add("!insert (i1, l1l) into HasLayer1Link");
-					layer1Links.add("!insert (i2, l1l) into HasLayer1Link");
-					layer1Links.add("");
-
-					// Verarbeitung der SOIL-Ausgabe für beide Layer1Interfaces abhaken
-					srcL1Int.linkSoilProcessed = true;
-					dstL1Int.linkSoilProcessed = true;
-
-					// Alle assoziierten Layer2Interfaces bearbeiten
-					for (Layer2Interface srcL2Int : srcL1Int.getAllLayer2Interfaces()) {
-
-						// Menge ist ggf. leer, sofern das Interface keine Links hat.
-						for (Layer2Interface dstL2Int : srcL2Int.layer2LinksTo.values()) {
-
-							// Sofern SOIL-Ausgabe der Layer2Interfaces noch nicht verarbeitet wurde
-							if (!srcL2Int.linkSoilProcessed && !dstL2Int.linkSoilProcessed) {
-								layer2Links.add("!l2l := new Layer2Link");
-
-								// Peer Links gesondert markieren
-								if (srcL2Int.peerLink != null && dstL2Int.peerLink != null) {
-									layer2Links.add("!l2l.peerLink := true");
-								}
-
-								// SOIL-Ausgaben generieren
-								layer2Links.add("!i1 := NetworkComponent.allInstances()->any(p | p.name = '" + srcNC.name
-										+ "').getLayer2Interfaces()->any(i | i.name='" + srcL2Int.name + "')");
-								layer2Links.add("!i2 := NetworkComponent.allInstances()->any(p | p.name = '" + dstNC.name
-										+ "').getLayer2Interfaces()->any(i | i.name='" + dstL2Int.name + "')");
-								layer2Links.add("!insert (i1, l2l) into HasLayer2Links");
-								layer2Links.add("!insert (i2, l2l) into HasLayer2Links");
-								layer2Links.add("");
-
-								// Verarbeitung der SOIL-Ausgabe für beide Layer2Interfaces abhaken
-								srcL2Int.linkSoilProcessed = true;
-								dstL2Int.linkSoilProcessed = true;
-
-								// Sofern Layer2Interface verschmolzen ist, markiere dessen Partner auch als bearbeitet
-								if (srcL2Int.mergedInterface != null) {
-									srcL2Int.mergedInterface.linkSoilProcessed = true;
-								}
-
-								// Sofern Layer2Interface verschmolzen ist, markiere dessen Partner auch als bearbeitet
-								if (dstL2Int.mergedInterface != null) {
-									dstL2Int.mergedInterface.linkSoilProcessed = true;
-								}
-							}
-						}
+			// [Schritt 11] Optional den Stand der Topologie im Verlauf aufnehmen und mit dem letzten Stand vergleichen. Nur
+			// geänderte Interfaces belegen dabei neuen Speicherplatz.
+			if (history != null) {
+				footprint.phase("History");
+				System.out.println("=== Recording topology snapshot..." + "\n");
+
+				List<Long> snapshots = history.getSnapshots();
+				long time = System.currentTimeMillis();
+				history.add(time, topology);
+				if (!snapshots.isEmpty()) {
+					for (String line : history.diff(snapshots.get(snapshots.size() - 1), time)) {
+						System.out.println(line);
 					}
 				}
+				System.out.println("Snapshots stored: " + (snapshots.size() + 1) + ", objects: " + history.getObjectCount()
+						+ "\n");
 			}
+
+			// [Schritt 12] Optional Ausfälle von Netzkomponenten und Links simulieren und berichten, welche Netzkomponenten,
+			// VLANs und Subnetze dadurch getrennt werden bzw. welche Layer2Links ihre Redundanz verlieren.
+			if (whatIfFailures.length > 0 || whatIfSweep) {
+				footprint.phase("What-if");
+				System.out.println("=== Simulating failures..." + "\n");
+
+				FailureSimulator simulator = new FailureSimulator(topology);
+				if (whatIfFailures.length > 0) {
+					System.out.println("Failure of " + String.join(", ", whatIfFailures) + ":");
+					for (String line : simulator.simulate(Arrays.asList(whatIfFailures))) {
+						System.out.println(line);
+					}
+					System.out.println();
+				}
+				if (whatIfSweep) {
+					for (String line : simulator.sweep()) {
+						System.out.println(line);
+					}
+					System.out.println("Single failures simulated: " + simulator.getSimulated() + ", with impact: "
+							+ simulator.getImpacting() + "\n");
+				}
+			}
+
+			// Kleine Statistik zu vearbeiteten Objekten augeben
+			System.out.println("Layer1Links created: " + topology.layer1LinkCount);
+			System.out.println("Layer2Links created: " + topology.layer2LinkCount);
+			System.out.println("Lookup-Table entries: " + ipCalculator.size());
+			for (String line : ipCalculator.getReport()) {
+				System.out.println(line);
+			}
+			System.out.println();
+			footprint.endPhase();
+
+			// Optional den Speicherbedarf des Modells schätzen und zusammen mit den Allokationen der Phasen ausgeben. Danach
+			// beginnt der Bericht von vorne (Watch Mode).
+			if (footprintReport) {
+				System.out.println("=== Measuring memory footprint..." + "\n");
+
+				footprint.measure(topology);
+				for (String line : footprint.getReport()) {
+					System.out.println(line);
+				}
+				System.out.println();
+			}
+			footprint.reset();
+		};
+
+		System.out.println("=== Reading configuration files..." + "\n");
+
+		// Im Watch Mode werden die Netzkomponenten vom TopologyWatcher verwaltet, der ab hier bis zum Abbruch weiterläuft
+		if (watchMode) {
+			if (ArchiveReader.isArchive(path)) {
+				throw new IllegalArgumentException("Watch mode does not support archives: " + path);
+			}
+
+			TopologyWatcher watcher = new TopologyWatcher(path, components, leanMode);
+			watcher.debounceMillis = watchDebounce;
+
+			System.out.println("=== Watching " + path + " for changes..." + "\n");
+			watcher.watch(output);
+			return;
 		}
 
-		// [Schritt 4] Alle SOIL Informationen sammeln und in eine große Datei schreiben
-		List<String> fullSOIL = new ArrayList<>();
+		// Im Server Mode wird die Topologie einmal verarbeitet und danach im Speicher gehalten. Der Server läuft in eigenen
+		// Threads bis zum Beenden der JVM weiter.
+		if (serverMode) {
+			if (ArchiveReader.isArchive(path)) {
+				throw new IllegalArgumentException("Server mode does not support archives: " + path);
+			}
 
-		// SOIL-Ausgaben der Netzkomponenten sammeln
-		for (NetworkComponent networkComponent : networkComponents) {
-			fullSOIL.addAll(networkComponent.getClassSOIL());
+			TopologyServer server = new TopologyServer(new TopologyWatcher(path, components, leanMode));
+			server.port = serverPort;
+			server.history = history;
+			server.reparseToken = serverReparseToken;
+			output.topologyChanged(server.getTopology(), new ArrayList<>());
+
+			server.start();
+			System.out.println("=== Serving topology on http://127.0.0.1:" + serverPort + "/ ..." + "\n");
+			return;
+		}
+
+		// Im Batch Mode werden die Netzkomponenten nie vollständig gleichzeitig im Speicher gehalten. Es entstehen nur
+		// SOIL-Ausgabe und Lookup-Table ([Schritt 1] bis [Schritt 5]).
+		if (batchMode) {
+			if (ArchiveReader.isArchive(path)) {
+				throw new IllegalArgumentException("Batch mode does not support archives: " + path);
+			}
+
+			BatchPipeline pipeline = new BatchPipeline(path, components);
+			footprint.phase("Summaries");
+			Topology summaries = pipeline.summarize(executor);
+
+			footprint.phase("SOIL output");
+			System.out.println("=== Generating SOIL-Output..." + "\n");
+			IPCalculator ipCalculator = pipeline.write(summaries, outputFile, executor);
+
+			footprint.phase("Lookup table");
+			String lookupTableFile = outputFile.replaceAll("\\.soil$", "");
+			write(lookupTableFile + "_bitand.use", ipCalculator.getUSE());
+			write(lookupTableFile + "_bitand.properties", ipCalculator.getProperties());
+
+			System.out.println("Layer1Links created: " + summaries.layer1LinkCount);
+			System.out.println("Layer2Links created: " + summaries.layer2LinkCount);
+			System.out.println("Lookup-Table entries: " + ipCalculator.size());
+			for (String line : ipCalculator.getReport()) {
+				System.out.println(line);
+			}
+			System.out.println();
+			footprint.endPhase();
+
+			if (footprintReport) {
+				System.out.println("=== Measuring memory footprint..." + "\n");
+
+				footprint.measure(summaries);
+				for (String line : footprint.getReport()) {
+					System.out.println(line);
+				}
+				System.out.println();
+			}
+
+			long duration = System.currentTimeMillis() - startTime;
+			System.out.println("=== Done! (Duration: " + duration + " ms)");
+			return;
 		}
 
-		// SOIL-Ausgaben der Layer1- und Layer2Links einsammeln
-		fullSOIL.addAll(layer1Links);
-		fullSOIL.addAll(layer2Links);
+		// Liste von Netzkomponenten initialisieren und alle Konfigurations- und CDP-Dateien einlesen. Archive werden dabei
+		// ohne temporäre Dateien gelesen; die Netzkomponenten werden parallel zum Entpacken erstellt.
+		footprint.phase("Parsing");
+		List<NetworkComponent> networkComponents = new ArrayList<>();
+		if (ArchiveReader.isArchive(path)) {
+			networkComponents.addAll(new ArchiveReader(path).read(leanMode, executor));
+		} else {
+			for (String[] component : components) {
+				networkComponents.add(new NetworkComponent(path + component[0], path + component[1], leanMode));
+			}
+		}
 
-		// SOIL-Ausgabe in Datei schreiben
-		Files.write(Paths.get(outputFile), fullSOIL, Charset.defaultCharset());
+		System.out.println("=== Processing links from CDP information and merging LAGs..." + "\n");
 
-		// Kleine Statistik zu vearbeiteten Objekten und benötigter Zeit augeben
-		System.out.println("Layer1Links created: " + count_l1_links);
-		System.out.println("Layer2Links created: " + count_l2_links);
+		// [Schritt 1] Links für Layer1- und Layer2Interfaces anhand der CDP-Informationen erstellen lassen.
+		// [Schritt 2] LAGs verschmelzen lassen nach obiger Vorarbeit mit der Linkerstellung.
+		// Beides passiert bei der Erstellung der Topologie, die danach eingefroren ist (siehe Topology).
+		footprint.phase("Correlation");
+		Topology topology = new Topology(networkComponents);
+		output.topologyChanged(topology, new ArrayList<>());
 
-		System.out.println();
+		// Benötigte Zeit augeben
 		long duration = System.currentTimeMillis() - startTime;
 		System.out.println("=== Done! (Duration: " + duration + " ms)");
 	}
+
+	/**
+	 * Schreibt die Zeilen in die angegebene Datei. Ist der Inhalt unverändert, wird die Datei nicht angefasst, sodass im
+	 * Watch Mode nur die tatsächlich betroffenen Ausgaben neu geschrieben werden.
+	 * 
+	 * @param file
+	 *            Pfad der Datei
+	 * @param lines
+	 *            Zeilen, die geschrieben werden sollen
+	 * @throws IOException
+	 *             Stumpfe Weiterleitung der Exception
+	 */
+	private static void write(String file, List<String> lines) throws IOException {
+		Path path = Paths.get(file);
+
+		if (Files.isRegularFile(path) && Files.readAllLines(path, Charset.defaultCharset()).equals(lines)) {
+			return;
+		}
+		Files.write(path, lines, Charset.defaultCharset());
+	}
+
+	/**
+	 * Löscht die Dateien der Partitionen ab dem angegebenen Index, die von einer früheren Zerlegung in mehr Partitionen
+	 * übrig sind.
+	 * 
+	 * @param lookupTableFile
+	 *            Pfad der Ausgabe ohne Endung
+	 * @param from
+	 *            Erster nicht mehr vorhandener Index (= Anzahl der aktuellen Partitionen)
+	 * @throws IOException
+	 *             Stumpfe Weiterleitung der Exception
+	 */
+	private static void deletePartitions(String lookupTableFile, int from) throws IOException {
+		Path base = Paths.get(lookupTableFile).toAbsolutePath();
+		Pattern pattern = Pattern
+				.compile(Pattern.quote(base.getFileName() + "_p") + "(\\d{1,9})(\\.soil|\\.properties|_boundary\\.txt)");
+
+		List<Path> stale;
+		try (Stream<Path> files = Files.list(base.getParent())) {
+			stale = files.filter(file -> {
+				Matcher matcher = pattern.matcher(file.getFileName().toString());
+				return matcher.matches() && Integer.parseInt(matcher.group(1)) >= from;
+			}).collect(Collectors.toList());
+		}
+
+		for (Path file : stale) {
+			Files.deleteIfExists(file);
+		}
+	}
 }
@@ -0,0 +1,504 @@
+package de.masterarbeit.parser;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import de.masterarbeit.analyse.ConfigFingerprintIndex;
+import de.masterarbeit.analyse.FailureSimulator;
+import de.masterarbeit.analyse.IPv4PrefixIndex;
+import de.masterarbeit.analyse.TopologyHistory;
+import de.masterarbeit.analyse.TopologyQuery;
+import de.masterarbeit.analyse.VlanDomainIndex;
+import de.masterarbeit.modell.*;
+
+/**
+ * Server Mode: Hält die geparste und korrelierte Topologie im Speicher und beantwortet Anfragen per HTTP auf localhost,
+ * anstatt für jede Abfrage die JVM neu zu starten und alle Dateien erneut zu parsen. Die Vorlagen der Netzkomponenten
+ * verwaltet dabei ein TopologyWatcher, sodass beim Neuparsen einer Netzkomponente nur deren Dateien gelesen werden.
+ * 
+ * Die Topologie wird als unveränderlicher Stand (Topologie samt Abfrageindizes) über eine atomare Referenz veröffentlicht.
+ * Lesende Anfragen arbeiten auf dem Stand, der zu ihrem Beginn aktuell war, und werden durch ein Neuparsen nie blockiert.
+ * Das Neuparsen erstellt einen neuen Stand und tauscht ihn erst anschließend aus (copy-on-write); schreibende Anfragen
+ * werden dabei nacheinander ausgeführt.
+ * 
+ * Anfragen werden auf virtuellen Threads bearbeitet, sofern die JVM sie unterstützt (ab Java 21), ansonsten auf einem
+ * Thread Pool. Alle Antworten sind Text (UTF-8) mit einem Ergebnis pro Zeile:
+ * 
+ * GET / - Übersicht der Endpunkte
+ * 
+ * GET /status - Stand, Anzahl Netzkomponenten, Layer1Links und Layer2Links
+ * 
+ * POST /reparse[?component=Hostname] - Netzkomponente neu parsen (ohne Parameter alle Netzkomponenten mit geänderten Dateien).
+ * Schreibende Anfragen sind nur erlaubt, sofern "reparseToken" gesetzt ist, und müssen den Token im Header
+ * "Authorization: Bearer <Token>" mitschicken. Ansonsten könnte jeder lokale Prozess das Neuparsen auslösen.
+ * 
+ * GET /soil - SOIL-Ausgabe der Topologie
+ * 
+ * GET /check - Prüfungen auf IP-Adressen, VLAN-Schleifen und Port Channels (siehe Main, [Schritt 0], [Schritt 7] und
+ * [Schritt 9])
+ * 
+ * GET /interfaces?component=..&name=..&vlan=..&vpc=..&type=..&description=..&covering=.. - Layer2Interfaces (siehe
+ * TopologyQuery.Selection)
+ * 
+ * GET /layer3?subnet=10.0.0.0/24 bzw. ?ip=10.0.0.1 - Layer3Interfaces im Subnetz bzw. deren Subnetz die Adresse enthält
+ * 
+ * GET /whatif?failure=Hostname[,Hostname/Interface..] - Auswirkungen des gemeinsamen Ausfalls (siehe FailureSimulator)
+ * 
+ * GET /whatif/sweep - Auswirkungen aller Einzelausfälle
+ * 
+ * Sofern ein Verlauf gesetzt ist (siehe TopologyHistory), wird jeder neue Stand darin aufgenommen und zusätzlich:
+ * 
+ * GET /history - Zeitpunkte aller aufgenommenen Stände
+ * 
+ * GET /history/changes?interface=Hostname/Interface[&from=..&to=..][&vlan=..] - Änderungen des Interfaces bzw. Zeitpunkte,
+ * zu denen das VLAN hinzugefügt oder entfernt wurde
+ * 
+ * GET /history/diff?from=..[&to=..] - Unterschiede zwischen zwei Ständen (Zeitpunkte siehe TopologyHistory.parseTime())
+ * 
+ * @author Marcel Schuster
+ *
+ */
+public class TopologyServer {
+	// Port auf localhost
+	public int port = 8080;
+	// Verlauf, in dem jeder neue Stand aufgenommen wird, oder null
+	public TopologyHistory history = null;
+	// Token für schreibende Anfragen (POST /reparse) oder null, um diese abzulehnen
+	public String reparseToken = null;
+
+	private final TopologyWatcher watcher;
+
+	// Aktueller Stand; wird nur als Ganzes ausgetauscht
+	private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+	// Schreibende Anfragen nacheinander ausführen (ReentrantLock statt synchronized, damit virtuelle Threads nicht am
+	// Träger-Thread hängen bleiben)
+	private final ReentrantLock writeLock = new ReentrantLock();
+
+	private HttpServer server;
+	private ExecutorService executor;
+
+	/**
+	 * Unveränderlicher Stand der Topologie samt Abfrageindizes.
+	 */
+	private static class Snapshot {
+		private final int version;
+		private final Topology topology;
+		private final TopologyQuery query;
+		// Wird erst bei der ersten Anfrage an /whatif erstellt und danach für diesen Stand wiederverwendet. Anfragen an den
+		// Simulator laufen nacheinander, da sweep() eine Statistik im Simulator führt (ReentrantLock, siehe writeLock).
+		private final ReentrantLock simulatorLock = new ReentrantLock();
+		private FailureSimulator simulator = null;
+
+		private Snapshot(int version, Topology topology) {
+			this.version = version;
+			this.topology = topology;
+			this.query = new TopologyQuery(topology);
+		}
+
+		private List<String> simulate(Function<FailureSimulator, List<String>> request) {
+			this.simulatorLock.lock();
+			try {
+				if (this.simulator == null) {
+					this.simulator = new FailureSimulator(this.topology);
+				}
+				return request.apply(this.simulator);
+			} finally {
+				this.simulatorLock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Eine Anfrage konnte nicht bearbeitet werden.
+	 */
+	private static class RequestException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+		private final int status;
+
+		private RequestException(int status, String message) {
+			super(message);
+			this.status = status;
+		}
+	}
+
+	/**
+	 * Konstruktor, der den ersten Stand aus den Vorlagen des Watchers erstellt.
+	 * 
+	 * @param watcher
+	 *            TopologyWatcher mit den geparsten Vorlagen aller Netzkomponenten
+	 */
+	public TopologyServer(TopologyWatcher watcher) {
+		this.watcher = watcher;
+		this.snapshot.set(new Snapshot(1, watcher.createTopology()));
+	}
+
+	/**
+	 * Startet den Server auf localhost. Die Methode kehrt sofort zurück; der Server läuft bis zum Aufruf von stop().
+	 * 
+	 * @throws IOException
+	 *             Sofern der Port nicht geöffnet werden kann
+	 */
+	public void start() throws IOException {
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), this.port), 0);
+		this.executor = createExecutor();
+		this.server.setExecutor(this.executor);
+
+		// Unbekannte Pfade landen im Kontext "/" und werden dort mit 404 beantwortet
+		this.handle("/", "GET", (snapshot, parameters) -> Arrays.asList("GET /status", "POST /reparse[?component=]",
+				"GET /soil", "GET /check", "GET /interfaces?component=&name=&vlan=&vpc=&type=&description=&covering=",
+				"GET /layer3?subnet=|ip=", "GET /whatif?failure=", "GET /whatif/sweep", "GET /history", "GET /history/changes?interface=&from=&to=&vlan=",
+				"GET /history/diff?from=&to="));
+		this.handle("/status", "GET", (snapshot, parameters) -> {
+			List<String> result = new ArrayList<>();
+			result.add("Version: " + snapshot.version);
+			result.add("NetworkComponents: " + snapshot.topology.networkComponents.size());
+			result.add("Layer1Links: " + snapshot.topology.layer1LinkCount);
+			result.add("Layer2Links: " + snapshot.topology.layer2LinkCount);
+			return result;
+		});
+		this.handle("/reparse", "POST", (snapshot, parameters) -> this.reparse(parameters.get("component")));
+		this.handle("/soil", "GET", (snapshot, parameters) -> snapshot.topology.getSOIL());
+		this.handle("/check", "GET", (snapshot, parameters) -> {
+			List<String> result = new ArrayList<>();
+			result.addAll(new IPv4PrefixIndex(snapshot.topology.networkComponents).getReport());
+			VlanDomainIndex vlanIndex = snapshot.query.getVlanIndex();
+			result.addAll(VlanDomainIndex.getReport(vlanIndex.findLoops()));
+			result.addAll(new ConfigFingerprintIndex(snapshot.topology.networkComponents).getReport());
+			return result;
+		});
+		this.handle("/interfaces", "GET", (snapshot, parameters) -> {
+			TopologyQuery.Selection selection = snapshot.query.select();
+			for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+				String value = parameter.getValue();
+				switch (parameter.getKey()) {
+				case "component":
+					selection.component(value);
+					break;
+				case "name":
+					selection.name(value);
+					break;
+				case "vlan":
+					selection.vlan(parseInt(value));
+					break;
+				case "vpc":
+					selection.vpc(value);
+					break;
+				case "type":
+					selection.type(value);
+					break;
+				case "description":
+					selection.description(value);
+					break;
+				case "covering":
+					selection.covering(value);
+					break;
+				default:
+					throw new RequestException(400, "Unknown parameter: " + parameter.getKey());
+				}
+			}
+			return selection.stream().map(i -> i.networkComponent.name + "/" + i.name).collect(Collectors.toList());
+		});
+		this.handle("/layer3", "GET", (snapshot, parameters) -> {
+			if (parameters.containsKey("subnet")) {
+				return snapshot.query.layer3InSubnet(parameters.get("subnet"))
+						.map(i -> i.networkComponent.name + "/" + i.name + " " + i.ip + " " + i.subnet)
+						.collect(Collectors.toList());
+			} else if (parameters.containsKey("ip")) {
+				return snapshot.query.layer3Covering(parameters.get("ip"))
+						.map(i -> i.networkComponent.name + "/" + i.name + " " + i.ip + " " + i.subnet)
+						.collect(Collectors.toList());
+			}
+			throw new RequestException(400, "Parameter 'subnet' or 'ip' required");
+		});
+		this.handle("/whatif", "GET", (snapshot, parameters) -> {
+			if (!parameters.containsKey("failure")) {
+				throw new RequestException(400, "Parameter 'failure' required");
+			}
+			return snapshot.simulate(simulator -> simulator.simulate(Arrays.asList(parameters.get("failure").split(","))));
+		});
+		this.handle("/whatif/sweep", "GET", (snapshot, parameters) -> snapshot.simulate(FailureSimulator::sweep));
+		this.handle("/history", "GET", (snapshot, parameters) -> this.getHistory().getSnapshots().stream()
+				.map(TopologyHistory::format).collect(Collectors.toList()));
+		this.handle("/history/changes", "GET", (snapshot, parameters) -> {
+			String key = parameters.get("interface");
+			if (key == null) {
+				throw new RequestException(400, "Parameter 'interface' required");
+			}
+			long from = parameters.containsKey("from") ? TopologyHistory.parseTime(parameters.get("from")) : Long.MIN_VALUE;
+			long to = parameters.containsKey("to") ? TopologyHistory.parseTime(parameters.get("to")) : Long.MAX_VALUE;
+			if (parameters.containsKey("vlan")) {
+				return this.getHistory().findVlanChanges(key, parseInt(parameters.get("vlan")), from, to);
+			}
+			return this.getHistory().getChanges(key, from, to);
+		});
+		this.handle("/history/diff", "GET", (snapshot, parameters) -> {
+			if (!parameters.containsKey("from")) {
+				throw new RequestException(400, "Parameter 'from' required");
+			}
+			long to = parameters.containsKey("to") ? TopologyHistory.parseTime(parameters.get("to")) : Long.MAX_VALUE;
+			return this.getHistory().diff(TopologyHistory.parseTime(parameters.get("from")), to);
+		});
+
+		this.server.start();
+	}
+
+	/**
+	 * Beendet den Server. Laufende Anfragen werden noch abgeschlossen.
+	 */
+	public void stop() {
+		if (this.server != null) {
+			this.server.stop(1);
+			this.executor.shutdown();
+			this.server = null;
+		}
+	}
+
+	/**
+	 * Gibt den aktuellen Stand der Topologie zurück (z.B. für eigene Auswertungen neben dem Server).
+	 * 
+	 * @return Aktuelle, eingefrorene Topologie
+	 */
+	public Topology getTopology() {
+		return this.snapshot.get().topology;
+	}
+
+	/**
+	 * Parst eine bzw. alle geänderten Netzkomponenten neu und veröffentlicht einen neuen Stand. Lesende Anfragen arbeiten
+	 * währenddessen weiter auf dem bisherigen Stand.
+	 * 
+	 * @param component
+	 *            Hostname der Netzkomponente oder null für alle Netzkomponenten mit geänderten Dateien
+	 * @return Bericht über die neu geparsten Netzkomponenten
+	 * @throws IOException
+	 *             Sofern die Dateien nicht gelesen werden können
+	 */
+	public List<String> reparse(String component) throws IOException {
+		List<String> result = new ArrayList<>();
+
+		this.writeLock.lock();
+		try {
+			long startTime = System.currentTimeMillis();
+
+			List<String> changed = new ArrayList<>();
+			if (component != null) {
+				try {
+					changed.add(this.watcher.reparse(component));
+				} catch (IllegalArgumentException e) {
+					throw new RequestException(404, e.getMessage());
+				}
+			} else {
+				changed.addAll(this.watcher.update());
+			}
+
+			Snapshot current = this.snapshot.get();
+			int historyChanges = 0;
+			if (!changed.isEmpty()) {
+				current = new Snapshot(current.version + 1, this.watcher.createTopology());
+				this.snapshot.set(current);
+				if (this.history != null) {
+					historyChanges = this.history.add(System.currentTimeMillis(), current.topology);
+				}
+			}
+
+			result.add("Reparsed: " + String.join(", ", changed));
+			result.add("Version: " + current.version);
+			if (this.history != null) {
+				result.add("Interfaces changed: " + historyChanges);
+			}
+			result.add("Duration: " + (System.currentTimeMillis() - startTime) + " ms");
+		} finally {
+			this.writeLock.unlock();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Gibt den Verlauf zurück.
+	 * 
+	 * @return Verlauf
+	 * @throws RequestException
+	 *             Sofern kein Verlauf gesetzt ist
+	 */
+	private TopologyHistory getHistory() {
+		if (this.history == null) {
+			throw new RequestException(404, "No topology history configured");
+		}
+		return this.history;
+	}
+
+	/**
+	 * Bearbeitung einer Anfrage auf einem Stand der Topologie.
+	 */
+	private interface Handler {
+		List<String> handle(Snapshot snapshot, Map<String, String> parameters) throws IOException;
+	}
+
+	/**
+	 * Registriert einen Handler für einen Pfad. Der Handler erhält den zu Beginn der Anfrage aktuellen Stand.
+	 * 
+	 * @param path
+	 *            Pfad
+	 * @param method
+	 *            Erlaubte HTTP-Methode
+	 * @param handler
+	 *            Handler
+	 */
+	private void handle(String path, String method, Handler handler) {
+		this.server.createContext(path, exchange -> {
+			int status = 200;
+			List<String> result;
+			try {
+				if (!exchange.getRequestURI().getPath().equals(path)) {
+					throw new RequestException(404, "Not found: " + exchange.getRequestURI().getPath());
+				} else if (!exchange.getRequestMethod().equalsIgnoreCase(method)) {
+					throw new RequestException(405, "Method not allowed: " + exchange.getRequestMethod());
+				} else if (method.equals("POST")) {
+					this.authorize(exchange);
+				}
+				result = handler.handle(this.snapshot.get(), parseQuery(exchange.getRequestURI().getRawQuery()));
+			} catch (RequestException e) {
+				status = e.status;
+				result = new ArrayList<>();
+				result.add(e.getMessage());
+			} catch (IllegalArgumentException e) {
+				status = 400;
+				result = new ArrayList<>();
+				result.add(e.getMessage());
+			} catch (IOException | RuntimeException e) {
+				status = 500;
+				result = new ArrayList<>();
+				result.add(e.getClass().getSimpleName() + ": " + e.getMessage());
+			}
+
+			respond(exchange, status, result);
+		});
+	}
+
+	/**
+	 * Prüft den Token einer schreibenden Anfrage. Der Vergleich benötigt unabhängig vom Inhalt immer gleich lange, sodass
+	 * sich der Token nicht über Antwortzeiten erraten lässt.
+	 * 
+	 * @param exchange
+	 *            Anfrage
+	 * @throws RequestException
+	 *             Sofern kein Token gesetzt ist (403) oder die Anfrage keinen bzw. einen falschen Token enthält (401)
+	 */
+	private void authorize(HttpExchange exchange) {
+		if (this.reparseToken == null || this.reparseToken.isEmpty()) {
+			throw new RequestException(403, "Reparse is disabled (no token configured)");
+		}
+
+		String header = exchange.getRequestHeaders().getFirst("Authorization");
+		String token = header != null && header.startsWith("Bearer ") ? header.substring(7).trim() : "";
+		if (!MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8),
+				this.reparseToken.getBytes(StandardCharsets.UTF_8))) {
+			throw new RequestException(401, "Missing or invalid token");
+		}
+	}
+
+	/**
+	 * Schreibt die Zeilen als Antwort.
+	 * 
+	 * @param exchange
+	 *            Anfrage
+	 * @param status
+	 *            HTTP-Status
+	 * @param lines
+	 *            Zeilen der Antwort
+	 * @throws IOException
+	 *             Sofern die Verbindung abbricht
+	 */
+	private static void respond(HttpExchange exchange, int status, List<String> lines) throws IOException {
+		StringBuilder body = new StringBuilder();
+		for (String line : lines) {
+			body.append(line).append('\n');
+		}
+
+		byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	/**
+	 * Zerlegt den Query String in seine Parameter.
+	 * 
+	 * @param query
+	 *            Query String (nicht dekodiert) oder null
+	 * @return Parameter in der Reihenfolge des Query Strings
+	 */
+	private static Map<String, String> parseQuery(String query) {
+		Map<String, String> result = new HashMap<>();
+		if (query == null || query.isEmpty()) {
+			return result;
+		}
+
+		for (String parameter : query.split("&")) {
+			int separator = parameter.indexOf('=');
+			try {
+				if (separator < 0) {
+					result.put(URLDecoder.decode(parameter, "UTF-8"), "");
+				} else {
+					result.put(URLDecoder.decode(parameter.substring(0, separator), "UTF-8"),
+							URLDecoder.decode(parameter.substring(separator + 1), "UTF-8"));
+				}
+			} catch (UnsupportedEncodingException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Wandelt einen Parameter in eine Zahl um.
+	 * 
+	 * @param value
+	 *            Parameter
+	 * @return Zahl
+	 */
+	private static int parseInt(String value) {
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			throw new RequestException(400, "Invalid number: " + value);
+		}
+	}
+
+	/**
+	 * Erstellt den Executor für die Anfragen: virtuelle Threads, sofern die JVM sie unterstützt (ab Java 21), ansonsten einen
+	 * Thread Pool. Der Zugriff erfolgt per Reflection, damit der Parser weiterhin mit älteren Java-Versionen übersetzt werden
+	 * kann.
+	 * 
+	 * @return Executor
+	 */
+	private static ExecutorService createExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool();
+		}
+	}
+}
@@ -0,0 +1,365 @@
+package de.masterarbeit.parser;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import de.masterarbeit.modell.*;
+
+/**
+ * Überwacht das Verzeichnis mit den Konfigurations- und CDP-Dateien (Watch Mode) und erstellt die Topologie neu, sobald
+ * sich Dateien ändern. Der Collector legt die Exporte im Laufe des Tages einzeln ab, sodass meist nur wenige
+ * Netzkomponenten betroffen sind.
+ * 
+ * Von jeder Netzkomponente wird eine geparste, aber noch nicht korrelierte Vorlage vorgehalten. Bei einer Änderung werden
+ * nur die Dateien der betroffenen Netzkomponenten erneut geparst. Da eine Topologie nach der Korrelation eingefroren ist
+ * (siehe Topology), wird anschließend aus Kopien aller Vorlagen (siehe NetworkComponent.copy()) eine neue Topologie
+ * erstellt. Das Parsen ist dabei der mit Abstand teuerste Schritt; die Korrelation der Kopien ist vergleichsweise günstig
+ * und liefert so garantiert dasselbe Ergebnis wie ein vollständiger Durchlauf.
+ * 
+ * Da die Dateien häufig in mehreren Schritten geschrieben werden, wird erst neu verarbeitet, wenn für die Dauer von
+ * "debounceMillis" keine weiteren Ereignisse eingetroffen sind. Kann eine Datei (noch) nicht geparst werden, bleibt die
+ * bisherige Vorlage erhalten und die Datei wird beim nächsten Ereignis erneut versucht.
+ * 
+ * Neue Netzkomponenten werden bei jeder Prüfung im Verzeichnis gesucht. Dabei gilt dieselbe Namenskonvention wie für
+ * Archive (siehe ArchiveReader): Aufgenommen werden nur vollständige Paare aus Running Config und CDP-Datei, deren Dateien
+ * noch zu keiner bekannten Netzkomponente gehören. Umgekehrt wird eine Netzkomponente samt Vorlage entfernt, sobald eine
+ * ihrer beiden Dateien gelöscht wurde (z.B. außer Betrieb genommene Geräte). Schlägt die Neuerstellung oder der Listener fehl, wird der Fehler
+ * ausgegeben und die Überwachung fortgesetzt; die betroffenen Netzkomponenten werden beim nächsten Durchlauf erneut an den
+ * Listener übergeben.
+ * 
+ * @author Marcel Schuster
+ *
+ */
+public class TopologyWatcher {
+	/**
+	 * Wird nach jeder Neuerstellung der Topologie aufgerufen.
+	 */
+	public interface Listener {
+		/**
+		 * Die Topologie wurde (neu) erstellt.
+		 * 
+		 * @param topology
+		 *            Neue Topologie
+		 * @param changed
+		 *            Hostnamen der neu geparsten Netzkomponenten
+		 * @throws IOException
+		 *             Stumpfe Weiterleitung der Exception
+		 */
+		void topologyChanged(Topology topology, List<String> changed) throws IOException;
+	}
+
+	// Ruhezeit nach dem letzten Dateiereignis, bevor neu verarbeitet wird
+	public long debounceMillis = 2000;
+	// Namenskonvention für neue Netzkomponenten im Verzeichnis (siehe ArchiveReader)
+	public String extension = ".txt";
+	public String cdpSuffix = "-cdp";
+
+	private final String path;
+	private final List<String[]> components = new ArrayList<>();
+	private final boolean lean;
+
+	// Geparste, aber unverknüpfte Vorlagen sowie Zeitstempel und Größe der Dateien je Netzkomponente. Neu gefundene
+	// Netzkomponenten haben bis zum ersten erfolgreichen Parsen weder Vorlage noch Zeitstempel (null).
+	private final List<NetworkComponent> templates = new ArrayList<>();
+	private final List<long[]> fileStates = new ArrayList<>();
+
+	// Hostnamen, deren Änderung noch nicht erfolgreich an den Listener übergeben wurde
+	private List<String> pending = new ArrayList<>();
+
+	/**
+	 * Konstruktor, der alle Netzkomponenten initial parst.
+	 * 
+	 * @param path
+	 *            Verzeichnis, in dem sich alle Dateien befinden (mit abschließendem (Back-)Slash)
+	 * @param components
+	 *            Paare aus Running Config und CDP-Informationen je Netzkomponente (siehe Main)
+	 * @param lean
+	 *            Sparsamer Modus (siehe NetworkComponent)
+	 * @throws IOException
+	 *             Stumpfe Weiterleitung der Exception
+	 */
+	public TopologyWatcher(String path, String[][] components, boolean lean) throws IOException {
+		this.path = path;
+		this.lean = lean;
+
+		for (String[] component : components) {
+			this.components.add(component);
+			this.templates.add(null);
+			this.fileStates.add(null);
+			this.parse(this.components.size() - 1, this.getFileState(this.components.size() - 1));
+		}
+	}
+
+	/**
+	 * Erstellt eine neue Topologie aus Kopien der aktuellen Vorlagen.
+	 * 
+	 * @return Neue, eingefrorene Topologie
+	 */
+	public Topology createTopology() {
+		List<NetworkComponent> networkComponents = new ArrayList<>();
+		for (NetworkComponent template : this.templates) {
+			if (template != null) {
+				networkComponents.add(template.copy());
+			}
+		}
+
+		return new Topology(networkComponents);
+	}
+
+	/**
+	 * Parst die Netzkomponenten neu, deren Running Config oder CDP-Informationen sich seit dem letzten Aufruf geändert haben
+	 * (Zeitstempel oder Größe der Datei). Zuvor wird das Verzeichnis nach neuen Netzkomponenten durchsucht (siehe scan())
+	 * und Netzkomponenten mit gelöschten Dateien werden entfernt (siehe removeDeleted()).
+	 * 
+	 * @return Hostnamen der neu geparsten bzw. entfernten Netzkomponenten (leer, sofern sich nichts geändert hat)
+	 */
+	public List<String> update() {
+		List<String> result = this.removeDeleted();
+
+		try {
+			this.scan();
+		} catch (IOException e) {
+			System.out.println("Could not scan " + this.path + ": " + e.getMessage() + " (keeping known components)");
+		}
+
+		for (int i = 0; i < this.components.size(); i++) {
+			long[] fileState;
+			try {
+				fileState = this.getFileState(i);
+			} catch (IOException e) {
+				// Datei wird vermutlich gerade ersetzt
+				continue;
+			}
+
+			if (Arrays.equals(fileState, this.fileStates.get(i))) {
+				continue;
+			}
+
+			try {
+				result.add(this.parse(i, fileState).name);
+			} catch (IOException | RuntimeException e) {
+				System.out.println("Could not parse " + this.components.get(i)[0] + " / " + this.components.get(i)[1] + ": "
+						+ e.getMessage() + " (keeping previous version)");
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Parst eine Netzkomponente unabhängig von Änderungen ihrer Dateien neu (z.B. auf Anfrage, siehe TopologyServer).
+	 * 
+	 * @param name
+	 *            Hostname der Netzkomponente (ohne Beachtung der Groß- und Kleinschreibung)
+	 * @return Hostname der neu geparsten Netzkomponente
+	 * @throws IOException
+	 *             Sofern die Dateien nicht gelesen werden können (die bisherige Vorlage bleibt erhalten)
+	 */
+	public String reparse(String name) throws IOException {
+		for (int i = 0; i < this.templates.size(); i++) {
+			if (this.templates.get(i) != null && this.templates.get(i).name.equalsIgnoreCase(name)) {
+				return this.parse(i, this.getFileState(i)).name;
+			}
+		}
+
+		throw new IllegalArgumentException("Unknown network component: " + name);
+	}
+
+	/**
+	 * Gibt die Hostnamen aller Netzkomponenten zurück.
+	 * 
+	 * @return Hostnamen in der Reihenfolge von "components"
+	 */
+	public List<String> getNames() {
+		List<String> result = new ArrayList<>();
+		for (NetworkComponent template : this.templates) {
+			if (template != null) {
+				result.add(template.name);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Parst eine Netzkomponente neu und ersetzt ihre Vorlage, sofern das Parsen gelingt.
+	 * 
+	 * @param index
+	 *            Index der Netzkomponente in "components"
+	 * @param fileState
+	 *            Zeitstempel und Größe der Dateien vor dem Parsen (siehe getFileState())
+	 * @return Neue Vorlage
+	 * @throws IOException
+	 *             Stumpfe Weiterleitung der Exception
+	 */
+	private NetworkComponent parse(int index, long[] fileState) throws IOException {
+		NetworkComponent template = new NetworkComponent(this.path + this.components.get(index)[0],
+				this.path + this.components.get(index)[1], this.lean);
+		this.templates.set(index, template);
+		this.fileStates.set(index, fileState);
+		return template;
+	}
+
+	/**
+	 * Sucht im Verzeichnis nach vollständigen Paaren aus Running Config und CDP-Datei, die noch zu keiner bekannten
+	 * Netzkomponente gehören, und nimmt sie ohne Vorlage auf. Geparst werden sie anschließend von update().
+	 * 
+	 * @throws IOException
+	 *             Sofern das Verzeichnis nicht gelesen werden kann
+	 */
+	private void scan() throws IOException {
+		Set<String> known = new HashSet<>();
+		for (String[] component : this.components) {
+			known.add(component[0].toLowerCase(Locale.ROOT));
+			known.add(component[1].toLowerCase(Locale.ROOT));
+		}
+
+		List<String> names;
+		try (Stream<Path> files = Files.list(Paths.get(this.path))) {
+			names = files.filter(Files::isRegularFile).map(file -> file.getFileName().toString())
+					.collect(Collectors.toList());
+		}
+
+		ArchiveReader naming = new ArchiveReader(this.path);
+		naming.extension = this.extension;
+		naming.cdpSuffix = this.cdpSuffix;
+		for (String[] component : naming.pair(names)) {
+			if (!known.contains(component[0].toLowerCase(Locale.ROOT))
+					&& !known.contains(component[1].toLowerCase(Locale.ROOT))) {
+				this.components.add(component);
+				this.templates.add(null);
+				this.fileStates.add(null);
+				System.out.println("Found new network component: " + component[0] + " / " + component[1] + "\n");
+			}
+		}
+	}
+
+	/**
+	 * Entfernt alle Netzkomponenten, deren Running Config oder CDP-Datei nicht mehr existiert, samt Vorlage. Da erst nach
+	 * der Ruhezeit geprüft wird, sind Dateien, die lediglich ersetzt werden, bis dahin wieder vorhanden.
+	 * 
+	 * @return Hostnamen (bzw. Dateinamen, sofern nie erfolgreich geparst) der entfernten Netzkomponenten
+	 */
+	private List<String> removeDeleted() {
+		List<String> result = new ArrayList<>();
+
+		for (int i = this.components.size() - 1; i >= 0; i--) {
+			String[] component = this.components.get(i);
+			if (Files.exists(Paths.get(this.path + component[0])) && Files.exists(Paths.get(this.path + component[1]))) {
+				continue;
+			}
+
+			NetworkComponent template = this.templates.get(i);
+			result.add(0, template != null ? template.name : component[0]);
+			this.components.remove(i);
+			this.templates.remove(i);
+			this.fileStates.remove(i);
+			System.out.println("Removed network component: " + component[0] + " / " + component[1] + "\n");
+		}
+
+		return result;
+	}
+
+	/**
+	 * Überwacht das Verzeichnis, bis der Thread unterbrochen wird. Nach jeder Änderung (inklusive Ruhezeit) wird die
+	 * Topologie neu erstellt und an den Listener übergeben. Der Listener wird zu Beginn einmal mit der initialen Topologie
+	 * aufgerufen. Fehler beim Erstellen der Topologie oder im Listener beenden die Überwachung nicht (siehe oben).
+	 * 
+	 * @param listener
+	 *            Listener, der die neue Topologie verarbeitet (z.B. Ausgaben schreiben)
+	 * @throws IOException
+	 *             Sofern das Verzeichnis nicht (mehr) überwacht werden kann
+	 * @throws InterruptedException
+	 *             Sofern der Thread unterbrochen wird
+	 */
+	public void watch(Listener listener) throws IOException, InterruptedException {
+		Path directory = Paths.get(this.path).toAbsolutePath();
+
+		try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+			directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+
+			this.pending = this.getNames();
+			this.deliver(listener, System.currentTimeMillis(), false);
+
+			while (true) {
+				// Auf das erste Ereignis warten und danach so lange sammeln, bis die Ruhezeit ohne Ereignis verstreicht
+				WatchKey key = watchService.take();
+				while (key != null) {
+					key.pollEvents();
+					if (!key.reset()) {
+						throw new IOException("Directory is no longer accessible: " + directory);
+					}
+					key = watchService.poll(this.debounceMillis, TimeUnit.MILLISECONDS);
+				}
+
+				long startTime = System.currentTimeMillis();
+				for (String name : this.update()) {
+					if (!this.pending.contains(name)) {
+						this.pending.add(name);
+					}
+				}
+				if (!this.pending.isEmpty()) {
+					this.deliver(listener, startTime, true);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Erstellt die Topologie neu und übergibt sie mit den noch ausstehenden Hostnamen an den Listener. Schlägt dies fehl,
+	 * bleiben die Hostnamen für den nächsten Durchlauf vorgemerkt.
+	 * 
+	 * @param listener
+	 *            Listener, der die neue Topologie verarbeitet
+	 * @param startTime
+	 *            Beginn des Durchlaufs (für die Ausgabe der Dauer)
+	 * @param report
+	 *            true, sofern die aktualisierten Netzkomponenten ausgegeben werden sollen
+	 */
+	private void deliver(Listener listener, long startTime, boolean report) {
+		try {
+			listener.topologyChanged(this.createTopology(), this.pending);
+		} catch (IOException | RuntimeException e) {
+			System.out.println("Could not update topology: " + e + " (still watching, will retry on next change)" + "\n");
+			return;
+		}
+
+		if (report) {
+			System.out.println("=== Updated " + String.join(", ", this.pending) + " (Duration: "
+					+ (System.currentTimeMillis() - startTime) + " ms)" + "\n");
+		}
+		this.pending = new ArrayList<>();
+	}
+
+	/**
+	 * Ermittelt Zeitstempel und Größe der beiden Dateien einer Netzkomponente.
+	 * 
+	 * @param index
+	 *            Index der Netzkomponente in "components"
+	 * @return Zeitstempel und Größe der Running Config und der CDP-Informationen
+	 * @throws IOException
+	 *             Sofern eine der Dateien nicht gelesen werden kann
+	 */
+	private long[] getFileState(int index) throws IOException {
+		Path runningConfig = Paths.get(this.path + this.components.get(index)[0]);
+		Path cdpResult = Paths.get(this.path + this.components.get(index)[1]);
+
+		return new long[] { Files.getLastModifiedTime(runningConfig).toMillis(), Files.size(runningConfig),
+				Files.getLastModifiedTime(cdpResult).toMillis(), Files.size(cdpResult) };
+	}
+}
@@ -0,0 +1,134 @@
+package de.masterarbeit.toolbox;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Einfache Klasse zur Berechnung der Schranken (Properties-Datei) für den Model Validator aus einer SOIL-Ausgabe. Gezählt
+ * werden die erstellten Objekte pro Klasse ("!x := new Klasse") sowie die eingefügten Links pro Assoziation ("!insert (...)
+ * into Assoziation"). Der Aufbau der Properties-Datei orientiert sich an den Dateien im Performancetest.
+ * 
+ * @author Marcel Schuster
+ *
+ */
+public class BoundsCalculator {
+	// Konkrete Klassen und Assoziationen des Topologiemodells (siehe networktopology.use) in der Reihenfolge der Ausgabe
+	private static final String[] CLASSES = { "NetworkComponent", "Layer1Interface", "UnawareInterface", "TrunkInterface",
+			"AccessInterface", "UntaggedDot1QInterface", "TaggedDot1QInterface", "IPv4Interface", "Layer1Link", "Layer2Link",
+			"Layer3Link" };
+	private static final String[] ASSOCIATIONS = { "HasInterfaces", "HasPhysicalNetworkComponents", "HasLayer1Link",
+			"HasLayer2Links", "DependsOnLayer1Interface", "HasAggregationLayer2Interfaces", "DependsOnUntaggedDot1QInterface",
+			"HasLayer3Links", "DependsOnLayer2Interfaces", "DependsOnLayer2Link" };
+
+	private static final Pattern PATTERN_NEW = Pattern.compile("^![\\w]+ := new ([\\w]+)$");
+	private static final Pattern PATTERN_INSERT = Pattern.compile("^!insert \\(.*\\) into ([\\w]+)$");
+	private static final Pattern PATTERN_NC_NAME = Pattern.compile("^!nc\\.name := '(.*)'$");
+
+	private Map<String, Integer> objects = new LinkedHashMap<>();
+	private Map<String, Integer> links = new LinkedHashMap<>();
+	private Set<String> networkComponentNames = new TreeSet<>();
+
+	/**
+	 * Erstellt die Schranken für die angegebene SOIL-Ausgabe.
+	 * 
+	 * @param soil
+	 *            SOIL-Ausgabe als Liste von Strings
+	 * @return Generator mit den gezählten Objekten und Links
+	 */
+	public static BoundsCalculator fromSOIL(List<String> soil) {
+		BoundsCalculator result = new BoundsCalculator();
+		result.addSOIL(soil);
+		return result;
+	}
+
+	/**
+	 * Zählt die Objekte und Links der angegebenen SOIL-Ausgabe hinzu.
+	 * 
+	 * @param soil
+	 *            SOIL-Ausgabe als Liste von Strings
+	 */
+	public void addSOIL(List<String> soil) {
+		for (String line : soil) {
+			Matcher matcher;
+
+			if ((matcher = PATTERN_NEW.matcher(line)).matches()) {
+				this.objects.merge(matcher.group(1), 1, Integer::sum);
+			} else if ((matcher = PATTERN_INSERT.matcher(line)).matches()) {
+				this.links.merge(matcher.group(1), 1, Integer::sum);
+			} else if ((matcher = PATTERN_NC_NAME.matcher(line)).matches()) {
+				this.networkComponentNames.add(matcher.group(1));
+			}
+		}
+	}
+
+	/**
+	 * Gibt die Anzahl der erstellten Objekte einer Klasse zurück.
+	 * 
+	 * @param className
+	 *            Name der Klasse
+	 * @return Anzahl der Objekte
+	 */
+	public int getObjects(String className) {
+		return this.objects.getOrDefault(className, 0);
+	}
+
+	/**
+	 * Gibt die Anzahl der eingefügten Links einer Assoziation zurück.
+	 * 
+	 * @param association
+	 *            Name der Assoziation
+	 * @return Anzahl der Links
+	 */
+	public int getLinks(String association) {
+		return this.links.getOrDefault(association, 0);
+	}
+
+	/**
+	 * Gibt die Schranken in der Form einer Properties-Datei für den Model Validator zurück. Die Anzahl der Objekte wird
+	 * exakt festgelegt, die Anzahl der Links nach oben beschränkt.
+	 * 
+	 * @return Properties-Repräsentation als Liste von Strings
+	 */
+	public List<String> getProperties() {
+		List<String> result = new ArrayList<>();
+
+		result.add("[default]");
+		result.add("");
+
+		for (String className : CLASSES) {
+			result.add("# " + className);
+			result.add(className + "_min = " + this.getObjects(className));
+			result.add(className + "_max = " + this.getObjects(className));
+
+			if (className.equals("NetworkComponent") && !this.networkComponentNames.isEmpty()) {
+				List<String> names = new ArrayList<>();
+				for (String name : this.networkComponentNames) {
+					names.add("'" + name + "'");
+				}
+
+				result.add("NetworkComponent_name = Set{" + String.join(", ", names) + "}");
+				result.add("NetworkComponent_name_min = -1");
+				result.add("NetworkComponent_name_max = -1");
+			}
+			result.add("");
+		}
+
+		for (String association : ASSOCIATIONS) {
+			result.add("# " + association);
+			result.add(association + "_min = 0");
+			result.add(association + "_max = " + this.getLinks(association));
+			result.add("");
+		}
+
+		result.add("aggregationcyclefreeness = on");
+		result.add("forbiddensharing = on");
+
+		return result;
+	}
+}
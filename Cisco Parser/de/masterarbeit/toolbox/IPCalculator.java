@@ -1,27 +1,263 @@
 package de.masterarbeit.toolbox;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import de.masterarbeit.modell.*;
+import static de.masterarbeit.toolbox.Toolbox.*;
+
 /**
  * Einfache Klasse zur Vorberechnung der Lookup-Table für OCL-konforme (aber extrem umständliche) Berechnung des binären UND.
  * 
+ * Anstatt der vollständigen Tabelle (1771 Einträge, siehe Workarounds/4-ocl-binary-workaround.use) werden nur die Einträge
+ * erzeugt, deren Kombination aus Byte der Subnetzmaske und Byte der IP-Adresse in der Topologie tatsächlich vorkommt. Die
+ * trivialen Fälle (0, 255 und Subnetzmaske gleich IP) deckt die Operation getValue() im Modell ohnehin ab.
+ * 
  * @author Marcel Schuster
  *
  */
 public class IPCalculator {
-	public static void main(String[] args) {
-		int counter = 0;
+	// Kombination aus Byte der Subnetzmaske und Byte der IP-Adresse, gepackt als (Maske << 8 | IP). Sortiert für eine stabile
+	// Ausgabe, die der Reihenfolge der vollständigen Tabelle entspricht.
+	private SortedSet<Integer> pairs = new TreeSet<>();
+
+	// Interfaces mit ungültiger IP-Adresse oder Subnetzmaske, die übersprungen wurden (siehe add())
+	private List<String> invalidAddresses = new ArrayList<>();
 
-		// Läuft von 10000000 bis 11111111 (Nuller müssen nicht betrachtet werden)
+	/**
+	 * Erzeugt die vollständige Lookup-Table über alle möglichen Subnetzmasken und IP-Bytes (bisheriges Verhalten).
+	 * 
+	 * @return Generator mit allen Einträgen
+	 */
+	public static IPCalculator full() {
+		IPCalculator result = new IPCalculator();
+
+		// Läuft von 10000000 bis 11111110 (Nuller und Einser müssen nicht betrachtet werden)
 		for (int i = 7, number = 1 << 7; i > 0; i--, number |= 1 << i) {
 			for (int j = 1; j < 255; j++) {
-				if (number == j)
-					continue;
-				System.out.print("Sequence{" + number + "," + j + "," + (number & j) + "}, ");
-				counter++;
+				result.addPair(number, j);
 			}
-			System.out.println();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Erzeugt die Lookup-Table für alle Layer3Interfaces der angegebenen Netzkomponenten. Interfaces mit ungültiger Adresse
+	 * werden übersprungen und tauchen im Bericht auf (siehe getReport()).
+	 * 
+	 * @param networkComponents
+	 *            Geparste Netzkomponenten
+	 * @return Generator mit den benötigten Einträgen
+	 */
+	public static IPCalculator fromTopology(Collection<NetworkComponent> networkComponents) {
+		IPCalculator result = new IPCalculator();
+
+		for (NetworkComponent networkComponent : networkComponents) {
+			for (Layer3Interface layer3Interface : networkComponent.layer3Interfaces.values()) {
+				result.add(layer3Interface);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Fügt die Einträge für ein Layer3Interface hinzu. Ist die IP-Adresse oder Subnetzmaske ungültig, wird das Interface
+	 * übersprungen und gemerkt, anstatt die gesamte Verarbeitung abzubrechen.
+	 * 
+	 * @param layer3Interface
+	 *            Layer3Interface einer Netzkomponente
+	 * @return true, sofern die Adresse gültig ist
+	 */
+	public boolean add(Layer3Interface layer3Interface) {
+		try {
+			this.addAddress(layer3Interface.ip, layer3Interface.subnet);
+			return true;
+		} catch (IllegalArgumentException e) {
+			this.invalidAddresses.add(layer3Interface.networkComponent.name + "/" + layer3Interface.name + " ("
+					+ layer3Interface.ip + " " + layer3Interface.subnet + ")");
+			return false;
+		}
+	}
+
+	/**
+	 * Fügt die Einträge hinzu, die für die Berechnung der Netzadresse einer IP-Adresse benötigt werden.
+	 * 
+	 * @param ip
+	 *            IPv4-Adresse in Dotted Decimal Notation
+	 * @param subnet
+	 *            Subnetzmaske in CIDR-Suffix oder Dotted Decimal Notation
+	 * @throws IllegalArgumentException
+	 *             Sofern IP-Adresse oder Subnetzmaske ungültig sind
+	 */
+	public void addAddress(String ip, String subnet) {
+		int prefixLength = prefixLength(subnet);
+		if (prefixLength < 0) {
+			throw new IllegalArgumentException("Invalid subnet mask: " + subnet);
+		}
+
+		int address = ipToInt(ip);
+		int mask = prefixToMask(prefixLength);
+
+		// Jedes Byte wird in OCL einzeln verknüpft (siehe getNetworkAddress() im Workaround)
+		for (int shift = 24; shift >= 0; shift -= 8) {
+			this.addPair((mask >>> shift) & 0xFF, (address >>> shift) & 0xFF);
+		}
+	}
+
+	/**
+	 * Fügt eine einzelne Kombination hinzu. Triviale Kombinationen werden ignoriert, da die Operation getValue() diese ohne
+	 * Lookup berechnet.
+	 * 
+	 * @param mask
+	 *            Byte der Subnetzmaske
+	 * @param ip
+	 *            Byte der IP-Adresse
+	 */
+	public void addPair(int mask, int ip) {
+		if (mask == 0 || ip == 0 || mask == 255 || ip == 255 || mask == ip) {
+			return;
+		}
+
+		this.pairs.add(mask << 8 | ip);
+	}
+
+	/**
+	 * Gibt die Anzahl der Einträge der Lookup-Table zurück.
+	 * 
+	 * @return Anzahl der Einträge
+	 */
+	public int size() {
+		return this.pairs.size();
+	}
+
+	/**
+	 * Gibt die übersprungenen Interfaces mit ungültiger Adresse zurück.
+	 * 
+	 * @return Bericht als Liste von Strings
+	 */
+	public List<String> getReport() {
+		List<String> result = new ArrayList<>();
+
+		for (String invalidAddress : this.invalidAddresses) {
+			result.add("Invalid address skipped: " + invalidAddress);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Gibt alle Einträge als OCL-Sequenzen der Form Sequence{Maske,IP,Ergebnis} zurück.
+	 * 
+	 * @return Liste der Einträge
+	 */
+	public List<String> getTuples() {
+		List<String> result = new ArrayList<>();
+
+		for (int pair : this.pairs) {
+			int mask = pair >>> 8;
+			int ip = pair & 0xFF;
+			result.add("Sequence{" + mask + "," + ip + "," + (mask & ip) + "}");
+		}
+
+		return result;
+	}
+
+	/**
+	 * Gibt das Attribut "data" der Klasse BinaryLookupTable zurück, wie es in 4-ocl-binary-workaround.use steht. Pro Byte
+	 * der Subnetzmaske wird eine Zeile ausgegeben.
+	 * 
+	 * @return USE-Repräsentation als Liste von Strings
+	 */
+	public List<String> getUSE() {
+		List<String> result = new ArrayList<>();
+		List<String> tuples = this.getTuples();
+		StringBuilder line = new StringBuilder();
+		int lastMask = -1;
+
+		result.add("    -- INFO Generierte Lookup-Table (" + tuples.size() + " Tupel)");
+		result.add("    data : Set(Sequence(Integer)) init : Set{");
+
+		int index = 0;
+		for (int pair : this.pairs) {
+			if (lastMask != -1 && (pair >>> 8) != lastMask) {
+				result.add(line.toString());
+				line = new StringBuilder();
+			}
+
+			line.append(line.length() == 0 ? "      " : " ").append(tuples.get(index));
+			line.append(++index < tuples.size() ? "," : "");
+			lastMask = pair >>> 8;
+		}
+
+		if (line.length() > 0) {
+			result.add(line.toString());
+		}
+		result.add("    }");
+
+		return result;
+	}
+
+	/**
+	 * Gibt die Lookup-Table in der Form einer Properties-Datei für den Model Validator zurück.
+	 * 
+	 * @return Properties-Repräsentation als Liste von Strings
+	 */
+	public List<String> getProperties() {
+		List<String> result = new ArrayList<>();
+
+		result.add("# ------------------------------------------------------------ BinaryLookupTable");
+		result.add("BinaryLookupTable_min = 1");
+		result.add("BinaryLookupTable_max = 1");
+		result.add("");
+		result.add("BinaryLookupTable_data = Set{" + String.join(", ", this.getTuples()) + "}");
+		result.add("BinaryLookupTable_data_min = -1");
+		result.add("BinaryLookupTable_data_max = -1");
+
+		return result;
+	}
+
+	/**
+	 * Ohne Argumente wird die vollständige Lookup-Table ausgegeben. Ansonsten werden die Argumente als IP-Adressen mit
+	 * Subnetzmaske interpretiert (z.B. "10.0.0.1/30" oder "10.0.0.1/255.255.255.252") und nur die benötigten Einträge
+	 * ausgegeben.
+	 * 
+	 * @param args
+	 *            IP-Adressen mit Subnetzmaske
+	 */
+	public static void main(String[] args) {
+		IPCalculator calculator;
+
+		if (args.length == 0) {
+			calculator = full();
+		} else {
+			calculator = new IPCalculator();
+
+			for (String arg : args) {
+				int separator = arg.indexOf('/');
+				if (separator < 0) {
+					throw new IllegalArgumentException("Expected <IP>/<Subnet>: " + arg);
+				}
+
+				String subnet = arg.substring(separator + 1);
+				calculator.addAddress(arg.substring(0, separator), subnet.contains(".") ? subnet : "/" + subnet);
+			}
+		}
+
+		for (String line : calculator.getUSE()) {
+			System.out.println(line);
+		}
+
+		System.out.println();
+		for (String line : calculator.getProperties()) {
+			System.out.println(line);
 		}
 
 		System.out.println();
-		System.out.println("Precalculations: " + counter);
+		System.out.println("Precalculations: " + calculator.size());
 	}
 }
@@ -0,0 +1,581 @@
+package de.masterarbeit.toolbox;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Ermittelt anhand der Schranken einer Properties-Datei die Invarianten des Topologiemodells, die innerhalb des Scopes nicht
+ * verletzt werden können, und deaktiviert sie für den Model Validator ("Klasse_Invariante = inactive"). Bisher wurde das
+ * nur vereinzelt von Hand gemacht (z.B. Layer2Interface_C_MACAddressIsGloballyUnique in den Dateien des Performancetests).
+ * Jede deaktivierte Invariante verkleinert die Formel, die der SAT-Solver lösen muss.
+ * 
+ * Gelesen werden das Modell (networktopology.use) und optional zusätzliche Invarianten (networktopology_additional.invs).
+ * Die Prüfung ist bewusst konservativ und erkennt nur die folgenden Muster. Alles andere bleibt aktiv:
+ * 
+ * 1. Die Kontextklasse (inkl. Unterklassen) hat keine Objekte, z.B. alle Layer3-Invarianten bei "IPv4Interface_max = 0".
+ * 
+ * 2. Die Invariante ist eine Implikation, deren Prämisse eine Navigation voraussetzt, die die Schranke der Assoziation
+ * nicht zulässt ("self.r->notEmpty() implies", "self.r <> null implies", "self.r->size() > k implies"), z.B. alle
+ * Aggregationsinvarianten bei "HasAggregationLayer2Interfaces_max = 0".
+ * 
+ * 3. Die Invariante ist "self.r->isEmpty()" oder ein direktes "self.r->forAll(...)" über eine Navigation ohne mögliche
+ * Links bzw. ein paarweises "forAll(a, b | a <> b implies ...)" über eine Navigation mit höchstens einem möglichen Link.
+ * 
+ * 4. Die Invariante ist "K.allInstances()->isUnique(...)" mit höchstens einem bzw. "K.allInstances()->isEmpty()" ohne
+ * Objekte der Klasse K.
+ * 
+ * Fehlt eine Schranke oder ist sie negativ (unbeschränkt), gilt sie als beliebig groß. Die Schranke einer abstrakten
+ * Klasse ergibt sich aus der Summe ihrer Unterklassen.
+ * 
+ * @author Marcel Schuster
+ *
+ */
+public class InvariantSlicer {
+	private static final int UNBOUNDED = Integer.MAX_VALUE;
+
+	private static final Pattern PATTERN_CLASS = Pattern
+			.compile("^\\s*(abstract\\s+)?class\\s+(\\w+)\\s*(<\\s*([\\w\\s,]+?))?\\s*$");
+	private static final Pattern PATTERN_ASSOCIATION = Pattern
+			.compile("^\\s*(association|composition|aggregation)\\s+(\\w+)\\s+between\\s*$");
+	private static final Pattern PATTERN_ROLE = Pattern.compile("^\\s*(\\w+)\\s*\\[[^\\]]*\\]\\s+role\\s+(\\w+).*$");
+	private static final Pattern PATTERN_INV = Pattern.compile("^\\s*inv\\s+(\\w+)\\s*:(.*)$");
+	private static final Pattern PATTERN_CONTEXT = Pattern.compile("^\\s*context\\s+(\\w+)\\s+inv\\s+(\\w+)\\s*:(.*)$");
+	private static final Pattern PATTERN_END = Pattern.compile("^\\s*end\\s*$");
+	private static final Pattern PATTERN_PROPERTY = Pattern.compile("^\\s*(\\w+)\\s*=\\s*(.*?)\\s*$");
+
+	// Muster für die Rümpfe der Invarianten (Whitespace auf ein Leerzeichen normalisiert)
+	private static final Pattern PATTERN_GUARD = Pattern
+			.compile("^self\\.(\\w+)(->notEmpty\\(\\)| <> null|->size\\(\\) > (\\d+)|->size\\(\\) >= (\\d+)) implies .*$");
+	private static final Pattern PATTERN_IS_EMPTY = Pattern.compile("^self\\.(\\w+)->isEmpty\\(\\)$");
+	// Nur ein direktes "forAll" über die Navigation: Zwischengeschaltete Operationen (z.B. "->including(x)") können auch
+	// ohne Links Elemente liefern
+	private static final Pattern PATTERN_FOR_ALL = Pattern.compile("^self\\.(\\w+)->forAll\\((.*)\\)$");
+	private static final Pattern PATTERN_PAIRWISE = Pattern.compile("^(\\w+), (\\w+) \\| (\\w+) <> (\\w+) implies .*$");
+	private static final Pattern PATTERN_UNIQUE = Pattern.compile("^(\\w+)\\.allInstances\\(\\)->isUnique\\(.*\\)$");
+	private static final Pattern PATTERN_NONE = Pattern
+			.compile("^(\\w+)\\.allInstances\\(\\)->(isEmpty\\(\\)|size\\(\\) = 0)$");
+
+	/**
+	 * Invariante des Modells bzw. der zusätzlichen Invarianten.
+	 */
+	private static class Invariant {
+		final String context;
+		final String name;
+		final boolean additional;
+		final List<String> text = new ArrayList<>();
+		final StringBuilder body = new StringBuilder();
+
+		Invariant(String context, String name, boolean additional) {
+			this.context = context;
+			this.name = name;
+			this.additional = additional;
+		}
+
+		/**
+		 * Gibt den Rumpf mit normalisiertem Whitespace zurück.
+		 * 
+		 * @return Rumpf der Invariante
+		 */
+		String getBody() {
+			return this.body.toString().trim().replaceAll("\\s+", " ");
+		}
+	}
+
+	// Oberklassen und direkte Unterklassen je Klasse sowie abstrakte Klassen
+	private Map<String, List<String>> superclasses = new HashMap<>();
+	private Map<String, List<String>> subclasses = new HashMap<>();
+	private Set<String> abstractClasses = new HashSet<>();
+
+	// Assoziationsenden (Klasse und Rolle) je Assoziation
+	private Map<String, String[]> associations = new LinkedHashMap<>();
+
+	private List<Invariant> invariants = new ArrayList<>();
+
+	// Ergebnis der letzten Prüfung (siehe slice())
+	private Map<String, Integer> bounds = new HashMap<>();
+
+	/**
+	 * Liest das Modell und die zusätzlichen Invarianten aus den angegebenen Dateien.
+	 * 
+	 * @param modelFile
+	 *            Pfad des Modells (networktopology.use)
+	 * @param invariantFiles
+	 *            Pfade der zusätzlichen Invarianten (z.B. networktopology_additional.invs)
+	 * @return Slicer für das Modell
+	 * @throws IOException
+	 *             Stumpfe Weiterleitung der Exception
+	 */
+	public static InvariantSlicer fromFiles(String modelFile, String... invariantFiles) throws IOException {
+		InvariantSlicer result = new InvariantSlicer();
+
+		result.addModel(Files.readAllLines(Paths.get(modelFile), StandardCharsets.UTF_8));
+		for (String invariantFile : invariantFiles) {
+			result.addInvariants(Files.readAllLines(Paths.get(invariantFile), StandardCharsets.UTF_8));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Liest Klassen, Assoziationen und Invarianten eines USE-Modells.
+	 * 
+	 * @param lines
+	 *            Zeilen des Modells
+	 */
+	public void addModel(List<String> lines) {
+		String currentClass = null;
+		String currentAssociation = null;
+		List<String> roles = new ArrayList<>();
+		Invariant invariant = null;
+
+		for (String line : stripComments(lines)) {
+			Matcher matcher;
+
+			if ((matcher = PATTERN_CLASS.matcher(line)).matches()) {
+				currentClass = matcher.group(2);
+				this.addClass(currentClass, matcher.group(4), matcher.group(1) != null);
+				invariant = null;
+			} else if ((matcher = PATTERN_ASSOCIATION.matcher(line)).matches()) {
+				currentAssociation = matcher.group(2);
+				roles.clear();
+				invariant = null;
+			} else if (PATTERN_END.matcher(line).matches()) {
+				if (currentAssociation != null && roles.size() == 4) {
+					this.associations.put(currentAssociation, roles.toArray(new String[4]));
+				}
+				currentClass = null;
+				currentAssociation = null;
+				invariant = null;
+			} else if (currentAssociation != null && roles.size() < 4
+					&& (matcher = PATTERN_ROLE.matcher(line)).matches()) {
+				roles.add(matcher.group(1));
+				roles.add(matcher.group(2));
+			} else if (currentClass != null && (matcher = PATTERN_INV.matcher(line)).matches()) {
+				invariant = new Invariant(currentClass, matcher.group(1), false);
+				invariant.body.append(matcher.group(2));
+				this.invariants.add(invariant);
+			} else if (invariant != null) {
+				// Folgezeilen gehören bis zur nächsten Invariante oder zum Ende der Klasse zum Rumpf
+				invariant.body.append(" ").append(line);
+			}
+		}
+	}
+
+	/**
+	 * Liest zusätzliche Invarianten ("context Klasse inv Name: ..."). Der Originaltext inklusive vorangestellter Kommentare
+	 * wird für getInvariants() aufbewahrt.
+	 * 
+	 * @param lines
+	 *            Zeilen der Invarianten-Datei
+	 */
+	public void addInvariants(List<String> lines) {
+		List<String> code = stripComments(lines);
+		List<String> pending = new ArrayList<>();
+		Invariant invariant = null;
+
+		for (int i = 0; i < lines.size(); i++) {
+			Matcher matcher = PATTERN_CONTEXT.matcher(code.get(i));
+
+			if (matcher.matches()) {
+				invariant = new Invariant(matcher.group(1), matcher.group(2), true);
+				invariant.body.append(matcher.group(3));
+				invariant.text.addAll(pending);
+				invariant.text.add(lines.get(i));
+				this.invariants.add(invariant);
+				pending.clear();
+			} else if (invariant != null && !code.get(i).trim().isEmpty()) {
+				// Kommentare und Leerzeilen zwischen zwei Rumpfzeilen gehören noch zur Invariante
+				invariant.text.addAll(pending);
+				invariant.text.add(lines.get(i));
+				invariant.body.append(" ").append(code.get(i));
+				pending.clear();
+			} else {
+				pending.add(lines.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Ermittelt die Invarianten, die innerhalb der Schranken der Properties-Datei nicht verletzt werden können.
+	 * 
+	 * @param properties
+	 *            Zeilen der Properties-Datei (nur der erste Abschnitt wird ausgewertet)
+	 * @return Map von Name der Invariante (wie in der Properties-Datei) auf Begründung
+	 */
+	public Map<String, String> slice(List<String> properties) {
+		Map<String, String> result = new LinkedHashMap<>();
+
+		this.bounds.clear();
+		int sections = 0;
+		for (String line : properties) {
+			Matcher matcher = PATTERN_PROPERTY.matcher(line);
+
+			if (line.trim().startsWith("[") && ++sections > 1) {
+				break;
+			} else if (matcher.matches() && matcher.group(1).endsWith("_max")) {
+				try {
+					int bound = Integer.parseInt(matcher.group(2));
+					this.bounds.put(matcher.group(1).substring(0, matcher.group(1).length() - 4),
+							bound < 0 ? UNBOUNDED : bound);
+				} catch (NumberFormatException e) {
+					// Keine Schranke für Objekte oder Links (z.B. Attributwerte)
+				}
+			}
+		}
+
+		for (Invariant invariant : this.invariants) {
+			String reason = this.getReason(invariant);
+			if (reason != null) {
+				result.put(invariant.context + "_" + invariant.name, reason);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Gibt die Properties-Datei zurück, in der zusätzlich alle nicht verletzbaren Invarianten deaktiviert sind. Bereits
+	 * vorhandene Einträge einer Invariante (z.B. von Hand aktiviert) bleiben unverändert.
+	 * 
+	 * @param properties
+	 *            Zeilen der Properties-Datei
+	 * @return Zeilen der neuen Properties-Datei
+	 */
+	public List<String> getProperties(List<String> properties) {
+		List<String> result = new ArrayList<>(properties);
+		List<String> inactive = new ArrayList<>();
+
+		for (Map.Entry<String, String> entry : this.slice(properties).entrySet()) {
+			boolean configured = false;
+			for (String line : properties) {
+				Matcher matcher = PATTERN_PROPERTY.matcher(line);
+				configured |= matcher.matches() && matcher.group(1).equals(entry.getKey());
+			}
+
+			if (!configured) {
+				inactive.add("# " + entry.getValue());
+				inactive.add(entry.getKey() + " = inactive");
+			}
+		}
+
+		if (!inactive.isEmpty()) {
+			result.add("");
+			result.add("# Invarianten, die innerhalb der Schranken nicht verletzt werden können (siehe InvariantSlicer)");
+			result.addAll(inactive);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Gibt die zusätzlichen Invarianten ohne die nicht verletzbaren zurück (z.B. als Ersatz für
+	 * networktopology_additional.invs im SOIL-Treiber).
+	 * 
+	 * @param properties
+	 *            Zeilen der Properties-Datei
+	 * @return Zeilen der neuen Invarianten-Datei
+	 */
+	public List<String> getInvariants(List<String> properties) {
+		Map<String, String> sliced = this.slice(properties);
+		List<String> result = new ArrayList<>();
+
+		for (Invariant invariant : this.invariants) {
+			if (invariant.additional && !sliced.containsKey(invariant.context + "_" + invariant.name)) {
+				result.addAll(invariant.text);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Ersetzt im SOIL-Treiber (z.B. test_nc04_sat4j.soil) die geladenen Invarianten und die Properties-Datei.
+	 * 
+	 * @param driver
+	 *            Zeilen des Treibers
+	 * @param invariantFile
+	 *            Pfad der neuen Invarianten-Datei (siehe getInvariants())
+	 * @param propertiesFile
+	 *            Pfad der neuen Properties-Datei (siehe getProperties())
+	 * @return Zeilen des neuen Treibers
+	 */
+	public static List<String> getDriver(List<String> driver, String invariantFile, String propertiesFile) {
+		List<String> result = new ArrayList<>();
+
+		for (String line : driver) {
+			if (line.trim().startsWith("constraints -load ")) {
+				result.add("constraints -load " + invariantFile);
+			} else if (line.trim().startsWith("mv -validate ")) {
+				result.add("mv -validate " + propertiesFile);
+			} else {
+				result.add(line);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Prüft die Muster (siehe Klassenkommentar) für eine Invariante.
+	 * 
+	 * @param invariant
+	 *            Invariante
+	 * @return Begründung oder null, sofern die Invariante verletzt werden kann
+	 */
+	private String getReason(Invariant invariant) {
+		String body = invariant.getBody();
+		Matcher matcher;
+
+		if (this.getObjects(invariant.context) == 0) {
+			return "No " + invariant.context + " objects";
+		}
+
+		if ((matcher = PATTERN_GUARD.matcher(body)).matches()) {
+			int required = matcher.group(3) != null ? Integer.parseInt(matcher.group(3)) + 1
+					: matcher.group(4) != null ? Integer.parseInt(matcher.group(4)) : 1;
+			String association = this.getAssociation(invariant.context, matcher.group(1));
+
+			if (association != null && this.getLinks(association) < required) {
+				return "Premise requires " + required + " " + association + " link(s)";
+			}
+		} else if ((matcher = PATTERN_IS_EMPTY.matcher(body)).matches()) {
+			String association = this.getAssociation(invariant.context, matcher.group(1));
+
+			if (association != null && this.getLinks(association) == 0) {
+				return "No " + association + " links";
+			}
+		} else if ((matcher = PATTERN_FOR_ALL.matcher(body)).matches() && isBalanced(matcher.group(2))) {
+			String association = this.getAssociation(invariant.context, matcher.group(1));
+			int maximum = PATTERN_PAIRWISE.matcher(matcher.group(2)).matches() ? 1 : 0;
+
+			if (association != null && this.getLinks(association) <= maximum) {
+				return (maximum == 0 ? "No " : "At most one ") + association + " link" + (maximum == 0 ? "s" : "");
+			}
+		} else if ((matcher = PATTERN_UNIQUE.matcher(body)).matches()) {
+			if (this.getObjects(matcher.group(1)) <= 1) {
+				return "At most one " + matcher.group(1) + " object";
+			}
+		} else if ((matcher = PATTERN_NONE.matcher(body)).matches()) {
+			if (this.getObjects(matcher.group(1)) == 0) {
+				return "No " + matcher.group(1) + " objects";
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Gibt die maximale Anzahl an Objekten einer Klasse inklusive ihrer Unterklassen zurück.
+	 * 
+	 * @param className
+	 *            Name der Klasse
+	 * @return Maximale Anzahl oder UNBOUNDED
+	 */
+	private int getObjects(String className) {
+		List<String> subclasses = this.subclasses.getOrDefault(className, new ArrayList<>());
+		Integer bound = this.bounds.get(className);
+
+		// Nur abstrakte Klassen ergeben sich ohne eigene Schranke aus ihren Unterklassen
+		if (bound == null && (subclasses.isEmpty() || !this.abstractClasses.contains(className))) {
+			return UNBOUNDED;
+		}
+
+		long result = bound != null ? bound : 0;
+		for (String subclass : subclasses) {
+			result += this.getObjects(subclass);
+		}
+
+		return (int) Math.min(result, UNBOUNDED);
+	}
+
+	/**
+	 * Gibt die maximale Anzahl an Links einer Assoziation zurück.
+	 * 
+	 * @param association
+	 *            Name der Assoziation
+	 * @return Maximale Anzahl oder UNBOUNDED
+	 */
+	private int getLinks(String association) {
+		return this.bounds.getOrDefault(association, UNBOUNDED);
+	}
+
+	/**
+	 * Sucht die Assoziation, über die von der Kontextklasse aus mit der angegebenen Rolle navigiert wird. Passen mehrere
+	 * Assoziationen, wird die mit der größten Schranke verwendet.
+	 * 
+	 * @param context
+	 *            Kontextklasse
+	 * @param role
+	 *            Rolle am anderen Ende der Assoziation
+	 * @return Name der Assoziation oder null, sofern keine passt
+	 */
+	private String getAssociation(String context, String role) {
+		String result = null;
+
+		for (Map.Entry<String, String[]> entry : this.associations.entrySet()) {
+			String[] ends = entry.getValue();
+
+			for (int i = 0; i < 2; i++) {
+				String own = ends[2 * (1 - i)];
+				if (ends[2 * i + 1].equals(role) && this.isKindOf(context, own)
+						&& (result == null || this.getLinks(entry.getKey()) > this.getLinks(result))) {
+					result = entry.getKey();
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Prüft, ob eine Klasse der angegebenen Klasse entspricht oder von ihr erbt.
+	 * 
+	 * @param className
+	 *            Name der Klasse
+	 * @param superclass
+	 *            Name der (möglichen) Oberklasse
+	 * @return true, sofern die Klasse von der Oberklasse erbt
+	 */
+	private boolean isKindOf(String className, String superclass) {
+		if (className.equals(superclass)) {
+			return true;
+		}
+
+		for (String parent : this.superclasses.getOrDefault(className, new ArrayList<>())) {
+			if (this.isKindOf(parent, superclass)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Registriert eine Klasse mit ihren Oberklassen.
+	 * 
+	 * @param className
+	 *            Name der Klasse
+	 * @param parents
+	 *            Kommaseparierte Oberklassen (ggf. null)
+	 * @param isAbstract
+	 *            Abstrakte Klasse
+	 */
+	private void addClass(String className, String parents, boolean isAbstract) {
+		List<String> result = new ArrayList<>();
+
+		if (isAbstract) {
+			this.abstractClasses.add(className);
+		}
+
+		if (parents != null) {
+			for (String parent : parents.split(",")) {
+				result.add(parent.trim());
+				this.subclasses.computeIfAbsent(parent.trim(), k -> new ArrayList<>()).add(className);
+			}
+		}
+
+		this.superclasses.put(className, result);
+	}
+
+	/**
+	 * Entfernt Zeilen- und Blockkommentare. Die Anzahl der Zeilen bleibt erhalten.
+	 * 
+	 * @param lines
+	 *            Zeilen
+	 * @return Zeilen ohne Kommentare
+	 */
+	private static List<String> stripComments(List<String> lines) {
+		List<String> result = new ArrayList<>();
+		boolean block = false;
+
+		for (String line : lines) {
+			StringBuilder code = new StringBuilder();
+
+			for (int i = 0; i < line.length(); i++) {
+				if (block) {
+					if (line.startsWith("*/", i)) {
+						block = false;
+						i++;
+					}
+				} else if (line.startsWith("/*", i)) {
+					block = true;
+					i++;
+				} else if (line.startsWith("--", i)) {
+					break;
+				} else {
+					code.append(line.charAt(i));
+				}
+			}
+
+			result.add(code.toString());
+		}
+
+		return result;
+	}
+
+	/**
+	 * Prüft, ob die Klammern eines Ausdrucks ausgeglichen sind (d.h. der Ausdruck ist ein einzelnes Argument).
+	 * 
+	 * @param expression
+	 *            Ausdruck
+	 * @return true, sofern alle Klammern innerhalb des Ausdrucks geschlossen werden
+	 */
+	private static boolean isBalanced(String expression) {
+		int depth = 0;
+
+		for (char c : expression.toCharArray()) {
+			depth += c == '(' ? 1 : c == ')' ? -1 : 0;
+			if (depth < 0) {
+				return false;
+			}
+		}
+
+		return depth == 0;
+	}
+
+	/**
+	 * Erstellt für die Dateien des Performancetests die Properties-Datei, die reduzierten Invarianten und den Treiber neben
+	 * den Originaldateien (Endung "_sliced"). Die reduzierten Invarianten hängen vom Scope ab und werden daher nach der
+	 * Properties-Datei benannt (z.B. test_nc08_sliced.invs), sodass sich die Läufe verschiedener Scopes nicht überschreiben.
+	 * 
+	 * @param args
+	 *            Modell (.use), zusätzliche Invarianten (.invs), Properties-Datei und optional SOIL-Treiber
+	 * @throws IOException
+	 *             Stumpfe Weiterleitung der Exception
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3) {
+			System.out.println("Usage: InvariantSlicer <model.use> <additional.invs> <bounds.properties> [<driver.soil>]");
+			return;
+		}
+
+		InvariantSlicer slicer = fromFiles(args[0], args[1]);
+		List<String> properties = Files.readAllLines(Paths.get(args[2]), StandardCharsets.UTF_8);
+		String propertiesFile = args[2].replaceAll("\\.properties$", "") + "_sliced.properties";
+		String invariantFile = args[2].replaceAll("\\.properties$", "") + "_sliced.invs";
+
+		for (Map.Entry<String, String> entry : slicer.slice(properties).entrySet()) {
+			System.out.println(entry.getKey() + ": " + entry.getValue());
+		}
+
+		Files.write(Paths.get(propertiesFile), slicer.getProperties(properties), StandardCharsets.UTF_8);
+		Files.write(Paths.get(invariantFile), slicer.getInvariants(properties), StandardCharsets.UTF_8);
+
+		if (args.length > 3) {
+			List<String> driver = Files.readAllLines(Paths.get(args[3]), StandardCharsets.UTF_8);
+			Files.write(Paths.get(args[3].replaceAll("\\.soil$", "") + "_sliced.soil"),
+					getDriver(driver, invariantFile, propertiesFile), StandardCharsets.UTF_8);
+		}
+	}
+}
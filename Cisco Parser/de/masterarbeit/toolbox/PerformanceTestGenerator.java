@@ -0,0 +1,434 @@
+package de.masterarbeit.toolbox;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Erzeugt die Testfälle des Performancetests (test_ncXX.properties und test_ncXX_<Solver>.soil) für eine beliebige Anzahl
+ * an Netzkomponenten aus einer Vorlage. Als Vorlage dienen eine vorhandene Properties-Datei (z.B. test_nc04.properties) und
+ * ein vorhandener SOIL-Treiber (z.B. test_nc04_sat4j.soil). Alles, was nicht von der Anzahl der Netzkomponenten abhängt
+ * (Attributwerte, deaktivierte Invarianten, Einstellungen), wird unverändert übernommen.
+ * 
+ * Die Schranken wachsen wie in den von Hand erstellten Dateien test_nc04 bis test_nc12 linear mit der Anzahl n der
+ * Netzkomponenten (eine Kette aus n - 1 Links, siehe SCALED). Für n = 4 bis 12 entstehen daher dieselben Dateien. Reichen
+ * die Namen der Netzkomponenten (NetworkComponent_name) nicht aus, werden sie fortgesetzt (NC-O, ..., NC-Z, NC-AA, ...).
+ * 
+ * Für den ValidationScheduler entstehen zusätzlich Teil-Scopes eines Ziels (siehe getProperties(int, int)): Dort wachsen nur
+ * die Obergrenzen, Untergrenzen bleiben wie in der Vorlage und die Namen reichen für das Ziel.
+ * 
+ * Optional werden mit dem InvariantSlicer je Testfall die nicht verletzbaren Invarianten deaktiviert und eine reduzierte
+ * Invarianten-Datei (test_ncXX.invs) erzeugt, die der Treiber anstelle der Vorlage lädt.
+ * 
+ * @author Marcel Schuster
+ *
+ */
+public class PerformanceTestGenerator {
+	// Schranken, die mit der Anzahl n der Netzkomponenten wachsen: floor(a * n / 4) + b
+	private static final String[] SCALED = { "NetworkComponent_min", "NetworkComponent_max", "HasInterfaces_max",
+			"Layer1Interface_max", "HasLayer1Link_max", "HasLayer2Links_max", "DependsOnLayer1Interface_max",
+			"TrunkInterface_max", "AccessInterface_max", "Layer1Link_max", "Layer2Link_max" };
+	private static final int[][] FACTORS = { { 4, 0 }, { 4, 0 }, { 23, -6 }, { 8, -2 }, { 8, -2 }, { 8, -2 }, { 15, -4 },
+			{ 4, -2 }, { 11, -2 }, { 4, -1 }, { 4, -1 } };
+
+	// Solver und ihr Wert für "mv -config satsolver:=" in der Reihenfolge des Performancetests
+	private static final String[] SOLVERS = { "sat4j", "minisat", "lingeling", "plingeling" };
+	private static final String[] SOLVER_CONFIG = { "defaultsat4j", "minisat", "lingeling", "plingeling" };
+
+	private static final Pattern PATTERN_PROPERTY = Pattern.compile("^\\s*(\\w+)\\s*=\\s*(.*?)\\s*$");
+	private static final Pattern PATTERN_NAMES = Pattern.compile("'([^']*)'");
+
+	// Solver, für die Treiber erzeugt werden
+	public List<String> solvers = new ArrayList<>();
+
+	// Bitbreite der Integer im Model Validator (null = aus der Vorlage)
+	public Integer bitwidth = null;
+
+	// Pfad der zusätzlichen Invarianten, die der Treiber lädt (null = aus der Vorlage)
+	public String invariantFile = null;
+
+	// Verzeichnis der Testfälle, wie es im Treiber referenziert wird (null = Verzeichnis der Properties-Datei der Vorlage)
+	public String directory = null;
+
+	// Deaktiviert nicht verletzbare Invarianten je Testfall (null = keine Reduktion, siehe InvariantSlicer)
+	public InvariantSlicer slicer = null;
+
+	private final List<String> properties;
+	private final List<String> driver;
+
+	/**
+	 * Konstruktor.
+	 * 
+	 * @param properties
+	 *            Zeilen der Properties-Datei, die als Vorlage dient
+	 * @param driver
+	 *            Zeilen des SOIL-Treibers, der als Vorlage dient
+	 */
+	public PerformanceTestGenerator(List<String> properties, List<String> driver) {
+		this.properties = properties;
+		this.driver = driver;
+
+		for (String solver : SOLVERS) {
+			this.solvers.add(solver);
+		}
+	}
+
+	/**
+	 * Gibt den Namen des Testfalls für die angegebene Anzahl an Netzkomponenten zurück.
+	 * 
+	 * @param networkComponents
+	 *            Anzahl der Netzkomponenten
+	 * @return Name des Testfalls (z.B. "test_nc04")
+	 */
+	public static String getName(int networkComponents) {
+		return String.format("test_nc%02d", networkComponents);
+	}
+
+	/**
+	 * Gibt die Properties-Datei für die angegebene Anzahl an Netzkomponenten zurück.
+	 * 
+	 * @param networkComponents
+	 *            Anzahl der Netzkomponenten (mindestens 2)
+	 * @return Zeilen der Properties-Datei
+	 */
+	public List<String> getProperties(int networkComponents) {
+		return this.getProperties(networkComponents, networkComponents, true);
+	}
+
+	/**
+	 * Gibt die Properties-Datei eines Teil-Scopes des Ziels zurück (siehe ValidationScheduler). Nur die Obergrenzen (_max)
+	 * wachsen mit der Anzahl der Netzkomponenten; Untergrenzen (_min) bleiben wie in der Vorlage und die Namen reichen für
+	 * das Ziel. Jede Instanz des Teil-Scopes ist damit auch eine Instanz des Ziels.
+	 * 
+	 * @param networkComponents
+	 *            Höchstzahl der Netzkomponenten im Teil-Scope (mindestens getMinimum())
+	 * @param target
+	 *            Höchstzahl der Netzkomponenten des Ziels
+	 * @return Zeilen der Properties-Datei
+	 */
+	public List<String> getProperties(int networkComponents, int target) {
+		if (networkComponents < this.getMinimum()) {
+			throw new IllegalArgumentException("Scope " + networkComponents + " below lower bound of template: "
+					+ this.getMinimum());
+		}
+
+		return this.getProperties(networkComponents, Math.max(networkComponents, target), false);
+	}
+
+	/**
+	 * Gibt die Untergrenze der Netzkomponenten aus der Vorlage zurück (NetworkComponent_min).
+	 * 
+	 * @return Untergrenze oder 0, sofern die Vorlage keine enthält
+	 */
+	public int getMinimum() {
+		for (String line : this.properties) {
+			Matcher matcher = PATTERN_PROPERTY.matcher(line);
+			if (matcher.matches() && "NetworkComponent_min".equals(matcher.group(1))) {
+				return Integer.parseInt(matcher.group(2));
+			}
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Erzeugt die Properties-Datei aus der Vorlage.
+	 * 
+	 * @param networkComponents
+	 *            Anzahl der Netzkomponenten, nach der die Obergrenzen wachsen
+	 * @param names
+	 *            Anzahl der Namen der Netzkomponenten
+	 * @param scaleMinimum
+	 *            Untergrenzen ebenfalls anpassen (genau n Netzkomponenten) oder aus der Vorlage übernehmen
+	 * @return Zeilen der Properties-Datei
+	 */
+	private List<String> getProperties(int networkComponents, int names, boolean scaleMinimum) {
+		List<String> result = new ArrayList<>();
+		int bitwidth = this.getBitwidth();
+
+		if (networkComponents < 2) {
+			throw new IllegalArgumentException("At least 2 network components required: " + networkComponents);
+		}
+
+		for (String line : this.properties) {
+			Matcher matcher = PATTERN_PROPERTY.matcher(line);
+			String key = matcher.matches() ? matcher.group(1) : null;
+			int index = indexOf(SCALED, key);
+
+			if (index >= 0 && !scaleMinimum && key.endsWith("_min")) {
+				result.add(line);
+			} else if (index >= 0) {
+				int bound = FACTORS[index][0] * networkComponents / 4 + FACTORS[index][1];
+				if (bitwidth > 0 && bound >= 1 << (bitwidth - 1)) {
+					throw new IllegalArgumentException("Bitwidth " + bitwidth + " too small for " + key + " = " + bound);
+				}
+				result.add(key + " = " + bound);
+			} else if ("NetworkComponent_name".equals(key)) {
+				result.add(key + " = " + getNames(matcher.group(2), names));
+			} else {
+				result.add(line);
+			}
+		}
+
+		return this.slicer != null ? this.slicer.getProperties(result) : result;
+	}
+
+	/**
+	 * Gibt die reduzierten zusätzlichen Invarianten für die angegebene Anzahl an Netzkomponenten zurück.
+	 * 
+	 * @param networkComponents
+	 *            Anzahl der Netzkomponenten
+	 * @return Zeilen der Invarianten-Datei oder null, sofern kein Slicer gesetzt ist
+	 */
+	public List<String> getInvariants(int networkComponents) {
+		return this.slicer != null ? this.slicer.getInvariants(this.getProperties(networkComponents)) : null;
+	}
+
+	/**
+	 * Wie getInvariants(int), jedoch für einen Teil-Scope des Ziels (siehe getProperties(int, int)).
+	 * 
+	 * @param networkComponents
+	 *            Höchstzahl der Netzkomponenten im Teil-Scope
+	 * @param target
+	 *            Höchstzahl der Netzkomponenten des Ziels
+	 * @return Zeilen der Invarianten-Datei oder null, sofern kein Slicer gesetzt ist
+	 */
+	public List<String> getInvariants(int networkComponents, int target) {
+		return this.slicer != null ? this.slicer.getInvariants(this.getProperties(networkComponents, target)) : null;
+	}
+
+	/**
+	 * Gibt den SOIL-Treiber für die angegebene Anzahl an Netzkomponenten und den angegebenen Solver zurück. Die Dateien des
+	 * Testfalls werden im gesetzten Verzeichnis bzw. im Verzeichnis der Properties-Datei der Vorlage erwartet
+	 * (siehe "mv -validate").
+	 * 
+	 * @param networkComponents
+	 *            Anzahl der Netzkomponenten
+	 * @param solver
+	 *            Solver (siehe SOLVERS)
+	 * @return Zeilen des Treibers
+	 */
+	public List<String> getDriver(int networkComponents, String solver) {
+		int index = indexOf(SOLVERS, solver);
+		String directory = this.directory;
+		String invariantFile = this.invariantFile;
+		List<String> result = new ArrayList<>();
+
+		if (index < 0) {
+			throw new IllegalArgumentException("Unknown solver: " + solver);
+		}
+
+		for (String line : this.driver) {
+			if (directory == null && line.trim().startsWith("mv -validate ")) {
+				String file = line.trim().substring("mv -validate ".length());
+				directory = file.substring(0, Math.max(file.lastIndexOf('/'), file.lastIndexOf('\\')) + 1);
+			} else if (invariantFile == null && line.trim().startsWith("constraints -load ")) {
+				invariantFile = line.trim().substring("constraints -load ".length());
+			}
+		}
+		if (directory == null) {
+			directory = "";
+		} else if (!directory.isEmpty() && !directory.endsWith("/") && !directory.endsWith("\\")) {
+			directory += "/";
+		}
+		if (this.slicer != null) {
+			invariantFile = directory + getName(networkComponents) + ".invs";
+		}
+
+		for (String line : InvariantSlicer.getDriver(this.driver, invariantFile,
+				directory + getName(networkComponents) + ".properties")) {
+			if (line.trim().startsWith("mv -config satsolver:=")) {
+				result.add("mv -config satsolver:=" + SOLVER_CONFIG[index]);
+			} else if (line.trim().startsWith("mv -config bitwidth:=")) {
+				result.add("mv -config bitwidth:=" + this.getBitwidth());
+			} else {
+				result.add(line);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Schreibt alle Dateien des Testfalls für die angegebene Anzahl an Netzkomponenten in das Verzeichnis.
+	 * 
+	 * @param directory
+	 *            Ausgabeverzeichnis
+	 * @param networkComponents
+	 *            Anzahl der Netzkomponenten
+	 * @return Geschriebene Dateien
+	 * @throws IOException
+	 *             Stumpfe Weiterleitung der Exception
+	 */
+	public List<Path> write(Path directory, int networkComponents) throws IOException {
+		List<Path> result = new ArrayList<>();
+		String name = getName(networkComponents);
+
+		result.add(Files.write(directory.resolve(name + ".properties"), this.getProperties(networkComponents),
+				StandardCharsets.UTF_8));
+		if (this.slicer != null) {
+			result.add(Files.write(directory.resolve(name + ".invs"), this.getInvariants(networkComponents),
+					StandardCharsets.UTF_8));
+		}
+		for (String solver : this.solvers) {
+			result.add(Files.write(directory.resolve(name + "_" + solver + ".soil"),
+					this.getDriver(networkComponents, solver), StandardCharsets.UTF_8));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Gibt die Bitbreite zurück, die entweder gesetzt oder aus dem Treiber der Vorlage übernommen wird.
+	 * 
+	 * @return Bitbreite oder 0, sofern keine bekannt ist
+	 */
+	private int getBitwidth() {
+		if (this.bitwidth != null) {
+			return this.bitwidth;
+		}
+
+		for (String line : this.driver) {
+			if (line.trim().startsWith("mv -config bitwidth:=")) {
+				return Integer.parseInt(line.trim().substring("mv -config bitwidth:=".length()).trim());
+			}
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Setzt die Namen der Netzkomponenten aus der Vorlage fort, bis ausreichend eindeutige Namen vorhanden sind.
+	 * 
+	 * @param names
+	 *            Namen aus der Vorlage (z.B. "Set{'NC-A', 'NC-B'}")
+	 * @param networkComponents
+	 *            Anzahl der Netzkomponenten
+	 * @return Namen als Set für die Properties-Datei
+	 */
+	private static String getNames(String names, int networkComponents) {
+		Set<String> result = new LinkedHashSet<>();
+		Matcher matcher = PATTERN_NAMES.matcher(names);
+
+		while (matcher.find()) {
+			result.add(matcher.group(1));
+		}
+		for (int i = 0; result.size() < networkComponents; i++) {
+			// Bijektive Darstellung zur Basis 26 wie bei Spalten einer Tabelle: A, ..., Z, AA, AB, ...
+			StringBuilder name = new StringBuilder();
+			for (int j = i + 1; j > 0; j = (j - 1) / 26) {
+				name.insert(0, (char) ('A' + (j - 1) % 26));
+			}
+			result.add("NC-" + name);
+		}
+
+		List<String> quoted = new ArrayList<>();
+		for (String name : result) {
+			quoted.add("'" + name + "'");
+		}
+
+		return "Set{" + String.join(", ", quoted) + "}";
+	}
+
+	/**
+	 * Sucht einen String in einem Array.
+	 * 
+	 * @param array
+	 *            Array
+	 * @param value
+	 *            Gesuchter String (ggf. null)
+	 * @return Index oder -1, sofern der String nicht enthalten ist
+	 */
+	private static int indexOf(String[] array, String value) {
+		for (int i = 0; i < array.length; i++) {
+			if (array[i].equals(value)) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Parst die Anzahlen der Netzkomponenten, z.B. "4,6,8", "14-50" oder "14-50:4" (Schrittweite).
+	 * 
+	 * @param sizes
+	 *            Anzahlen
+	 * @return Liste der Anzahlen
+	 */
+	private static List<Integer> parseSizes(String sizes) {
+		List<Integer> result = new ArrayList<>();
+
+		for (String part : sizes.split(",")) {
+			String[] range = part.trim().split("[-:]");
+			try {
+				int from = Integer.parseInt(range[0]);
+				int to = range.length > 1 ? Integer.parseInt(range[1]) : from;
+				int step = range.length > 2 ? Integer.parseInt(range[2]) : 1;
+				for (int n = from; n <= to && step > 0; n += step) {
+					result.add(n);
+				}
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid network component count: " + part, e);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Erzeugt die Testfälle neben der Properties-Datei der Vorlage.
+	 * 
+	 * @param args
+	 *            Properties-Datei, SOIL-Treiber, Anzahlen der Netzkomponenten und optional Solver (kommasepariert),
+	 *            Bitbreite, zusätzliche Invarianten (Pfad im Treiber) sowie Modell (.use) für die Reduktion mit dem
+	 *            InvariantSlicer (die Invarianten müssen dann lokal lesbar sein)
+	 * @throws IOException
+	 *             Stumpfe Weiterleitung der Exception
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3) {
+			System.out.println("Usage: PerformanceTestGenerator <template.properties> <template.soil> <sizes> "
+					+ "[<solvers> [<bitwidth> [<additional.invs> [<model.use>]]]]");
+			System.out.println("Example: PerformanceTestGenerator test_nc04.properties test_nc04_sat4j.soil 14-50:2 "
+					+ "sat4j,plingeling 13");
+			return;
+		}
+
+		Path template = Paths.get(args[0]);
+		PerformanceTestGenerator generator = new PerformanceTestGenerator(
+				Files.readAllLines(template, StandardCharsets.UTF_8),
+				Files.readAllLines(Paths.get(args[1]), StandardCharsets.UTF_8));
+
+		if (args.length > 3) {
+			generator.solvers.clear();
+			for (String solver : args[3].split(",")) {
+				generator.solvers.add(solver.trim());
+			}
+		}
+		if (args.length > 4) {
+			generator.bitwidth = Integer.parseInt(args[4]);
+		}
+		if (args.length > 5) {
+			generator.invariantFile = args[5];
+		}
+		if (args.length > 6) {
+			generator.slicer = InvariantSlicer.fromFiles(args[6], args[5]);
+		}
+
+		Path directory = template.toAbsolutePath().getParent();
+		for (int networkComponents : parseSizes(args[2])) {
+			for (Path file : generator.write(directory, networkComponents)) {
+				System.out.println("Written: " + file);
+			}
+		}
+	}
+}
@@ -1,12 +1,16 @@
 package de.masterarbeit.toolbox;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import de.masterarbeit.cisco.JCiscoCDPParse;
+import de.masterarbeit.modell.InterfaceId;
+
 /**
  * Kleine Toolbox Klasse, zur Kapselung von gemeinsam genutzten Operationen.
  * 
@@ -14,6 +18,10 @@ import java.util.regex.Pattern;
  *
  */
 public class Toolbox {
+	// Bereits kompilierte Regex Pattern. Die Pattern der Parser sind feste Strings und werden so nur einmal kompiliert, anstatt
+	// für jede Zeile jedes Blocks.
+	private static final Map<String, Pattern> PATTERNS = new ConcurrentHashMap<>();
+
 	/**
 	 * Wendet das Regex Pattern auf jede Line eines Blocks an und liefert capturing group zurück, sofern ein Treffer gefunden
 	 * wird. Wichtig: Es wird nur der erste Treffer beachtet!
@@ -28,7 +36,7 @@ public class Toolbox {
 	 */
 	public static String extractGroup(String pattern, List<String> block, int group) {
 		for (String line : block) {
-			Matcher matcher = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE).matcher(line);
+			Matcher matcher = compile(pattern).matcher(line);
 			if (matcher.find()) {
 				return matcher.toMatchResult().group(group).trim();
 			}
@@ -37,6 +45,18 @@ public class Toolbox {
 		return null;
 	}
 
+	/**
+	 * Gibt das kompilierte Regex Pattern (ohne Beachtung der Groß- und Kleinschreibung) zurück. Jedes Pattern wird dabei nur
+	 * einmal kompiliert.
+	 * 
+	 * @param pattern
+	 *            Regex Pattern
+	 * @return Kompiliertes Pattern
+	 */
+	public static Pattern compile(String pattern) {
+		return PATTERNS.computeIfAbsent(pattern, p -> Pattern.compile(p, Pattern.CASE_INSENSITIVE));
+	}
+
 	/**
 	 * Wendet das Regex Pattern auf jede Line eines Blocks an und liefert Gruppe zurück, sofern ein Treffer gefunden wird.
 	 * Wichtig: Es werde alle Treffer beachtet!
@@ -53,7 +73,7 @@ public class Toolbox {
 		List<String> result = new ArrayList<>();
 
 		for (String line : block) {
-			Matcher matcher = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE).matcher(line);
+			Matcher matcher = compile(pattern).matcher(line);
 			if (matcher.find()) {
 				result.add(matcher.toMatchResult().group(group).trim());
 			}
@@ -71,25 +91,34 @@ public class Toolbox {
 	 *            Die gefilterten CDP-Blöcke, die geparst werden sollen
 	 * @return Map, die jedem lokalen Interface ein Remote Interface zuordnet
 	 */
-	public static Map<String, String> getInterfaceNamesToNeighbors(List<List<String>> blocks) {
-		Map<String, String> result = new HashMap<>();
+	public static Map<InterfaceId, InterfaceId> getInterfaceNamesToNeighbors(List<List<String>> blocks) {
+		return getInterfaceNamesToNeighbors(null, blocks);
+	}
+
+	/**
+	 * Wie oben, jedoch werden die Blöcke anhand der Spalten der CDP-Tabelle geschnitten (siehe
+	 * JCiscoCDPParse.sliceInterfaces()). Die Regex Pattern werden nur noch für Zeilen verwendet, die nicht zu den Spalten
+	 * passen, da sie bei langen Zeilen und Interfacenamen mit Leerzeichen stark backtracken.
+	 * 
+	 * @param cdpResult
+	 *            CDP-Informationen, aus denen die Blöcke stammen (null = nur Regex Pattern verwenden)
+	 * @param blocks
+	 *            Die gefilterten CDP-Blöcke, die geparst werden sollen
+	 * @return Map, die jedem lokalen Interface ein Remote Interface zuordnet (in der Reihenfolge der CDP-Datei)
+	 */
+	public static Map<InterfaceId, InterfaceId> getInterfaceNamesToNeighbors(JCiscoCDPParse cdpResult,
+			List<List<String>> blocks) {
+		Map<InterfaceId, InterfaceId> result = new LinkedHashMap<>();
 
-		// Sichtbares Zeichen: \p{Graph} = [\p{Alnum}\p{Punct}]
-		// Interfaces enthalten manchmal Leerzeichen: "Ten1/1/1" oder "Ten 1/1/1"
 		for (List<String> block : blocks) {
-			String pattern = null;
-
-			// Je nachdem, ob der Block ein- oder zweizeilig ist, muss ein anderes Regex Pattern verwendet werden
-			if (block.size() == 1) {
-				pattern = "^(?:[\\p{Graph}]+)[\\s]+([\\p{Graph} ]+)[\\s]+(?:[\\d]+)[\\s]+(?:[BCDHIMPRSTVrs ]+)[\\s]+(?:[\\p{Graph}]+)[\\s]+([\\p{Graph} ]+)(?:.*)$";
-			} else if (block.size() == 2) {
-				pattern = "^[\\s]+([\\p{Graph} ]+)[\\s]+(?:[\\d]+)[\\s]+(?:[BCDHIMPRSTVrs ]+)[\\s]+(?:[\\p{Graph}]+)[\\s]+([\\p{Graph} ]+)(?:.*)$";
-			} else {
-				// Panik?
+			String[] interfaces = cdpResult != null ? cdpResult.sliceInterfaces(block) : null;
+			if (interfaces == null) {
+				interfaces = matchInterfaceNames(block);
 			}
 
-			String localInterface = longInterfaceName(extractGroup(pattern, block, 1));
-			String remoteInterface = longInterfaceName(extractGroup(pattern, block, 2));
+			// Kürzel wie "Gig0/1" ergeben denselben Schlüssel wie "GigabitEthernet0/1" (siehe InterfaceId)
+			InterfaceId localInterface = InterfaceId.of(interfaces[0]);
+			InterfaceId remoteInterface = InterfaceId.of(interfaces[1]);
 			result.put(localInterface, remoteInterface);
 		}
 
@@ -97,39 +126,102 @@ public class Toolbox {
 	}
 
 	/**
-	 * Übersetzt das Kürzel des Interfacenamens aus der CDP-Ausgabe in den vollständigen Namen der Konfigurationsdatei.
-	 * Beispiel: Gig0/1 -> GigabitEthernet0/1
-	 * 
-	 * http://www.willa.me/2013/11/the-six-most-common-species-of-code.html -> Hackathon!
+	 * Extrahiert das lokale und das entfernte Interface eines CDP-Blocks über Regex Pattern (Fallback für Zeilen, die nicht
+	 * zu den Spalten der CDP-Tabelle passen).
 	 * 
-	 * @param shortName
-	 *            Kürzel, welches übersetzt werden soll
-	 * @return Vollständiger Name des Interfaces
+	 * @param block
+	 *            Ein- oder zweizeiliger CDP-Block
+	 * @return Array aus lokalem und entferntem Interface
 	 */
-	private static String longInterfaceName(String shortName) {
+	private static String[] matchInterfaceNames(List<String> block) {
+		String pattern = null;
+
+		// Sichtbares Zeichen: \p{Graph} = [\p{Alnum}\p{Punct}]
 		// Interfaces enthalten manchmal Leerzeichen: "Ten1/1/1" oder "Ten 1/1/1"
-		Matcher matcher = Pattern.compile("^(Eth|Gig|Ten)[\\s]?([\\d/]+)$", Pattern.CASE_INSENSITIVE).matcher(shortName);
-
-		// Kürzel übersetzen, sofern die Eingabe dem korrekten Format entspricht
-		if (matcher != null && matcher.find()) {
-			String type = matcher.toMatchResult().group(1);
-			String port = matcher.toMatchResult().group(2);
-
-			switch (type) {
-			case "Eth":
-				return "Ethernet" + port;
-			case "Gig":
-				return "GigabitEthernet" + port;
-			case "Ten":
-				return "TenGigabitEthernet" + port;
-			case "mgmt0":
-				return "ManagementInterface";
-			default:
-				return "<NOT_FOUND>";
+		// Je nachdem, ob der Block ein- oder zweizeilig ist, muss ein anderes Regex Pattern verwendet werden
+		if (block.size() == 1) {
+			pattern = "^(?:[\\p{Graph}]+)[\\s]+([\\p{Graph} ]+)[\\s]+(?:[\\d]+)[\\s]+(?:[BCDHIMPRSTVrs ]+)[\\s]+(?:[\\p{Graph}]+)[\\s]+([\\p{Graph} ]+)(?:.*)$";
+		} else if (block.size() == 2) {
+			pattern = "^[\\s]+([\\p{Graph} ]+)[\\s]+(?:[\\d]+)[\\s]+(?:[BCDHIMPRSTVrs ]+)[\\s]+(?:[\\p{Graph}]+)[\\s]+([\\p{Graph} ]+)(?:.*)$";
+		} else {
+			// Panik?
+		}
+
+		return new String[] { extractGroup(pattern, block, 1), extractGroup(pattern, block, 2) };
+	}
+
+	/**
+	 * Wandelt eine IPv4-Adresse in Dotted Decimal Notation in eine gepackte 32 Bit Ganzzahl um. Das erste Oktett landet dabei
+	 * in den höchstwertigen Bits, sodass die Ordnung der Adressen erhalten bleibt (bei vorzeichenloser Betrachtung).
+	 * 
+	 * @param ip
+	 *            IPv4-Adresse, z.B. "10.0.0.1"
+	 * @return Gepackte Adresse als int
+	 * @throws IllegalArgumentException
+	 *             Sofern die Adresse nicht aus vier Oktetten zwischen 0 und 255 besteht
+	 */
+	public static int ipToInt(String ip) {
+		String[] octets = ip.trim().split(Pattern.quote("."));
+		if (octets.length != 4) {
+			throw new IllegalArgumentException("Invalid IPv4 address: " + ip);
+		}
+
+		int result = 0;
+		for (String octet : octets) {
+			int value = Integer.parseInt(octet);
+			if (value < 0 || value > 255) {
+				throw new IllegalArgumentException("Invalid IPv4 address: " + ip);
 			}
+			result = (result << 8) | value;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Wandelt eine gepackte IPv4-Adresse (siehe ipToInt()) zurück in die Dotted Decimal Notation.
+	 * 
+	 * @param address
+	 *            Gepackte Adresse
+	 * @return IPv4-Adresse als String
+	 */
+	public static String intToIP(int address) {
+		return (address >>> 24) + "." + ((address >>> 16) & 0xFF) + "." + ((address >>> 8) & 0xFF) + "." + (address & 0xFF);
+	}
+
+	/**
+	 * Ermittelt die Präfixlänge einer Subnetzmaske. Es werden sowohl die CIDR-Suffix Notation ("/24") als auch die Dotted
+	 * Decimal Notation ("255.255.255.0") verstanden.
+	 * 
+	 * @param subnet
+	 *            Subnetzmaske, wie sie in der Running Config angegeben ist
+	 * @return Präfixlänge (0 bis 32) oder -1, sofern die Maske ungültig (bzw. nicht zusammenhängend) ist
+	 */
+	public static int prefixLength(String subnet) {
+		if (subnet == null) {
+			return -1;
+		} else if (Pattern.matches("^/[\\d]{1,2}$", subnet)) {
+			int length = Integer.parseInt(subnet.substring(1));
+			return length <= 32 ? length : -1;
+		} else if (Pattern.matches("^(?:[\\d]{1,3}\\.){3}[\\d]{1,3}$", subnet)) {
+			int mask = ipToInt(subnet);
+			int length = Integer.bitCount(mask);
+
+			// Nur zusammenhängende Masken sind gültig (z.B. 255.0.255.0 nicht)
+			return mask == prefixToMask(length) ? length : -1;
 		}
 
-		// Gibt das Kürzel zurück, sofern es nicht dem korrekten Format entspricht
-		return shortName;
+		return -1;
+	}
+
+	/**
+	 * Wandelt eine Präfixlänge in die gepackte Subnetzmaske um. Beispiel: 24 -> 0xFFFFFF00
+	 * 
+	 * @param prefixLength
+	 *            Präfixlänge zwischen 0 und 32
+	 * @return Gepackte Subnetzmaske
+	 */
+	public static int prefixToMask(int prefixLength) {
+		return prefixLength == 0 ? 0 : -1 << (32 - prefixLength);
 	}
 }
@@ -0,0 +1,297 @@
+package de.masterarbeit.toolbox;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Startet den Model Validator mit schrittweise wachsendem Scope, anstatt direkt mit dem größten Scope zu beginnen (siehe
+ * start_performance_test.sh). Begonnen wird mit wenigen Netzkomponenten (z.B. nc04); die Anzahl wächst je Schritt um den
+ * Faktor "factor", bis der Ziel-Scope erreicht ist. Die Testfälle jedes Schritts werden mit dem PerformanceTestGenerator
+ * als Teil-Scope des Ziels erzeugt: Nur die Obergrenzen wachsen, Untergrenzen (z.B. NetworkComponent_min) bleiben wie in
+ * der Vorlage und die Namen reichen für das Ziel, sodass jeder Schritt höchstens n Netzkomponenten zulässt (siehe
+ * PerformanceTestGenerator.getProperties(int, int)). Begonnen wird frühestens bei der Untergrenze der Vorlage. Abgebrochen
+ * wird beim ersten aussagekräftigen Ergebnis:
+ * 
+ * - SATISFIABLE: Es existiert eine Instanz, die auch im Ziel-Scope gültig ist; größere Scopes sind nicht nötig (kleinster
+ * ausreichender Scope).
+ * 
+ * - UNSATISFIABLE: Erst im Ziel-Scope aussagekräftig, davor wird der Scope vergrößert.
+ * 
+ * - TIMEOUT und ERROR: Ein größerer Scope benötigt in der Regel nur länger, daher wird nicht weiter eskaliert.
+ * 
+ * Jeder Schritt erhält "stepTimeout" zuzüglich der Zeit, die vorherige Schritte nicht ausgeschöpft haben, höchstens aber
+ * die verbleibende Zeit von "totalTimeout". Schnelle kleine Scopes geben ihre Zeit so an die großen weiter. Die Ausgabe von
+ * USE wird je Schritt in log_test_ncXX.txt im Arbeitsverzeichnis abgelegt.
+ * 
+ * @author Marcel Schuster
+ *
+ */
+public class ValidationScheduler {
+	/**
+	 * Ergebnis eines Schritts.
+	 */
+	public enum Outcome {
+		SATISFIABLE, UNSATISFIABLE, TIMEOUT, ERROR
+	}
+
+	/**
+	 * Ein Schritt mit Scope, Ergebnis und Zeiten.
+	 */
+	public static class Step {
+		public final int networkComponents;
+		public final Outcome outcome;
+		public final long duration;
+		public final long timeout;
+
+		Step(int networkComponents, Outcome outcome, long duration, long timeout) {
+			this.networkComponents = networkComponents;
+			this.outcome = outcome;
+			this.duration = duration;
+			this.timeout = timeout;
+		}
+	}
+
+	// Ergebnis des Model Validators in der Ausgabe von USE (siehe kodkod Solution.Outcome)
+	private static final Pattern PATTERN_OUTCOME = Pattern.compile("\\b(TRIVIALLY_)?(UN)?SATISFIABLE\\b");
+
+	// Anzahl der Netzkomponenten im ersten Schritt und Wachstum je Schritt
+	public int start = 4;
+	public double factor = 2;
+
+	// Solver, mit dem validiert wird (siehe PerformanceTestGenerator)
+	public String solver = "sat4j";
+
+	// Zeit je Schritt und insgesamt (in ms)
+	public long stepTimeout = TimeUnit.MINUTES.toMillis(15);
+	public long totalTimeout = TimeUnit.MINUTES.toMillis(90);
+
+	private final PerformanceTestGenerator generator;
+	private final String usePath;
+	private final String modelFile;
+	private final Path directory;
+
+	// Schritte und Ergebnis des letzten Laufs
+	private List<Step> steps = new ArrayList<>();
+	private Outcome outcome = null;
+	private int target = 0;
+
+	/**
+	 * Konstruktor.
+	 * 
+	 * @param generator
+	 *            Generator für die Testfälle der einzelnen Schritte
+	 * @param usePath
+	 *            Pfad der ausführbaren Datei von USE
+	 * @param modelFile
+	 *            Pfad des Modells (networktopology.use)
+	 * @param directory
+	 *            Arbeitsverzeichnis für Testfälle und Logdateien
+	 */
+	public ValidationScheduler(PerformanceTestGenerator generator, String usePath, String modelFile, String directory) {
+		this.generator = generator;
+		this.usePath = usePath;
+		this.modelFile = modelFile;
+		this.directory = Paths.get(directory).toAbsolutePath();
+		this.generator.directory = this.directory.toString();
+	}
+
+	/**
+	 * Validiert mit wachsendem Scope bis zum ersten aussagekräftigen Ergebnis bzw. bis zum Ziel-Scope.
+	 * 
+	 * @param target
+	 *            Anzahl der Netzkomponenten im größten Scope
+	 * @return Ergebnis des letzten Schritts bzw. TIMEOUT, sofern die Zeit vor dem Ziel-Scope abgelaufen ist
+	 * @throws IOException
+	 *             Sofern die Testfälle nicht geschrieben oder USE nicht gestartet werden kann
+	 */
+	public Outcome run(int target) throws IOException {
+		long remaining = this.totalTimeout;
+		long carried = 0;
+
+		Files.createDirectories(this.directory);
+		this.steps.clear();
+		this.outcome = Outcome.TIMEOUT;
+		this.target = target;
+
+		for (int n = Math.max(Math.min(this.start, target), this.generator.getMinimum()); remaining > 0;) {
+			long timeout = Math.min(this.stepTimeout + carried, remaining);
+			Step step = this.runStep(n, target, timeout);
+
+			this.steps.add(step);
+			remaining -= step.duration;
+			carried = Math.max(timeout - step.duration, 0);
+
+			if (step.outcome != Outcome.UNSATISFIABLE || n >= target) {
+				this.outcome = step.outcome;
+				break;
+			}
+			n = Math.min(target, Math.max(n + 1, (int) Math.ceil(n * this.factor)));
+		}
+
+		return this.outcome;
+	}
+
+	/**
+	 * Gibt die Schritte des letzten Laufs zurück.
+	 * 
+	 * @return Schritte in der Reihenfolge ihrer Ausführung (nicht veränderbar)
+	 */
+	public List<Step> getSteps() {
+		return Collections.unmodifiableList(this.steps);
+	}
+
+	/**
+	 * Gibt die Schritte des letzten Laufs mit ihren Zeiten zurück.
+	 * 
+	 * @return Bericht als Liste von Strings
+	 */
+	public List<String> getReport() {
+		List<String> result = new ArrayList<>();
+		long total = 0;
+
+		for (Step step : this.steps) {
+			result.add("Scope " + PerformanceTestGenerator.getName(step.networkComponents) + ": " + step.outcome + " after "
+					+ step.duration + " ms (timeout " + step.timeout + " ms)");
+			total += step.duration;
+		}
+
+		if (!this.steps.isEmpty()) {
+			Step last = this.steps.get(this.steps.size() - 1);
+			result.add("Result: " + this.outcome + " at " + PerformanceTestGenerator.getName(last.networkComponents)
+					+ " for target " + PerformanceTestGenerator.getName(this.target) + " (Duration: " + total + " ms)");
+		}
+
+		return result;
+	}
+
+	/**
+	 * Erzeugt den Testfall eines Schritts und startet USE darauf.
+	 * 
+	 * @param networkComponents
+	 *            Höchstzahl der Netzkomponenten im Schritt
+	 * @param target
+	 *            Höchstzahl der Netzkomponenten des Ziels
+	 * @param timeout
+	 *            Maximale Laufzeit in ms
+	 * @return Schritt mit Ergebnis und Laufzeit
+	 * @throws IOException
+	 *             Sofern der Testfall nicht geschrieben oder USE nicht gestartet werden kann
+	 */
+	private Step runStep(int networkComponents, int target, long timeout) throws IOException {
+		String name = PerformanceTestGenerator.getName(networkComponents);
+		Path driver = this.directory.resolve(name + "_" + this.solver + ".soil");
+		Path log = this.directory.resolve("log_" + name + ".txt");
+
+		Files.write(this.directory.resolve(name + ".properties"), this.generator.getProperties(networkComponents, target),
+				StandardCharsets.UTF_8);
+		if (this.generator.slicer != null) {
+			Files.write(this.directory.resolve(name + ".invs"), this.generator.getInvariants(networkComponents, target),
+					StandardCharsets.UTF_8);
+		}
+		Files.write(driver, this.generator.getDriver(networkComponents, this.solver), StandardCharsets.UTF_8);
+
+		long begin = System.currentTimeMillis();
+		Process process = new ProcessBuilder(this.usePath, "-nogui", this.modelFile, driver.toString())
+				.redirectErrorStream(true).redirectOutput(log.toFile()).start();
+		boolean finished;
+		try {
+			finished = process.waitFor(timeout, TimeUnit.MILLISECONDS);
+			if (!finished) {
+				destroy(process);
+				process.waitFor();
+			}
+		} catch (InterruptedException e) {
+			destroy(process);
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for the model validator", e);
+		}
+		long duration = System.currentTimeMillis() - begin;
+
+		return new Step(networkComponents, finished ? getOutcome(log) : Outcome.TIMEOUT, duration, timeout);
+	}
+
+	/**
+	 * Beendet USE inklusive aller Kindprozesse (z.B. plingeling), die sonst nach einem Timeout weiterrechnen würden.
+	 * 
+	 * @param process
+	 *            Prozess von USE
+	 */
+	private static void destroy(Process process) {
+		process.descendants().forEach(ProcessHandle::destroyForcibly);
+		process.destroyForcibly();
+	}
+
+	/**
+	 * Liest das Ergebnis des Model Validators aus der Ausgabe von USE. Maßgeblich ist das letzte gefundene Ergebnis.
+	 * 
+	 * @param log
+	 *            Logdatei mit der Ausgabe von USE
+	 * @return Ergebnis oder ERROR, sofern keines gefunden wurde
+	 * @throws IOException
+	 *             Sofern die Logdatei nicht gelesen werden kann
+	 */
+	private static Outcome getOutcome(Path log) throws IOException {
+		Outcome result = Outcome.ERROR;
+
+		for (String line : Files.readAllLines(log, Charset.defaultCharset())) {
+			Matcher matcher = PATTERN_OUTCOME.matcher(line);
+			while (matcher.find()) {
+				result = matcher.group(2) != null ? Outcome.UNSATISFIABLE : Outcome.SATISFIABLE;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Validiert mit wachsendem Scope und gibt die Zeiten der Schritte aus.
+	 * 
+	 * @param args
+	 *            USE, Modell (.use), Properties-Datei und SOIL-Treiber als Vorlage, Arbeitsverzeichnis, Ziel-Scope
+	 *            (Anzahl der Netzkomponenten) und optional Solver, Timeout je Schritt und insgesamt (in Minuten) sowie
+	 *            zusätzliche Invarianten (.invs)
+	 * @throws IOException
+	 *             Stumpfe Weiterleitung der Exception
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 6) {
+			System.out.println("Usage: ValidationScheduler <use> <model.use> <template.properties> <template.soil> "
+					+ "<directory> <target> [<solver> [<stepTimeout> [<totalTimeout> [<additional.invs>]]]]");
+			return;
+		}
+
+		PerformanceTestGenerator generator = new PerformanceTestGenerator(
+				Files.readAllLines(Paths.get(args[2]), StandardCharsets.UTF_8),
+				Files.readAllLines(Paths.get(args[3]), StandardCharsets.UTF_8));
+		if (args.length > 9) {
+			generator.invariantFile = new File(args[9]).getAbsolutePath();
+		}
+
+		ValidationScheduler scheduler = new ValidationScheduler(generator, args[0], args[1], args[4]);
+		if (args.length > 6) {
+			scheduler.solver = args[6];
+		}
+		if (args.length > 7) {
+			scheduler.stepTimeout = TimeUnit.MINUTES.toMillis(Long.parseLong(args[7]));
+		}
+		if (args.length > 8) {
+			scheduler.totalTimeout = TimeUnit.MINUTES.toMillis(Long.parseLong(args[8]));
+		}
+
+		scheduler.run(Integer.parseInt(args[5]));
+		for (String line : scheduler.getReport()) {
+			System.out.println(line);
+		}
+	}
+}